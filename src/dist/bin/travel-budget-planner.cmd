@@ -0,0 +1,5 @@
+@echo off
+rem Starts Travel Budget Planner on the bundled runtime, keeping an AppCDS archive in lib\app.jsa
+rem (see bin/travel-budget-planner)
+set APP_HOME=%~dp0..
+"%APP_HOME%\runtime\bin\java" -XX:SharedArchiveFile="%APP_HOME%\lib\app.jsa" -XX:+AutoCreateSharedArchive %JAVA_OPTS% -cp "%APP_HOME%\lib\*" com.example.travelbudgetplanner.Main %*
@@ -0,0 +1,77 @@
+package com.example.travelbudgetplanner.benchmark;
+
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.service.HistoryAnalytics;
+import com.example.travelbudgetplanner.service.StorageFormat;
+import com.example.travelbudgetplanner.service.TripDataStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-trip analytics over an archive of trips; compare parallelism 1 with more workers
+ * to see how the chunked scan scales with cores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistoryAnalyticsBenchmark {
+
+    private static final int TRIPS = 100;
+
+    // Expenses across the whole archive
+    @Param({"100000", "1000000", "10000000"})
+    private int expenses;
+
+    // Worker threads; 0 uses the common pool
+    @Param({"0", "1", "4"})
+    private int parallelism;
+
+    private Path dataDirectory;
+    private TripDataStorageService storageService;
+    private ForkJoinPool pool;
+    private HistoryAnalytics analytics;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = BenchmarkFiles.createScratchDirectory("history-analytics-bench");
+        storageService = new TripDataStorageService(dataDirectory, StorageFormat.BINARY);
+        for (int i = 0; i < TRIPS; i++) {
+            storageService.saveTripToHistory(
+                    TripDataGenerator.columnarTrip("Destination " + i, expenses / TRIPS, i));
+        }
+        pool = parallelism == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+        analytics = new HistoryAnalytics(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+        BenchmarkFiles.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public HistoryReport analyze() throws IOException {
+        return analytics.analyze(storageService);
+    }
+}
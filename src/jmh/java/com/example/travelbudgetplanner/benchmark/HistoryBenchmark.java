@@ -0,0 +1,78 @@
+package com.example.travelbudgetplanner.benchmark;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.StorageFormat;
+import com.example.travelbudgetplanner.service.TripDataStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding a finished trip to a history that already holds historySize trips.
+ *
+ * Every call grows the history, so each measurement is a single save; the history grows by
+ * only a handful of trips over a run. The file format follows travelbudget.storage.format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistoryBenchmark {
+
+    // Expenses in each pre-filled history trip
+    private static final int SEED_TRIP_EXPENSES = 100;
+
+    @Param({"0", "100", "1000"})
+    private int historySize;
+
+    @Param({"1000", "100000", "1000000"})
+    private int expenses;
+
+    private Path dataDirectory;
+    private TripDataStorageService storageService;
+    private TripData trip;
+    private int saved;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = BenchmarkFiles.createScratchDirectory("trip-history-bench");
+        storageService = new TripDataStorageService(dataDirectory, StorageFormat.fromSystemProperty());
+        for (int i = 0; i < historySize; i++) {
+            storageService.saveTripToHistory(
+                    TripDataGenerator.columnarTrip("Seed trip " + i, SEED_TRIP_EXPENSES, i));
+        }
+        trip = TripDataGenerator.columnarTrip("Benchmark trip", expenses, TripDataGenerator.DEFAULT_SEED);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextTrip() {
+        // History skips duplicates, so every save needs a new destination
+        trip.setDestination("Benchmark trip " + saved++);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public void saveTripToHistory() throws IOException {
+        storageService.saveTripToHistory(trip);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.travelbudgetplanner.benchmark;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.model.TripReport;
+import com.example.travelbudgetplanner.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Category and daily grouping behind the report windows
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int expenses;
+
+    // COLUMNS: trip as loaded by the application; OBJECTS: plain List<Expense>
+    @Param({"COLUMNS", "OBJECTS"})
+    private String layout;
+
+    // Worker threads for large trips; 0 uses the common pool
+    @Param({"0", "1"})
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    private ReportService reportService;
+    private TripData trip;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = parallelism == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+        reportService = new ReportService(pool);
+        trip = "COLUMNS".equals(layout)
+                ? TripDataGenerator.columnarTrip("Kyoto", expenses, TripDataGenerator.DEFAULT_SEED)
+                : TripDataGenerator.listTrip("Kyoto", expenses, TripDataGenerator.DEFAULT_SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public TripReport buildReport() {
+        return reportService.buildReport(trip);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.travelbudgetplanner.benchmark;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.StorageBackend;
+import com.example.travelbudgetplanner.service.StorageFormat;
+import com.example.travelbudgetplanner.service.TripRepository;
+import com.example.travelbudgetplanner.service.TripRepository.HistoryExpense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The same repository operations on every storage backend: current trip reads and appends,
+ * and whole-history reads, analytics and search over historyTrips saved trips.
+ *
+ * appendExpense grows the current trip by one expense per call, so on FILES it also pays for
+ * the occasional journal compaction. Saving to history is left to HistoryBenchmark: every
+ * save grows the history, so it needs single-shot measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryBenchmark {
+
+    // Expenses in each history trip
+    private static final int HISTORY_TRIP_EXPENSES = 1000;
+
+    @Param({"FILES", "H2"})
+    private StorageBackend backend;
+
+    @Param({"10", "100"})
+    private int historyTrips;
+
+    @Param({"1000", "100000"})
+    private int expenses;
+
+    private Path dataDirectory;
+    private TripRepository repository;
+    private TripData trip;
+    private Expense expense;
+    private ExpenseQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = BenchmarkFiles.createScratchDirectory("trip-repository-bench");
+        repository = backend.open(dataDirectory, StorageFormat.BINARY);
+        for (int i = 0; i < historyTrips; i++) {
+            repository.saveTripToHistory(
+                    TripDataGenerator.columnarTrip("History trip " + i, HISTORY_TRIP_EXPENSES, i));
+        }
+        repository.saveCurrentTrip(
+                TripDataGenerator.columnarTrip("Lisbon", expenses, TripDataGenerator.DEFAULT_SEED));
+        trip = repository.loadCurrentTrip();
+        expense = new Expense("Food", 12.5, LocalDate.of(2024, 1, 15));
+
+        // A week of food and transport over 100, as picked in the history search
+        query = new ExpenseQuery();
+        query.setFromDate(LocalDate.of(2024, 1, 8));
+        query.setToDate(LocalDate.of(2024, 1, 14));
+        query.setCategories(Set.of("Food", "Transport"));
+        query.setMinAmount(100.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        BenchmarkFiles.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public boolean appendExpense() throws IOException {
+        return repository.appendExpense(trip, expense);
+    }
+
+    @Benchmark
+    public TripData loadCurrentTrip() throws IOException {
+        return repository.loadCurrentTrip();
+    }
+
+    @Benchmark
+    public long streamAllTrips() throws IOException {
+        try (Stream<TripData> trips = repository.streamAllTrips()) {
+            return trips.mapToLong(t -> t.getExpenses().size()).sum();
+        }
+    }
+
+    @Benchmark
+    public HistoryReport analyzeHistory() throws IOException {
+        return repository.analyzeHistory();
+    }
+
+    @Benchmark
+    public List<HistoryExpense> searchHistory() throws IOException {
+        return repository.searchHistory(query, 100);
+    }
+}
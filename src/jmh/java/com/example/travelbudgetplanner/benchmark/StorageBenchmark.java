@@ -0,0 +1,67 @@
+package com.example.travelbudgetplanner.benchmark;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.StorageFormat;
+import com.example.travelbudgetplanner.service.TripDataStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full snapshot save and load of the current trip, in both file formats
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int expenses;
+
+    @Param({"JSON", "BINARY"})
+    private StorageFormat format;
+
+    private Path dataDirectory;
+    private TripDataStorageService storageService;
+    private TripData trip;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = BenchmarkFiles.createScratchDirectory("trip-storage-bench");
+        storageService = new TripDataStorageService(dataDirectory, format);
+        trip = TripDataGenerator.columnarTrip("Lisbon", expenses, TripDataGenerator.DEFAULT_SEED);
+        storageService.saveCurrentTrip(trip); // So load has a snapshot to read
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public void saveCurrentTrip() throws IOException {
+        storageService.saveCurrentTrip(trip);
+    }
+
+    @Benchmark
+    public TripData loadCurrentTrip() throws IOException {
+        return storageService.loadCurrentTrip();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.travelbudgetplanner.benchmark;
+
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.ReportService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic trips for benchmarks. The same seed and size always produce the
+ * same expenses, so results are comparable between commits.
+ */
+public final class TripDataGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int TRIP_DAYS = 30;
+    private static final List<String> CATEGORIES = ReportService.STANDARD_CATEGORIES;
+
+    private TripDataGenerator() {}
+
+    /**
+     * Trip holding its expenses in columns, as loaded by the application
+     */
+    public static ColumnarTripData columnarTrip(String destination, int expenseCount, long seed) {
+        ColumnarTripData trip = new ColumnarTripData(destination, FIRST_DAY, FIRST_DAY.plusDays(TRIP_DAYS - 1),
+                budgetFor(expenseCount));
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < expenseCount; i++) {
+            trip.columns().add(nextExpense(random));
+        }
+        return trip;
+    }
+
+    /**
+     * Trip holding its expenses as a plain list of Expense objects
+     */
+    public static TripData listTrip(String destination, int expenseCount, long seed) {
+        TripData trip = new TripData(destination, FIRST_DAY, FIRST_DAY.plusDays(TRIP_DAYS - 1),
+                budgetFor(expenseCount));
+        trip.setExpenses(expenses(expenseCount, seed));
+        return trip;
+    }
+
+    public static List<Expense> expenses(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expenses.add(nextExpense(random));
+        }
+        return expenses;
+    }
+
+    private static Expense nextExpense(SplittableRandom random) {
+        String category = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+        double amount = random.nextInt(1, 50_000) / 100.0; // Whole cents up to $500
+        LocalDate date = FIRST_DAY.plusDays(random.nextInt(TRIP_DAYS));
+        Expense expense = new Expense(category, amount, date);
+        if (random.nextInt(4) == 0) {
+            expense.setDescription("Receipt #" + random.nextInt(100_000));
+        }
+        return expense;
+    }
+
+    // Roughly what the expenses add up to, so reports see a mix of over and under budget
+    private static double budgetFor(int expenseCount) {
+        return expenseCount * 250.0;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.travelbudgetplanner;
+
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.service.CategoryRules;
+import com.example.travelbudgetplanner.service.CsvImportConfig;
+import com.example.travelbudgetplanner.service.ExpenseImporter;
+import com.example.travelbudgetplanner.service.ExpenseImporter.ImportResult;
+import com.example.travelbudgetplanner.service.ExpenseImporter.Progress;
+import com.example.travelbudgetplanner.service.MetricsRegistry;
+import com.example.travelbudgetplanner.service.StorageBackend;
+import com.example.travelbudgetplanner.service.TripRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless statement import into the current trip:
+ * <pre>
+ * java ... com.example.travelbudgetplanner.ImportCommand statement.csv [--config csv_import.properties]
+ *     [--rules category_rules.txt] [--batch-size 1000]
+ * </pre>
+ * This is a separate entry point because the java launcher starts the JavaFX toolkit, which
+ * needs a display, before calling main of an Application subclass such as {@link Main}.
+ *
+ * Settings not given on the command line come from the data directory. Ctrl+C stops after
+ * the batch in progress; batches already imported are kept.
+ */
+public final class ImportCommand {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile boolean cancelled;
+    private long lastProgress;
+
+    private ImportCommand() {}
+
+    public static void main(String[] args) {
+        System.exit(new ImportCommand().execute(args));
+    }
+
+    private int execute(String[] args) {
+        Path statement = null;
+        Path configFile = null;
+        Path rulesFile = null;
+        int batchSize = ExpenseImporter.DEFAULT_BATCH_SIZE;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config" -> configFile = Paths.get(args[++i]);
+                    case "--rules" -> rulesFile = Paths.get(args[++i]);
+                    case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                    default -> {
+                        if (statement != null || args[i].startsWith("--")) {
+                            return usage("Unexpected argument: " + args[i]);
+                        }
+                        statement = Paths.get(args[i]);
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return usage("Invalid arguments");
+        }
+        if (statement == null) {
+            return usage("No statement file given");
+        }
+        if (!Files.isRegularFile(statement)) {
+            System.err.println("Statement not found: " + statement);
+            return 1;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            cancelled = true;
+            try {
+                done.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "import-shutdown"));
+
+        try (TripRepository storageService = StorageBackend.fromSystemProperty().open()) {
+            Path dataDirectory = Paths.get(storageService.getDataPath());
+            configFile = configFile != null ? configFile : dataDirectory.resolve(ExpenseImporter.CONFIG_FILE);
+            rulesFile = rulesFile != null ? rulesFile : dataDirectory.resolve(ExpenseImporter.RULES_FILE);
+            CsvImportConfig config = Files.exists(configFile) ? CsvImportConfig.load(configFile) : new CsvImportConfig();
+            CategoryRules rules = Files.exists(rulesFile) ? CategoryRules.load(rulesFile) : new CategoryRules();
+            ExpenseImporter importer = new ExpenseImporter(config, rules, batchSize);
+
+            ColumnarTripData trip = ColumnarTripData.of(storageService.loadCurrentTrip());
+            long start = System.nanoTime();
+            ImportResult result = importer.importFile(statement, trip, storageService, new ExpenseImporter.Listener() {
+                @Override
+                public void progress(Progress progress) {
+                    printProgress(progress);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return cancelled;
+                }
+            });
+            // Fold the batches into a snapshot so the next start does not replay them
+            storageService.saveCurrentTrip(trip);
+
+            System.err.printf("%s %,d expenses from %,d rows in %d ms (%,d skipped, %,d failed)%n",
+                    result.cancelled() ? "Cancelled after importing" : "Imported",
+                    result.imported(), result.rowsRead(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    result.skipped(), result.failed());
+            for (String error : result.errors()) {
+                System.err.println("  " + error);
+            }
+            return result.cancelled() ? 130 : 0;
+        } catch (IOException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            return 1;
+        } finally {
+            MetricsRegistry.global().dumpIfRequested();
+            done.countDown();
+        }
+    }
+
+    private void printProgress(Progress progress) {
+        long now = System.nanoTime();
+        if (now - lastProgress < PROGRESS_INTERVAL_NANOS) {
+            return;
+        }
+        lastProgress = now;
+        double fraction = progress.fraction();
+        System.err.printf("%s%,d rows read, %,d imported%n",
+                fraction < 0 ? "" : String.format("%3.0f%% ", fraction * 100), progress.rowsRead(), progress.imported());
+    }
+
+    private static int usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: ImportCommand <statement.csv> [--config <file.properties>] [--rules <rules.txt>]"
+                + " [--batch-size <n>]");
+        return 2;
+    }
+}
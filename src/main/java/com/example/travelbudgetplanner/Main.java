@@ -1,27 +1,54 @@
 package com.example.travelbudgetplanner;
 
+import com.example.travelbudgetplanner.controller.TripViewController;
+import com.example.travelbudgetplanner.service.MetricsRegistry;
+import com.example.travelbudgetplanner.service.StorageBackend;
+import com.example.travelbudgetplanner.service.TripPreload;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundImage;
+import javafx.scene.layout.BackgroundPosition;
+import javafx.scene.layout.BackgroundRepeat;
+import javafx.scene.layout.BackgroundSize;
+import javafx.scene.layout.BorderPane;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public class Main extends Application {
+    private static final String BACKGROUND_IMAGE = "/com/example/travelbudgetplanner/bg.jpg";
+
+    private final StartupTimings timings = new StartupTimings();
+    private CompletableFuture<TripPreload> preload;
+    private TripViewController tripViewController;
+
+    @Override
+    public void init() {
+        timings.mark("launch");
+        // Open the store and read the trip while the window is built
+        preload = TripPreload.start(StorageBackend.fromSystemProperty());
+    }
+
     @Override
     public void start(Stage primaryStage) {
         try {
-            // Load the FXML file
+            // Load the FXML file; it brings its stylesheet along
             FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/com/example/travelbudgetplanner/trip_view.fxml"));
-            Parent tripViewRoot = fxmlLoader.load();
+            BorderPane tripViewRoot = fxmlLoader.load();
+            tripViewController = fxmlLoader.getController();
+            tripViewRoot.setBackground(screenSizedBackground());
+            timings.mark("fxml");
 
             // Create the scene
             Scene tripScene = new Scene(tripViewRoot);
 
-            // Add CSS file
-            tripScene.getStylesheets().add(getClass().getResource("/com/example/travelbudgetplanner/travel-budget-planner.css").toExternalForm());
-
             // Configure the primary stage
             primaryStage.setScene(tripScene);
             primaryStage.setTitle("Travel Budget Planner");
@@ -29,17 +56,46 @@ public class Main extends Application {
             primaryStage.setMinHeight(700);
             primaryStage.setResizable(true);
             primaryStage.show();
+            timings.mark("window");
+
+            tripViewController.bind(preload, () -> {
+                timings.mark("trip");
+                timings.report();
+                if (Boolean.getBoolean("travelbudget.startup.exitWhenReady")) {
+                    Platform.exit(); // For scripted startup measurements
+                }
+            });
 
         } catch (IOException ex) {
             System.err.println("Error loading FXML file: " + ex.getMessage());
             ex.printStackTrace();
-        } catch (Exception ex) {
-            System.err.println("Error loading CSS file: " + ex.getMessage());
-            ex.printStackTrace();
         }
     }
 
+    /**
+     * The background photo decoded no larger than the screen needs, in the background, instead
+     * of at its full resolution on the FX thread
+     */
+    private Background screenSizedBackground() {
+        Screen screen = Screen.getPrimary();
+        Rectangle2D bounds = screen.getVisualBounds();
+        // Covering the window never needs more than the longer screen side, in device pixels
+        double side = Math.max(bounds.getWidth() * screen.getOutputScaleX(), bounds.getHeight() * screen.getOutputScaleY());
+        Image image = new Image(getClass().getResource(BACKGROUND_IMAGE).toExternalForm(), side, side, true, true, true);
+        return new Background(new BackgroundImage(image, BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT,
+                BackgroundPosition.CENTER, new BackgroundSize(1, 1, true, true, false, true)));
+    }
+
+    @Override
+    public void stop() {
+        // Make sure queued trip saves reach the disk before exiting
+        if (tripViewController != null) {
+            tripViewController.shutdown();
+        }
+        MetricsRegistry.global().dumpIfRequested();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.example.travelbudgetplanner;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wall-clock end of each startup phase, from process start until the trip can be edited.
+ * Reported as one line on stderr so time-to-interactive can be compared between builds.
+ */
+final class StartupTimings {
+
+    private final long processStart = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+    private final Map<String, Long> phases = new LinkedHashMap<>(); // Phase -> end, epoch millis
+
+    /**
+     * End the phase that started when the previous one ended
+     */
+    synchronized void mark(String phase) {
+        phases.put(phase, System.currentTimeMillis());
+    }
+
+    /**
+     * E.g. "Startup: launch 420 ms, fxml 160 ms, window 90 ms, trip 12 ms; interactive after 682 ms"
+     */
+    synchronized void report() {
+        StringBuilder line = new StringBuilder("Startup:");
+        long previous = processStart;
+        String separator = " ";
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            line.append(separator).append(phase.getKey()).append(' ').append(phase.getValue() - previous).append(" ms");
+            previous = phase.getValue();
+            separator = ", ";
+        }
+        line.append("; interactive after ").append(previous - processStart).append(" ms");
+        System.err.println(line);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.travelbudgetplanner.controller;
+
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.service.SpendingTimeline;
+import com.example.travelbudgetplanner.service.SpendingTimeline.Bucket;
+import com.example.travelbudgetplanner.service.SpendingTimeline.Granularity;
+import javafx.collections.FXCollections;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Spending bar chart that stays within a bar budget: above it, days roll up into weeks or
+ * months. Clicking a rolled-up bar drills down into its days; Back returns to the previous level.
+ */
+class DailySpendingChart {
+
+    private static final String AUTO = "Auto";
+
+    private final int nodeBudget;
+    private final BarChart<String, Number> chart;
+    private final ComboBox<String> granularityCombo = new ComboBox<>();
+    private final Button backButton = new Button("Back");
+    private final Label rangeLabel = new Label();
+    private final VBox view;
+
+    // Timelines drilled into, innermost last
+    private final Deque<SpendingTimeline> levels = new ArrayDeque<>();
+
+    DailySpendingChart(SpendingTimeline timeline, int nodeBudget, String currency) {
+        this.nodeBudget = nodeBudget;
+
+        CategoryAxis xAxis = new CategoryAxis();
+        NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel("Date");
+        yAxis.setLabel("Amount (" + Money.symbolOf(currency) + ")");
+        chart = new BarChart<>(xAxis, yAxis);
+        chart.setTitle("Daily Spending");
+        chart.setAnimated(false);
+
+        List<String> options = new ArrayList<>();
+        options.add(AUTO);
+        for (Granularity granularity : Granularity.values()) {
+            options.add(displayName(granularity));
+        }
+        granularityCombo.setItems(FXCollections.observableArrayList(options));
+        granularityCombo.setValue(AUTO);
+        granularityCombo.valueProperty().addListener((obs, oldValue, value) -> render());
+
+        backButton.setOnAction(e -> {
+            levels.removeLast();
+            render();
+        });
+
+        HBox toolbar = new HBox(10, new Label("Group by:"), granularityCombo, backButton, rangeLabel);
+        view = new VBox(5, toolbar, chart);
+
+        levels.addLast(timeline);
+        render();
+    }
+
+    BarChart<String, Number> getChart() { return chart; }
+
+    /**
+     * Chart with its grouping controls
+     */
+    Node getView() { return view; }
+
+    private void render() {
+        SpendingTimeline timeline = levels.getLast();
+        List<Bucket> buckets = AUTO.equals(granularityCombo.getValue())
+                ? timeline.buckets(nodeBudget)
+                : timeline.buckets(granularityOf(granularityCombo.getValue()));
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        series.setName("Daily Expenses");
+        for (Bucket bucket : buckets) {
+            XYChart.Data<String, Number> data = new XYChart.Data<>(bucket.label(), bucket.amount());
+            if (!bucket.isSingleDay()) {
+                // Bar nodes are created by the chart, so hook them up once they exist
+                data.nodeProperty().addListener((obs, oldNode, node) -> {
+                    if (node != null) {
+                        node.setCursor(Cursor.HAND);
+                        node.setOnMouseClicked(e -> drillDown(timeline, bucket));
+                    }
+                });
+            }
+            series.getData().add(data);
+        }
+        chart.getData().setAll(List.of(series));
+
+        backButton.setDisable(levels.size() == 1);
+        int days = timeline.getDays().size();
+        rangeLabel.setText(days == 0 ? "" : buckets.size() + " bars, " + days + " days");
+    }
+
+    private void drillDown(SpendingTimeline timeline, Bucket bucket) {
+        levels.addLast(timeline.drillDown(bucket));
+        if (AUTO.equals(granularityCombo.getValue())) {
+            render();
+        } else {
+            granularityCombo.setValue(AUTO); // The value listener renders
+        }
+    }
+
+    private static String displayName(Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> "Day";
+            case WEEK -> "Week";
+            case MONTH -> "Month";
+        };
+    }
+
+    private static Granularity granularityOf(String displayName) {
+        for (Granularity granularity : Granularity.values()) {
+            if (displayName(granularity).equals(displayName)) {
+                return granularity;
+            }
+        }
+        return Granularity.DAY;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.travelbudgetplanner.controller;
+
+import com.example.travelbudgetplanner.service.MetricsRegistry;
+import com.example.travelbudgetplanner.service.MetricsRegistry.OperationStats;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Window showing the timings, sizes and counts in a {@link MetricsRegistry}, with a button to
+ * save them to a text file for a bug report
+ */
+class DiagnosticsWindow {
+
+    private final MetricsRegistry metrics;
+    private final TableView<OperationStats> table = new TableView<>();
+
+    DiagnosticsWindow(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    void show() {
+        Stage stage = new Stage();
+        stage.setTitle("Diagnostics");
+
+        table.getColumns().add(textColumn("Operation", 130, s -> s.operation().getLabel()));
+        table.getColumns().add(numberColumn("Count", OperationStats::count));
+        table.getColumns().add(numberColumn("Failed", OperationStats::failures));
+        table.getColumns().add(textColumn("Mean", 80, s -> millis(s.meanNanos())));
+        table.getColumns().add(textColumn("p50", 80, s -> millis(s.percentileNanos(0.50))));
+        table.getColumns().add(textColumn("p95", 80, s -> millis(s.percentileNanos(0.95))));
+        table.getColumns().add(textColumn("p99", 80, s -> millis(s.percentileNanos(0.99))));
+        table.getColumns().add(textColumn("Max", 80, s -> millis(s.maxNanos())));
+        table.getColumns().add(textColumn("Bytes", 90, s -> String.format("%,d", s.bytes())));
+        table.getColumns().add(textColumn("Expenses", 90, s -> String.format("%,d", s.expenses())));
+        refresh();
+
+        Button refreshButton = new Button("Refresh");
+        refreshButton.setOnAction(e -> refresh());
+        Button resetButton = new Button("Reset");
+        resetButton.setOnAction(e -> {
+            metrics.reset();
+            refresh();
+        });
+        Button saveButton = new Button("Save to File...");
+        saveButton.setOnAction(e -> save(stage));
+
+        Label note = new Label("Latencies in milliseconds since the app started or the last reset. "
+                + "Percentiles are rounded up to the next power of two microseconds.");
+        note.setWrapText(true);
+
+        VBox layout = new VBox(10, note, table, new HBox(10, refreshButton, resetButton, saveButton));
+        layout.setPadding(new Insets(20));
+
+        stage.setScene(new Scene(layout, 900, 400));
+        stage.show();
+    }
+
+    private void refresh() {
+        table.setItems(FXCollections.observableArrayList(metrics.snapshot()));
+    }
+
+    private void save(Stage owner) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Diagnostics");
+        chooser.setInitialFileName("travel_budget_metrics.txt");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text files", "*.txt"));
+        File file = chooser.showSaveDialog(owner);
+        if (file == null) {
+            return;
+        }
+        try {
+            metrics.dump(file.toPath());
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Error");
+            alert.setHeaderText(null);
+            alert.setContentText("Failed to save diagnostics: " + e.getMessage());
+            alert.showAndWait();
+        }
+    }
+
+    private static TableColumn<OperationStats, String> textColumn(String title, double width,
+                                                                 Function<OperationStats, String> value) {
+        TableColumn<OperationStats, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(data -> new ReadOnlyStringWrapper(value.apply(data.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    private static TableColumn<OperationStats, Number> numberColumn(String title,
+                                                                   Function<OperationStats, Long> value) {
+        TableColumn<OperationStats, Number> column = new TableColumn<>(title);
+        column.setCellValueFactory(data -> new ReadOnlyObjectWrapper<>(value.apply(data.getValue())));
+        return column;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
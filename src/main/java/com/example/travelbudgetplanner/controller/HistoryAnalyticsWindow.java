@@ -0,0 +1,160 @@
+package com.example.travelbudgetplanner.controller;
+
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.HistoryReport.DestinationTotal;
+import com.example.travelbudgetplanner.model.HistoryReport.TripLengthBand;
+import com.example.travelbudgetplanner.model.HistoryReport.YearCategoryTotal;
+import com.example.travelbudgetplanner.model.Money;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.StackedBarChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Window showing a {@link HistoryReport}: spending per destination, per category and year,
+ * and average daily cost by trip length
+ */
+class HistoryAnalyticsWindow {
+
+    private final HistoryReport report;
+    private final String currency; // For labels only; each trip is stored in its own base currency
+
+    HistoryAnalyticsWindow(HistoryReport report, String currency) {
+        this.report = report;
+        this.currency = currency;
+    }
+
+    /**
+     * Open an analytics window that shows progress until a report is put in with {@link #showIn}
+     */
+    static Stage open() {
+        Stage stage = new Stage();
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.setTitle("Trip History Analytics");
+        stage.setScene(new Scene(ReportWindows.placeholder("Analyzing trip history...", true), 800, 600));
+        stage.show();
+        return stage;
+    }
+
+    /**
+     * Replace the progress of a window from {@link #open} with a message, e.g. on failure
+     */
+    static void showMessage(Stage stage, String message) {
+        stage.getScene().setRoot(ReportWindows.placeholder(message, false));
+    }
+
+    void showIn(Stage stage) {
+        Label summary = new Label(String.format("%d trips, %d expenses, %s in total",
+                report.getTripCount(), report.getExpenseCount(), Money.format(report.getTotal(), currency)));
+
+        TabPane tabs = new TabPane(
+                new Tab("By Destination", createDestinationTable()),
+                new Tab("By Year", createYearChart()),
+                new Tab("By Trip Length", createTripLengthChart()));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        VBox layout = new VBox(10, summary, tabs);
+        layout.setPadding(new Insets(20));
+
+        stage.getScene().setRoot(layout);
+    }
+
+    private TableView<DestinationTotal> createDestinationTable() {
+        TableView<DestinationTotal> table = new TableView<>();
+
+        TableColumn<DestinationTotal, String> destinationCol = new TableColumn<>("Destination");
+        destinationCol.setCellValueFactory(data -> new ReadOnlyStringWrapper(data.getValue().destination()));
+        destinationCol.setPrefWidth(220);
+
+        TableColumn<DestinationTotal, Number> tripsCol = new TableColumn<>("Trips");
+        tripsCol.setCellValueFactory(data -> new ReadOnlyObjectWrapper<>(data.getValue().trips()));
+
+        TableColumn<DestinationTotal, String> totalCol = new TableColumn<>("Total");
+        totalCol.setCellValueFactory(data -> new ReadOnlyStringWrapper(Money.format(data.getValue().amount(), currency)));
+        totalCol.setPrefWidth(120);
+
+        TableColumn<DestinationTotal, String> perTripCol = new TableColumn<>("Per Trip");
+        perTripCol.setCellValueFactory(data ->
+                new ReadOnlyStringWrapper(Money.format(data.getValue().averagePerTrip(), currency)));
+        perTripCol.setPrefWidth(120);
+
+        TableColumn<DestinationTotal, String> dailyCol = new TableColumn<>("Per Day");
+        dailyCol.setCellValueFactory(data ->
+                new ReadOnlyStringWrapper(Money.format(data.getValue().averageDaily(), currency)));
+        dailyCol.setPrefWidth(120);
+
+        table.getColumns().add(destinationCol);
+        table.getColumns().add(tripsCol);
+        table.getColumns().add(totalCol);
+        table.getColumns().add(perTripCol);
+        table.getColumns().add(dailyCol);
+        table.setItems(FXCollections.observableArrayList(report.getDestinations()));
+        return table;
+    }
+
+    /**
+     * One stacked bar per year, one segment per category
+     */
+    private StackedBarChart<String, Number> createYearChart() {
+        CategoryAxis xAxis = new CategoryAxis();
+        NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel("Year");
+        yAxis.setLabel("Amount (" + Money.symbolOf(currency) + ")");
+        StackedBarChart<String, Number> chart = new StackedBarChart<>(xAxis, yAxis);
+        chart.setTitle("Spending by Category and Year");
+        chart.setAnimated(false);
+
+        Map<String, XYChart.Series<String, Number>> seriesByCategory = new LinkedHashMap<>();
+        for (YearCategoryTotal total : report.getYearCategoryTotals()) {
+            String category = total.category() == null ? "(none)" : total.category();
+            XYChart.Series<String, Number> series = seriesByCategory.computeIfAbsent(category, name -> {
+                XYChart.Series<String, Number> created = new XYChart.Series<>();
+                created.setName(name);
+                return created;
+            });
+            series.getData().add(new XYChart.Data<>(String.valueOf(total.year()), total.amount()));
+        }
+        xAxis.setCategories(FXCollections.observableArrayList(report.getYearCategoryTotals().stream()
+                .map(total -> String.valueOf(total.year()))
+                .distinct()
+                .toList()));
+        chart.getData().setAll(List.copyOf(seriesByCategory.values()));
+        return chart;
+    }
+
+    private BarChart<String, Number> createTripLengthChart() {
+        CategoryAxis xAxis = new CategoryAxis();
+        NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel("Trip Length");
+        yAxis.setLabel("Average per Day (" + Money.symbolOf(currency) + ")");
+        BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
+        chart.setTitle("Average Daily Cost by Trip Length");
+        chart.setAnimated(false);
+        chart.setLegendVisible(false);
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        for (TripLengthBand band : report.getTripLengthBands()) {
+            series.getData().add(new XYChart.Data<>(band.label() + " (" + band.trips() + ")", band.averageDaily()));
+        }
+        chart.getData().add(series);
+        return chart;
+    }
+}
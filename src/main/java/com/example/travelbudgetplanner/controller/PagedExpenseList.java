@@ -0,0 +1,314 @@
+package com.example.travelbudgetplanner.controller;
+
+import com.example.travelbudgetplanner.controller.TripViewController.ExpenseRow;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.ExpenseColumns.IndexComparator;
+import com.example.travelbudgetplanner.model.Money;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only table items over a trip's expense columns. Rows are created a page at a time
+ * when the table asks for them, and only the most recently used pages are kept, so the
+ * number of live rows stays bounded however many expenses the trip has. A page around the
+ * visible rows doubles as the prefetch margin while scrolling.
+ *
+ * Sorting is done on the columns and kept as an index permutation; the list itself is
+ * never reordered. A filtered list shows only the given column indices, and expenses added
+ * later only when the filter accepts them. Changes go through the store first and are then
+ * announced here.
+ */
+class PagedExpenseList extends ObservableListBase<ExpenseRow> {
+
+    static final int PAGE_SIZE = 128;
+    static final int MAX_CACHED_PAGES = 8;
+
+    enum SortField { CATEGORY, AMOUNT, DATE }
+
+    record SortKey(SortField field, boolean ascending) {}
+
+    private final ExpenseColumns columns;
+    private final Map<Integer, ExpenseRow[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ExpenseRow[]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final IntPredicate filter; // null when every expense is shown
+    private List<SortKey> sortKeys = List.of();
+    private int[] order; // View index to column index; null while unsorted and unfiltered
+
+    PagedExpenseList(ExpenseColumns columns) {
+        this.columns = columns;
+        this.filter = null;
+    }
+
+    /**
+     * Only the given column indices (ascending), plus appended expenses the filter accepts
+     */
+    PagedExpenseList(ExpenseColumns columns, int[] shown, IntPredicate filter) {
+        this.columns = columns;
+        this.filter = filter;
+        this.order = shown.clone();
+    }
+
+    @Override
+    public int size() {
+        return filter == null && order == null ? columns.size() : order.length;
+    }
+
+    @Override
+    public ExpenseRow get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int page = index / PAGE_SIZE;
+        ExpenseRow[] rows = pages.get(page);
+        if (rows == null) {
+            rows = loadPage(page);
+            pages.put(page, rows);
+        }
+        return rows[index - page * PAGE_SIZE];
+    }
+
+    /**
+     * Column index of the expense shown at a view index
+     */
+    int storeIndex(int viewIndex) {
+        return order == null ? viewIndex : order[viewIndex];
+    }
+
+    /**
+     * Number of rows currently materialized
+     */
+    int cachedRowCount() {
+        int count = 0;
+        for (ExpenseRow[] rows : pages.values()) {
+            count += rows.length;
+        }
+        return count;
+    }
+
+    // === CHANGES (call after the columns have been updated) ===
+
+    /**
+     * The last expense in the columns was just appended
+     */
+    void rowAppended() {
+        int storeIndex = columns.size() - 1;
+        if (filter != null && !filter.test(storeIndex)) {
+            return;
+        }
+        int viewIndex = storeIndex;
+        if (order != null) {
+            viewIndex = insertionPoint(storeIndex, comparator());
+            int[] grown = new int[order.length + 1];
+            System.arraycopy(order, 0, grown, 0, viewIndex);
+            grown[viewIndex] = storeIndex;
+            System.arraycopy(order, viewIndex, grown, viewIndex + 1, order.length - viewIndex);
+            order = grown;
+        }
+        invalidateFrom(viewIndex);
+
+        beginChange();
+        nextAdd(viewIndex, viewIndex + 1);
+        endChange();
+    }
+
+    /**
+     * Expenses from firstStoreIndex to the end of the columns were just appended, e.g. by an
+     * import. New rows are sorted among themselves and merged into the view in one change.
+     */
+    void rowsAppended(int firstStoreIndex) {
+        int end = columns.size();
+        if (firstStoreIndex >= end) {
+            return;
+        }
+        if (order == null) {
+            invalidateFrom(firstStoreIndex);
+            beginChange();
+            nextAdd(firstStoreIndex, end);
+            endChange();
+            return;
+        }
+
+        int[] added = new int[end - firstStoreIndex];
+        int count = 0;
+        for (int i = firstStoreIndex; i < end; i++) {
+            if (filter == null || filter.test(i)) {
+                added[count++] = i;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        IndexComparator comparator = comparator();
+        added = ExpenseColumns.sortIndices(Arrays.copyOf(added, count), comparator);
+
+        // Merge; on ties existing rows come first, as with single appends
+        int[] merged = new int[order.length + count];
+        boolean[] isNew = new boolean[merged.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j == count || (i < order.length && comparator.compare(order[i], added[j]) <= 0)) {
+                merged[k] = order[i++];
+            } else {
+                merged[k] = added[j++];
+                isNew[k] = true;
+            }
+        }
+        order = merged;
+
+        int first = 0;
+        while (!isNew[first]) {
+            first++;
+        }
+        invalidateFrom(first);
+        beginChange();
+        for (int k = first; k < merged.length; k++) {
+            if (isNew[k]) {
+                nextAdd(k, k + 1);
+            }
+        }
+        endChange();
+    }
+
+    /**
+     * The expense shown at viewIndex was just removed from the columns
+     */
+    void rowRemoved(int viewIndex, ExpenseRow removed) {
+        if (order != null) {
+            int storeIndex = order[viewIndex];
+            int[] shrunk = new int[order.length - 1];
+            for (int i = 0, j = 0; i < order.length; i++) {
+                if (i != viewIndex) {
+                    // Columns after the removed one moved down by one
+                    shrunk[j++] = order[i] > storeIndex ? order[i] - 1 : order[i];
+                }
+            }
+            order = shrunk;
+        }
+        invalidateFrom(viewIndex);
+
+        beginChange();
+        nextRemove(viewIndex, removed);
+        endChange();
+    }
+
+    /**
+     * Reorder by the given keys, first key first; an empty list restores insertion order
+     */
+    void sortBy(List<SortKey> keys) {
+        int[] previous = order;
+        sortKeys = List.copyOf(keys);
+        if (filter != null) {
+            order = ExpenseColumns.sortIndices(order, comparator());
+        } else {
+            order = sortKeys.isEmpty() ? null : columns.sortedIndices(comparator());
+        }
+        if (Arrays.equals(previous, order) || size() == 0) {
+            return;
+        }
+        pages.clear();
+
+        // Tell the table where each previously shown row went
+        int size = size();
+        int[] newPosition = new int[columns.size()];
+        for (int view = 0; view < size; view++) {
+            newPosition[storeIndex(view)] = view;
+        }
+        int[] permutation = new int[size];
+        for (int view = 0; view < size; view++) {
+            permutation[view] = newPosition[previous == null ? view : previous[view]];
+        }
+        beginChange();
+        nextPermutation(0, size, permutation);
+        endChange();
+    }
+
+    // === INTERNALS ===
+
+    private ExpenseRow[] loadPage(int page) {
+        int from = page * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, size());
+        ExpenseRow[] rows = new ExpenseRow[to - from];
+        for (int view = from; view < to; view++) {
+            int i = storeIndex(view);
+            rows[view - from] = new ExpenseRow(columns.category(i), Money.fromCents(columns.cents(i)),
+                    columns.epochDay(i), columns.description(i), columns.currency(i));
+        }
+        return rows;
+    }
+
+    // Rows before the change keep their positions
+    private void invalidateFrom(int viewIndex) {
+        int firstPage = viewIndex / PAGE_SIZE;
+        pages.keySet().removeIf(page -> page >= firstPage);
+    }
+
+    // Position after all rows that sort at or before the given column index
+    private int insertionPoint(int storeIndex, IndexComparator comparator) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(order[middle], storeIndex) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private IndexComparator comparator() {
+        List<IndexComparator> parts = new ArrayList<>(sortKeys.size());
+        for (SortKey key : sortKeys) {
+            IndexComparator part = switch (key.field()) {
+                case CATEGORY -> {
+                    int[] rank = categoryRanks();
+                    yield (a, b) -> Integer.compare(rank[columns.categoryId(a)], rank[columns.categoryId(b)]);
+                }
+                case AMOUNT -> (a, b) -> Long.compare(columns.cents(a), columns.cents(b));
+                case DATE -> (a, b) -> Integer.compare(columns.epochDay(a), columns.epochDay(b));
+            };
+            parts.add(key.ascending() ? part : (a, b) -> part.compare(b, a));
+        }
+        if (parts.size() == 1 && filter == null) {
+            return parts.get(0);
+        }
+        return (a, b) -> {
+            for (IndexComparator part : parts) {
+                int result = part.compare(a, b);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            // Ties keep insertion order, so a filtered list with no keys is in column order
+            return Integer.compare(a, b);
+        };
+    }
+
+    // Alphabetical position of each category id, so category sorts compare ints
+    private int[] categoryRanks() {
+        List<String> names = columns.getCategories().names();
+        Integer[] ids = new Integer[names.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = id;
+        }
+        Arrays.sort(ids, Comparator.comparing(names::get, Comparator.nullsFirst(Comparator.naturalOrder())));
+        int[] rank = new int[ids.length];
+        for (int position = 0; position < ids.length; position++) {
+            rank[ids[position]] = position;
+        }
+        return rank;
+    }
+}
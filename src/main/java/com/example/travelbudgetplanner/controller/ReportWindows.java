@@ -0,0 +1,488 @@
+package com.example.travelbudgetplanner.controller;
+
+import com.example.travelbudgetplanner.controller.TripViewController.CategoryStat;
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripReport;
+import com.example.travelbudgetplanner.model.TripState;
+import com.example.travelbudgetplanner.service.CurrencyTotals;
+import com.example.travelbudgetplanner.service.ExchangeRates;
+import com.example.travelbudgetplanner.service.ExpenseTotals;
+import com.example.travelbudgetplanner.service.MetricsRegistry;
+import com.example.travelbudgetplanner.service.OperationTimer;
+import com.example.travelbudgetplanner.service.ReportService;
+import com.example.travelbudgetplanner.service.SpendingTimeIndex;
+import com.example.travelbudgetplanner.service.SpendingTimeline;
+import com.example.travelbudgetplanner.service.TimedOperation;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The trip report windows. Report figures are computed on a background thread from a snapshot of
+ * the trip, and kept until the trip changes; each kind of report has one window,
+ * which is shown again rather than rebuilt while its figures are current. All methods run on
+ * the FX thread.
+ */
+class ReportWindows {
+
+    enum Kind {
+        FULL("Travel Budget Reports", 900, 700),
+        CATEGORY("Category Breakdown", 500, 600),
+        DAILY("Daily Spending Report", 700, 500),
+        BUDGET("Budget Comparison", 600, 700);
+
+        final String title;
+        final double width;
+        final double height;
+
+        Kind(String title, double width, double height) {
+            this.title = title;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final int MAX_BURN_DOWN_POINTS = 200;
+
+    private final ReportService reportService;
+    private final MetricsRegistry metrics;
+    private final Map<Kind, Stage> stages = new EnumMap<>(Kind.class);
+    private final Map<Kind, Model> rendered = new EnumMap<>(Kind.class); // Figures each window shows
+    private final Set<Kind> waiting = EnumSet.noneOf(Kind.class); // Windows showing the placeholder
+
+    // The cached figures and the trip state they were computed from
+    private Model model;
+    private TripState modelState;
+
+    private Task<Model> pending;
+    private TripState pendingState;
+
+    ReportWindows(ReportService reportService, MetricsRegistry metrics) {
+        this.reportService = reportService;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Bring up a report for the trip as it is now: at once when its figures are cached,
+     * otherwise with a placeholder until they are computed
+     */
+    void show(Kind kind, TripState trip, ExchangeRates rates, Window owner) {
+        Stage stage = stages.computeIfAbsent(kind, k -> createStage(k, owner));
+        if (model != null && modelState == trip) {
+            if (rendered.get(kind) != model) {
+                render(kind, stage, model);
+            }
+        } else {
+            compute(trip, rates);
+            stage.getScene().setRoot(placeholder("Preparing report...", true));
+            rendered.remove(kind);
+            waiting.add(kind);
+        }
+        stage.show();
+        stage.toFront();
+    }
+
+    /**
+     * Stop any computation in progress, e.g. when the application exits
+     */
+    void cancel() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    // === COMPUTING ===
+
+    /**
+     * Start computing figures for a state of the trip, unless that is already running
+     */
+    private void compute(TripState trip, ExchangeRates rates) {
+        if (pending != null && pendingState == trip) {
+            return;
+        }
+        cancel();
+
+        // States never change, so the task copies the expenses out on its own thread
+        Task<Model> task = new Task<>() {
+            @Override
+            protected Model call() {
+                return buildModel(trip.toTrip(), rates);
+            }
+        };
+        pending = task;
+        pendingState = trip;
+
+        task.setOnSucceeded(e -> {
+            if (pending != task) {
+                return; // Superseded by a newer version of the trip
+            }
+            model = task.getValue();
+            modelState = pendingState;
+            pending = null;
+            for (Kind kind : waiting) {
+                Stage stage = stages.get(kind);
+                if (stage.isShowing()) {
+                    render(kind, stage, model);
+                }
+            }
+            waiting.clear();
+        });
+        task.setOnFailed(e -> {
+            if (pending != task) {
+                return;
+            }
+            pending = null;
+            for (Kind kind : waiting) {
+                stages.get(kind).getScene().setRoot(
+                        placeholder("Failed to prepare the report: " + task.getException().getMessage(), false));
+            }
+            waiting.clear();
+        });
+
+        Thread worker = new Thread(task, "report-model");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Totals in the base currency, the report figures and the burn-down, in one pass over the trip
+     */
+    private Model buildModel(ColumnarTripData trip, ExchangeRates rates) {
+        ExpenseColumns columns = trip.columns();
+        ExpenseTotals totals = new ExpenseTotals(columns.getCategories());
+        SpendingTimeIndex timeIndex = new SpendingTimeIndex(columns.getCategories());
+        try (OperationTimer timer = metrics.start(TimedOperation.AGGREGATION, "report totals")) {
+            CurrencyTotals.of(columns).convertInto(rates.converterTo(trip.getBaseCurrency()), totals, timeIndex);
+            timer.completed(0, columns.size());
+        }
+        TripReport report = reportService.buildReport(trip, totals);
+
+        // Trip dates when set, otherwise the days that have expenses
+        int fromDay = trip.getStartDate() != null ? (int) trip.getStartDate().toEpochDay() : timeIndex.getFirstDay();
+        int toDay = trip.getEndDate() != null ? (int) trip.getEndDate().toEpochDay() : timeIndex.getLastDay();
+        long[] burnDown = new long[0];
+        if (fromDay != ExpenseColumns.NO_DATE && toDay != ExpenseColumns.NO_DATE && fromDay <= toDay) {
+            burnDown = timeIndex.burnDown(Money.toCents(trip.getBudget()), fromDay, toDay);
+        }
+        return new Model(report, new SpendingTimeline(report.getDailyTotals()), trip.getBaseCurrency(), fromDay,
+                burnDown);
+    }
+
+    /**
+     * Figures behind every report window
+     *
+     * @param burnDownFrom epoch day of the first burn-down entry
+     * @param burnDown     budget left at the end of each day, empty without trip dates or expenses
+     */
+    private record Model(TripReport report, SpendingTimeline timeline, String currency, int burnDownFrom,
+                         long[] burnDown) {
+    }
+
+    // === WINDOWS ===
+
+    private Stage createStage(Kind kind, Window owner) {
+        Stage stage = new Stage();
+        stage.initOwner(owner);
+        stage.setTitle(kind.title);
+        stage.setScene(new Scene(placeholder("", true), kind.width, kind.height));
+        return stage;
+    }
+
+    static Parent placeholder(String message, boolean busy) {
+        ProgressIndicator progress = new ProgressIndicator();
+        progress.setVisible(busy);
+        VBox layout = new VBox(10, progress, new Label(message));
+        layout.setAlignment(Pos.CENTER);
+        return layout;
+    }
+
+    private void render(Kind kind, Stage stage, Model model) {
+        try (OperationTimer timer = metrics.start(TimedOperation.REPORT, kind.name().toLowerCase(Locale.ROOT))) {
+            stage.getScene().setRoot(switch (kind) {
+                case FULL -> fullReport(stage, model);
+                case CATEGORY -> categoryReport(model);
+                case DAILY -> dailyReport(model);
+                case BUDGET -> budgetComparison(model);
+            });
+            rendered.put(kind, model);
+            timer.completed(0, model.report().getExpenseCount());
+        }
+    }
+
+    /**
+     * A comprehensive report with all charts
+     */
+    private Parent fullReport(Stage stage, Model model) {
+        String destination = model.report().getDestination();
+        stage.setTitle(Kind.FULL.title + " - " +
+                (destination == null || destination.isEmpty() ? "Unknown Destination" : destination));
+
+        VBox mainLayout = new VBox(15);
+        mainLayout.setPadding(new Insets(20));
+
+        // Title
+        Label titleLabel = new Label("Expense Reports");
+        titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
+
+        // Create charts in horizontal layout
+        HBox chartsLayout = new HBox(20);
+
+        // Category breakdown (pie chart)
+        PieChart categoryChart = createCategoryPieChart(model);
+        categoryChart.setPrefSize(300, 300);
+
+        VBox categorySection = new VBox(5);
+        Label categoryTitle = new Label("Expenses by Category");
+        categoryTitle.setStyle("-fx-font-weight: bold;");
+        categorySection.getChildren().addAll(categoryTitle, categoryChart);
+
+        // Daily spending (bar chart)
+        DailySpendingChart dailyChart = createDailyChart(model);
+        dailyChart.getChart().setPrefSize(400, 300);
+
+        VBox dailySection = new VBox(5);
+        Label dailyTitle = new Label("Daily Spending");
+        dailyTitle.setStyle("-fx-font-weight: bold;");
+        dailySection.getChildren().addAll(dailyTitle, dailyChart.getView());
+
+        chartsLayout.getChildren().addAll(categorySection, dailySection);
+
+        // Budget comparison chart
+        BarChart<String, Number> budgetChart = createBudgetComparisonChart(model);
+        budgetChart.setPrefSize(500, 200);
+
+        VBox budgetSection = new VBox(5);
+        Label budgetTitle = new Label("Budget vs Actual");
+        budgetTitle.setStyle("-fx-font-weight: bold;");
+        budgetSection.getChildren().addAll(budgetTitle, budgetChart);
+
+        // Summary statistics
+        VBox statsSection = createStatisticsSection(model);
+
+        mainLayout.getChildren().addAll(titleLabel, chartsLayout, budgetSection, statsSection);
+
+        ScrollPane scrollPane = new ScrollPane(mainLayout);
+        scrollPane.setFitToWidth(true);
+        return scrollPane;
+    }
+
+    /**
+     * Just the category breakdown pie chart
+     */
+    private Parent categoryReport(Model model) {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
+
+        PieChart chart = createCategoryPieChart(model);
+        chart.setPrefSize(400, 400);
+
+        layout.getChildren().addAll(
+                new Label("Expenses by Category"),
+                chart,
+                createCategoryStatsTable(model)
+        );
+        return new ScrollPane(layout);
+    }
+
+    /**
+     * Daily spending bar chart
+     */
+    private Parent dailyReport(Model model) {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
+
+        DailySpendingChart chart = createDailyChart(model);
+        chart.getChart().setPrefSize(600, 400);
+
+        layout.getChildren().addAll(
+                new Label("Daily Spending Pattern"),
+                chart.getView()
+        );
+        return layout;
+    }
+
+    /**
+     * Budget vs actual comparison
+     */
+    private Parent budgetComparison(Model model) {
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(20));
+
+        BarChart<String, Number> chart = createBudgetComparisonChart(model);
+        chart.setPrefSize(500, 300);
+
+        LineChart<String, Number> burnDown = createBurnDownChart(model);
+        burnDown.setPrefSize(500, 300);
+
+        layout.getChildren().addAll(
+                new Label("Budget vs Actual Spending"),
+                chart,
+                burnDown
+        );
+        return new ScrollPane(layout);
+    }
+
+    // === CHART CREATION METHODS (render precomputed figures) ===
+
+    private PieChart createCategoryPieChart(Model model) {
+        ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
+        for (TripReport.CategoryTotal total : model.report().getCategoryTotals()) {
+            pieData.add(new PieChart.Data(total.category() + " (" + formatAmount(model, total.amount()) + ")",
+                    total.amount()));
+        }
+
+        PieChart chart = new PieChart(pieData);
+        chart.setTitle("Expenses by Category");
+        return chart;
+    }
+
+    private DailySpendingChart createDailyChart(Model model) {
+        // Rolls up to weeks or months when there are more days than bars to draw
+        return new DailySpendingChart(model.timeline(), SpendingTimeline.nodeBudgetFromSystemProperty(),
+                model.currency());
+    }
+
+    private BarChart<String, Number> createBudgetComparisonChart(Model model) {
+        CategoryAxis xAxis = new CategoryAxis();
+        NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel("Category");
+        yAxis.setLabel("Amount (" + Money.symbolOf(model.currency()) + ")");
+
+        BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
+        chart.setTitle("Budget vs Actual Spending");
+
+        // Budget series (equal split among the standard categories)
+        XYChart.Series<String, Number> budgetSeries = new XYChart.Series<>();
+        budgetSeries.setName("Budget");
+
+        // Actual expenses series
+        XYChart.Series<String, Number> actualSeries = new XYChart.Series<>();
+        actualSeries.setName("Actual");
+
+        for (TripReport.BudgetLine line : model.report().getBudgetLines()) {
+            budgetSeries.getData().add(new XYChart.Data<>(line.category(), line.budget()));
+            actualSeries.getData().add(new XYChart.Data<>(line.category(), line.actual()));
+        }
+
+        chart.getData().addAll(List.of(budgetSeries, actualSeries));
+        return chart;
+    }
+
+    /**
+     * Budget left at the end of each day of the trip
+     */
+    private LineChart<String, Number> createBurnDownChart(Model model) {
+        CategoryAxis xAxis = new CategoryAxis();
+        NumberAxis yAxis = new NumberAxis();
+        xAxis.setLabel("Date");
+        yAxis.setLabel("Remaining (" + Money.symbolOf(model.currency()) + ")");
+
+        LineChart<String, Number> chart = new LineChart<>(xAxis, yAxis);
+        chart.setTitle("Budget Burn-down");
+        chart.setCreateSymbols(false);
+        chart.setAnimated(false);
+
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        series.setName("Remaining budget");
+
+        long[] remaining = model.burnDown();
+        if (remaining.length > 0) {
+            // Long trips are sampled; every point is still an exact running total
+            int step = Math.max(1, (remaining.length + MAX_BURN_DOWN_POINTS - 1) / MAX_BURN_DOWN_POINTS);
+            for (int i = 0; i < remaining.length; i += step) {
+                series.getData().add(new XYChart.Data<>(LocalDate.ofEpochDay(model.burnDownFrom() + i).toString(),
+                        Money.fromCents(remaining[i])));
+            }
+            if ((remaining.length - 1) % step != 0) {
+                int last = remaining.length - 1;
+                series.getData().add(new XYChart.Data<>(LocalDate.ofEpochDay(model.burnDownFrom() + last).toString(),
+                        Money.fromCents(remaining[last])));
+            }
+        }
+
+        chart.getData().add(series);
+        return chart;
+    }
+
+    private TableView<CategoryStat> createCategoryStatsTable(Model model) {
+        TableView<CategoryStat> table = new TableView<>();
+
+        TableColumn<CategoryStat, String> categoryCol = new TableColumn<>("Category");
+        categoryCol.setCellValueFactory(data -> data.getValue().categoryProperty());
+
+        TableColumn<CategoryStat, String> amountCol = new TableColumn<>("Amount");
+        amountCol.setCellValueFactory(data -> data.getValue().amountProperty());
+
+        TableColumn<CategoryStat, String> percentCol = new TableColumn<>("Percentage");
+        percentCol.setCellValueFactory(data -> data.getValue().percentageProperty());
+
+        table.getColumns().add(categoryCol);
+        table.getColumns().add(amountCol);
+        table.getColumns().add(percentCol);
+
+        ObservableList<CategoryStat> stats = FXCollections.observableArrayList();
+        for (TripReport.CategoryTotal total : model.report().getCategoryTotals()) {
+            stats.add(new CategoryStat(total.category(),
+                    formatAmount(model, total.amount()),
+                    String.format("%.1f%%", total.percentage())));
+        }
+
+        table.setItems(stats);
+        return table;
+    }
+
+    private VBox createStatisticsSection(Model model) {
+        TripReport report = model.report();
+        VBox statsBox = new VBox(5);
+        statsBox.setPadding(new Insets(10));
+        statsBox.setStyle("-fx-border-color: lightgray; -fx-border-width: 1;");
+
+        Label statsTitle = new Label("Trip Statistics");
+        statsTitle.setStyle("-fx-font-weight: bold;");
+
+        String mostExpensiveCategory = report.getTopCategory() != null ? report.getTopCategory() : "None";
+
+        Label totalLabel = new Label("Total Expenses: " + formatAmount(model, report.getTotal()));
+        Label avgLabel = new Label("Average Daily Spending: " + formatAmount(model, report.getAverageDailySpending()));
+        Label categoryLabel = new Label("Highest Spending Category: " + mostExpensiveCategory);
+        Label budgetStatusLabel = new Label("Budget Status: " +
+                (report.isOverBudget() ? "Over Budget" : "Within Budget"));
+
+        statsBox.getChildren().addAll(statsTitle, totalLabel, avgLabel, categoryLabel, budgetStatusLabel);
+        return statsBox;
+    }
+
+    private static String formatAmount(Model model, double amount) {
+        return Money.format(amount, model.currency());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.travelbudgetplanner.controller;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.service.ExpenseImporter;
+import com.example.travelbudgetplanner.service.ExpenseImporter.BatchSink;
+import com.example.travelbudgetplanner.service.ExpenseImporter.ImportResult;
+import com.example.travelbudgetplanner.service.ExpenseImporter.Progress;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs a statement import off the FX thread. Parsing happens here; each batch is handed to
+ * the FX thread, which owns the trip, and the import waits for it so batches never pile up.
+ */
+class StatementImportTask extends Task<ImportResult> implements ExpenseImporter.Listener {
+
+    private final ExpenseImporter importer;
+    private final Path file;
+    private final BatchSink fxSink;
+
+    StatementImportTask(ExpenseImporter importer, Path file, BatchSink fxSink) {
+        this.importer = importer;
+        this.file = file;
+        this.fxSink = fxSink;
+    }
+
+    @Override
+    protected ImportResult call() throws IOException {
+        return importer.importFile(file, this::acceptOnFxThread, this);
+    }
+
+    @Override
+    public void progress(Progress progress) {
+        double fraction = progress.fraction();
+        updateProgress(fraction < 0 ? -1 : fraction, 1);
+        updateMessage(String.format("%,d rows read, %,d expenses imported", progress.rowsRead(), progress.imported()));
+    }
+
+    private void acceptOnFxThread(List<Expense> batch) throws IOException {
+        FutureTask<Void> step = new FutureTask<>(() -> {
+            fxSink.accept(batch);
+            return null;
+        });
+        Platform.runLater(step);
+        try {
+            step.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -2,6 +2,8 @@
 
 package com.example.travelbudgetplanner.controller;
 
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.collections.FXCollections;
@@ -9,21 +11,51 @@ import javafx.collections.ObservableList;
 import javafx.scene.chart.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.GridPane;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.stage.Stage;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 
 // Import your new classes
-import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.model.ColumnarTripData;
 import com.example.travelbudgetplanner.model.Expense;
-import com.example.travelbudgetplanner.service.TripDataStorageService;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.ExpenseVector;
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.model.TripEditHistory;
+import com.example.travelbudgetplanner.model.TripState;
+import com.example.travelbudgetplanner.service.CurrencyTotals;
+import com.example.travelbudgetplanner.service.ExchangeRates;
+import com.example.travelbudgetplanner.service.ExpenseExporter;
+import com.example.travelbudgetplanner.service.ExpenseImporter;
+import com.example.travelbudgetplanner.service.ExpenseQueryIndex;
+import com.example.travelbudgetplanner.service.ExpenseTotals;
+import com.example.travelbudgetplanner.service.MetricsRegistry;
+import com.example.travelbudgetplanner.service.OperationTimer;
+import com.example.travelbudgetplanner.service.ReportService;
+import com.example.travelbudgetplanner.service.SpendingTimeIndex;
+import com.example.travelbudgetplanner.service.SpendingTimeline;
+import com.example.travelbudgetplanner.service.TimedOperation;
+import com.example.travelbudgetplanner.service.TripPreload;
+import com.example.travelbudgetplanner.service.TripRepository;
+import com.example.travelbudgetplanner.service.TripVersionConflictException;
+import com.example.travelbudgetplanner.service.TripWriteBehind;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 public class TripViewController {
 
@@ -32,20 +64,41 @@ public class TripViewController {
     @FXML private DatePicker startDatePicker;
     @FXML private DatePicker endDatePicker;
     @FXML private TextField budgetField;
+    @FXML private ComboBox<String> baseCurrencyCombo;
     @FXML private Button saveTripButton;
     @FXML private Button clearTripButton;
     @FXML private Button loadTripButton; // New button
+    @FXML private TabPane tripTabs;
+    @FXML private Button archiveTripButton;
+    @FXML private Label saveStatusLabel;
 
     // --- Expense Tracker Tab ---
     @FXML private TableView<ExpenseRow> expenseTable;
     @FXML private TableColumn<ExpenseRow, String> categoryColumn;
     @FXML private TableColumn<ExpenseRow, Number> amountColumn;
-    @FXML private TableColumn<ExpenseRow, String> dateColumn;
+    @FXML private TableColumn<ExpenseRow, String> currencyColumn;
+    @FXML private TableColumn<ExpenseRow, LocalDate> dateColumn;
+    @FXML private TableColumn<ExpenseRow, String> descriptionColumn;
     @FXML private ComboBox<String> categoryCombo;
     @FXML private TextField amountField;
+    @FXML private ComboBox<String> currencyCombo;
     @FXML private DatePicker expenseDatePicker;
+    @FXML private TextField descriptionField;
+
+    // --- Expense Filter Bar ---
+    @FXML private DatePicker filterFromPicker;
+    @FXML private DatePicker filterToPicker;
+    @FXML private MenuButton filterCategoryButton;
+    @FXML private TextField filterMinField;
+    @FXML private TextField filterMaxField;
+    @FXML private TextField filterTextField;
+    @FXML private Button clearFilterButton;
+    @FXML private Label filterStatusLabel;
     @FXML private Button addExpenseButton;
     @FXML private Button deleteExpenseButton;
+    @FXML private Button importStatementButton;
+    @FXML private Button undoButton;
+    @FXML private Button redoButton;
 
     // --- Budget Summary Tab ---
     @FXML private Label totalBudgetLabel;
@@ -58,16 +111,40 @@ public class TripViewController {
     @FXML private Button categoryReportButton;
     @FXML private Button dailyReportButton;
     @FXML private Button budgetComparisonButton;
+    @FXML private Button historyAnalyticsButton;
+    @FXML private Button exportButton;
+    @FXML private Button diagnosticsButton;
+
+    private static final List<String> COMMON_CURRENCIES = List.of("USD", "EUR", "GBP", "JPY", "CAD", "AUD", "CHF");
 
     // Data model and storage
-    private final ObservableList<ExpenseRow> expenses = FXCollections.observableArrayList();
-    private TripData currentTrip;
-    private final TripDataStorageService storageService;
+    private ColumnarTripData currentTrip;
+    private PagedExpenseList expenses; // Table rows, paged in from currentTrip's columns
+    private CurrencyTotals currencyTotals; // Sums per currency, so changing the base currency needs no rescan
+    private ExpenseTotals aggregates; // Kept in step with currentTrip for the summary and reports, in base currency
+    private SpendingTimeIndex timeIndex; // Spending by day, for date-range and running totals
+    private ExchangeRates exchangeRates = ExchangeRates.none();
+    private ExchangeRates.Converter converter; // Into the current trip's base currency
+    private ExpenseQueryIndex queryIndex; // Built on the first filter; rebuilt after a delete shifts rows
+    private ExpenseQuery activeFilter = new ExpenseQuery();
+    private TripRepository storageService; // Set by bind(); the tabs stay disabled until then
+    private TripWriteBehind tripWriter;
+    private long confirmSaveAt = -1; // Version whose save the user asked to hear about, or -1
+    private final ExpenseExporter exporter = new ExpenseExporter();
+    private final MetricsRegistry metrics = MetricsRegistry.global();
+    private final ReportWindows reportWindows = new ReportWindows(new ReportService(), metrics);
+    private TripEditHistory edits; // Versions of currentTrip since it was loaded, for undo and redo
+    private boolean importRecorded; // The running import already has its undo step
 
     // Constructor
     public TripViewController() {
-        this.storageService = new TripDataStorageService();
-        this.currentTrip = new TripData();
+        this.currentTrip = new ColumnarTripData();
+        this.expenses = new PagedExpenseList(currentTrip.columns());
+        this.currencyTotals = CurrencyTotals.of(currentTrip.columns());
+        this.aggregates = new ExpenseTotals(currentTrip.columns().getCategories());
+        this.timeIndex = new SpendingTimeIndex(currentTrip.columns().getCategories());
+        this.converter = exchangeRates.converterTo(currentTrip.getBaseCurrency());
+        this.edits = new TripEditHistory(TripState.of(currentTrip));
     }
 
     @FXML
@@ -75,25 +152,54 @@ public class TripViewController {
         // Setup table columns
         categoryColumn.setCellValueFactory(data -> data.getValue().categoryProperty());
         amountColumn.setCellValueFactory(data -> data.getValue().amountProperty());
+        currencyColumn.setCellValueFactory(data -> data.getValue().currencyProperty());
+        currencyColumn.setSortable(false);
         dateColumn.setCellValueFactory(data -> data.getValue().dateProperty());
+        descriptionColumn.setCellValueFactory(data -> data.getValue().descriptionProperty());
+        descriptionColumn.setSortable(false);
 
         expenseTable.setItems(expenses);
 
+        // Fixed row height lets the table lay out huge lists without measuring rows
+        expenseTable.setFixedCellSize(24);
+        // Sorting is served by the columns instead of reordering the items
+        expenseTable.setSortPolicy(table -> {
+            expenses.sortBy(sortKeys());
+            return true;
+        });
+
         // Populate category options
         categoryCombo.setItems(FXCollections.observableArrayList(
                 "Transport", "Food", "Lodging", "Activities", "Other"
         ));
 
+        setupFilterBar();
+
+        showCurrencies();
+
         // Wire buttons
         saveTripButton.setOnAction(e -> saveTrip());
         clearTripButton.setOnAction(e -> clearTripForm());
         addExpenseButton.setOnAction(e -> addExpense());
         deleteExpenseButton.setOnAction(e -> deleteSelectedExpense());
+        if (importStatementButton != null) {
+            importStatementButton.setOnAction(e -> importStatement());
+        }
+        if (undoButton != null) {
+            undoButton.setOnAction(e -> undoEdit());
+        }
+        if (redoButton != null) {
+            redoButton.setOnAction(e -> redoEdit());
+        }
+        updateUndoButtons();
 
         // New load button
         if (loadTripButton != null) {
             loadTripButton.setOnAction(e -> loadCurrentTrip());
         }
+        if (archiveTripButton != null) {
+            archiveTripButton.setOnAction(e -> saveTripToHistory());
+        }
 
         // Wire report buttons
         if (generateReportsButton != null) {
@@ -108,71 +214,162 @@ public class TripViewController {
         if (budgetComparisonButton != null) {
             budgetComparisonButton.setOnAction(e -> showBudgetComparison());
         }
+        if (historyAnalyticsButton != null) {
+            historyAnalyticsButton.setOnAction(e -> showHistoryAnalytics());
+        }
+        if (exportButton != null) {
+            exportButton.setOnAction(e -> exportExpenses());
+        }
+        if (diagnosticsButton != null) {
+            diagnosticsButton.setOnAction(e -> new DiagnosticsWindow(metrics).show());
+        }
 
-        // Load existing trip data when the application starts
-        loadCurrentTrip();
+        // Nothing can be edited until the trip read at startup is bound in
+        if (tripTabs != null) {
+            tripTabs.setDisable(true);
+        }
+        if (saveStatusLabel != null) {
+            saveStatusLabel.setText("Loading trip...");
+        }
     }
 
-    private void saveTrip() {
-        try {
-            // Update current trip data
-            currentTrip.setDestination(destinationField.getText().trim());
-            currentTrip.setStartDate(startDatePicker.getValue());
-            currentTrip.setEndDate(endDatePicker.getValue());
+    /**
+     * Take over the store and trip read in the background at startup, once they are ready
+     *
+     * @param onReady run on the FX thread when the trip is shown and can be edited
+     */
+    public void bind(CompletableFuture<TripPreload> preload, Runnable onReady) {
+        preload.whenComplete((loaded, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                if (saveStatusLabel != null) {
+                    saveStatusLabel.setText("Trip storage unavailable");
+                }
+                showAlert("Error", "Failed to open trip storage: " + error.getMessage());
+                return;
+            }
+            storageService = loaded.storage();
+            tripWriter = new TripWriteBehind(storageService);
 
-            try {
-                double budget = Double.parseDouble(budgetField.getText().trim());
-                currentTrip.setBudget(budget);
-            } catch (NumberFormatException ex) {
-                currentTrip.setBudget(0);
+            // Report background saves back on the FX thread
+            tripWriter.setOnPersisted(version -> Platform.runLater(() -> {
+                if (saveStatusLabel != null && !tripWriter.hasPendingWrite()) {
+                    saveStatusLabel.setText("All changes saved (version " + version + ")");
+                }
+                if (confirmSaveAt >= 0 && version >= confirmSaveAt) {
+                    confirmSaveAt = -1;
+                    showAlert("Success", "Trip data saved successfully!");
+                }
+            }));
+            tripWriter.setOnError(e -> Platform.runLater(() -> {
+                confirmSaveAt = -1;
+                if (e instanceof TripVersionConflictException conflict) {
+                    reloadAfterConflict(conflict);
+                } else {
+                    showAlert("Error", "Failed to save trip data: " + e.getMessage());
+                }
+            }));
+
+            exchangeRates = loaded.exchangeRates();
+            showCurrencies();
+            if (loaded.trip() != null) {
+                currentTrip = loaded.trip();
+            }
+            showTrip();
+            if (tripTabs != null) {
+                tripTabs.setDisable(false);
+            }
+            if (saveStatusLabel != null) {
+                saveStatusLabel.setText("");
+            }
+            // Text fields keep their own undo for these keys, as accelerators only see unused keys
+            Scene scene = expenseTable.getScene();
+            if (scene != null) {
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN),
+                        this::undoEdit);
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN),
+                        this::redoEdit);
+                scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                        KeyCombination.SHIFT_DOWN), this::redoEdit);
             }
 
-            // Convert ExpenseRow to Expense and update trip data
-            List<com.example.travelbudgetplanner.model.Expense> expenseList = new ArrayList<>();
-            for (ExpenseRow row : expenses) {
-                LocalDate expenseDate = LocalDate.parse(row.getDate());
-                com.example.travelbudgetplanner.model.Expense expense =
-                        new com.example.travelbudgetplanner.model.Expense(
-                                row.getCategory(), row.getAmount(), expenseDate);
-                expenseList.add(expense);
+            if (loaded.ratesError() != null) {
+                showAlert("Error", "Failed to read exchange rates: " + loaded.ratesError().getMessage());
+            }
+            if (loaded.tripError() != null) {
+                showAlert("Error", "Failed to load trip data: " + loaded.tripError().getMessage());
             }
-            currentTrip.setExpenses(expenseList);
+            onReady.run();
+        }));
+    }
 
-            // Save to storage
-            storageService.saveCurrentTrip(currentTrip);
+    /**
+     * Flush pending saves; called when the application exits
+     */
+    public void shutdown() {
+        reportWindows.cancel();
+        if (storageService == null) {
+            return; // Closed before the trip was loaded; nothing to save
+        }
+        try {
+            tripWriter.close();
+        } catch (IOException e) {
+            System.err.println("Failed to save trip data on exit: " + e.getMessage());
+        }
+        try {
+            storageService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close trip storage: " + e.getMessage());
+        }
+    }
 
-            // Show success message
-            showAlert("Success", "Trip data saved successfully!");
+    private void saveTrip() {
+        String baseCurrency = readCurrency(baseCurrencyCombo);
+        if (baseCurrency != null && !ExchangeRates.isCurrencyCode(baseCurrency)) {
+            showAlert("Error", "Invalid currency '" + baseCurrency + "': use a three-letter code such as EUR");
+            return;
+        }
 
-            updateSummary();
+        // Update current trip data
+        currentTrip.setDestination(destinationField.getText().trim());
+        currentTrip.setStartDate(startDatePicker.getValue());
+        currentTrip.setEndDate(endDatePicker.getValue());
 
-        } catch (IOException e) {
-            showAlert("Error", "Failed to save trip data: " + e.getMessage());
+        try {
+            double budget = Double.parseDouble(budgetField.getText().trim());
+            currentTrip.setBudget(budget);
+        } catch (NumberFormatException ex) {
+            currentTrip.setBudget(0);
+        }
+
+        if (baseCurrency != null && !baseCurrency.equals(currentTrip.getBaseCurrency())) {
+            // Expenses keep their own currency; only the totals are now reported in the new one
+            currentTrip.setBaseCurrency(baseCurrency);
+            rebuildTotals();
+            showBaseCurrency();
+        }
+        if (!edits.current().sameDetails(currentTrip)) {
+            recordEdit("edit trip details", edits.current().expenses());
         }
+
+        // Expenses are already in currentTrip; each add and delete went through the store
+
+        // Queue for saving; the file is written in the background, from the recorded state
+        tripWriter.markDirty(currentTrip, edits.current()::toTrip);
+        if (saveStatusLabel != null) {
+            saveStatusLabel.setText("Saving...");
+        }
+
+        // Confirm once this version, or a later one, is on disk
+        confirmSaveAt = currentTrip.getVersion();
+
+        updateSummary();
     }
 
     private void loadCurrentTrip() {
         try {
             if (storageService.currentTripExists()) {
-                currentTrip = storageService.loadCurrentTrip();
-
-                // Update UI with loaded data
-                destinationField.setText(currentTrip.getDestination() != null ? currentTrip.getDestination() : "");
-                startDatePicker.setValue(currentTrip.getStartDate());
-                endDatePicker.setValue(currentTrip.getEndDate());
-                budgetField.setText(currentTrip.getBudget() > 0 ? String.valueOf(currentTrip.getBudget()) : "");
-
-                // Load expenses
-                expenses.clear();
-                for (com.example.travelbudgetplanner.model.Expense expense : currentTrip.getExpenses()) {
-                    expenses.add(new ExpenseRow(
-                            expense.getCategory(),
-                            expense.getAmount(),
-                            expense.getDate().toString()
-                    ));
-                }
-
-                updateSummary();
+                currentTrip = ColumnarTripData.of(storageService.loadCurrentTrip());
+                showTrip();
                 showAlert("Success", "Trip data loaded successfully!");
             }
         } catch (IOException e) {
@@ -180,11 +377,51 @@ public class TripViewController {
         }
     }
 
+    /**
+     * Update the form, table and summary from a newly loaded currentTrip, which starts a new
+     * undo history
+     */
+    private void showTrip() {
+        showTripDetails();
+
+        // Rows are created only as the table scrolls to them
+        showExpenses(currentTrip);
+
+        updateSummary();
+
+        edits.reset(TripState.of(currentTrip));
+        importRecorded = false;
+        updateUndoButtons();
+    }
+
+    private void showTripDetails() {
+        destinationField.setText(currentTrip.getDestination() != null ? currentTrip.getDestination() : "");
+        startDatePicker.setValue(currentTrip.getStartDate());
+        endDatePicker.setValue(currentTrip.getEndDate());
+        budgetField.setText(currentTrip.getBudget() > 0 ? String.valueOf(currentTrip.getBudget()) : "");
+        showBaseCurrency();
+    }
+
+    /**
+     * Another app instance changed the trip, so the last change here was refused: show the
+     * trip as it is now on disk
+     */
+    private void reloadAfterConflict(TripVersionConflictException conflict) {
+        try {
+            currentTrip = ColumnarTripData.of(storageService.loadCurrentTrip());
+            showTrip();
+            showAlert("Trip Changed", conflict.getMessage()
+                    + "\nThe trip has been reloaded with those changes. Please repeat your last change.");
+        } catch (IOException e) {
+            showAlert("Error", "Failed to reload trip data: " + e.getMessage());
+        }
+    }
+
     private void clearTripForm() {
         Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
         confirmation.setTitle("Clear Trip Data");
         confirmation.setHeaderText("Are you sure?");
-        confirmation.setContentText("This will clear all trip data and expenses. This action cannot be undone.");
+        confirmation.setContentText("This will clear all trip data and expenses. You can bring them back with Undo.");
 
         Optional<ButtonType> result = confirmation.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
@@ -193,15 +430,17 @@ public class TripViewController {
             startDatePicker.setValue(null);
             endDatePicker.setValue(null);
             budgetField.clear();
-            expenses.clear();
 
             // Clear current trip data
-            currentTrip = new TripData();
+            currentTrip = new ColumnarTripData();
+            showExpenses(currentTrip);
+            showBaseCurrency();
 
             // Clear from storage
             storageService.clearCurrentTrip();
 
             updateSummary();
+            recordEdit("clear trip", ExpenseVector.of(currentTrip.columns()));
         }
     }
 
@@ -217,50 +456,484 @@ public class TripViewController {
         } catch (Exception ignore) {}
 
         if (cat != null && amt > 0) {
-            // Add to UI table
-            expenses.add(new ExpenseRow(cat, amt, date.toString()));
+            // Auto-save: only the new expense is appended to the trip journal
+            boolean merged;
+            try {
+                Expense expense = new Expense(cat, amt, date);
+                String currency = readCurrency(currencyCombo);
+                if (currency != null && !ExchangeRates.isCurrencyCode(currency)) {
+                    showAlert("Error", "Invalid currency '" + currency + "': use a three-letter code such as EUR");
+                    return;
+                }
+                expense.setCurrency(currency != null ? currency : currentTrip.getBaseCurrency());
+                String description = descriptionField.getText() == null ? "" : descriptionField.getText().trim();
+                expense.setDescription(description.isEmpty() ? null : description);
+                merged = storageService.appendExpense(currentTrip, expense);
+            } catch (IOException | IllegalArgumentException e) {
+                showAlert("Error", "Failed to save expense: " + e.getMessage());
+                return;
+            }
+
+            if (merged) {
+                // Another instance changed the trip first; it now has those changes and this expense
+                showTrip();
+            } else {
+                // Add to UI table
+                int index = currentTrip.columns().size() - 1;
+                trackAdded(index);
+                recordEdit("add expense", edits.current().expenses().insert(currentTrip.columns(), index));
+                expenses.rowAppended();
+                updateFilterStatus();
+                updateSummary();
+            }
 
             // Clear input fields
             amountField.clear();
+            descriptionField.clear();
             expenseDatePicker.setValue(null);
             categoryCombo.setValue(null);
-
-            // Auto-save after adding expense
-            saveTrip();
-
-            updateSummary();
         }
     }
 
     private void deleteSelectedExpense() {
-        ExpenseRow selected = expenseTable.getSelectionModel().getSelectedItem();
-        if (selected != null) {
+        int viewIndex = expenseTable.getSelectionModel().getSelectedIndex();
+        if (viewIndex >= 0) {
+            ExpenseRow selected = expenses.get(viewIndex);
             Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
             confirmation.setTitle("Delete Expense");
             confirmation.setHeaderText("Delete this expense?");
-            confirmation.setContentText(String.format("Category: %s\nAmount: $%.2f\nDate: %s",
-                    selected.getCategory(), selected.getAmount(), selected.getDate()));
+            confirmation.setContentText(String.format("Category: %s\nAmount: %s\nDate: %s",
+                    selected.getCategory(), Money.format(selected.getAmount(), selected.getCurrency()),
+                    selected.getDate()));
 
             Optional<ButtonType> result = confirmation.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                expenses.remove(selected);
+                int index = expenses.storeIndex(viewIndex);
+                ExpenseColumns columns = currentTrip.columns();
+                String category = columns.category(index);
+                int categoryId = columns.categoryId(index);
+                int currencyId = columns.currencyId(index);
+                long cents = columns.cents(index);
+                int epochDay = columns.epochDay(index);
+
+                // Auto-save: the delete is appended to the trip journal
+                try {
+                    storageService.removeExpense(currentTrip, index);
+                } catch (TripVersionConflictException e) {
+                    reloadAfterConflict(e);
+                    return;
+                } catch (IOException e) {
+                    showAlert("Error", "Failed to delete expense: " + e.getMessage());
+                    return;
+                }
+                long converted = currencyTotals.remove(categoryId, currencyId, cents, epochDay, converter);
+                aggregates.remove(category, -converted, epochDay);
+                timeIndex.addById(categoryId, converted, epochDay);
+                recordEdit("delete expense", edits.current().expenses().remove(index));
+                expenses.rowRemoved(viewIndex, selected);
+                queryIndex = null; // Row numbers after the deleted one have shifted
+                updateFilterStatus();
+                updateSummary();
+            }
+        }
+    }
 
-                // Auto-save after deleting expense
-                saveTrip();
+    /**
+     * Import a CSV bank or card statement into the current trip in the background. Column
+     * mapping and category rules come from the data directory, see {@link ExpenseImporter}.
+     */
+    private void importStatement() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Statement");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+        File file = chooser.showOpenDialog(expenseTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
 
-                updateSummary();
+        ExpenseImporter importer;
+        try {
+            importer = ExpenseImporter.forDataDirectory(Paths.get(storageService.getDataPath()));
+        } catch (IOException e) {
+            showAlert("Error", "Failed to read import settings: " + e.getMessage());
+            return;
+        }
+
+        StatementImportTask task = new StatementImportTask(importer, file.toPath(), this::appendImported);
+        importRecorded = false; // All batches of this import are undone together
+
+        Stage stage = new Stage();
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.setTitle("Importing " + file.getName());
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(360);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label progressLabel = new Label();
+        progressLabel.textProperty().bind(task.messageProperty());
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(e -> task.cancel(false));
+        stage.setOnCloseRequest(e -> task.cancel(false));
+
+        VBox layout = new VBox(10, progressBar, progressLabel, cancelButton);
+        layout.setPadding(new Insets(20));
+        stage.setScene(new Scene(layout));
+
+        task.setOnSucceeded(e -> {
+            stage.close();
+            ExpenseImporter.ImportResult result = task.getValue();
+            StringBuilder message = new StringBuilder(String.format(
+                    "Imported %,d expenses from %,d rows.", result.imported(), result.rowsRead()));
+            if (result.skipped() > 0) {
+                message.append(String.format("\nSkipped %,d credits or zero amounts.", result.skipped()));
+            }
+            if (result.failed() > 0) {
+                message.append(String.format("\n%,d rows could not be read:\n", result.failed()));
+                message.append(String.join("\n", result.errors().subList(0, Math.min(10, result.errors().size()))));
+            }
+            showAlert("Import Finished", message.toString());
+        });
+        task.setOnCancelled(e -> {
+            stage.close();
+            showAlert("Import Cancelled", "Expenses imported before cancelling were kept.");
+        });
+        task.setOnFailed(e -> {
+            stage.close();
+            showAlert("Error", "Import failed: " + task.getException().getMessage());
+        });
+
+        Thread worker = new Thread(task, "statement-import");
+        worker.setDaemon(true);
+        worker.start();
+        stage.show();
+    }
+
+    /**
+     * Commit one imported batch and show it; runs on the FX thread
+     */
+    private void appendImported(List<Expense> batch) throws IOException {
+        ExpenseColumns columns = currentTrip.columns();
+        int first = columns.size();
+        for (Expense expense : batch) {
+            if (expense.getCurrency() == null) {
+                expense.setCurrency(currentTrip.getBaseCurrency());
+            }
+        }
+        if (storageService.appendExpenses(currentTrip, batch)) {
+            // Merged onto changes another instance saved meanwhile
+            showTrip();
+            return;
+        }
+        for (int i = first; i < columns.size(); i++) {
+            trackAdded(i);
+        }
+        ExpenseVector imported = edits.current().expenses().appendAll(columns, first);
+        if (importRecorded) {
+            edits.amend(edits.current().withExpenses(imported));
+        } else {
+            recordEdit("import statement", imported);
+            importRecorded = true;
+        }
+        expenses.rowsAppended(first);
+        updateFilterStatus();
+        updateSummary();
+    }
+
+    /**
+     * Point the table and the totals at a trip's expenses
+     */
+    private void showExpenses(ColumnarTripData trip) {
+        ExpenseColumns columns = trip.columns();
+        // Expenses saved without a currency are in the base currency; pin it so that
+        // changing the base currency later does not change what they are worth
+        columns.pinCurrency(trip.getBaseCurrency());
+        try (OperationTimer timer = metrics.start(TimedOperation.AGGREGATION, "currency totals")) {
+            currencyTotals = CurrencyTotals.of(columns);
+            timer.completed(0, columns.size());
+        }
+        rebuildTotals();
+
+        queryIndex = null;
+        applyFilter();
+    }
+
+    /**
+     * Derive the base-currency totals from the per-currency sums, without a pass over the expenses
+     */
+    private void rebuildTotals() {
+        try (OperationTimer timer = metrics.start(TimedOperation.AGGREGATION, "base currency totals")) {
+            converter = exchangeRates.converterTo(currentTrip.getBaseCurrency());
+            aggregates = new ExpenseTotals(currentTrip.columns().getCategories());
+            timeIndex = new SpendingTimeIndex(currentTrip.columns().getCategories());
+            currencyTotals.convertInto(converter, aggregates, timeIndex);
+            timer.completed(0, aggregates.getCount());
+        }
+    }
+
+    /**
+     * Fold one stored expense into the per-currency sums and the base-currency totals
+     */
+    private void trackAdded(int index) {
+        ExpenseColumns columns = currentTrip.columns();
+        int categoryId = columns.categoryId(index);
+        int epochDay = columns.epochDay(index);
+        long converted = currencyTotals.add(categoryId, columns.currencyId(index), columns.cents(index), epochDay,
+                converter);
+        aggregates.addById(categoryId, converted, epochDay);
+        timeIndex.addById(categoryId, converted, epochDay);
+    }
+
+    /**
+     * Take one expense that has left the columns out of the per-currency sums and the
+     * base-currency totals; it is read from a recorded state that still has it
+     */
+    private void trackRemoved(ExpenseVector rows, int index) {
+        int categoryId = rows.categoryId(index);
+        int epochDay = rows.epochDay(index);
+        long converted = currencyTotals.remove(categoryId, rows.currencyId(index), rows.cents(index), epochDay,
+                converter);
+        aggregates.remove(rows.getCategories().nameOf(categoryId), -converted, epochDay);
+        timeIndex.addById(categoryId, converted, epochDay);
+    }
+
+    // === UNDO AND REDO ===
+
+    /**
+     * Record an edit of currentTrip, whose expenses are now the given vector
+     */
+    private void recordEdit(String label, ExpenseVector expenses) {
+        edits.record(label, TripState.of(currentTrip, expenses));
+        updateUndoButtons();
+    }
+
+    private void undoEdit() {
+        if (storageService == null || !edits.canUndo()) {
+            return;
+        }
+        String label = edits.undoLabel();
+        TripState from = edits.current();
+        if (!restore(from, edits.undo(), "Undone: " + label)) {
+            edits.redo(); // Nothing was stored, so the trip is still at the state undone from
+            updateUndoButtons();
+        }
+    }
+
+    private void redoEdit() {
+        if (storageService == null || !edits.canRedo()) {
+            return;
+        }
+        String label = edits.redoLabel();
+        TripState from = edits.current();
+        if (!restore(from, edits.redo(), "Redone: " + label)) {
+            edits.undo();
+            updateUndoButtons();
+        }
+    }
+
+    /**
+     * Bring currentTrip from one recorded state to another and store it before anything else
+     * is journaled. Only the rows that differ are replaced, as one journal record, and
+     * re-totalled; across a clear, which started new dictionaries, the trip is rebuilt from the
+     * state and saved as a whole.
+     *
+     * @return false if the state could not be stored and currentTrip was left as it was
+     */
+    private boolean restore(TripState from, TripState to, String status) {
+        ExpenseColumns columns = currentTrip.columns();
+        if (to.expenses().getCategories() != columns.getCategories()
+                || to.expenses().getCurrencies() != columns.getCurrencies()) {
+            ColumnarTripData restored = to.toTrip();
+            restored.setVersion(currentTrip.getVersion());
+            try {
+                storageService.saveCurrentTrip(restored);
+            } catch (IOException e) {
+                showAlert("Error", "Failed to save trip data: " + e.getMessage());
+                return false;
+            }
+            currentTrip = restored;
+            showTripDetails();
+            showExpenses(currentTrip);
+        } else {
+            ExpenseVector.Change change = from.expenses().diff(to.expenses());
+            if (!change.isEmpty()) {
+                try {
+                    storageService.replaceExpenses(currentTrip, change.from(), change.removed(),
+                            to.expenses().expenses(change.from(), change.added()));
+                } catch (TripVersionConflictException e) {
+                    reloadAfterConflict(e);
+                    return true; // The reload started a new history
+                } catch (IOException e) {
+                    showAlert("Error", "Failed to save trip data: " + e.getMessage());
+                    return false;
+                }
+                for (int i = change.from(); i < change.from() + change.removed(); i++) {
+                    trackRemoved(from.expenses(), i);
+                }
+                for (int i = change.from(); i < change.from() + change.added(); i++) {
+                    trackAdded(i);
+                }
+            }
+            String baseCurrency = currentTrip.getBaseCurrency();
+            boolean sameDetails = to.sameDetails(currentTrip);
+            to.applyDetailsTo(currentTrip);
+            if (!baseCurrency.equals(currentTrip.getBaseCurrency())) {
+                rebuildTotals();
+            }
+            showTripDetails();
+            if (!change.isEmpty()) {
+                queryIndex = null;
+                applyFilter();
+            }
+            if (!sameDetails) {
+                // The journal holds only expenses; details go with the next snapshot
+                tripWriter.markDirty(currentTrip, to::toTrip);
+            }
+        }
+        updateSummary();
+        updateUndoButtons();
+        if (saveStatusLabel != null) {
+            saveStatusLabel.setText(tripWriter.hasPendingWrite() ? status + ". Saving..." : status);
+        }
+        return true;
+    }
+
+    private void updateUndoButtons() {
+        if (undoButton != null) {
+            undoButton.setDisable(!edits.canUndo());
+            undoButton.setTooltip(edits.canUndo() ? new Tooltip("Undo " + edits.undoLabel()) : null);
+        }
+        if (redoButton != null) {
+            redoButton.setDisable(!edits.canRedo());
+            redoButton.setTooltip(edits.canRedo() ? new Tooltip("Redo " + edits.redoLabel()) : null);
+        }
+    }
+
+    /**
+     * Currencies with exchange rates, plus the usual ones
+     */
+    private void showCurrencies() {
+        Set<String> currencies = new TreeSet<>(COMMON_CURRENCIES);
+        currencies.addAll(exchangeRates.getCurrencies());
+        baseCurrencyCombo.setItems(FXCollections.observableArrayList(currencies));
+        currencyCombo.setItems(FXCollections.observableArrayList(currencies));
+        showBaseCurrency();
+    }
+
+    private void showBaseCurrency() {
+        baseCurrencyCombo.setValue(currentTrip.getBaseCurrency());
+        currencyCombo.setValue(currentTrip.getBaseCurrency());
+    }
+
+    // Upper-case code typed or picked in a currency box, or null when blank
+    private static String readCurrency(ComboBox<String> combo) {
+        String value = combo.isEditable() && combo.getEditor() != null ? combo.getEditor().getText() : combo.getValue();
+        return value == null || value.isBlank() ? null : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // === EXPENSE FILTER ===
+
+    private void setupFilterBar() {
+        for (String category : categoryCombo.getItems()) {
+            CheckMenuItem item = new CheckMenuItem(category);
+            item.selectedProperty().addListener((obs, oldValue, selected) -> readFilter());
+            filterCategoryButton.getItems().add(item);
+        }
+        filterFromPicker.valueProperty().addListener((obs, oldValue, value) -> readFilter());
+        filterToPicker.valueProperty().addListener((obs, oldValue, value) -> readFilter());
+        filterMinField.textProperty().addListener((obs, oldValue, value) -> readFilter());
+        filterMaxField.textProperty().addListener((obs, oldValue, value) -> readFilter());
+        filterTextField.textProperty().addListener((obs, oldValue, value) -> readFilter());
+        clearFilterButton.setOnAction(e -> {
+            filterFromPicker.setValue(null);
+            filterToPicker.setValue(null);
+            filterMinField.clear();
+            filterMaxField.clear();
+            filterTextField.clear();
+            for (MenuItem item : filterCategoryButton.getItems()) {
+                ((CheckMenuItem) item).setSelected(false);
+            }
+        });
+    }
+
+    /**
+     * Take the filter from the filter bar and show the matching expenses
+     */
+    private void readFilter() {
+        ExpenseQuery query = new ExpenseQuery();
+        query.setFromDate(filterFromPicker.getValue());
+        query.setToDate(filterToPicker.getValue());
+        for (MenuItem item : filterCategoryButton.getItems()) {
+            if (((CheckMenuItem) item).isSelected()) {
+                query.getCategories().add(item.getText());
             }
         }
+        filterCategoryButton.setText(query.getCategories().isEmpty() ? "All categories"
+                : String.join(", ", query.getCategories()));
+        query.setMinAmount(parseAmount(filterMinField.getText()));
+        query.setMaxAmount(parseAmount(filterMaxField.getText()));
+        query.setText(filterTextField.getText());
+
+        activeFilter = query;
+        applyFilter();
+    }
+
+    /**
+     * Point the table at the expenses matching the active filter, keeping the sort order
+     */
+    private void applyFilter() {
+        ExpenseColumns columns = currentTrip.columns();
+        if (activeFilter.isUnfiltered()) {
+            expenses = new PagedExpenseList(columns);
+        } else {
+            if (queryIndex == null) {
+                queryIndex = ExpenseQueryIndex.build(columns);
+            }
+            // Expenses added later are checked directly, so the filter keeps working after a rebuild
+            ExpenseQueryIndex index = queryIndex;
+            ExpenseQuery query = activeFilter;
+            expenses = new PagedExpenseList(columns, index.query(query), row -> index.matches(row, query));
+        }
+        expenses.sortBy(sortKeys());
+        expenseTable.setItems(expenses);
+        updateFilterStatus();
+    }
+
+    private void updateFilterStatus() {
+        filterStatusLabel.setText(activeFilter.isUnfiltered() ? ""
+                : expenses.size() + " of " + currentTrip.columns().size() + " expenses");
+    }
+
+    // Blank or unparsable amounts leave that end of the range open
+    private static Double parseAmount(String text) {
+        try {
+            return text == null || text.isBlank() ? null : Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The table's sort columns as keys for the paged list
+     */
+    private List<PagedExpenseList.SortKey> sortKeys() {
+        List<PagedExpenseList.SortKey> keys = new ArrayList<>();
+        for (TableColumn<ExpenseRow, ?> column : expenseTable.getSortOrder()) {
+            PagedExpenseList.SortField field = column == categoryColumn ? PagedExpenseList.SortField.CATEGORY
+                    : column == amountColumn ? PagedExpenseList.SortField.AMOUNT
+                    : PagedExpenseList.SortField.DATE;
+            keys.add(new PagedExpenseList.SortKey(field, column.getSortType() == TableColumn.SortType.ASCENDING));
+        }
+        return keys;
     }
 
     private void updateSummary() {
-        double totalExpenses = expenses.stream().mapToDouble(ExpenseRow::getAmount).sum();
+        double totalExpenses = totalExpenses();
         double tripBudget = currentTrip.getBudget();
         double remaining = tripBudget - totalExpenses;
 
-        totalBudgetLabel.setText(String.format("$%.2f", tripBudget));
-        totalExpensesLabel.setText(String.format("$%.2f", totalExpenses));
-        remainingBudgetLabel.setText(String.format("$%.2f", remaining));
+        String currency = currentTrip.getBaseCurrency();
+        totalBudgetLabel.setText(Money.format(tripBudget, currency));
+        totalExpensesLabel.setText(Money.format(totalExpenses, currency));
+        remainingBudgetLabel.setText(Money.format(remaining, currency));
 
         if (tripBudget <= 0) {
             statusLabel.setText("No budget set.");
@@ -275,6 +948,11 @@ public class TripViewController {
             statusLabel.setText("On track.");
             statusLabel.setStyle("-fx-text-fill: green;");
         }
+        Set<String> missingRates = converter.getMissingCurrencies();
+        if (!missingRates.isEmpty()) {
+            statusLabel.setText(statusLabel.getText() + " No exchange rate for " + String.join(", ", missingRates)
+                    + " to " + currency + "; counted 1:1.");
+        }
     }
 
     // Add method to save trip to history (for completed trips)
@@ -286,6 +964,8 @@ public class TripViewController {
             } catch (IOException e) {
                 showAlert("Error", "Failed to save trip to history: " + e.getMessage());
             }
+        } else {
+            showAlert("No Destination", "Enter a destination and save the trip before adding it to history.");
         }
     }
 
@@ -295,354 +975,345 @@ public class TripViewController {
      * Shows a comprehensive report window with all charts
      */
     private void showFullReportWindow() {
-        if (expenses.isEmpty()) {
+        if (currentTrip.columns().size() == 0) {
             showAlert("No Data", "No expenses recorded yet. Add some expenses first.");
             return;
         }
-
-        Stage reportStage = new Stage();
-        reportStage.initModality(Modality.APPLICATION_MODAL);
-        reportStage.setTitle("Travel Budget Reports - " +
-                (destinationField.getText().isEmpty() ? "Unknown Destination" : destinationField.getText()));
-
-        VBox mainLayout = new VBox(15);
-        mainLayout.setPadding(new Insets(20));
-
-        // Title
-        Label titleLabel = new Label("Expense Reports");
-        titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
-
-        // Create charts in horizontal layout
-        HBox chartsLayout = new HBox(20);
-
-        // Category breakdown (pie chart)
-        PieChart categoryChart = createCategoryPieChart();
-        categoryChart.setPrefSize(300, 300);
-
-        VBox categorySection = new VBox(5);
-        Label categoryTitle = new Label("Expenses by Category");
-        categoryTitle.setStyle("-fx-font-weight: bold;");
-        categorySection.getChildren().addAll(categoryTitle, categoryChart);
-
-        // Daily spending (bar chart)
-        BarChart<String, Number> dailyChart = createDailyBarChart();
-        dailyChart.setPrefSize(400, 300);
-
-        VBox dailySection = new VBox(5);
-        Label dailyTitle = new Label("Daily Spending");
-        dailyTitle.setStyle("-fx-font-weight: bold;");
-        dailySection.getChildren().addAll(dailyTitle, dailyChart);
-
-        chartsLayout.getChildren().addAll(categorySection, dailySection);
-
-        // Budget comparison chart
-        BarChart<String, Number> budgetChart = createBudgetComparisonChart();
-        budgetChart.setPrefSize(500, 200);
-
-        VBox budgetSection = new VBox(5);
-        Label budgetTitle = new Label("Budget vs Actual");
-        budgetTitle.setStyle("-fx-font-weight: bold;");
-        budgetSection.getChildren().addAll(budgetTitle, budgetChart);
-
-        // Summary statistics
-        VBox statsSection = createStatisticsSection();
-
-        mainLayout.getChildren().addAll(titleLabel, chartsLayout, budgetSection, statsSection);
-
-        ScrollPane scrollPane = new ScrollPane(mainLayout);
-        scrollPane.setFitToWidth(true);
-        Scene scene = new Scene(scrollPane, 900, 700);
-
-        reportStage.setScene(scene);
-        reportStage.show();
+        showReport(ReportWindows.Kind.FULL);
     }
 
     /**
      * Shows just the category breakdown pie chart
      */
     private void showCategoryReport() {
-        if (expenses.isEmpty()) {
+        if (currentTrip.columns().size() == 0) {
             showAlert("No Data", "No expenses recorded yet. Add some expenses first.");
             return;
         }
-
-        Stage stage = new Stage();
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.setTitle("Category Breakdown");
-
-        VBox layout = new VBox(10);
-        layout.setPadding(new Insets(20));
-
-        PieChart chart = createCategoryPieChart();
-        chart.setPrefSize(400, 400);
-
-        layout.getChildren().addAll(
-                new Label("Expenses by Category"),
-                chart,
-                createCategoryStatsTable()
-        );
-
-        Scene scene = new Scene(new ScrollPane(layout), 500, 600);
-        stage.setScene(scene);
-        stage.show();
+        showReport(ReportWindows.Kind.CATEGORY);
     }
 
     /**
      * Shows daily spending bar chart
      */
     private void showDailyReport() {
-        if (expenses.isEmpty()) {
+        if (currentTrip.columns().size() == 0) {
             showAlert("No Data", "No expenses recorded yet. Add some expenses first.");
             return;
         }
-
-        Stage stage = new Stage();
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.setTitle("Daily Spending Report");
-
-        VBox layout = new VBox(10);
-        layout.setPadding(new Insets(20));
-
-        BarChart<String, Number> chart = createDailyBarChart();
-        chart.setPrefSize(600, 400);
-
-        layout.getChildren().addAll(
-                new Label("Daily Spending Pattern"),
-                chart
-        );
-
-        Scene scene = new Scene(layout, 700, 500);
-        stage.setScene(scene);
-        stage.show();
+        showReport(ReportWindows.Kind.DAILY);
     }
 
     /**
      * Shows budget vs actual comparison
      */
     private void showBudgetComparison() {
-        Stage stage = new Stage();
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.setTitle("Budget Comparison");
-
-        VBox layout = new VBox(10);
-        layout.setPadding(new Insets(20));
-
-        BarChart<String, Number> chart = createBudgetComparisonChart();
-        chart.setPrefSize(500, 300);
-
-        layout.getChildren().addAll(
-                new Label("Budget vs Actual Spending"),
-                chart
-        );
-
-        Scene scene = new Scene(layout, 600, 400);
-        stage.setScene(scene);
-        stage.show();
+        showReport(ReportWindows.Kind.BUDGET);
     }
 
-    // === CHART CREATION METHODS ===
-
-    private PieChart createCategoryPieChart() {
-        Map<String, Double> categoryTotals = expenses.stream()
-                .collect(Collectors.groupingBy(
-                        ExpenseRow::getCategory,
-                        Collectors.summingDouble(ExpenseRow::getAmount)
-                ));
-
-        ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
-        categoryTotals.forEach((category, total) ->
-                pieData.add(new PieChart.Data(category + " ($" + String.format("%.2f", total) + ")", total))
-        );
-
-        PieChart chart = new PieChart(pieData);
-        chart.setTitle("Expenses by Category");
-        return chart;
+    /**
+     * Report figures are computed in the background and cached per state of the trip, so the
+     * window opens at once and reopening an unchanged report does no work
+     */
+    private void showReport(ReportWindows.Kind kind) {
+        reportWindows.show(kind, edits.current(), exchangeRates, expenseTable.getScene().getWindow());
     }
 
-    private BarChart<String, Number> createDailyBarChart() {
-        CategoryAxis xAxis = new CategoryAxis();
-        NumberAxis yAxis = new NumberAxis();
-        xAxis.setLabel("Date");
-        yAxis.setLabel("Amount ($)");
-
-        BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
-        chart.setTitle("Daily Spending");
-
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Daily Expenses");
-
-        // Group expenses by date
-        Map<String, Double> dailyTotals = expenses.stream()
-                .collect(Collectors.groupingBy(
-                        ExpenseRow::getDate,
-                        Collectors.summingDouble(ExpenseRow::getAmount)
-                ));
-
-        // Sort by date and add to chart
-        dailyTotals.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> series.getData().add(
-                        new XYChart.Data<>(entry.getKey(), entry.getValue())
-                ));
+    /**
+     * Analyze the whole history on a worker thread; the window shows progress until it is done
+     */
+    private void showHistoryAnalytics() {
+        Task<HistoryReport> task = new Task<>() {
+            @Override
+            protected HistoryReport call() throws IOException {
+                try (OperationTimer timer = metrics.start(TimedOperation.REPORT, "history analytics")) {
+                    HistoryReport report = storageService.analyzeHistory();
+                    timer.completed(0, (int) report.getExpenseCount());
+                    return report;
+                }
+            }
+        };
+        String currency = currentTrip.getBaseCurrency();
+        Stage stage = HistoryAnalyticsWindow.open();
+        stage.setOnHidden(e -> task.cancel(false));
+        task.setOnSucceeded(e -> {
+            HistoryReport report = task.getValue();
+            if (report.getTripCount() == 0) {
+                HistoryAnalyticsWindow.showMessage(stage,
+                        "No trips saved to history yet. Use Save to History on the Trip Details tab.");
+            } else {
+                new HistoryAnalyticsWindow(report, currency).showIn(stage);
+            }
+        });
+        task.setOnFailed(e -> HistoryAnalyticsWindow.showMessage(stage,
+                "Failed to analyze trip history: " + task.getException().getMessage()));
 
-        chart.getData().add(series);
-        return chart;
+        Thread worker = new Thread(task, "history-analytics");
+        worker.setDaemon(true);
+        worker.start();
     }
 
-    private BarChart<String, Number> createBudgetComparisonChart() {
-        CategoryAxis xAxis = new CategoryAxis();
-        NumberAxis yAxis = new NumberAxis();
-        xAxis.setLabel("Category");
-        yAxis.setLabel("Amount ($)");
-
-        BarChart<String, Number> chart = new BarChart<>(xAxis, yAxis);
-        chart.setTitle("Budget vs Actual Spending");
-
-        // Calculate category totals
-        Map<String, Double> categoryTotals = expenses.stream()
-                .collect(Collectors.groupingBy(
-                        ExpenseRow::getCategory,
-                        Collectors.summingDouble(ExpenseRow::getAmount)
-                ));
+    /**
+     * Export the current trip or the trip history to a file in the background, optionally
+     * limited by the expense filter
+     */
+    private void exportExpenses() {
+        ChoiceBox<String> scopeChoice = new ChoiceBox<>(FXCollections.observableArrayList("Current trip", "Trip history"));
+        scopeChoice.getSelectionModel().selectFirst();
+        ChoiceBox<ExpenseExporter.Format> formatChoice =
+                new ChoiceBox<>(FXCollections.observableArrayList(ExpenseExporter.Format.values()));
+        formatChoice.getSelectionModel().selectFirst();
+        CheckBox filterCheck = new CheckBox("Only expenses matching the expense filter");
+        filterCheck.setDisable(activeFilter.isUnfiltered());
+        filterCheck.setSelected(!activeFilter.isUnfiltered());
+
+        GridPane form = new GridPane();
+        form.setHgap(10);
+        form.setVgap(10);
+        form.addRow(0, new Label("Export:"), scopeChoice);
+        form.addRow(1, new Label("Format:"), formatChoice);
+        form.add(filterCheck, 0, 2, 2, 1);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Export Expenses");
+        dialog.getDialogPane().setContent(form);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().filter(button -> button == ButtonType.OK).isEmpty()) {
+            return;
+        }
 
-        // Budget series (assuming equal distribution if no category budgets set)
-        XYChart.Series<String, Number> budgetSeries = new XYChart.Series<>();
-        budgetSeries.setName("Budget");
+        boolean history = scopeChoice.getSelectionModel().getSelectedIndex() == 1;
+        ExpenseExporter.Format format = formatChoice.getValue();
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Expenses");
+        chooser.setInitialFileName((history ? "trip_history" : "trip")
+                + (format == ExpenseExporter.Format.CATEGORY_SUMMARY ? "_summary." : ".") + format.getExtension());
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(format.toString(), "*." + format.getExtension()));
+        File file = chooser.showSaveDialog(expenseTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
 
-        // Actual expenses series
-        XYChart.Series<String, Number> actualSeries = new XYChart.Series<>();
-        actualSeries.setName("Actual");
+        ExpenseQuery filter = filterCheck.isSelected() ? activeFilter : null;
+        // The FX thread keeps editing the current trip, so the export gets its own copy
+        TripData trip = history ? null : currentTrip.copy();
+        Task<ExpenseExporter.ExportResult> task = new Task<>() {
+            @Override
+            protected ExpenseExporter.ExportResult call() throws IOException {
+                if (!history) {
+                    return exporter.exportTrip(trip, filter, format, file.toPath());
+                }
+                Task<?> export = this;
+                return exporter.exportHistory(storageService, filter, format, file.toPath(),
+                        new ExpenseExporter.Listener() {
+                            @Override
+                            public void progress(long trips, long expenses) {
+                                updateMessage(String.format("%,d trips, %,d expenses written", trips, expenses));
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return export.isCancelled();
+                            }
+                        });
+            }
+        };
 
-        // Simple budget allocation (equal split among categories)
-        double budgetPerCategory = currentTrip.getBudget() / 5; // 5 categories
+        Stage stage = new Stage();
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.setTitle("Exporting to " + file.getName());
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(360);
+        Label progressLabel = new Label();
+        progressLabel.textProperty().bind(task.messageProperty());
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(e -> task.cancel(false));
+        stage.setOnCloseRequest(e -> task.cancel(false));
+
+        VBox layout = new VBox(10, progressBar, progressLabel, cancelButton);
+        layout.setPadding(new Insets(20));
+        stage.setScene(new Scene(layout));
 
-        String[] categories = {"Transport", "Food", "Lodging", "Activities", "Other"};
-        for (String category : categories) {
-            budgetSeries.getData().add(new XYChart.Data<>(category, budgetPerCategory));
-            actualSeries.getData().add(new XYChart.Data<>(category,
-                    categoryTotals.getOrDefault(category, 0.0)));
-        }
+        task.setOnSucceeded(e -> {
+            stage.close();
+            ExpenseExporter.ExportResult result = task.getValue();
+            showAlert("Export Finished", String.format("Exported %,d expenses from %,d %s to %s.",
+                    result.expenses(), result.trips(), result.trips() == 1 ? "trip" : "trips", file.getName()));
+        });
+        task.setOnCancelled(e -> {
+            stage.close();
+            showAlert("Export Cancelled", "No file was written.");
+        });
+        task.setOnFailed(e -> {
+            stage.close();
+            showAlert("Error", "Export failed: " + task.getException().getMessage());
+        });
 
-        chart.getData().addAll(budgetSeries, actualSeries);
-        return chart;
+        Thread worker = new Thread(task, "expense-export");
+        worker.setDaemon(true);
+        worker.start();
+        stage.show();
     }
 
-    private TableView<CategoryStat> createCategoryStatsTable() {
-        TableView<CategoryStat> table = new TableView<>();
-
-        TableColumn<CategoryStat, String> categoryCol = new TableColumn<>("Category");
-        categoryCol.setCellValueFactory(data -> data.getValue().categoryProperty());
-
-        TableColumn<CategoryStat, String> amountCol = new TableColumn<>("Amount");
-        amountCol.setCellValueFactory(data -> data.getValue().amountProperty());
+    private double totalExpenses() {
+        return Money.fromCents(aggregates.getTotalCents());
+    }
 
-        TableColumn<CategoryStat, String> percentCol = new TableColumn<>("Percentage");
-        percentCol.setCellValueFactory(data -> data.getValue().percentageProperty());
+    private void showAlert(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
 
-        table.getColumns().addAll(categoryCol, amountCol, percentCol);
+    // === MODEL CLASSES (Keep your existing ExpenseRow and CategoryStat classes) ===
 
-        // Calculate totals
-        double totalExpenses = expenses.stream().mapToDouble(ExpenseRow::getAmount).sum();
-        Map<String, Double> categoryTotals = expenses.stream()
-                .collect(Collectors.groupingBy(
-                        ExpenseRow::getCategory,
-                        Collectors.summingDouble(ExpenseRow::getAmount)
-                ));
+    /**
+     * Table row with plain fields; the JavaFX property for a field is only created when a
+     * cell or binding asks for it, and from then on holds the value
+     */
+    public static class ExpenseRow {
+        private String category;
+        private double amount;
+        private int epochDay; // ExpenseColumns.NO_DATE when undated
+        private String description;
+        private String currency; // null for the trip's base currency
+
+        private javafx.beans.property.StringProperty categoryProperty;
+        private javafx.beans.property.DoubleProperty amountProperty;
+        private javafx.beans.property.ObjectProperty<LocalDate> dateProperty;
+        private javafx.beans.property.StringProperty descriptionProperty;
+        private javafx.beans.property.StringProperty currencyProperty;
+
+        public ExpenseRow(String category, double amount, LocalDate date) {
+            this(category, amount, date == null ? ExpenseColumns.NO_DATE : (int) date.toEpochDay());
+        }
 
-        ObservableList<CategoryStat> stats = FXCollections.observableArrayList();
-        categoryTotals.forEach((category, amount) -> {
-            double percentage = (amount / totalExpenses) * 100;
-            stats.add(new CategoryStat(category,
-                    String.format("$%.2f", amount),
-                    String.format("%.1f%%", percentage)));
-        });
+        public ExpenseRow(String category, double amount, int epochDay) {
+            this(category, amount, epochDay, null);
+        }
 
-        table.setItems(stats);
-        return table;
-    }
+        public ExpenseRow(String category, double amount, int epochDay, String description) {
+            this(category, amount, epochDay, description, null);
+        }
 
-    private VBox createStatisticsSection() {
-        VBox statsBox = new VBox(5);
-        statsBox.setPadding(new Insets(10));
-        statsBox.setStyle("-fx-border-color: lightgray; -fx-border-width: 1;");
+        public ExpenseRow(String category, double amount, int epochDay, String description, String currency) {
+            this.category = category;
+            this.amount = amount;
+            this.epochDay = epochDay;
+            this.description = description;
+            this.currency = currency;
+        }
 
-        Label statsTitle = new Label("Trip Statistics");
-        statsTitle.setStyle("-fx-font-weight: bold;");
+        public String getCategory() {
+            return categoryProperty != null ? categoryProperty.get() : category;
+        }
 
-        double totalExpenses = expenses.stream().mapToDouble(ExpenseRow::getAmount).sum();
-        double avgDaily = calculateAverageDailySpending();
-        String mostExpensiveCategory = findMostExpensiveCategory();
+        public void setCategory(String v) {
+            if (categoryProperty != null) {
+                categoryProperty.set(v);
+            } else {
+                category = v;
+            }
+        }
 
-        Label totalLabel = new Label("Total Expenses: $" + String.format("%.2f", totalExpenses));
-        Label avgLabel = new Label("Average Daily Spending: $" + String.format("%.2f", avgDaily));
-        Label categoryLabel = new Label("Highest Spending Category: " + mostExpensiveCategory);
-        Label budgetStatusLabel = new Label("Budget Status: " +
-                (totalExpenses > currentTrip.getBudget() ? "Over Budget" : "Within Budget"));
+        public javafx.beans.property.StringProperty categoryProperty() {
+            if (categoryProperty == null) {
+                categoryProperty = new javafx.beans.property.SimpleStringProperty(this, "category", category);
+            }
+            return categoryProperty;
+        }
 
-        statsBox.getChildren().addAll(statsTitle, totalLabel, avgLabel, categoryLabel, budgetStatusLabel);
-        return statsBox;
-    }
+        public double getAmount() {
+            return amountProperty != null ? amountProperty.get() : amount;
+        }
 
-    private double calculateAverageDailySpending() {
-        if (expenses.isEmpty()) return 0;
+        public void setAmount(double v) {
+            if (amountProperty != null) {
+                amountProperty.set(v);
+            } else {
+                amount = v;
+            }
+        }
 
-        Set<String> uniqueDates = expenses.stream()
-                .map(ExpenseRow::getDate)
-                .collect(Collectors.toSet());
+        public javafx.beans.property.DoubleProperty amountProperty() {
+            if (amountProperty == null) {
+                amountProperty = new javafx.beans.property.SimpleDoubleProperty(this, "amount", amount);
+            }
+            return amountProperty;
+        }
 
-        if (uniqueDates.isEmpty()) return 0;
+        /**
+         * Date as an epoch day, or {@link ExpenseColumns#NO_DATE}
+         */
+        public int getEpochDay() {
+            if (dateProperty != null) {
+                LocalDate date = dateProperty.get();
+                return date == null ? ExpenseColumns.NO_DATE : (int) date.toEpochDay();
+            }
+            return epochDay;
+        }
 
-        double totalExpenses = expenses.stream().mapToDouble(ExpenseRow::getAmount).sum();
-        return totalExpenses / uniqueDates.size();
-    }
+        public LocalDate getDate() {
+            if (dateProperty != null) {
+                return dateProperty.get();
+            }
+            return epochDay == ExpenseColumns.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
 
-    private String findMostExpensiveCategory() {
-        return expenses.stream()
-                .collect(Collectors.groupingBy(
-                        ExpenseRow::getCategory,
-                        Collectors.summingDouble(ExpenseRow::getAmount)
-                ))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("None");
-    }
+        public void setDate(LocalDate v) {
+            if (dateProperty != null) {
+                dateProperty.set(v);
+            } else {
+                epochDay = v == null ? ExpenseColumns.NO_DATE : (int) v.toEpochDay();
+            }
+        }
 
-    private void showAlert(String title, String message) {
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
-    }
+        public javafx.beans.property.ObjectProperty<LocalDate> dateProperty() {
+            if (dateProperty == null) {
+                dateProperty = new javafx.beans.property.SimpleObjectProperty<>(this, "date", getDate());
+            }
+            return dateProperty;
+        }
 
-    // === MODEL CLASSES (Keep your existing ExpenseRow and CategoryStat classes) ===
+        public String getDescription() {
+            return descriptionProperty != null ? descriptionProperty.get() : description;
+        }
 
-    public static class ExpenseRow {
-        private final javafx.beans.property.SimpleStringProperty category =
-                new javafx.beans.property.SimpleStringProperty();
-        private final javafx.beans.property.SimpleDoubleProperty amount =
-                new javafx.beans.property.SimpleDoubleProperty();
-        private final javafx.beans.property.SimpleStringProperty date =
-                new javafx.beans.property.SimpleStringProperty();
+        public void setDescription(String v) {
+            if (descriptionProperty != null) {
+                descriptionProperty.set(v);
+            } else {
+                description = v;
+            }
+        }
 
-        public ExpenseRow(String category, double amount, String date) {
-            this.category.set(category);
-            this.amount.set(amount);
-            this.date.set(date);
+        public javafx.beans.property.StringProperty descriptionProperty() {
+            if (descriptionProperty == null) {
+                descriptionProperty = new javafx.beans.property.SimpleStringProperty(this, "description", description);
+            }
+            return descriptionProperty;
         }
 
-        public String getCategory() { return category.get(); }
-        public void setCategory(String v) { category.set(v); }
-        public javafx.beans.property.StringProperty categoryProperty() { return category; }
+        public String getCurrency() {
+            return currencyProperty != null ? currencyProperty.get() : currency;
+        }
 
-        public double getAmount() { return amount.get(); }
-        public void setAmount(double v) { amount.set(v); }
-        public javafx.beans.property.DoubleProperty amountProperty() { return amount; }
+        public void setCurrency(String v) {
+            if (currencyProperty != null) {
+                currencyProperty.set(v);
+            } else {
+                currency = v;
+            }
+        }
 
-        public String getDate() { return date.get(); }
-        public void setDate(String v) { date.set(v); }
-        public javafx.beans.property.StringProperty dateProperty() { return date; }
+        public javafx.beans.property.StringProperty currencyProperty() {
+            if (currencyProperty == null) {
+                currencyProperty = new javafx.beans.property.SimpleStringProperty(this, "currency", currency);
+            }
+            return currencyProperty;
+        }
     }
 
     public static class CategoryStat {
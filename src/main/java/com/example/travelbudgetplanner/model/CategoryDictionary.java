@@ -0,0 +1,97 @@
+package com.example.travelbudgetplanner.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps category names to small integer ids so expenses can store a category in one byte.
+ * Id 0 is reserved for "no category". Expense columns use a second dictionary for currency
+ * codes, where id 0 is the trip's base currency.
+ */
+public class CategoryDictionary {
+
+    public static final int NO_CATEGORY = 0;
+    public static final int MAX_CATEGORIES = 255;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public CategoryDictionary() {
+        names.add(null);
+    }
+
+    /**
+     * Id of a category, adding it if it is new
+     */
+    public int intern(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        Integer id = ids.get(category);
+        if (id != null) {
+            return id;
+        }
+        if (names.size() > MAX_CATEGORIES) {
+            // Also used for currencies, so the message names the value rather than its kind
+            throw new IllegalStateException("No id left for '" + category + "' (max " + MAX_CATEGORIES
+                    + " distinct values)");
+        }
+        int newId = names.size();
+        names.add(category);
+        ids.put(category, newId);
+        return newId;
+    }
+
+    /**
+     * Throw if interning the given names would need more ids than are left, so a caller can
+     * refuse them before storing anything
+     *
+     * @param kind what the names are, for the message, e.g. "currencies"
+     */
+    public void checkRoom(Collection<String> newNames, String kind) {
+        Set<String> added = new HashSet<>();
+        for (String name : newNames) {
+            if (name != null && !ids.containsKey(name)) {
+                added.add(name);
+            }
+        }
+        if (names.size() + added.size() > MAX_CATEGORIES + 1) {
+            throw new IllegalArgumentException("Too many distinct " + kind + " (max " + MAX_CATEGORIES + ")");
+        }
+    }
+
+    /**
+     * Id of a known category, or -1 if it has never been interned
+     */
+    public int idOf(String category) {
+        if (category == null) {
+            return NO_CATEGORY;
+        }
+        Integer id = ids.get(category);
+        return id != null ? id : -1;
+    }
+
+    public String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Number of ids in use, including the reserved "no category" id
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Category names indexed by id; index 0 is null
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(names);
+    }
+}
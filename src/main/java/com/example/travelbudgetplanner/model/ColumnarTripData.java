@@ -0,0 +1,80 @@
+package com.example.travelbudgetplanner.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * TripData whose expenses live in {@link ExpenseColumns}. getExpenses() returns a live view,
+ * so code written against List&lt;Expense&gt; keeps working while aggregations use the columns.
+ */
+public class ColumnarTripData extends TripData {
+
+    private final ExpenseColumns columns;
+
+    // Default constructor
+    public ColumnarTripData() {
+        this(new ExpenseColumns());
+    }
+
+    public ColumnarTripData(ExpenseColumns columns) {
+        super(columns.asList());
+        this.columns = columns;
+    }
+
+    public ColumnarTripData(String destination, LocalDate startDate, LocalDate endDate, double budget) {
+        this(new ExpenseColumns(), destination, startDate, endDate, budget);
+    }
+
+    public ColumnarTripData(ExpenseColumns columns, String destination, LocalDate startDate,
+                            LocalDate endDate, double budget) {
+        super(columns.asList(), destination, startDate, endDate, budget);
+        this.columns = columns;
+    }
+
+    /**
+     * Columnar copy of any trip; a trip that is already columnar is returned as is
+     */
+    public static ColumnarTripData of(TripData tripData) {
+        if (tripData instanceof ColumnarTripData columnar) {
+            return columnar;
+        }
+        ColumnarTripData columnar = new ColumnarTripData(new ExpenseColumns(new CategoryDictionary(),
+                tripData.getExpenses().size()));
+        columnar.copyHeaderFrom(tripData);
+        for (Expense expense : tripData.getExpenses()) {
+            columnar.columns.add(expense);
+        }
+        return columnar;
+    }
+
+    // Not a bean getter, so Jackson serializes only the expense list
+    public ExpenseColumns columns() { return columns; }
+
+    @Override
+    public void setExpenses(List<Expense> expenses) {
+        if (expenses == getExpenses()) {
+            return;
+        }
+        columns.clear();
+        for (Expense expense : expenses) {
+            columns.add(expense);
+        }
+    }
+
+    @Override
+    public void checkCanAdd(List<Expense> expenses) {
+        columns.checkRoomFor(expenses);
+    }
+
+    @Override
+    public void replaceExpenses(int from, int removed, List<Expense> added) {
+        columns.replace(from, removed, added); // Moves the rows after the range once
+    }
+
+    @Override
+    public TripData copy() {
+        ColumnarTripData copy = new ColumnarTripData(new ExpenseColumns(columns));
+        copy.copyHeaderFrom(this);
+        return copy;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.travelbudgetplanner.model;
+
+/**
+ * Calendar arithmetic on epoch days without creating LocalDate objects,
+ * for aggregation loops over millions of rows
+ */
+public final class EpochDays {
+
+    private EpochDays() {}
+
+    /**
+     * Calendar year of an epoch day
+     */
+    public static int yearOf(long epochDay) {
+        long yearMonth = yearMonthOf(epochDay);
+        return (int) Math.floorDiv(yearMonth, 12);
+    }
+
+    /**
+     * Month of an epoch day, 1 to 12
+     */
+    public static int monthOf(long epochDay) {
+        return Math.floorMod(yearMonthOf(epochDay), 12) + 1;
+    }
+
+    /**
+     * year * 12 + (month - 1): a dense, ordered month index
+     */
+    public static long yearMonthOf(long epochDay) {
+        // Civil-from-days, working in 400-year eras starting on March 1st
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+}
@@ -11,6 +11,7 @@ public class Expense {
     private double amount;
     private LocalDate date;
     private String description; // Optional field for future use
+    private String currency; // ISO 4217 code; null means the trip's base currency
 
     // Default constructor
     public Expense() {}
@@ -35,8 +36,11 @@ public class Expense {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
+    public String getCurrency() { return currency; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
     @Override
     public String toString() {
-        return String.format("%s: $%.2f on %s", category, amount, date);
+        return String.format("%s: %s on %s", category, Money.format(amount, currency), date);
     }
 }
\ No newline at end of file
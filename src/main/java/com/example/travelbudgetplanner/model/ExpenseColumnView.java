@@ -0,0 +1,20 @@
+package com.example.travelbudgetplanner.model;
+
+/**
+ * Read access to expenses stored column by column, in memory or mapped from disk
+ */
+public interface ExpenseColumnView {
+
+    int size();
+
+    /**
+     * Epoch day of an expense, or {@link ExpenseColumns#NO_DATE}
+     */
+    int epochDay(int index);
+
+    long cents(int index);
+
+    int categoryId(int index);
+
+    CategoryDictionary getCategories();
+}
@@ -0,0 +1,488 @@
+package com.example.travelbudgetplanner.model;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expenses stored as parallel primitive arrays: epoch day, amount in cents, category id and,
+ * once any expense names one, currency id. About 13 bytes per expense instead of an Expense
+ * object plus its LocalDate, and sums and group-bys run over the arrays without boxing.
+ */
+public class ExpenseColumns implements ExpenseColumnView {
+
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    public static final int NO_CURRENCY = CategoryDictionary.NO_CATEGORY; // The trip's base currency
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CategoryDictionary categories;
+    private final CategoryDictionary currencies;
+    private int[] epochDays;
+    private long[] cents;
+    private byte[] categoryIds;
+    private byte[] currencyIds; // Allocated on the first expense with a currency
+    private String[] descriptions; // Allocated on the first description
+    private int size;
+
+    public ExpenseColumns() {
+        this(new CategoryDictionary(), INITIAL_CAPACITY);
+    }
+
+    public ExpenseColumns(CategoryDictionary categories, int initialCapacity) {
+        this(categories, new CategoryDictionary(), initialCapacity);
+    }
+
+    public ExpenseColumns(CategoryDictionary categories, CategoryDictionary currencies, int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.categories = categories;
+        this.currencies = currencies;
+        this.epochDays = new int[capacity];
+        this.cents = new long[capacity];
+        this.categoryIds = new byte[capacity];
+    }
+
+    // Copy constructor: shares the dictionaries, copies the arrays
+    public ExpenseColumns(ExpenseColumns other) {
+        this.categories = other.categories;
+        this.currencies = other.currencies;
+        this.epochDays = Arrays.copyOf(other.epochDays, Math.max(other.size, 1));
+        this.cents = Arrays.copyOf(other.cents, Math.max(other.size, 1));
+        this.categoryIds = Arrays.copyOf(other.categoryIds, Math.max(other.size, 1));
+        this.currencyIds = other.currencyIds == null ? null : Arrays.copyOf(other.currencyIds, Math.max(other.size, 1));
+        this.descriptions = other.descriptions == null ? null : Arrays.copyOf(other.descriptions, Math.max(other.size, 1));
+        this.size = other.size;
+    }
+
+    // === COLUMN ACCESS ===
+
+    public int size() { return size; }
+
+    public CategoryDictionary getCategories() { return categories; }
+
+    /**
+     * Currency codes by id; id {@link #NO_CURRENCY} stands for the trip's base currency
+     */
+    public CategoryDictionary getCurrencies() { return currencies; }
+
+    /**
+     * Whether any expense was ever given a currency
+     */
+    public boolean hasCurrencies() { return currencyIds != null; }
+
+    /**
+     * Epoch day of an expense, or {@link #NO_DATE}
+     */
+    public int epochDay(int index) {
+        checkIndex(index);
+        return epochDays[index];
+    }
+
+    public long cents(int index) {
+        checkIndex(index);
+        return cents[index];
+    }
+
+    public int categoryId(int index) {
+        checkIndex(index);
+        return categoryIds[index] & 0xFF;
+    }
+
+    public String category(int index) {
+        return categories.nameOf(categoryId(index));
+    }
+
+    public String description(int index) {
+        checkIndex(index);
+        return descriptions == null ? null : descriptions[index];
+    }
+
+    public int currencyId(int index) {
+        checkIndex(index);
+        return currencyIds == null ? NO_CURRENCY : currencyIds[index] & 0xFF;
+    }
+
+    /**
+     * Currency code of an expense, or null for the trip's base currency
+     */
+    public String currency(int index) {
+        return currencies.nameOf(currencyId(index));
+    }
+
+    // === MUTATION ===
+
+    public void add(int epochDay, long amountCents, int categoryId, String description) {
+        insert(size, epochDay, amountCents, categoryId, NO_CURRENCY, description);
+    }
+
+    public void add(int epochDay, long amountCents, int categoryId, int currencyId, String description) {
+        insert(size, epochDay, amountCents, categoryId, currencyId, description);
+    }
+
+    public void add(Expense expense) {
+        insert(size, expense);
+    }
+
+    public void insert(int index, Expense expense) {
+        insert(index, dayOf(expense.getDate()), Money.toCents(expense.getAmount()),
+                categories.intern(expense.getCategory()), currencies.intern(expense.getCurrency()),
+                expense.getDescription());
+    }
+
+    public void insert(int index, int epochDay, long amountCents, int categoryId, String description) {
+        insert(index, epochDay, amountCents, categoryId, NO_CURRENCY, description);
+    }
+
+    public void insert(int index, int epochDay, long amountCents, int categoryId, int currencyId,
+             String description) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(epochDays, index, epochDays, index + 1, moved);
+            System.arraycopy(cents, index, cents, index + 1, moved);
+            System.arraycopy(categoryIds, index, categoryIds, index + 1, moved);
+            if (currencyIds != null) {
+                System.arraycopy(currencyIds, index, currencyIds, index + 1, moved);
+            }
+            if (descriptions != null) {
+                System.arraycopy(descriptions, index, descriptions, index + 1, moved);
+            }
+        }
+        size++;
+        write(index, epochDay, amountCents, categoryId, currencyId, description);
+    }
+
+    public void set(int index, Expense expense) {
+        checkIndex(index);
+        write(index, dayOf(expense.getDate()), Money.toCents(expense.getAmount()),
+                categories.intern(expense.getCategory()), currencies.intern(expense.getCurrency()),
+                expense.getDescription());
+    }
+
+    public void remove(int index) {
+        checkIndex(index);
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(epochDays, index + 1, epochDays, index, moved);
+            System.arraycopy(cents, index + 1, cents, index, moved);
+            System.arraycopy(categoryIds, index + 1, categoryIds, index, moved);
+            if (currencyIds != null) {
+                System.arraycopy(currencyIds, index + 1, currencyIds, index, moved);
+            }
+            if (descriptions != null) {
+                System.arraycopy(descriptions, index + 1, descriptions, index, moved);
+            }
+        }
+        size--;
+        if (descriptions != null) {
+            descriptions[size] = null;
+        }
+    }
+
+    /**
+     * Replace removed rows from the given index on with added rows of a vector, moving the rows
+     * after them once. Brings the columns to another version of the trip, see {@link ExpenseVector#diff}.
+     */
+    public void replace(int from, int removed, ExpenseVector rows, int rowsFrom, int added) {
+        if (rows.getCategories() != categories || rows.getCurrencies() != currencies) {
+            throw new IllegalArgumentException("Vector uses other dictionaries than the columns");
+        }
+        resize(from, removed, added);
+        rows.copyTo(rowsFrom, added, this, from);
+    }
+
+    /**
+     * Replace removed rows from the given index on with the given expenses, moving the rows
+     * after them once
+     */
+    public void replace(int from, int removed, List<Expense> added) {
+        resize(from, removed, added.size());
+        for (int i = 0; i < added.size(); i++) {
+            Expense expense = added.get(i);
+            write(from + i, dayOf(expense.getDate()), Money.toCents(expense.getAmount()),
+                    categories.intern(expense.getCategory()), currencies.intern(expense.getCurrency()),
+                    expense.getDescription());
+        }
+    }
+
+    /**
+     * Throw an IllegalArgumentException if the expenses bring more new categories or currencies
+     * than the dictionaries have ids left for
+     */
+    public void checkRoomFor(List<Expense> expenses) {
+        categories.checkRoom(expenses.stream().map(Expense::getCategory).toList(), "categories");
+        currencies.checkRoom(expenses.stream().map(Expense::getCurrency).toList(), "currencies");
+    }
+
+    public void clear() {
+        if (descriptions != null) {
+            Arrays.fill(descriptions, 0, size, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Materialize one expense as an object
+     */
+    public Expense get(int index) {
+        checkIndex(index);
+        int day = epochDays[index];
+        Expense expense = new Expense(categories.nameOf(categoryIds[index] & 0xFF),
+                Money.fromCents(cents[index]), day == NO_DATE ? null : LocalDate.ofEpochDay(day));
+        if (descriptions != null) {
+            expense.setDescription(descriptions[index]);
+        }
+        if (currencyIds != null) {
+            expense.setCurrency(currencies.nameOf(currencyIds[index] & 0xFF));
+        }
+        return expense;
+    }
+
+    /**
+     * Live List view; elements are materialized on access and writes go to the columns
+     */
+    public List<Expense> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Expense get(int index) { return ExpenseColumns.this.get(index); }
+
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public Expense set(int index, Expense element) {
+                Expense previous = ExpenseColumns.this.get(index);
+                ExpenseColumns.this.set(index, element);
+                return previous;
+            }
+
+            @Override
+            public void add(int index, Expense element) {
+                insert(index, element);
+                modCount++;
+            }
+
+            @Override
+            public Expense remove(int index) {
+                Expense previous = ExpenseColumns.this.get(index);
+                ExpenseColumns.this.remove(index);
+                modCount++;
+                return previous;
+            }
+
+            @Override
+            public void clear() {
+                ExpenseColumns.this.clear();
+                modCount++;
+            }
+        };
+    }
+
+    /**
+     * Give every expense without a currency the given one, e.g. the trip's base currency before
+     * the base changes. Returns how many expenses changed.
+     */
+    public int pinCurrency(String currency) {
+        int currencyId = currencies.intern(currency);
+        if (currencyId == NO_CURRENCY) {
+            return 0;
+        }
+        if (currencyIds == null) {
+            currencyIds = new byte[epochDays.length];
+        }
+        int pinned = 0;
+        for (int i = 0; i < size; i++) {
+            if (currencyIds[i] == NO_CURRENCY) {
+                currencyIds[i] = (byte) currencyId;
+                pinned++;
+            }
+        }
+        return pinned;
+    }
+
+    // === AGGREGATIONS ===
+
+    public long totalCents() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cents[i];
+        }
+        return total;
+    }
+
+    /**
+     * Add each expense's cents to totals[category id]; totals must hold categories.size() entries
+     */
+    public void sumCentsByCategory(long[] totals) {
+        for (int i = 0; i < size; i++) {
+            totals[categoryIds[i] & 0xFF] += cents[i];
+        }
+    }
+
+    /**
+     * Add each dated expense's cents to totals[day - fromEpochDay] for days inside the array
+     */
+    public void sumCentsByDay(int fromEpochDay, long[] totals) {
+        for (int i = 0; i < size; i++) {
+            int offset = epochDays[i] - fromEpochDay;
+            if (epochDays[i] != NO_DATE && offset >= 0 && offset < totals.length) {
+                totals[offset] += cents[i];
+            }
+        }
+    }
+
+    /**
+     * Smallest dated epoch day, or {@link #NO_DATE} if no expense has a date
+     */
+    public int minEpochDay() {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (epochDays[i] != NO_DATE && epochDays[i] < min) {
+                min = epochDays[i];
+            }
+        }
+        return min == Integer.MAX_VALUE ? NO_DATE : min;
+    }
+
+    /**
+     * Largest dated epoch day, or {@link #NO_DATE} if no expense has a date
+     */
+    public int maxEpochDay() {
+        int max = NO_DATE;
+        for (int i = 0; i < size; i++) {
+            if (epochDays[i] > max) {
+                max = epochDays[i];
+            }
+        }
+        return max;
+    }
+
+    // === ORDERING ===
+
+    /**
+     * Compares two expenses given by index
+     */
+    public interface IndexComparator {
+        int compare(int left, int right);
+    }
+
+    /**
+     * Expense indices in comparator order, without creating objects per expense.
+     * The sort is stable, so equal expenses keep their insertion order.
+     */
+    public int[] sortedIndices(IndexComparator comparator) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        return sortIndices(order, comparator);
+    }
+
+    /**
+     * Stable sort of the given expense indices; returns a sorted copy
+     */
+    public static int[] sortIndices(int[] indices, IndexComparator comparator) {
+        int length = indices.length;
+        // Bottom-up merge sort, alternating between the two buffers
+        int[] source = indices.clone();
+        int[] target = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int from = 0; from < length; from += 2 * width) {
+                int middle = Math.min(from + width, length);
+                int to = Math.min(from + 2 * width, length);
+                int left = from;
+                int right = middle;
+                for (int k = from; k < to; k++) {
+                    if (left < middle && (right >= to || comparator.compare(source[left], source[right]) <= 0)) {
+                        target[k] = source[left++];
+                    } else {
+                        target[k] = source[right++];
+                    }
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    // === INTERNALS ===
+
+    void write(int index, int epochDay, long amountCents, int categoryId, int currencyId,
+             String description) {
+        epochDays[index] = epochDay;
+        cents[index] = amountCents;
+        categoryIds[index] = (byte) categoryId;
+        if (currencyId != NO_CURRENCY && currencyIds == null) {
+            currencyIds = new byte[epochDays.length];
+        }
+        if (currencyIds != null) {
+            currencyIds[index] = (byte) currencyId;
+        }
+        if (description != null && descriptions == null) {
+            descriptions = new String[epochDays.length];
+        }
+        if (descriptions != null) {
+            descriptions[index] = description;
+        }
+    }
+
+    /**
+     * Make room for added rows in place of removed ones from the given index on; the rows
+     * in between are left for the caller to write
+     */
+    private void resize(int from, int removed, int added) {
+        if (from < 0 || removed < 0 || from + removed > size) {
+            throw new IndexOutOfBoundsException("Range: " + from + "+" + removed + ", Size: " + size);
+        }
+        int newSize = size - removed + added;
+        ensureCapacity(newSize);
+        int moved = size - from - removed;
+        if (moved > 0 && removed != added) {
+            System.arraycopy(epochDays, from + removed, epochDays, from + added, moved);
+            System.arraycopy(cents, from + removed, cents, from + added, moved);
+            System.arraycopy(categoryIds, from + removed, categoryIds, from + added, moved);
+            if (currencyIds != null) {
+                System.arraycopy(currencyIds, from + removed, currencyIds, from + added, moved);
+            }
+            if (descriptions != null) {
+                System.arraycopy(descriptions, from + removed, descriptions, from + added, moved);
+            }
+        }
+        if (descriptions != null && newSize < size) {
+            Arrays.fill(descriptions, newSize, size, null);
+        }
+        size = newSize;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= epochDays.length) {
+            return;
+        }
+        int capacity = Math.max(required, epochDays.length + (epochDays.length >> 1));
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        if (currencyIds != null) {
+            currencyIds = Arrays.copyOf(currencyIds, capacity);
+        }
+        if (descriptions != null) {
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static int dayOf(LocalDate date) {
+        return date == null ? NO_DATE : (int) date.toEpochDay();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.travelbudgetplanner.model;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Expense search criteria. Unset criteria match everything; set criteria must all match.
+ */
+public class ExpenseQuery {
+    private LocalDate fromDate; // Inclusive
+    private LocalDate toDate; // Inclusive
+    private Set<String> categories = new LinkedHashSet<>(); // Any of these; empty means any category
+    private Double minAmount; // Inclusive
+    private Double maxAmount; // Inclusive
+    private String text; // Every word must appear within a description word
+
+    // Default constructor
+    public ExpenseQuery() {}
+
+    /**
+     * True when no criterion is set
+     */
+    public boolean isUnfiltered() {
+        return fromDate == null && toDate == null && categories.isEmpty()
+                && minAmount == null && maxAmount == null && (text == null || text.isBlank());
+    }
+
+    // Getters and Setters
+    public LocalDate getFromDate() { return fromDate; }
+    public void setFromDate(LocalDate fromDate) { this.fromDate = fromDate; }
+
+    public LocalDate getToDate() { return toDate; }
+    public void setToDate(LocalDate toDate) { this.toDate = toDate; }
+
+    public Set<String> getCategories() { return categories; }
+    public void setCategories(Set<String> categories) {
+        this.categories = categories != null ? new LinkedHashSet<>(categories) : new LinkedHashSet<>();
+    }
+
+    public Double getMinAmount() { return minAmount; }
+    public void setMinAmount(Double minAmount) { this.minAmount = minAmount; }
+
+    public Double getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(Double maxAmount) { this.maxAmount = maxAmount; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+}
@@ -0,0 +1,499 @@
+package com.example.travelbudgetplanner.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable list of expenses that shares structure with the versions it was derived from.
+ * Rows sit column by column in leaves of up to {@value #LEAF_SIZE}; branches keep the running
+ * row count of their children, so a row is found by position in O(log n). Inserting or removing
+ * an expense copies one leaf and the branches above it and leaves every older vector intact,
+ * which makes each edit of a trip a cheap snapshot.
+ *
+ * Category and currency ids refer to the dictionaries of the {@link ExpenseColumns} the rows
+ * were taken from. Dictionaries only grow, so ids in older vectors stay valid.
+ */
+public final class ExpenseVector implements ExpenseColumnView {
+
+    static final int LEAF_SIZE = 64;
+    static final int BRANCH_SIZE = 32;
+
+    private static final Leaf EMPTY_LEAF = new Leaf(0, false);
+
+    private final CategoryDictionary categories;
+    private final CategoryDictionary currencies;
+    private final Node root; // null when empty
+
+    private ExpenseVector(CategoryDictionary categories, CategoryDictionary currencies, Node root) {
+        this.categories = categories;
+        this.currencies = currencies;
+        this.root = root;
+    }
+
+    /**
+     * Vector holding the current rows of the columns, sharing their dictionaries
+     */
+    public static ExpenseVector of(ExpenseColumns columns) {
+        List<Node> level = new ArrayList<>();
+        for (int from = 0; from < columns.size(); from += LEAF_SIZE) {
+            level.add(Leaf.of(columns, from, Math.min(from + LEAF_SIZE, columns.size())));
+        }
+        // Build the branches bottom-up, each full except the last
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            for (int from = 0; from < level.size(); from += BRANCH_SIZE) {
+                parents.add(Branch.of(level.subList(from, Math.min(from + BRANCH_SIZE, level.size()))
+                        .toArray(new Node[0])));
+            }
+            level = parents;
+        }
+        return new ExpenseVector(columns.getCategories(), columns.getCurrencies(),
+                level.isEmpty() ? null : level.get(0));
+    }
+
+    // === COLUMN ACCESS ===
+
+    public int size() { return root == null ? 0 : root.size(); }
+
+    public CategoryDictionary getCategories() { return categories; }
+
+    public CategoryDictionary getCurrencies() { return currencies; }
+
+    public int epochDay(int index) {
+        Position at = find(index);
+        return at.leaf().epochDays[at.offset()];
+    }
+
+    public long cents(int index) {
+        Position at = find(index);
+        return at.leaf().cents[at.offset()];
+    }
+
+    public int categoryId(int index) {
+        Position at = find(index);
+        return at.leaf().categoryIds[at.offset()] & 0xFF;
+    }
+
+    public int currencyId(int index) {
+        Position at = find(index);
+        return at.leaf().currencyIds[at.offset()] & 0xFF;
+    }
+
+    public String description(int index) {
+        Position at = find(index);
+        return at.leaf().descriptions == null ? null : at.leaf().descriptions[at.offset()];
+    }
+
+    /**
+     * Rows from the given position on as expense objects, e.g. to store a restored range
+     */
+    public List<Expense> expenses(int from, int count) {
+        ExpenseColumns rows = new ExpenseColumns(categories, currencies, count);
+        rows.replace(0, 0, this, from, count);
+        return rows.asList();
+    }
+
+    // === EDITS ===
+
+    /**
+     * This vector with a row of the columns inserted at the same position, once the columns
+     * have it. The columns must use this vector's dictionaries.
+     */
+    public ExpenseVector insert(ExpenseColumns columns, int row) {
+        checkDictionaries(columns);
+        if (row < 0 || row > size()) {
+            throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size());
+        }
+        Leaf inserted = Leaf.of(columns, row, row + 1);
+        if (root == null) {
+            return withRoot(inserted);
+        }
+        return withRoot(rootOf(insert(root, row, inserted)));
+    }
+
+    /**
+     * This vector with the rows of the columns from the given index on appended, e.g. after an
+     * import added them. Rows go in a leaf at a time, so this is O(k / 64 log n) for k rows.
+     */
+    public ExpenseVector appendAll(ExpenseColumns columns, int from) {
+        checkDictionaries(columns);
+        Node result = root;
+        int row = from;
+        while (row < columns.size()) {
+            // Top up the last leaf first, so small batches do not leave a trail of small leaves
+            int room = result == null ? LEAF_SIZE : LEAF_SIZE - lastLeaf(result).size();
+            int to = Math.min(columns.size(), row + (room > 0 ? room : LEAF_SIZE));
+            Leaf leaf = Leaf.of(columns, row, to);
+            result = result == null ? leaf : rootOf(append(result, leaf));
+            row = to;
+        }
+        return withRoot(result);
+    }
+
+    /**
+     * This vector without the row at the given index
+     */
+    public ExpenseVector remove(int index) {
+        checkIndex(index);
+        Node result = remove(root, index);
+        // Deletes never split nodes, so the tree only needs to lose levels with a single child
+        while (result instanceof Branch branch && branch.children.length == 1) {
+            result = branch.children[0];
+        }
+        return withRoot(result);
+    }
+
+    // === DIFFING ===
+
+    /**
+     * Rows [from, from + removed) of one vector that became rows [from, from + added) of another;
+     * the rows before and after are the same in both
+     */
+    public record Change(int from, int removed, int added) {
+
+        public boolean isEmpty() {
+            return removed == 0 && added == 0;
+        }
+    }
+
+    /**
+     * The smallest run of rows that differs between this vector and another, found by walking
+     * both from each end. Subtrees the two share are skipped whole, so two versions a few edits
+     * apart are compared in O(log n) plus the rows of the leaves that differ. Vectors over
+     * other dictionaries differ in every row.
+     */
+    public Change diff(ExpenseVector other) {
+        int size = size();
+        int otherSize = other.size();
+        if (categories != other.categories || currencies != other.currencies) {
+            return new Change(0, size, otherSize);
+        }
+        int prefix = commonRun(root, other.root, true);
+        int limit = Math.min(size, otherSize) - prefix;
+        int suffix = limit == 0 ? 0 : Math.min(limit, commonRun(root, other.root, false));
+        return new Change(prefix, size - prefix - suffix, otherSize - prefix - suffix);
+    }
+
+    // === MATERIALIZING ===
+
+    /**
+     * Mutable columns holding the same rows and sharing the dictionaries
+     */
+    public ExpenseColumns toColumns() {
+        ExpenseColumns columns = new ExpenseColumns(categories, currencies, size());
+        columns.replace(0, 0, this, 0, size());
+        return columns;
+    }
+
+    /**
+     * Write rows [from, from + count) over the columns' rows from the given index on, leaf by leaf
+     */
+    void copyTo(int from, int count, ExpenseColumns target, int targetIndex) {
+        if (count > 0) {
+            copyRows(root, from, from + count, target, targetIndex);
+        }
+    }
+
+    // === INTERNALS ===
+
+    private abstract static sealed class Node permits Leaf, Branch {
+        abstract int size();
+    }
+
+    private static final class Leaf extends Node {
+        final int[] epochDays;
+        final long[] cents;
+        final byte[] categoryIds;
+        final byte[] currencyIds;
+        final String[] descriptions; // null when no row has one
+
+        Leaf(int size, boolean withDescriptions) {
+            epochDays = new int[size];
+            cents = new long[size];
+            categoryIds = new byte[size];
+            currencyIds = new byte[size];
+            descriptions = withDescriptions ? new String[size] : null;
+        }
+
+        static Leaf of(ExpenseColumns columns, int from, int to) {
+            boolean withDescriptions = false;
+            for (int i = from; i < to && !withDescriptions; i++) {
+                withDescriptions = columns.description(i) != null;
+            }
+            Leaf leaf = new Leaf(to - from, withDescriptions);
+            for (int i = from; i < to; i++) {
+                int k = i - from;
+                leaf.epochDays[k] = columns.epochDay(i);
+                leaf.cents[k] = columns.cents(i);
+                leaf.categoryIds[k] = (byte) columns.categoryId(i);
+                leaf.currencyIds[k] = (byte) columns.currencyId(i);
+                if (withDescriptions) {
+                    leaf.descriptions[k] = columns.description(i);
+                }
+            }
+            return leaf;
+        }
+
+        @Override
+        int size() { return epochDays.length; }
+
+        /**
+         * Copy with removeCount rows from index at replaced by count rows of another leaf
+         */
+        Leaf splice(int at, int removeCount, Leaf source, int sourceFrom, int count) {
+            int tail = size() - at - removeCount;
+            Leaf result = new Leaf(at + count + tail, descriptions != null || source.descriptions != null);
+            result.copyFrom(this, 0, 0, at);
+            result.copyFrom(source, sourceFrom, at, count);
+            result.copyFrom(this, at + removeCount, at + count, tail);
+            return result;
+        }
+
+        Leaf slice(int from, int to) {
+            return EMPTY_LEAF.splice(0, 0, this, from, to - from);
+        }
+
+        boolean sameRow(int index, Leaf other, int otherIndex) {
+            return epochDays[index] == other.epochDays[otherIndex]
+                    && cents[index] == other.cents[otherIndex]
+                    && categoryIds[index] == other.categoryIds[otherIndex]
+                    && currencyIds[index] == other.currencyIds[otherIndex]
+                    && Objects.equals(description(index), other.description(otherIndex));
+        }
+
+        String description(int index) {
+            return descriptions == null ? null : descriptions[index];
+        }
+
+        private void copyFrom(Leaf source, int from, int to, int count) {
+            System.arraycopy(source.epochDays, from, epochDays, to, count);
+            System.arraycopy(source.cents, from, cents, to, count);
+            System.arraycopy(source.categoryIds, from, categoryIds, to, count);
+            System.arraycopy(source.currencyIds, from, currencyIds, to, count);
+            if (source.descriptions != null) {
+                System.arraycopy(source.descriptions, from, descriptions, to, count);
+            }
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children;
+        final int[] ends; // Rows in children 0..i, so ends[i] is where child i+1 starts
+
+        private Branch(Node[] children) {
+            this.children = children;
+            this.ends = new int[children.length];
+            int end = 0;
+            for (int i = 0; i < children.length; i++) {
+                end += children[i].size();
+                ends[i] = end;
+            }
+        }
+
+        static Branch of(Node... children) {
+            return new Branch(children);
+        }
+
+        @Override
+        int size() { return ends[ends.length - 1]; }
+
+        int childFor(int index) {
+            int child = Arrays.binarySearch(ends, index);
+            return child >= 0 ? child + 1 : -child - 1;
+        }
+
+        int startOf(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+
+        /**
+         * Copy with removeCount children from index at replaced by the given nodes, split in
+         * two if that makes it too wide
+         */
+        Node[] replace(int at, int removeCount, Node... nodes) {
+            Node[] result = new Node[children.length - removeCount + nodes.length];
+            System.arraycopy(children, 0, result, 0, at);
+            System.arraycopy(nodes, 0, result, at, nodes.length);
+            System.arraycopy(children, at + removeCount, result, at + nodes.length,
+                    children.length - at - removeCount);
+            if (result.length <= BRANCH_SIZE) {
+                return result.length == 0 ? new Node[0] : new Node[] {new Branch(result)};
+            }
+            int half = result.length / 2;
+            return new Node[] {new Branch(Arrays.copyOfRange(result, 0, half)),
+                    new Branch(Arrays.copyOfRange(result, half, result.length))};
+        }
+    }
+
+    private record Position(Leaf leaf, int offset) {}
+
+    private Position find(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (node instanceof Branch branch) {
+            int child = branch.childFor(index);
+            index -= branch.startOf(child);
+            node = branch.children[child];
+        }
+        return new Position((Leaf) node, index);
+    }
+
+    // Returns the new node, or two when it had to split
+    private static Node[] insert(Node node, int index, Leaf row) {
+        if (node instanceof Leaf leaf) {
+            Leaf grown = leaf.splice(index, 0, row, 0, 1);
+            if (grown.size() <= LEAF_SIZE) {
+                return new Node[] {grown};
+            }
+            // Appending starts a new leaf rather than halving a full one
+            int split = index == leaf.size() ? leaf.size() : grown.size() / 2;
+            return new Node[] {grown.slice(0, split), grown.slice(split, grown.size())};
+        }
+        Branch branch = (Branch) node;
+        int child = index == branch.size() ? branch.children.length - 1 : branch.childFor(index);
+        return branch.replace(child, 1, insert(branch.children[child], index - branch.startOf(child), row));
+    }
+
+    private static Node[] append(Node node, Leaf leaf) {
+        if (node instanceof Leaf last) {
+            return last.size() + leaf.size() <= LEAF_SIZE
+                    ? new Node[] {last.splice(last.size(), 0, leaf, 0, leaf.size())}
+                    : new Node[] {last, leaf};
+        }
+        Branch branch = (Branch) node;
+        int child = branch.children.length - 1;
+        return branch.replace(child, 1, append(branch.children[child], leaf));
+    }
+
+    // Returns null when the node lost its last row
+    private static Node remove(Node node, int index) {
+        if (node instanceof Leaf leaf) {
+            return leaf.size() == 1 ? null : leaf.splice(index, 1, EMPTY_LEAF, 0, 0);
+        }
+        Branch branch = (Branch) node;
+        int child = branch.childFor(index);
+        Node shrunk = remove(branch.children[child], index - branch.startOf(child));
+        Node[] result;
+        if (shrunk == null) {
+            result = branch.replace(child, 1);
+        } else if (shrunk instanceof Leaf leaf && leaf.size() < LEAF_SIZE / 4 && child > 0
+                && branch.children[child - 1] instanceof Leaf previous
+                && previous.size() + leaf.size() <= LEAF_SIZE) {
+            // Fold a nearly empty leaf into its neighbour so repeated deletes keep leaves dense
+            result = branch.replace(child - 1, 2, previous.splice(previous.size(), 0, leaf, 0, leaf.size()));
+        } else {
+            result = branch.replace(child, 1, shrunk);
+        }
+        return result.length == 0 ? null : result[0];
+    }
+
+    private static Node rootOf(Node[] nodes) {
+        return nodes.length == 1 ? nodes[0] : Branch.of(nodes);
+    }
+
+    private static Leaf lastLeaf(Node node) {
+        while (node instanceof Branch branch) {
+            node = branch.children[branch.children.length - 1];
+        }
+        return (Leaf) node;
+    }
+
+    private static int copyRows(Node node, int from, int to, ExpenseColumns target, int targetIndex) {
+        if (node instanceof Leaf leaf) {
+            for (int i = from; i < to; i++) {
+                target.write(targetIndex++, leaf.epochDays[i], leaf.cents[i], leaf.categoryIds[i] & 0xFF,
+                        leaf.currencyIds[i] & 0xFF, leaf.description(i));
+            }
+            return targetIndex;
+        }
+        Branch branch = (Branch) node;
+        for (int child = branch.childFor(from); child < branch.children.length; child++) {
+            int start = branch.startOf(child);
+            if (start >= to) {
+                break;
+            }
+            targetIndex = copyRows(branch.children[child], Math.max(from, start) - start,
+                    Math.min(to, branch.ends[child]) - start, target, targetIndex);
+        }
+        return targetIndex;
+    }
+
+    /**
+     * Rows two trees have in common from the start, or from the end. Both walks are always the
+     * same number of rows in, so a node the trees share covers equal rows and is skipped whole.
+     */
+    private static int commonRun(Node left, Node right, boolean fromStart) {
+        Deque<Node> lefts = new ArrayDeque<>();
+        Deque<Node> rights = new ArrayDeque<>();
+        if (left != null) {
+            lefts.push(left);
+        }
+        if (right != null) {
+            rights.push(right);
+        }
+        int common = 0;
+        while (!lefts.isEmpty() && !rights.isEmpty()) {
+            Node l = lefts.peek();
+            Node r = rights.peek();
+            if (l == r) {
+                common += l.size();
+                lefts.pop();
+                rights.pop();
+            } else if (l instanceof Branch && (r instanceof Leaf || l.size() >= r.size())) {
+                expand(lefts, fromStart);
+            } else if (r instanceof Branch) {
+                expand(rights, fromStart);
+            } else {
+                Leaf a = (Leaf) l;
+                Leaf b = (Leaf) r;
+                int length = Math.min(a.size(), b.size());
+                int same = 0;
+                while (same < length && (fromStart ? a.sameRow(same, b, same)
+                        : a.sameRow(a.size() - 1 - same, b, b.size() - 1 - same))) {
+                    same++;
+                }
+                common += same;
+                if (same < a.size() || same < b.size()) {
+                    break;
+                }
+                lefts.pop();
+                rights.pop();
+            }
+        }
+        return common;
+    }
+
+    // Replace the branch on top with its children, the next one to visit on top
+    private static void expand(Deque<Node> pending, boolean fromStart) {
+        Node[] children = ((Branch) pending.pop()).children;
+        if (fromStart) {
+            for (int i = children.length - 1; i >= 0; i--) {
+                pending.push(children[i]);
+            }
+        } else {
+            for (Node child : children) {
+                pending.push(child);
+            }
+        }
+    }
+
+    private ExpenseVector withRoot(Node newRoot) {
+        return new ExpenseVector(categories, currencies, newRoot);
+    }
+
+    private void checkDictionaries(ExpenseColumns columns) {
+        if (columns.getCategories() != categories || columns.getCurrencies() != currencies) {
+            throw new IllegalArgumentException("Columns use other dictionaries than the vector");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.travelbudgetplanner.model;
+
+import java.util.List;
+
+/**
+ * Immutable result of analyzing the whole trip history: spending per destination,
+ * per category and year, and daily cost by trip length
+ */
+public final class HistoryReport {
+
+    /**
+     * All archived trips to one destination. Days counts only trips whose length is known.
+     */
+    public record DestinationTotal(String destination, int trips, long cents, long days) {
+        public double amount() { return Money.fromCents(cents); }
+        public double averagePerTrip() { return trips == 0 ? 0 : Money.fromCents(cents) / trips; }
+        public double averageDaily() { return days == 0 ? 0 : Money.fromCents(cents) / days; }
+    }
+
+    /**
+     * Spending in one category during one calendar year, by expense date
+     */
+    public record YearCategoryTotal(int year, String category, long cents) {
+        public double amount() { return Money.fromCents(cents); }
+    }
+
+    /**
+     * Trips lasting minDays to maxDays days, both inclusive
+     */
+    public record TripLengthBand(String label, int minDays, int maxDays, int trips, long cents, long days) {
+        public double averageDaily() { return days == 0 ? 0 : Money.fromCents(cents) / days; }
+    }
+
+    private final int tripCount;
+    private final long expenseCount;
+    private final long totalCents;
+    private final List<DestinationTotal> destinations;
+    private final List<YearCategoryTotal> yearCategoryTotals;
+    private final List<TripLengthBand> tripLengthBands;
+
+    public HistoryReport(int tripCount, long expenseCount, long totalCents, List<DestinationTotal> destinations,
+                         List<YearCategoryTotal> yearCategoryTotals, List<TripLengthBand> tripLengthBands) {
+        this.tripCount = tripCount;
+        this.expenseCount = expenseCount;
+        this.totalCents = totalCents;
+        this.destinations = List.copyOf(destinations);
+        this.yearCategoryTotals = List.copyOf(yearCategoryTotals);
+        this.tripLengthBands = List.copyOf(tripLengthBands);
+    }
+
+    public int getTripCount() { return tripCount; }
+
+    public long getExpenseCount() { return expenseCount; }
+
+    public double getTotal() { return Money.fromCents(totalCents); }
+
+    public long getTotalCents() { return totalCents; }
+
+    /**
+     * Destinations, highest spending first
+     */
+    public List<DestinationTotal> getDestinations() { return destinations; }
+
+    /**
+     * Year and category totals, ordered by year then category
+     */
+    public List<YearCategoryTotal> getYearCategoryTotals() { return yearCategoryTotals; }
+
+    /**
+     * Trip length bands, shortest first; empty bands are included
+     */
+    public List<TripLengthBand> getTripLengthBands() { return tripLengthBands; }
+}
@@ -0,0 +1,43 @@
+package com.example.travelbudgetplanner.model;
+
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * Fixed-point helpers: amounts are kept as whole cents where exact sums matter
+ */
+public final class Money {
+
+    private Money() {}
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Amount with its currency symbol, e.g. "$12.50" or "CHF 12.50"; a plain number without a currency
+     */
+    public static String format(double amount, String currency) {
+        String number = String.format("%.2f", amount);
+        if (currency == null) {
+            return number;
+        }
+        String symbol = symbolOf(currency);
+        return symbol.length() == 1 ? symbol + number : symbol + " " + number;
+    }
+
+    /**
+     * Display symbol of a currency code, or the code itself when it has no shorter symbol
+     */
+    public static String symbolOf(String currency) {
+        try {
+            return Currency.getInstance(currency).getSymbol(Locale.US);
+        } catch (IllegalArgumentException e) {
+            return currency;
+        }
+    }
+}
@@ -9,11 +9,15 @@ import java.util.List;
  * Main trip data model that contains all trip information
  */
 public class TripData {
+    public static final String DEFAULT_CURRENCY = "USD"; // Trips saved before currencies were tracked
+
     private String destination;
     private LocalDate startDate;
     private LocalDate endDate;
     private double budget;
+    private String baseCurrency = DEFAULT_CURRENCY; // Budget and totals are in this currency
     private List<Expense> expenses;
+    private long version; // Bumped on every persisted change
 
     // Default constructor
     public TripData() {
@@ -22,11 +26,57 @@ public class TripData {
 
     // Constructor with parameters
     public TripData(String destination, LocalDate startDate, LocalDate endDate, double budget) {
+        this(new ArrayList<>(), destination, startDate, endDate, budget);
+    }
+
+    /**
+     * Trip holding the given list as its expenses, for subclasses with their own representation
+     */
+    protected TripData(List<Expense> expenses) {
+        this.expenses = expenses;
+    }
+
+    protected TripData(List<Expense> expenses, String destination, LocalDate startDate, LocalDate endDate,
+                       double budget) {
         this.destination = destination;
         this.startDate = startDate;
         this.endDate = endDate;
         this.budget = budget;
-        this.expenses = new ArrayList<>();
+        this.expenses = expenses;
+    }
+
+    // Copy constructor, used to hand a stable snapshot to background writers
+    public TripData(TripData other) {
+        copyHeaderFrom(other);
+        this.expenses = new ArrayList<>(other.getExpenses());
+    }
+
+    /**
+     * Independent copy of this trip; subclasses keep their expense representation
+     */
+    public TripData copy() {
+        return new TripData(this);
+    }
+
+    /**
+     * Make this trip an independent copy of another, e.g. of the trip on disk after another
+     * app instance changed it
+     */
+    public void replaceWith(TripData other) {
+        copyHeaderFrom(other);
+        setExpenses(new ArrayList<>(other.getExpenses()));
+    }
+
+    /**
+     * Copy everything except the expenses
+     */
+    protected final void copyHeaderFrom(TripData other) {
+        this.destination = other.destination;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.budget = other.budget;
+        this.baseCurrency = other.baseCurrency;
+        this.version = other.version;
     }
 
     // Getters and Setters
@@ -42,9 +92,17 @@ public class TripData {
     public double getBudget() { return budget; }
     public void setBudget(double budget) { this.budget = budget; }
 
+    public String getBaseCurrency() { return baseCurrency; }
+    public void setBaseCurrency(String baseCurrency) {
+        this.baseCurrency = baseCurrency != null ? baseCurrency : DEFAULT_CURRENCY;
+    }
+
     public List<Expense> getExpenses() { return expenses; }
     public void setExpenses(List<Expense> expenses) { this.expenses = expenses; }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     public void addExpense(Expense expense) {
         this.expenses.add(expense);
     }
@@ -52,4 +110,21 @@ public class TripData {
     public void removeExpense(Expense expense) {
         this.expenses.remove(expense);
     }
+
+    /**
+     * Throw an IllegalArgumentException if the expenses could not be added, so a store can
+     * refuse them before writing anything. A plain trip takes any expenses.
+     */
+    public void checkCanAdd(List<Expense> expenses) {
+    }
+
+    /**
+     * Replace removed expenses from the given position on with others, e.g. to bring the trip
+     * back to an earlier version
+     */
+    public void replaceExpenses(int from, int removed, List<Expense> added) {
+        List<Expense> range = expenses.subList(from, from + removed);
+        range.clear();
+        range.addAll(added);
+    }
 }
\ No newline at end of file
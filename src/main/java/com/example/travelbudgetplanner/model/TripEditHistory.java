@@ -0,0 +1,111 @@
+package com.example.travelbudgetplanner.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+
+/**
+ * Multi-level undo and redo over {@link TripState}s. Each step keeps the state before or after
+ * an edit; states share their unchanged expenses, so a step costs about O(log n) memory rather
+ * than a copy of the trip.
+ */
+public class TripEditHistory {
+
+    public static final int DEFAULT_LIMIT = 100;
+
+    private final int limit;
+    private final Deque<Step> undoSteps = new ArrayDeque<>(); // Most recent first
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private TripState current;
+
+    public TripEditHistory(TripState initial) {
+        this(initial, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit most edits that can be undone; older ones are forgotten
+     */
+    public TripEditHistory(TripState initial, int limit) {
+        this.limit = limit;
+        this.current = initial;
+    }
+
+    /**
+     * The trip as it is now, after every recorded edit
+     */
+    public TripState current() { return current; }
+
+    /**
+     * Forget all steps, e.g. after loading a trip
+     */
+    public void reset(TripState state) {
+        undoSteps.clear();
+        redoSteps.clear();
+        current = state;
+    }
+
+    /**
+     * Record an edit that led to the given state; anything that could be redone is dropped
+     */
+    public void record(String label, TripState state) {
+        undoSteps.push(new Step(label, current));
+        if (undoSteps.size() > limit) {
+            undoSteps.removeLast();
+        }
+        redoSteps.clear();
+        current = state;
+    }
+
+    /**
+     * Replace the current state without a new step, for an edit that arrives in parts
+     */
+    public void amend(TripState state) {
+        current = state;
+    }
+
+    public boolean canUndo() { return !undoSteps.isEmpty(); }
+
+    public boolean canRedo() { return !redoSteps.isEmpty(); }
+
+    /**
+     * What undo would take back, or null if nothing
+     */
+    public String undoLabel() {
+        return undoSteps.isEmpty() ? null : undoSteps.peek().label();
+    }
+
+    /**
+     * What redo would repeat, or null if nothing
+     */
+    public String redoLabel() {
+        return redoSteps.isEmpty() ? null : redoSteps.peek().label();
+    }
+
+    /**
+     * Step back to the state before the last edit and return it
+     */
+    public TripState undo() {
+        if (undoSteps.isEmpty()) {
+            throw new NoSuchElementException("Nothing to undo");
+        }
+        Step step = undoSteps.pop();
+        redoSteps.push(new Step(step.label(), current));
+        current = step.state();
+        return current;
+    }
+
+    /**
+     * Repeat the last undone edit and return the state after it
+     */
+    public TripState redo() {
+        if (redoSteps.isEmpty()) {
+            throw new NoSuchElementException("Nothing to redo");
+        }
+        Step step = redoSteps.pop();
+        undoSteps.push(new Step(step.label(), current));
+        current = step.state();
+        return current;
+    }
+
+    private record Step(String label, TripState state) {}
+}
@@ -0,0 +1,97 @@
+package com.example.travelbudgetplanner.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable result of a report computation: everything the report windows display,
+ * independent of JavaFX
+ */
+public final class TripReport {
+
+    /**
+     * Spending in one category, with its share of the total
+     */
+    public record CategoryTotal(String category, long cents, double percentage) {
+        public double amount() { return Money.fromCents(cents); }
+    }
+
+    /**
+     * Spending on one day
+     */
+    public record DailyTotal(LocalDate date, long cents) {
+        public double amount() { return Money.fromCents(cents); }
+    }
+
+    /**
+     * Planned vs actual spending for one budget category
+     */
+    public record BudgetLine(String category, long budgetCents, long actualCents) {
+        public double budget() { return Money.fromCents(budgetCents); }
+        public double actual() { return Money.fromCents(actualCents); }
+    }
+
+    private final String destination;
+    private final long budgetCents;
+    private final long totalCents;
+    private final int expenseCount;
+    private final int distinctDays;
+    private final String topCategory;
+    private final List<CategoryTotal> categoryTotals;
+    private final List<DailyTotal> dailyTotals;
+    private final List<BudgetLine> budgetLines;
+
+    public TripReport(String destination, long budgetCents, long totalCents, int expenseCount, int distinctDays,
+                      String topCategory, List<CategoryTotal> categoryTotals, List<DailyTotal> dailyTotals,
+                      List<BudgetLine> budgetLines) {
+        this.destination = destination;
+        this.budgetCents = budgetCents;
+        this.totalCents = totalCents;
+        this.expenseCount = expenseCount;
+        this.distinctDays = distinctDays;
+        this.topCategory = topCategory;
+        this.categoryTotals = List.copyOf(categoryTotals);
+        this.dailyTotals = List.copyOf(dailyTotals);
+        this.budgetLines = List.copyOf(budgetLines);
+    }
+
+    public String getDestination() { return destination; }
+
+    public double getBudget() { return Money.fromCents(budgetCents); }
+
+    public double getTotal() { return Money.fromCents(totalCents); }
+
+    public long getTotalCents() { return totalCents; }
+
+    public double getRemaining() { return Money.fromCents(budgetCents - totalCents); }
+
+    public boolean isOverBudget() { return totalCents > budgetCents; }
+
+    public int getExpenseCount() { return expenseCount; }
+
+    public int getDistinctDays() { return distinctDays; }
+
+    /**
+     * Total divided by the number of days with expenses
+     */
+    public double getAverageDailySpending() {
+        return distinctDays == 0 ? 0 : getTotal() / distinctDays;
+    }
+
+    /**
+     * Category with the highest total, or null when there are no expenses
+     */
+    public String getTopCategory() { return topCategory; }
+
+    /**
+     * Categories in first-seen order
+     */
+    public List<CategoryTotal> getCategoryTotals() { return categoryTotals; }
+
+    /**
+     * Days with expenses, in date order
+     */
+    public List<DailyTotal> getDailyTotals() { return dailyTotals; }
+
+    public List<BudgetLine> getBudgetLines() { return budgetLines; }
+}
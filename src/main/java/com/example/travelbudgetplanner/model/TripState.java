@@ -0,0 +1,62 @@
+package com.example.travelbudgetplanner.model;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * One version of a trip: its details and its expenses as an {@link ExpenseVector}. A new state
+ * shares all but the edited part of the expenses with the one before, so keeping many is cheap.
+ */
+public record TripState(ExpenseVector expenses, String destination, LocalDate startDate, LocalDate endDate,
+                        double budget, String baseCurrency) {
+
+    /**
+     * State of a trip whose expenses are the given vector
+     */
+    public static TripState of(TripData trip, ExpenseVector expenses) {
+        return new TripState(expenses, trip.getDestination(), trip.getStartDate(), trip.getEndDate(),
+                trip.getBudget(), trip.getBaseCurrency());
+    }
+
+    /**
+     * State of a columnar trip as it is now; O(n), for when there is no earlier state to edit
+     */
+    public static TripState of(ColumnarTripData trip) {
+        return of(trip, ExpenseVector.of(trip.columns()));
+    }
+
+    public TripState withExpenses(ExpenseVector expenses) {
+        return new TripState(expenses, destination, startDate, endDate, budget, baseCurrency);
+    }
+
+    /**
+     * Whether the trip has the same details, leaving the expenses aside
+     */
+    public boolean sameDetails(TripData trip) {
+        return Objects.equals(destination, trip.getDestination())
+                && Objects.equals(startDate, trip.getStartDate())
+                && Objects.equals(endDate, trip.getEndDate())
+                && budget == trip.getBudget()
+                && Objects.equals(baseCurrency, trip.getBaseCurrency());
+    }
+
+    /**
+     * Copy the details into a trip; its expenses and version are left alone
+     */
+    public void applyDetailsTo(TripData trip) {
+        trip.setDestination(destination);
+        trip.setStartDate(startDate);
+        trip.setEndDate(endDate);
+        trip.setBudget(budget);
+        trip.setBaseCurrency(baseCurrency);
+    }
+
+    /**
+     * A trip of its own with these details and expenses, at version 0
+     */
+    public ColumnarTripData toTrip() {
+        ColumnarTripData trip = new ColumnarTripData(expenses.toColumns());
+        applyDetailsTo(trip);
+        return trip;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers for the line-oriented append-only files (journal, history index)
+ */
+final class AppendOnlyFiles {
+
+    private AppendOnlyFiles() {}
+
+    /**
+     * Open a line file for appending. A torn last line left by a crash is cut off first,
+     * so new records never get glued onto it.
+     */
+    static Writer openForAppend(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(lastCompleteLineEnd(channel));
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Append the complete lines of one line file to another, then delete the first. A torn
+     * last line in either file is dropped, as replaying would skip it anyway.
+     */
+    static void appendAndDelete(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            out.truncate(lastCompleteLineEnd(out));
+            out.position(out.size());
+            long length = lastCompleteLineEnd(in);
+            long copied = 0;
+            while (copied < length) {
+                copied += in.transferTo(copied, length - copied, out);
+            }
+            out.force(true);
+        }
+        Files.delete(source);
+    }
+
+    private static long lastCompleteLineEnd(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            channel.read(buffer, start);
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ordered keyword rules that pick a category for an imported expense. The first rule whose
+ * keyword appears in the description, or in the statement's own category, wins. Without a
+ * match, a statement category equal to one of the standard categories is kept, and
+ * anything else gets the default category.
+ *
+ * Rules files hold one rule per line, <code>keyword =&gt; Category</code>; lines starting
+ * with # are comments.
+ */
+public class CategoryRules {
+
+    /**
+     * Expenses whose text contains keyword (case-insensitive) go to category
+     */
+    public record Rule(String keyword, String category) {}
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<String> keywords = new ArrayList<>(); // Lower-case, same order as rules
+
+    public CategoryRules() {}
+
+    public static CategoryRules load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+
+    public static CategoryRules parse(Reader source, String sourceName) throws IOException {
+        CategoryRules rules = new CategoryRules();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int arrow = trimmed.indexOf("=>");
+            if (arrow <= 0 || arrow + 2 == trimmed.length()) {
+                throw new IOException("Invalid category rule on line " + lineNumber + " of " + sourceName
+                        + ": expected 'keyword => Category'");
+            }
+            rules.add(trimmed.substring(0, arrow).trim(), trimmed.substring(arrow + 2).trim());
+        }
+        return rules;
+    }
+
+    public void add(String keyword, String category) {
+        rules.add(new Rule(keyword, category));
+        keywords.add(keyword.toLowerCase(Locale.ROOT));
+    }
+
+    public List<Rule> getRules() { return List.copyOf(rules); }
+
+    /**
+     * Category for an expense
+     *
+     * @param description the statement's description, may be null
+     * @param statementCategory the statement's own category column, may be null
+     * @param defaultCategory used when nothing else matches
+     */
+    public String categorize(String description, String statementCategory, String defaultCategory) {
+        String text = description == null ? "" : description.toLowerCase(Locale.ROOT);
+        String sourceCategory = statementCategory == null ? "" : statementCategory.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            if (text.contains(keyword) || sourceCategory.contains(keyword)) {
+                return rules.get(i).category();
+            }
+        }
+        for (String standard : ReportService.STANDARD_CATEGORIES) {
+            if (standard.equalsIgnoreCase(sourceCategory.trim())) {
+                return standard;
+            }
+        }
+        return defaultCategory;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * How the columns of a bank or card statement map onto expenses. A column is named by its
+ * header (case-insensitive) or, for files without a header, by its zero-based position.
+ *
+ * Can be read from a properties file:
+ * <pre>
+ * delimiter=;
+ * header=true
+ * date.column=Booking Date
+ * date.format=dd.MM.yyyy
+ * amount.column=Amount
+ * amount.decimalComma=true
+ * amount.expensesNegative=true
+ * description.column=Merchant
+ * category.column=
+ * category.default=Other
+ * currency.column=Currency
+ * </pre>
+ */
+public class CsvImportConfig {
+
+    private char delimiter = ',';
+    private boolean header = true;
+    private String dateColumn = "Date";
+    private String dateFormat = "yyyy-MM-dd";
+    private String amountColumn = "Amount";
+    private boolean decimalComma; // 1.234,56 instead of 1,234.56
+    private boolean expensesNegative; // Statements that show spending as negative amounts
+    private String descriptionColumn = "Description";
+    private String categoryColumn; // Optional; the rules can map its values too
+    private String defaultCategory = "Other";
+    private String currencyColumn; // Optional; without it amounts are in the trip's base currency
+
+    // Default constructor
+    public CsvImportConfig() {}
+
+    /**
+     * Read settings from a properties file; missing keys keep their defaults
+     */
+    public static CsvImportConfig load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    public static CsvImportConfig fromProperties(Properties properties) {
+        CsvImportConfig config = new CsvImportConfig();
+        String delimiter = properties.getProperty("delimiter");
+        if (delimiter != null && !delimiter.isEmpty()) {
+            config.setDelimiter("\\t".equals(delimiter) ? '\t' : delimiter.charAt(0));
+        }
+        config.setHeader(Boolean.parseBoolean(properties.getProperty("header", String.valueOf(config.isHeader()))));
+        config.setDateColumn(properties.getProperty("date.column", config.getDateColumn()));
+        config.setDateFormat(properties.getProperty("date.format", config.getDateFormat()));
+        config.setAmountColumn(properties.getProperty("amount.column", config.getAmountColumn()));
+        config.setDecimalComma(Boolean.parseBoolean(properties.getProperty("amount.decimalComma", "false")));
+        config.setExpensesNegative(Boolean.parseBoolean(properties.getProperty("amount.expensesNegative", "false")));
+        config.setDescriptionColumn(properties.getProperty("description.column", config.getDescriptionColumn()));
+        config.setCategoryColumn(properties.getProperty("category.column", config.getCategoryColumn()));
+        config.setDefaultCategory(properties.getProperty("category.default", config.getDefaultCategory()));
+        config.setCurrencyColumn(properties.getProperty("currency.column", config.getCurrencyColumn()));
+        return config;
+    }
+
+    // Getters and setters
+    public char getDelimiter() { return delimiter; }
+    public void setDelimiter(char delimiter) { this.delimiter = delimiter; }
+
+    public boolean isHeader() { return header; }
+    public void setHeader(boolean header) { this.header = header; }
+
+    public String getDateColumn() { return dateColumn; }
+    public void setDateColumn(String dateColumn) { this.dateColumn = dateColumn; }
+
+    public String getDateFormat() { return dateFormat; }
+    public void setDateFormat(String dateFormat) { this.dateFormat = dateFormat; }
+
+    public String getAmountColumn() { return amountColumn; }
+    public void setAmountColumn(String amountColumn) { this.amountColumn = amountColumn; }
+
+    public boolean isDecimalComma() { return decimalComma; }
+    public void setDecimalComma(boolean decimalComma) { this.decimalComma = decimalComma; }
+
+    public boolean isExpensesNegative() { return expensesNegative; }
+    public void setExpensesNegative(boolean expensesNegative) { this.expensesNegative = expensesNegative; }
+
+    public String getDescriptionColumn() { return descriptionColumn; }
+    public void setDescriptionColumn(String descriptionColumn) { this.descriptionColumn = descriptionColumn; }
+
+    public String getCategoryColumn() { return categoryColumn; }
+    public void setCategoryColumn(String categoryColumn) { this.categoryColumn = categoryColumn; }
+
+    public String getDefaultCategory() { return defaultCategory; }
+    public void setDefaultCategory(String defaultCategory) { this.defaultCategory = defaultCategory; }
+
+    public String getCurrencyColumn() { return currencyColumn; }
+    public void setCurrencyColumn(String currencyColumn) { this.currencyColumn = currencyColumn; }
+}
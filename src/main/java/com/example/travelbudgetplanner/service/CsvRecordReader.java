@@ -0,0 +1,143 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV parser: one record at a time from a buffered reader, so a file of any size
+ * is read in constant memory. Handles quoted fields, doubled quotes, delimiters and line
+ * breaks inside quotes, and both LF and CRLF line endings.
+ */
+class CsvRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long lineNumber; // Line on which the last record returned started
+    private long nextLine = 1;
+
+    private final StringBuilder field = new StringBuilder();
+
+    CsvRecordReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Fields of the next record, or null at the end of input. Blank lines are skipped.
+     */
+    List<String> next() throws IOException {
+        List<String> record = new ArrayList<>();
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            if (c == '\n') {
+                nextLine++;
+                continue;
+            }
+            if (c != '\r') {
+                position--; // Unread: the record starts here
+                break;
+            }
+        }
+        lineNumber = nextLine;
+
+        while (true) {
+            field.setLength(0);
+            int c = read();
+            if (c == '"') {
+                c = readQuoted();
+            } else {
+                while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            record.add(field.toString());
+
+            if (c == delimiter) {
+                continue;
+            }
+            if (c == '\r' && peek() == '\n') {
+                read();
+            }
+            if (c >= 0) {
+                nextLine++;
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Line number on which the last returned record started, from 1
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Reads a quoted field after its opening quote; returns the character after the field
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw new IOException("Unterminated quoted field starting on line " + lineNumber);
+            }
+            if (c == '"') {
+                if (peek() == '"') {
+                    read();
+                    field.append('"');
+                    continue;
+                }
+                // Anything between the closing quote and the delimiter is kept as is
+                c = read();
+                while (c >= 0 && c != delimiter && c != '\n' && c != '\r') {
+                    field.append((char) c);
+                    c = read();
+                }
+                return c;
+            }
+            if (c == '\n') {
+                nextLine++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Expense totals in each expense's own currency, kept per (currency, category) with daily
+ * sums. Totals in a reporting currency are derived from these sums with one rate lookup per
+ * (currency, category, day), so switching the base currency needs no pass over the expenses.
+ *
+ * Converted figures are the converted daily sums, rounded to cents. The incremental updates
+ * return the change of that figure, so totals kept up to date with them match a full rebuild.
+ */
+public class CurrencyTotals {
+
+    private final CategoryDictionary categories;
+    private final CategoryDictionary currencies;
+    private final Map<Integer, ExpenseTotals> cells = new HashMap<>(); // currency id << 8 | category id
+    private final long[] currencyCents = new long[CategoryDictionary.MAX_CATEGORIES + 1];
+
+    /**
+     * Totals over expenses whose ids come from the given dictionaries
+     */
+    public CurrencyTotals(CategoryDictionary categories, CategoryDictionary currencies) {
+        this.categories = categories;
+        this.currencies = currencies;
+    }
+
+    /**
+     * Totals over all expenses in the columns, in one pass without conversions
+     */
+    public static CurrencyTotals of(ExpenseColumns columns) {
+        CurrencyTotals totals = new CurrencyTotals(columns.getCategories(), columns.getCurrencies());
+        for (int i = 0; i < columns.size(); i++) {
+            totals.cell(columns.currencyId(i), columns.categoryId(i))
+                    .addById(columns.categoryId(i), columns.cents(i), columns.epochDay(i));
+            totals.currencyCents[columns.currencyId(i)] += columns.cents(i);
+        }
+        return totals;
+    }
+
+    /**
+     * Add an expense; returns how much the converted total changes
+     */
+    public long add(int categoryId, int currencyId, long cents, int epochDay, ExchangeRates.Converter converter) {
+        return apply(categoryId, currencyId, cents, epochDay, 1, converter);
+    }
+
+    /**
+     * Remove an expense; returns how much the converted total changes (zero or negative for
+     * a positive amount)
+     */
+    public long remove(int categoryId, int currencyId, long cents, int epochDay, ExchangeRates.Converter converter) {
+        return apply(categoryId, currencyId, -cents, epochDay, -1, converter);
+    }
+
+    /**
+     * Sum in one currency's own cents; id {@link ExpenseColumns#NO_CURRENCY} is the trip's base currency
+     */
+    public long getCurrencyCents(int currencyId) {
+        return currencyCents[currencyId];
+    }
+
+    public CategoryDictionary getCurrencies() { return currencies; }
+
+    /**
+     * Add every sum, converted into the converter's currency, to the given totals and, if not
+     * null, the time index. Both should be empty and share this object's category dictionary.
+     */
+    public void convertInto(ExchangeRates.Converter converter, ExpenseTotals totals, SpendingTimeIndex timeIndex) {
+        double[][] factors = converter.factorsById(currencies);
+        for (Map.Entry<Integer, ExpenseTotals> entry : cells.entrySet()) {
+            double[] table = factors[entry.getKey() >>> 8];
+            int categoryId = entry.getKey() & 0xFF;
+            ExpenseTotals cell = entry.getValue();
+
+            cell.forEachDay((day, cents, count) -> {
+                long converted = converter.convert(table, cents, day);
+                totals.addById(categoryId, converted, day, count);
+                if (timeIndex != null) {
+                    timeIndex.addById(categoryId, converted, day);
+                }
+            });
+            if (cell.getUndatedCount() != 0) {
+                totals.addById(categoryId, converter.convert(table, cell.getUndatedCents(), ExpenseColumns.NO_DATE),
+                        ExpenseColumns.NO_DATE, cell.getUndatedCount());
+            }
+        }
+    }
+
+    // === INTERNALS ===
+
+    private long apply(int categoryId, int currencyId, long cents, int epochDay, int expenseCount,
+                       ExchangeRates.Converter converter) {
+        ExpenseTotals cell = cell(currencyId, categoryId);
+        currencyCents[currencyId] += cents;
+        double[] table = currencyId == ExpenseColumns.NO_CURRENCY ? null
+                : converter.factorsFrom(currencies.nameOf(currencyId));
+        if (table == null) {
+            cell.addById(categoryId, cents, epochDay, expenseCount);
+            return cents;
+        }
+        long before = converter.convert(table, sumOn(cell, epochDay), epochDay);
+        cell.addById(categoryId, cents, epochDay, expenseCount);
+        return converter.convert(table, sumOn(cell, epochDay), epochDay) - before;
+    }
+
+    private static long sumOn(ExpenseTotals cell, int epochDay) {
+        return epochDay == ExpenseColumns.NO_DATE ? cell.getUndatedCents() : cell.getDayCents(epochDay);
+    }
+
+    private ExpenseTotals cell(int currencyId, int categoryId) {
+        return cells.computeIfAbsent(currencyId << 8 | categoryId, key -> new ExpenseTotals(categories));
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Daily exchange rates from a local file, held as one dense array per currency indexed by
+ * day, so converting an amount is an array lookup. Days without a quote (weekends, holidays)
+ * use the last earlier quote; days before the first quote use the first one, and days after
+ * the last quote or undated expenses use the last one.
+ *
+ * The rates file has one quote per line:
+ * <pre>
+ * date,currency,rate
+ * 2024-05-02,EUR,1
+ * 2024-05-02,USD,0.9335
+ * </pre>
+ * where rate is the value of one unit of the currency in a common reference currency. Any
+ * reference works as long as the file sticks to it; the reference needs a line of its own
+ * (rate 1 on any date) only if it is used as a currency. Lines starting with # are comments.
+ */
+public class ExchangeRates {
+
+    public static final String RATES_FILE = "exchange_rates.csv";
+
+    private static final ExchangeRates NONE = new ExchangeRates(0, 0, Map.of());
+
+    private final int firstDay; // Epoch day of slot 0
+    private final int days;
+    private final Map<String, double[]> values; // Currency -> value in the reference currency per slot
+    private final Map<String, double[]> factors = new ConcurrentHashMap<>(); // "FROM>TO" -> factor per slot
+
+    private ExchangeRates(int firstDay, int days, Map<String, double[]> values) {
+        this.firstDay = firstDay;
+        this.days = days;
+        this.values = values;
+    }
+
+    /**
+     * No rates: only amounts already in the target currency convert
+     */
+    public static ExchangeRates none() {
+        return NONE;
+    }
+
+    /**
+     * Rates from the rates file in a data directory; no rates without the file
+     */
+    public static ExchangeRates forDataDirectory(Path directory) throws IOException {
+        Path file = directory.resolve(RATES_FILE);
+        return Files.exists(file) ? load(file) : none();
+    }
+
+    public static ExchangeRates load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+
+    public static ExchangeRates parse(Reader source, String sourceName) throws IOException {
+        Map<String, TreeMap<Integer, Double>> quotes = new HashMap<>();
+        CsvRecordReader reader = new CsvRecordReader(source, ',');
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            String first = record.get(0).trim();
+            if (first.startsWith("#") || first.equalsIgnoreCase("date")) {
+                continue;
+            }
+            if (record.size() < 3) {
+                throw new IOException("Invalid exchange rate on line " + reader.getLineNumber() + " of " + sourceName
+                        + ": expected 'date,currency,rate'");
+            }
+            try {
+                int day = (int) LocalDate.parse(first).toEpochDay();
+                String currency = normalize(record.get(1));
+                double rate = Double.parseDouble(record.get(2).trim());
+                if (!(rate > 0) || Double.isInfinite(rate)) {
+                    throw new NumberFormatException("rate must be positive");
+                }
+                quotes.computeIfAbsent(currency, c -> new TreeMap<>()).put(day, rate);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IOException("Invalid exchange rate on line " + reader.getLineNumber() + " of " + sourceName
+                        + ": " + e.getMessage());
+            }
+        }
+        if (quotes.isEmpty()) {
+            return none();
+        }
+
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        for (TreeMap<Integer, Double> byDay : quotes.values()) {
+            firstDay = Math.min(firstDay, byDay.firstKey());
+            lastDay = Math.max(lastDay, byDay.lastKey());
+        }
+
+        // Fill every slot once here, so lookups never search
+        int days = lastDay - firstDay + 1;
+        Map<String, double[]> values = new HashMap<>();
+        for (Map.Entry<String, TreeMap<Integer, Double>> entry : quotes.entrySet()) {
+            double[] dense = new double[days];
+            double current = entry.getValue().firstEntry().getValue();
+            for (int slot = 0; slot < days; slot++) {
+                Double quote = entry.getValue().get(firstDay + slot);
+                if (quote != null) {
+                    current = quote;
+                }
+                dense[slot] = current;
+            }
+            values.put(entry.getKey(), dense);
+        }
+        return new ExchangeRates(firstDay, days, values);
+    }
+
+    /**
+     * Currencies with at least one quote
+     */
+    public Set<String> getCurrencies() {
+        return Collections.unmodifiableSet(new TreeSet<>(values.keySet()));
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Whether the text has the form of an ISO 4217 currency code: three letters A to Z
+     */
+    public static boolean isCurrencyCode(String code) {
+        if (code == null || code.length() != 3) {
+            return false;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether amounts in one currency can be converted to another
+     */
+    public boolean canConvert(String from, String to) {
+        return from == null || to == null || from.equalsIgnoreCase(to)
+                || (values.containsKey(normalize(from)) && values.containsKey(normalize(to)));
+    }
+
+    /**
+     * Value of one unit of from in to on a day; 1 when either currency has no rates
+     */
+    public double rate(String from, String to, int epochDay) {
+        double[] table = factors(from, to);
+        return table == null ? 1.0 : table[slot(epochDay)];
+    }
+
+    /**
+     * Converter into one target currency; amounts without a currency are taken to be in it
+     */
+    public Converter converterTo(String target) {
+        return new Converter(target);
+    }
+
+    /**
+     * The trip with every amount in its base currency, or the trip itself when no expense is in
+     * another currency. Converted per expense; used where amounts are stored, such as the history.
+     */
+    public TripData toBaseCurrency(TripData trip) {
+        ColumnarTripData columnar = ColumnarTripData.of(trip);
+        ExpenseColumns columns = columnar.columns();
+        Converter converter = converterTo(trip.getBaseCurrency());
+        double[][] byId = converter.factorsById(columns.getCurrencies());
+        boolean identity = true;
+        for (double[] table : byId) {
+            identity &= table == null;
+        }
+        if (identity) {
+            return trip;
+        }
+
+        ExpenseColumns converted = new ExpenseColumns(columns.getCategories(), columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            int day = columns.epochDay(i);
+            converted.add(day, converter.convert(byId[columns.currencyId(i)], columns.cents(i), day),
+                    columns.categoryId(i), columns.description(i));
+        }
+        ColumnarTripData copy = new ColumnarTripData(converted, trip.getDestination(), trip.getStartDate(),
+                trip.getEndDate(), trip.getBudget());
+        copy.setBaseCurrency(trip.getBaseCurrency());
+        copy.setVersion(trip.getVersion());
+        return copy;
+    }
+
+    // === INTERNALS ===
+
+    private static String normalize(String currency) {
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Table slot of a day: clamped to the quoted range, undated amounts use the latest quote
+     */
+    int slot(int epochDay) {
+        if (days == 0) {
+            return 0;
+        }
+        if (epochDay == ExpenseColumns.NO_DATE) {
+            return days - 1;
+        }
+        return Math.max(0, Math.min(days - 1, epochDay - firstDay));
+    }
+
+    /**
+     * Conversion factor per slot, computed once per currency pair. Null when no conversion
+     * applies: same currency, an unset currency, or a currency without rates.
+     */
+    private double[] factors(String from, String to) {
+        if (from == null || to == null) {
+            return null;
+        }
+        String source = normalize(from);
+        String target = normalize(to);
+        if (source.equals(target) || !values.containsKey(source) || !values.containsKey(target)) {
+            return null;
+        }
+        return factors.computeIfAbsent(source + '>' + target, key -> {
+            double[] sourceValues = values.get(source);
+            double[] targetValues = values.get(target);
+            double[] table = new double[days];
+            for (int slot = 0; slot < days; slot++) {
+                table[slot] = sourceValues[slot] / targetValues[slot];
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Converts amounts into one target currency. Currencies without rates are counted 1:1 and
+     * reported by {@link #getMissingCurrencies()}.
+     */
+    public final class Converter {
+        private final String target;
+        private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+        private Converter(String target) {
+            this.target = target;
+        }
+
+        public String getTarget() { return target; }
+
+        /**
+         * Currencies met so far that could not be converted
+         */
+        public Set<String> getMissingCurrencies() {
+            return Collections.unmodifiableSet(new TreeSet<>(missing));
+        }
+
+        /**
+         * Factors per slot from one currency into the target; null means the amount is kept as is
+         */
+        public double[] factorsFrom(String currency) {
+            if (!canConvert(currency, target)) {
+                missing.add(currency);
+                return null;
+            }
+            return factors(currency, target);
+        }
+
+        /**
+         * factorsFrom for every currency of a dictionary, indexed by id; the base currency id maps to null
+         */
+        public double[][] factorsById(CategoryDictionary currencies) {
+            double[][] byId = new double[currencies.size()][];
+            for (int id = 1; id < currencies.size(); id++) {
+                byId[id] = factorsFrom(currencies.nameOf(id));
+            }
+            return byId;
+        }
+
+        public long convert(String currency, long cents, int epochDay) {
+            return convert(factorsFrom(currency), cents, epochDay);
+        }
+
+        /**
+         * Convert with a factor table from {@link #factorsFrom}; no map lookups, for loops over many amounts
+         */
+        public long convert(double[] factors, long cents, int epochDay) {
+            return factors == null ? cents : Math.round(cents * factors[slot(epochDay)]);
+        }
+    }
+}
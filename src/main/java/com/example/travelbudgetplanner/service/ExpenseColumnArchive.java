@@ -0,0 +1,187 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Columnar copy of every archived expense, one file per column:
+ * epoch day (int), amount in cents (long), category id (byte) and trip id (int).
+ * A small meta file records how many rows and trips are committed; anything past
+ * that (from an interrupted append) is cut off when the archive is opened.
+ */
+class ExpenseColumnArchive {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    static final String DAY_COLUMN = "epoch_day.col";
+    static final String CENTS_COLUMN = "cents.col";
+    static final String CATEGORY_COLUMN = "category.col";
+    static final String TRIP_COLUMN = "trip.col";
+    private static final String CATEGORIES_FILE = "categories.txt";
+    private static final String META_FILE = "archive.meta";
+
+    private final Path directory;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private Writer categoryWriter;
+    private long committedRows;
+    private int committedTrips;
+
+    ExpenseColumnArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        readMeta();
+        readCategories();
+        truncateUncommitted();
+    }
+
+    synchronized long getRowCount() {
+        return committedRows;
+    }
+
+    /**
+     * Number of archived trips; trip ids run from 0 to this count minus one
+     */
+    synchronized int getTripCount() {
+        return committedTrips;
+    }
+
+    /**
+     * Append all expenses of the next archived trip. Trip ids follow archive order.
+     */
+    synchronized void append(TripData trip) throws IOException {
+        List<Expense> expenses = trip.getExpenses();
+        int count = expenses.size();
+        ByteBuffer days = ByteBuffer.allocate(count * Integer.BYTES).order(BYTE_ORDER);
+        ByteBuffer cents = ByteBuffer.allocate(count * Long.BYTES).order(BYTE_ORDER);
+        ByteBuffer categoryIds = ByteBuffer.allocate(count);
+        ByteBuffer tripIds = ByteBuffer.allocate(count * Integer.BYTES).order(BYTE_ORDER);
+
+        int tripId = committedTrips;
+        for (Expense expense : expenses) {
+            days.putInt(expense.getDate() != null ? (int) expense.getDate().toEpochDay() : NO_DATE);
+            cents.putLong(Money.toCents(expense.getAmount()));
+            categoryIds.put((byte) internCategory(expense.getCategory()));
+            tripIds.putInt(tripId);
+        }
+
+        writeColumn(DAY_COLUMN, days.flip(), committedRows * Integer.BYTES);
+        writeColumn(CENTS_COLUMN, cents.flip(), committedRows * Long.BYTES);
+        writeColumn(CATEGORY_COLUMN, categoryIds.flip(), committedRows);
+        writeColumn(TRIP_COLUMN, tripIds.flip(), committedRows * Integer.BYTES);
+
+        committedRows += count;
+        committedTrips++;
+        writeMeta();
+    }
+
+    /**
+     * Map the committed rows read-only. The view stays valid while the archive grows.
+     */
+    synchronized MappedExpenseColumns map() throws IOException {
+        CategoryDictionary snapshot = new CategoryDictionary();
+        for (int id = 1; id < categories.size(); id++) {
+            snapshot.intern(categories.nameOf(id));
+        }
+        return new MappedExpenseColumns(directory, committedRows, snapshot);
+    }
+
+    private int internCategory(String category) throws IOException {
+        int id = categories.idOf(category);
+        if (id >= 0) {
+            return id;
+        }
+        id = categories.intern(category);
+        if (categoryWriter == null) {
+            categoryWriter = AppendOnlyFiles.openForAppend(directory.resolve(CATEGORIES_FILE));
+        }
+        // Persist the new name before any row refers to its id
+        categoryWriter.write(category.replace('\n', ' '));
+        categoryWriter.write('\n');
+        categoryWriter.flush();
+        return id;
+    }
+
+    private void writeColumn(String name, ByteBuffer data, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(name),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+            channel.force(false);
+        }
+    }
+
+    private void writeMeta() throws IOException {
+        AtomicFiles.write(directory.resolve(META_FILE), out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeLong(committedRows);
+            data.writeInt(committedTrips);
+            data.flush();
+        });
+    }
+
+    private void readMeta() throws IOException {
+        Path meta = directory.resolve(META_FILE);
+        if (!Files.exists(meta)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(meta));
+        if (buffer.remaining() < Long.BYTES + Integer.BYTES) {
+            throw new IOException("Corrupt expense archive metadata in " + meta);
+        }
+        committedRows = buffer.getLong();
+        committedTrips = buffer.getInt();
+    }
+
+    private void readCategories() throws IOException {
+        Path file = directory.resolve(CATEGORIES_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                categories.intern(line);
+            }
+        }
+    }
+
+    private void truncateUncommitted() throws IOException {
+        truncate(DAY_COLUMN, committedRows * Integer.BYTES);
+        truncate(CENTS_COLUMN, committedRows * Long.BYTES);
+        truncate(CATEGORY_COLUMN, committedRows);
+        truncate(TRIP_COLUMN, committedRows * Integer.BYTES);
+    }
+
+    private void truncate(String name, long size) throws IOException {
+        Path file = directory.resolve(name);
+        if (!Files.exists(file)) {
+            if (size > 0) {
+                throw new IOException("Expense archive column " + name + " is missing");
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() < size) {
+                throw new IOException("Expense archive column " + name + " is shorter than committed");
+            }
+            channel.truncate(size);
+        }
+    }
+}
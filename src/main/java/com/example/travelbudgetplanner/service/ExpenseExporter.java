@@ -0,0 +1,357 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.TripData;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Writes expenses out as CSV, JSON Lines or a per-category summary. Trips are read and
+ * written one at a time and rows go straight to a buffered writer or JsonGenerator, so
+ * exporting the whole history takes memory for one trip, not for the history.
+ *
+ * An optional {@link ExpenseQuery} limits the export, typically to a date range and some
+ * categories. Files are replaced atomically; a failed or cancelled export leaves no file.
+ */
+public class ExpenseExporter {
+
+    public enum Format {
+        CSV("CSV", "csv"),
+        JSON_LINES("JSON Lines", "jsonl"),
+        CATEGORY_SUMMARY("Category summary (CSV)", "csv");
+
+        private final String label;
+        private final String extension;
+
+        Format(String label, String extension) {
+            this.label = label;
+            this.extension = extension;
+        }
+
+        public String getExtension() { return extension; }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    /**
+     * Progress callbacks and cancellation; called on the exporting thread after each trip
+     */
+    public interface Listener {
+        default void progress(long trips, long expenses) {}
+
+        default boolean isCancelled() { return false; }
+    }
+
+    /**
+     * Trips read and expenses that passed the filter
+     */
+    public record ExportResult(long trips, long expenses) {}
+
+    private static final Listener NO_LISTENER = new Listener() {};
+
+    private final JsonFactory jsonFactory = new JsonFactory().setRootValueSeparator("\n");
+
+    /**
+     * Export one trip to a file
+     */
+    public ExportResult exportTrip(TripData trip, ExpenseQuery filter, Format format, Path target) throws IOException {
+        return exportFile(() -> Stream.of(trip), filter, format, target, NO_LISTENER);
+    }
+
+    /**
+     * Export every trip saved to history, reading one trip at a time
+     */
+    public ExportResult exportHistory(TripRepository storage, ExpenseQuery filter, Format format, Path target,
+                                      Listener listener) throws IOException {
+        return exportFile(storage::streamAllTrips, filter, format, target, listener);
+    }
+
+    /**
+     * Export trips to a stream; the stream is flushed but not closed
+     */
+    public ExportResult export(Stream<TripData> trips, ExpenseQuery filter, Format format, OutputStream out,
+                               Listener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = switch (format) {
+            case CSV -> new CsvRows(writer);
+            case JSON_LINES -> new JsonRows(jsonFactory.createGenerator(writer));
+            case CATEGORY_SUMMARY -> new SummaryRows(writer);
+        };
+
+        long tripCount = 0;
+        long expenseCount = 0;
+        try {
+            Iterator<TripData> iterator = trips.iterator();
+            while (iterator.hasNext()) {
+                if (listener.isCancelled()) {
+                    throw new InterruptedIOException("Export cancelled");
+                }
+                expenseCount += writeTrip(ColumnarTripData.of(iterator.next()), filter, rows);
+                tripCount++;
+                listener.progress(tripCount, expenseCount);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // A history record that could not be read
+        }
+        rows.finish();
+        writer.flush();
+        return new ExportResult(tripCount, expenseCount);
+    }
+
+    // === INTERNALS ===
+
+    private interface TripSource {
+        Stream<TripData> open() throws IOException;
+    }
+
+    private ExportResult exportFile(TripSource source, ExpenseQuery filter, Format format, Path target,
+                                    Listener listener) throws IOException {
+        ExportResult[] result = new ExportResult[1];
+        AtomicFiles.write(target, out -> {
+            try (Stream<TripData> trips = source.open()) {
+                result[0] = export(trips, filter, format, out, listener);
+            }
+        });
+        return result[0];
+    }
+
+    private static long writeTrip(ColumnarTripData trip, ExpenseQuery filter, RowWriter rows) throws IOException {
+        ExpenseColumns columns = trip.columns();
+        IntPredicate matches = filter == null || filter.isUnfiltered()
+                ? row -> true
+                : ExpenseQueryIndex.scanFilter(columns, columns::description, filter);
+
+        rows.startTrip(trip);
+        long written = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            if (matches.test(row)) {
+                String currency = columns.currency(row);
+                rows.row(trip, columns.epochDay(row), columns.category(row), columns.cents(row),
+                        currency != null ? currency : trip.getBaseCurrency(), columns.description(row));
+                written++;
+            }
+        }
+        rows.endTrip(trip);
+        return written;
+    }
+
+    private static String formatDate(int epochDay) {
+        return epochDay == ExpenseColumns.NO_DATE ? "" : LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    private static BigDecimal amount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * One export format
+     */
+    private interface RowWriter {
+        default void startTrip(TripData trip) throws IOException {}
+
+        void row(TripData trip, int epochDay, String category, long cents, String currency, String description)
+                throws IOException;
+
+        default void endTrip(TripData trip) throws IOException {}
+
+        default void finish() throws IOException {}
+    }
+
+    /**
+     * Comma-separated values with a header row, quoted where needed (RFC 4180)
+     */
+    private static class CsvRows implements RowWriter {
+        final Writer out;
+
+        CsvRows(Writer out) throws IOException {
+            this.out = out;
+            header();
+        }
+
+        void header() throws IOException {
+            out.write("destination,trip_start,trip_end,date,category,amount,currency,description\n");
+        }
+
+        @Override
+        public void row(TripData trip, int epochDay, String category, long cents, String currency,
+                        String description) throws IOException {
+            field(trip.getDestination()).write(',');
+            field(trip.getStartDate() == null ? "" : trip.getStartDate().toString()).write(',');
+            field(trip.getEndDate() == null ? "" : trip.getEndDate().toString()).write(',');
+            out.write(formatDate(epochDay));
+            out.write(',');
+            field(category).write(',');
+            out.write(amount(cents).toPlainString());
+            out.write(',');
+            field(currency).write(',');
+            field(description).write('\n');
+        }
+
+        Writer field(String value) throws IOException {
+            if (value == null) {
+                return out;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+            } else {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            }
+            return out;
+        }
+    }
+
+    /**
+     * One JSON object per line, e.g.
+     * <code>{"destination":"Rome","tripStart":"2024-05-01","date":"2024-05-02","category":"Food","amount":12.50}</code>
+     */
+    private static final class JsonRows implements RowWriter {
+        private final JsonGenerator json;
+        private boolean any;
+
+        JsonRows(JsonGenerator json) {
+            this.json = json;
+        }
+
+        @Override
+        public void row(TripData trip, int epochDay, String category, long cents, String currency,
+                        String description) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("destination", trip.getDestination());
+            if (trip.getStartDate() != null) {
+                json.writeStringField("tripStart", trip.getStartDate().toString());
+            }
+            if (trip.getEndDate() != null) {
+                json.writeStringField("tripEnd", trip.getEndDate().toString());
+            }
+            if (epochDay != ExpenseColumns.NO_DATE) {
+                json.writeStringField("date", formatDate(epochDay));
+            }
+            json.writeStringField("category", category);
+            json.writeFieldName("amount");
+            json.writeNumber(amount(cents));
+            json.writeStringField("currency", currency);
+            if (description != null) {
+                json.writeStringField("description", description);
+            }
+            json.writeEndObject();
+            any = true;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (any) {
+                json.writeRaw('\n');
+            }
+            json.flush();
+        }
+    }
+
+    /**
+     * Long-format table for spreadsheets and pivot tables: one row per category and currency of
+     * each trip, then, for more than one trip, one row per category and currency across all of
+     * them. Shares are within the currency. Memory grows with the number of categories only.
+     */
+    private static final class SummaryRows extends CsvRows {
+        // currency -> category -> {count, cents}
+        private final Map<String, Map<String, long[]>> tripTotals = new LinkedHashMap<>();
+        private final Map<String, Map<String, long[]>> allTotals = new LinkedHashMap<>();
+        private int trips;
+
+        SummaryRows(Writer out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        void header() throws IOException {
+            out.write("destination,trip_start,category,currency,expenses,total,average,share_percent\n");
+        }
+
+        @Override
+        public void startTrip(TripData trip) {
+            tripTotals.clear();
+        }
+
+        @Override
+        public void row(TripData trip, int epochDay, String category, long cents, String currency,
+                        String description) {
+            add(tripTotals, currency, category, cents);
+            add(allTotals, currency, category, cents);
+        }
+
+        @Override
+        public void endTrip(TripData trip) throws IOException {
+            trips++;
+            writeTotals(trip.getDestination(), trip.getStartDate() == null ? "" : trip.getStartDate().toString(),
+                    tripTotals);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (trips > 1) {
+                writeTotals("All trips", "", allTotals);
+            }
+        }
+
+        private static void add(Map<String, Map<String, long[]>> totals, String currency, String category,
+                                long cents) {
+            long[] total = totals.computeIfAbsent(currency, c -> new LinkedHashMap<>())
+                    .computeIfAbsent(category, c -> new long[2]);
+            total[0]++;
+            total[1] += cents;
+        }
+
+        private void writeTotals(String destination, String tripStart, Map<String, Map<String, long[]>> totals)
+                throws IOException {
+            for (Map.Entry<String, Map<String, long[]>> byCurrency : totals.entrySet()) {
+                long sum = 0;
+                for (long[] total : byCurrency.getValue().values()) {
+                    sum += total[1];
+                }
+                for (Map.Entry<String, long[]> entry : byCurrency.getValue().entrySet()) {
+                    long count = entry.getValue()[0];
+                    long cents = entry.getValue()[1];
+                    field(destination).write(',');
+                    field(tripStart).write(',');
+                    field(entry.getKey()).write(',');
+                    field(byCurrency.getKey()).write(',');
+                    out.write(Long.toString(count));
+                    out.write(',');
+                    out.write(amount(cents).toPlainString());
+                    out.write(',');
+                    out.write(String.format(Locale.ROOT, "%.2f", cents / 100.0 / count));
+                    out.write(',');
+                    out.write(sum == 0 ? "0.0" : String.format(Locale.ROOT, "%.1f", cents * 100.0 / sum));
+                    out.write('\n');
+                }
+            }
+        }
+    }
+}
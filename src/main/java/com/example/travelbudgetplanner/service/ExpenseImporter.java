@@ -0,0 +1,319 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams a bank or card statement in CSV form into expenses. Rows are parsed one at a time
+ * and handed over in batches, so each batch costs one journal write however many rows it
+ * holds, and memory stays flat for files of any size.
+ *
+ * Rows that cannot be parsed are skipped and reported; credits (refunds, payments) are
+ * skipped silently. Cancelling drops the batch in progress; batches already handed over stay.
+ */
+public class ExpenseImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Optional settings files in the data directory
+    public static final String CONFIG_FILE = "csv_import.properties";
+    public static final String RULES_FILE = "category_rules.txt";
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * Receives each batch of parsed expenses
+     */
+    public interface BatchSink {
+        void accept(List<Expense> batch) throws IOException;
+    }
+
+    /**
+     * Progress callbacks and cancellation; called on the importing thread
+     */
+    public interface Listener {
+        default void progress(Progress progress) {}
+
+        default boolean isCancelled() { return false; }
+    }
+
+    /**
+     * State after a batch; totalBytes is -1 when the input size is unknown
+     */
+    public record Progress(long rowsRead, long imported, long skipped, long failed, long bytesRead, long totalBytes) {
+        /**
+         * Share of the input read so far, or -1 when unknown
+         */
+        public double fraction() {
+            return totalBytes <= 0 ? -1 : Math.min(1.0, (double) bytesRead / totalBytes);
+        }
+    }
+
+    /**
+     * Outcome of an import; errors holds at most the first 100 messages
+     */
+    public record ImportResult(long rowsRead, long imported, long skipped, long failed, boolean cancelled,
+                               List<String> errors) {}
+
+    private final CsvImportConfig config;
+    private final CategoryRules rules;
+    private final int batchSize;
+    private final DateTimeFormatter dateFormatter;
+
+    public ExpenseImporter(CsvImportConfig config, CategoryRules rules) {
+        this(config, rules, DEFAULT_BATCH_SIZE);
+    }
+
+    public ExpenseImporter(CsvImportConfig config, CategoryRules rules, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.config = config;
+        this.rules = rules;
+        this.batchSize = batchSize;
+        this.dateFormatter = DateTimeFormatter.ofPattern(config.getDateFormat(), Locale.ROOT);
+    }
+
+    /**
+     * Importer using the column mapping and category rules saved in the data directory,
+     * or the defaults for whichever file is missing
+     */
+    public static ExpenseImporter forDataDirectory(Path dataDirectory) throws IOException {
+        Path configFile = dataDirectory.resolve(CONFIG_FILE);
+        Path rulesFile = dataDirectory.resolve(RULES_FILE);
+        return new ExpenseImporter(
+                Files.exists(configFile) ? CsvImportConfig.load(configFile) : new CsvImportConfig(),
+                Files.exists(rulesFile) ? CategoryRules.load(rulesFile) : new CategoryRules());
+    }
+
+    /**
+     * Import a statement into a trip, committing each batch to the trip journal
+     */
+    public ImportResult importFile(Path file, TripData trip, TripRepository storage, Listener listener)
+            throws IOException {
+        return importFile(file, batch -> storage.appendExpenses(trip, batch), listener);
+    }
+
+    public ImportResult importFile(Path file, BatchSink sink, Listener listener) throws IOException {
+        long totalBytes = Files.size(file);
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return importCsv(new InputStreamReader(in, StandardCharsets.UTF_8), in, totalBytes, sink, listener);
+        }
+    }
+
+    /**
+     * Import from any reader; progress has no byte counts
+     */
+    public ImportResult importCsv(Reader source, BatchSink sink, Listener listener) throws IOException {
+        return importCsv(source, null, -1, sink, listener);
+    }
+
+    // === INTERNALS ===
+
+    private ImportResult importCsv(Reader source, CountingInputStream counter, long totalBytes, BatchSink sink,
+                                   Listener listener) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(source, config.getDelimiter());
+        Columns columns = resolveColumns(config.isHeader() ? reader.next() : null);
+
+        List<String> errors = new ArrayList<>();
+        List<Expense> batch = new ArrayList<>(batchSize);
+        long rowsRead = 0;
+        long imported = 0;
+        long skipped = 0;
+        long failed = 0;
+
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            if (listener.isCancelled()) {
+                return new ImportResult(rowsRead, imported, skipped, failed, true, errors);
+            }
+            rowsRead++;
+            Expense expense;
+            try {
+                expense = toExpense(record, columns);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                failed++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Line " + reader.getLineNumber() + ": " + e.getMessage());
+                }
+                continue;
+            }
+            if (expense == null) {
+                skipped++;
+                continue;
+            }
+
+            batch.add(expense);
+            if (batch.size() == batchSize) {
+                sink.accept(batch);
+                imported += batch.size();
+                batch = new ArrayList<>(batchSize);
+                listener.progress(new Progress(rowsRead, imported, skipped, failed,
+                        counter == null ? 0 : counter.getCount(), totalBytes));
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+            imported += batch.size();
+        }
+        listener.progress(new Progress(rowsRead, imported, skipped, failed,
+                counter == null ? 0 : counter.getCount(), totalBytes));
+        return new ImportResult(rowsRead, imported, skipped, failed, false, errors);
+    }
+
+    /**
+     * Column positions; -1 for optional columns that are not mapped
+     */
+    private record Columns(int date, int amount, int description, int category, int currency) {}
+
+    private Columns resolveColumns(List<String> header) throws IOException {
+        Map<String, Integer> byName = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i).trim();
+                if (i == 0 && name.startsWith("\uFEFF")) {
+                    name = name.substring(1); // Byte order mark
+                }
+                byName.putIfAbsent(name.toLowerCase(Locale.ROOT), i);
+            }
+        }
+        int amount = resolveColumn(config.getAmountColumn(), byName, header, true);
+        if (amount < 0) {
+            throw new IOException("No amount column configured");
+        }
+        // Statements without a description, category or currency column are common, so those are optional
+        return new Columns(resolveColumn(config.getDateColumn(), byName, header, true), amount,
+                resolveColumn(config.getDescriptionColumn(), byName, header, false),
+                resolveColumn(config.getCategoryColumn(), byName, header, false),
+                resolveColumn(config.getCurrencyColumn(), byName, header, false));
+    }
+
+    private static int resolveColumn(String spec, Map<String, Integer> byName, List<String> header, boolean required)
+            throws IOException {
+        if (spec == null || spec.isBlank()) {
+            return -1;
+        }
+        Integer index = byName.get(spec.trim().toLowerCase(Locale.ROOT));
+        if (index != null) {
+            return index;
+        }
+        try {
+            return Integer.parseInt(spec.trim());
+        } catch (NumberFormatException e) {
+            if (!required && header != null) {
+                return -1;
+            }
+            throw new IOException(header == null
+                    ? "Column '" + spec + "' must be a zero-based position when the file has no header"
+                    : "Column '" + spec + "' not found in header " + header);
+        }
+    }
+
+    /**
+     * Expense for one row, or null for a credit or zero amount
+     */
+    private Expense toExpense(List<String> record, Columns columns) {
+        double amount = parseAmount(field(record, columns.amount()), config.isDecimalComma());
+        if (config.isExpensesNegative()) {
+            amount = -amount;
+        }
+        if (amount <= 0) {
+            return null;
+        }
+
+        String dateText = field(record, columns.date());
+        LocalDate date = dateText.isEmpty() ? null : LocalDate.parse(dateText, dateFormatter);
+        String description = field(record, columns.description());
+        String category = rules.categorize(description, field(record, columns.category()), config.getDefaultCategory());
+
+        Expense expense = new Expense(category, amount, date);
+        expense.setDescription(description.isEmpty() ? null : description);
+        String currency = field(record, columns.currency()).toUpperCase(Locale.ROOT);
+        if (!currency.isEmpty() && !ExchangeRates.isCurrencyCode(currency)) {
+            // A trip holds at most 255 currencies, so free text must not become one
+            throw new IllegalArgumentException("Invalid currency '" + field(record, columns.currency()) + "'");
+        }
+        expense.setCurrency(currency.isEmpty() ? null : currency);
+        return expense;
+    }
+
+    private static String field(List<String> record, int column) {
+        return column < 0 || column >= record.size() ? "" : record.get(column).trim();
+    }
+
+    /**
+     * Amount with optional currency symbols, thousands separators, a leading or trailing
+     * minus sign, or accounting parentheses for negatives
+     */
+    static double parseAmount(String text, boolean decimalComma) {
+        boolean negative = false;
+        StringBuilder number = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number.append(c);
+            } else if (c == '-' || c == '(' || c == '\u2212') {
+                negative = true;
+            } else if (c == (decimalComma ? ',' : '.')) {
+                number.append('.');
+            }
+            // Thousands separators, currency symbols and spaces are dropped
+        }
+        if (number.length() == 0 || number.indexOf(".") != number.lastIndexOf(".")) {
+            throw new IllegalArgumentException("Invalid amount '" + text + "'");
+        }
+        double value = Double.parseDouble(number.toString());
+        return negative ? -value : value;
+    }
+
+    /**
+     * Counts bytes read, for progress on files of known size
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.TripData;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Append-only journal of expense edits made since the last trip snapshot.
+ * Each line holds one JSON record; loading replays the records on top of the snapshot.
+ */
+class ExpenseJournal {
+
+    enum Operation { ADD, DELETE, UPDATE, REPLACE }
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private Writer writer;
+    private int recordCount;
+    private long lastVersion; // Highest version written to the current file
+
+    ExpenseJournal(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Append a single record and flush it to disk
+     *
+     * @return bytes written
+     */
+    synchronized long append(JournalRecord record) throws IOException {
+        return appendAll(List.of(record));
+    }
+
+    /**
+     * Append several records with a single flush
+     *
+     * @return bytes written
+     */
+    synchronized long appendAll(List<JournalRecord> records) throws IOException {
+        if (writer == null) {
+            writer = AppendOnlyFiles.openForAppend(file);
+        }
+        long bytes = 0;
+        for (JournalRecord record : records) {
+            String line = objectMapper.writeValueAsString(record);
+            writer.write(line);
+            writer.write('\n');
+            bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            lastVersion = Math.max(lastVersion, record.getVersion());
+        }
+        writer.flush();
+        recordCount += records.size();
+        return bytes;
+    }
+
+    /**
+     * Number of records appended through this journal since it was opened or reset
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Move the journal aside so a compaction can fold it into a snapshot,
+     * while new records keep going to a fresh file. If an earlier compaction failed, its
+     * records are in no snapshot yet, so this journal is appended after them instead.
+     */
+    synchronized void rotateTo(Path target) throws IOException {
+        close();
+        if (Files.exists(file)) {
+            if (Files.exists(target)) {
+                AppendOnlyFiles.appendAndDelete(file, target);
+            } else {
+                Files.move(file, target);
+            }
+        }
+        recordCount = 0;
+        lastVersion = 0;
+    }
+
+    /**
+     * Drop all journal records, e.g. after a full snapshot has been written
+     */
+    synchronized void reset() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+        recordCount = 0;
+        lastVersion = 0;
+    }
+
+    /**
+     * Drop the journal only if a snapshot of the given version already contains every record.
+     * Records appended while a background snapshot was being written are kept.
+     */
+    synchronized void resetIfCovered(long snapshotVersion) throws IOException {
+        if (lastVersion <= snapshotVersion) {
+            reset();
+        }
+    }
+
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Apply the records of a journal file to a trip, skipping those already
+     * contained in the trip's snapshot version
+     */
+    static int replay(Path journalFile, TripData tripData, ObjectMapper objectMapper) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+
+        int applied = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                JournalRecord record;
+                try {
+                    record = objectMapper.readValue(line, JournalRecord.class);
+                } catch (IOException e) {
+                    // A torn final line is what a crash during append leaves behind
+                    if (reader.readLine() == null) {
+                        break;
+                    }
+                    throw new IOException("Corrupt journal record at " + journalFile + ":" + lineNumber, e);
+                }
+
+                if (record.getVersion() <= tripData.getVersion()) {
+                    continue;
+                }
+                apply(record, tripData, journalFile, lineNumber);
+                tripData.setVersion(record.getVersion());
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(JournalRecord record, TripData tripData, Path journalFile, int lineNumber)
+            throws IOException {
+        List<Expense> expenses = tripData.getExpenses();
+        int index = record.getIndex();
+        switch (record.getOperation()) {
+            case ADD -> {
+                if (index < 0 || index > expenses.size()) {
+                    throw new IOException("Journal index out of range at " + journalFile + ":" + lineNumber);
+                }
+                expenses.add(index, record.getExpense());
+            }
+            case DELETE -> {
+                if (index < 0 || index >= expenses.size()) {
+                    throw new IOException("Journal index out of range at " + journalFile + ":" + lineNumber);
+                }
+                expenses.remove(index);
+            }
+            case UPDATE -> {
+                if (index < 0 || index >= expenses.size()) {
+                    throw new IOException("Journal index out of range at " + journalFile + ":" + lineNumber);
+                }
+                expenses.set(index, record.getExpense());
+            }
+            case REPLACE -> {
+                if (index < 0 || record.getRemoved() < 0 || index + record.getRemoved() > expenses.size()) {
+                    throw new IOException("Journal index out of range at " + journalFile + ":" + lineNumber);
+                }
+                tripData.replaceExpenses(index, record.getRemoved(), record.getExpenses());
+            }
+        }
+    }
+
+    /**
+     * One journal line: an operation on the expense at a list position. A replace swaps
+     * removed expenses from that position on for a list of others in one record, so a crash
+     * cannot leave half of it applied.
+     */
+    public static class JournalRecord {
+        private Operation operation;
+        private long version;
+        private int index;
+        private Expense expense;
+        private int removed;
+        private List<Expense> expenses;
+
+        // Default constructor
+        public JournalRecord() {}
+
+        public JournalRecord(Operation operation, long version, int index, Expense expense) {
+            this.operation = operation;
+            this.version = version;
+            this.index = index;
+            this.expense = expense;
+        }
+
+        static JournalRecord replace(long version, int index, int removed, List<Expense> expenses) {
+            JournalRecord record = new JournalRecord(Operation.REPLACE, version, index, null);
+            record.removed = removed;
+            record.expenses = expenses;
+            return record;
+        }
+
+        public Operation getOperation() { return operation; }
+        public void setOperation(Operation operation) { this.operation = operation; }
+
+        public long getVersion() { return version; }
+        public void setVersion(long version) { this.version = version; }
+
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public Expense getExpense() { return expense; }
+        public void setExpense(Expense expense) { this.expense = expense; }
+
+        // Left out of the other operations' lines
+        @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+        public int getRemoved() { return removed; }
+        public void setRemoved(int removed) { this.removed = removed; }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public List<Expense> getExpenses() { return expenses; }
+        public void setExpenses(List<Expense> expenses) { this.expenses = expenses; }
+    }
+}
@@ -0,0 +1,421 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ExpenseColumnView;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Search indexes over expense columns:
+ * <ul>
+ *   <li>date and amount: (key, row) pairs packed into sorted longs, searched by binary search</li>
+ *   <li>category: one bitmap of rows per category</li>
+ *   <li>description: lower-case word to sorted row list</li>
+ * </ul>
+ * A query starts from whichever filter matches the fewest rows and checks the rest per row.
+ *
+ * Rows appended to the columns after the index was built are checked directly, so adding
+ * expenses does not require a rebuild. Removing rows shifts indices; build a new index then.
+ */
+public class ExpenseQueryIndex {
+
+    private final ExpenseColumnView rows;
+    private final IntFunction<String> descriptionOf;
+    private final int indexedRows;
+
+    private final long[] byDate; // (epoch day << 32) | row
+    private final long[] byAmount; // (cents << 32) | row, or null when some amount does not fit
+    private final int[] amountOrder; // Rows by cents, used instead of byAmount for huge amounts
+    private final BitSet[] byCategory = new BitSet[CategoryDictionary.MAX_CATEGORIES + 1];
+    private final Map<String, int[]> byWord;
+
+    private ExpenseQueryIndex(ExpenseColumnView rows, IntFunction<String> descriptionOf) {
+        this.rows = rows;
+        this.descriptionOf = descriptionOf;
+        this.indexedRows = rows.size();
+
+        byDate = new long[indexedRows];
+        boolean amountsFit = true;
+        for (int row = 0; row < indexedRows; row++) {
+            byDate[row] = pack(rows.epochDay(row), row);
+            long cents = rows.cents(row);
+            amountsFit &= cents >= Integer.MIN_VALUE && cents <= Integer.MAX_VALUE;
+            int categoryId = rows.categoryId(row);
+            if (byCategory[categoryId] == null) {
+                byCategory[categoryId] = new BitSet(indexedRows);
+            }
+            byCategory[categoryId].set(row);
+        }
+        Arrays.sort(byDate);
+
+        if (amountsFit) {
+            byAmount = new long[indexedRows];
+            for (int row = 0; row < indexedRows; row++) {
+                byAmount[row] = pack((int) rows.cents(row), row);
+            }
+            Arrays.sort(byAmount);
+            amountOrder = null;
+        } else {
+            byAmount = null;
+            int[] all = new int[indexedRows];
+            for (int row = 0; row < indexedRows; row++) {
+                all[row] = row;
+            }
+            amountOrder = ExpenseColumns.sortIndices(all, (a, b) -> Long.compare(rows.cents(a), rows.cents(b)));
+        }
+
+        byWord = buildWordIndex();
+    }
+
+    /**
+     * Index expenses in columns; descriptionOf may return null for rows without one
+     */
+    public static ExpenseQueryIndex build(ExpenseColumnView rows, IntFunction<String> descriptionOf) {
+        return new ExpenseQueryIndex(rows, descriptionOf);
+    }
+
+    public static ExpenseQueryIndex build(ExpenseColumns columns) {
+        return new ExpenseQueryIndex(columns, columns::description);
+    }
+
+    /**
+     * Matching rows in ascending row order
+     */
+    public int[] query(ExpenseQuery query) {
+        Criteria criteria = new Criteria(query, rows.getCategories());
+        BitSet result = new BitSet(rows.size());
+        if (!criteria.impossible) {
+            queryIndexed(criteria, result);
+            // Rows added since the index was built
+            for (int row = indexedRows; row < rows.size(); row++) {
+                if (matches(row, criteria, null)) {
+                    result.set(row);
+                }
+            }
+        }
+        return result.stream().toArray();
+    }
+
+    /**
+     * Check one row directly against a query, without the indexes
+     */
+    public boolean matches(int row, ExpenseQuery query) {
+        Criteria criteria = new Criteria(query, rows.getCategories());
+        return !criteria.impossible && matches(row, criteria, null);
+    }
+
+    /**
+     * Number of rows the index was built over
+     */
+    public int getIndexedRows() { return indexedRows; }
+
+    /**
+     * Lower-case words of a description, split on anything that is not a letter or digit
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // === QUERY EXECUTION ===
+
+    private void queryIndexed(Criteria criteria, BitSet result) {
+        // Rows with any word matching each query word, intersected
+        BitSet textRows = criteria.words.isEmpty() ? null : textRows(criteria.words);
+
+        // Candidate counts of each indexed filter; the smallest drives the scan
+        long dateCount = Long.MAX_VALUE;
+        int dateFrom = 0;
+        int dateTo = indexedRows;
+        if (criteria.hasDateRange()) {
+            dateFrom = lowerBound(byDate, (long) criteria.fromDay << 32);
+            dateTo = criteria.toDay == Integer.MAX_VALUE ? indexedRows
+                    : lowerBound(byDate, (long) (criteria.toDay + 1) << 32);
+            dateCount = Math.max(0, dateTo - dateFrom);
+        }
+        long amountCount = Long.MAX_VALUE;
+        int amountFrom = 0;
+        int amountTo = indexedRows;
+        if (criteria.hasAmountRange()) {
+            amountFrom = amountLowerBound(criteria.minCents, false);
+            amountTo = amountLowerBound(criteria.maxCents, true);
+            amountCount = Math.max(0, amountTo - amountFrom);
+        }
+        long categoryCount = Long.MAX_VALUE;
+        if (criteria.categoryIds != null) {
+            categoryCount = 0;
+            for (int id : criteria.categoryIds) {
+                categoryCount += byCategory[id] == null ? 0 : byCategory[id].cardinality();
+            }
+        }
+        long textCount = textRows == null ? Long.MAX_VALUE : textRows.cardinality();
+
+        long smallest = Math.min(Math.min(dateCount, amountCount), Math.min(categoryCount, textCount));
+        if (smallest == Long.MAX_VALUE) {
+            // No criteria at all
+            result.set(0, indexedRows);
+        } else if (smallest == dateCount) {
+            for (int i = dateFrom; i < dateTo; i++) {
+                int row = (int) byDate[i];
+                if (matches(row, criteria, textRows)) {
+                    result.set(row);
+                }
+            }
+        } else if (smallest == amountCount) {
+            for (int i = amountFrom; i < amountTo; i++) {
+                int row = byAmount != null ? (int) byAmount[i] : amountOrder[i];
+                if (matches(row, criteria, textRows)) {
+                    result.set(row);
+                }
+            }
+        } else {
+            BitSet candidates = smallest == categoryCount ? categoryRows(criteria.categoryIds) : textRows;
+            for (int row = candidates.nextSetBit(0); row >= 0 && row < indexedRows; row = candidates.nextSetBit(row + 1)) {
+                if (matches(row, criteria, textRows)) {
+                    result.set(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check every criterion on one row; textRows answers the text part for indexed rows
+     */
+    private boolean matches(int row, Criteria criteria, BitSet textRows) {
+        if (!matchesColumns(rows, row, criteria)) {
+            return false;
+        }
+        if (criteria.words.isEmpty()) {
+            return true;
+        }
+        if (textRows != null && row < indexedRows) {
+            return textRows.get(row);
+        }
+        return matchesText(descriptionOf.apply(row), criteria.words);
+    }
+
+    /**
+     * Row filter for a single pass over columns, without building any index
+     */
+    static IntPredicate scanFilter(ExpenseColumnView rows, IntFunction<String> descriptionOf, ExpenseQuery query) {
+        Criteria criteria = new Criteria(query, rows.getCategories());
+        if (criteria.impossible) {
+            return row -> false;
+        }
+        return row -> matchesColumns(rows, row, criteria)
+                && (criteria.words.isEmpty() || matchesText(descriptionOf.apply(row), criteria.words));
+    }
+
+    private static boolean matchesColumns(ExpenseColumnView rows, int row, Criteria criteria) {
+        if (criteria.hasDateRange()) {
+            int day = rows.epochDay(row);
+            if (day == ExpenseColumns.NO_DATE || day < criteria.fromDay || day > criteria.toDay) {
+                return false;
+            }
+        }
+        if (criteria.hasAmountRange()) {
+            long cents = rows.cents(row);
+            if (cents < criteria.minCents || cents > criteria.maxCents) {
+                return false;
+            }
+        }
+        return criteria.categoryIds == null || criteria.categoryMask[rows.categoryId(row)];
+    }
+
+    private static boolean matchesText(String description, List<String> queryWords) {
+        List<String> words = words(description);
+        for (String queryWord : queryWords) {
+            if (words.stream().noneMatch(word -> word.contains(queryWord))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BitSet categoryRows(int[] categoryIds) {
+        BitSet candidates = new BitSet(indexedRows);
+        for (int id : categoryIds) {
+            if (byCategory[id] != null) {
+                candidates.or(byCategory[id]);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Rows whose description has, for every query word, a word containing it. Each query
+     * word is looked up against the vocabulary, which is far smaller than the row count.
+     */
+    private BitSet textRows(List<String> queryWords) {
+        BitSet result = null;
+        for (String queryWord : queryWords) {
+            BitSet matching = new BitSet(indexedRows);
+            int[] exact = byWord.get(queryWord);
+            if (exact != null) {
+                for (int row : exact) {
+                    matching.set(row);
+                }
+            }
+            for (Map.Entry<String, int[]> entry : byWord.entrySet()) {
+                if (entry.getKey().length() > queryWord.length() && entry.getKey().contains(queryWord)) {
+                    for (int row : entry.getValue()) {
+                        matching.set(row);
+                    }
+                }
+            }
+            if (result == null) {
+                result = matching;
+            } else {
+                result.and(matching);
+            }
+        }
+        return result;
+    }
+
+    // === INDEX CONSTRUCTION ===
+
+    private Map<String, int[]> buildWordIndex() {
+        Map<String, int[]> postings = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int row = 0; row < indexedRows; row++) {
+            String description = descriptionOf.apply(row);
+            if (description == null) {
+                continue;
+            }
+            String previous = null;
+            for (String word : words(description)) {
+                if (word.equals(previous)) {
+                    continue;
+                }
+                int[] list = postings.get(word);
+                int count = counts.getOrDefault(word, 0);
+                if (list == null || count == list.length) {
+                    list = list == null ? new int[4] : Arrays.copyOf(list, list.length * 2);
+                    postings.put(word, list);
+                }
+                // A row repeating a word adds it once, since rows arrive in order
+                if (count == 0 || list[count - 1] != row) {
+                    list[count++] = row;
+                    counts.put(word, count);
+                }
+                previous = word;
+            }
+        }
+        postings.replaceAll((word, list) -> Arrays.copyOf(list, counts.get(word)));
+        return postings;
+    }
+
+    // Both keys and rows fit in 32 bits; rows are non-negative, so the order is (key, row)
+    private static long pack(int key, int row) {
+        return ((long) key << 32) | row;
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position with cents >= bound, or > bound when after is set
+    private int amountLowerBound(long bound, boolean after) {
+        if (byAmount != null) {
+            if (bound < Integer.MIN_VALUE) {
+                return 0;
+            }
+            if (bound >= Integer.MAX_VALUE) {
+                return after ? indexedRows : lowerBound(byAmount, pack(Integer.MAX_VALUE, 0));
+            }
+            return lowerBound(byAmount, pack((int) (after ? bound + 1 : bound), 0));
+        }
+        int low = 0;
+        int high = indexedRows;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long cents = rows.cents(amountOrder[middle]);
+            if (after ? cents <= bound : cents < bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A query resolved against one category dictionary
+     */
+    private static final class Criteria {
+        final int fromDay;
+        final int toDay;
+        final long minCents;
+        final long maxCents;
+        final int[] categoryIds; // null means any category
+        final boolean[] categoryMask;
+        final List<String> words;
+        final boolean impossible; // e.g. only unknown categories
+
+        Criteria(ExpenseQuery query, CategoryDictionary categories) {
+            fromDay = query.getFromDate() != null ? (int) query.getFromDate().toEpochDay() : Integer.MIN_VALUE;
+            toDay = query.getToDate() != null ? (int) query.getToDate().toEpochDay() : Integer.MAX_VALUE;
+            minCents = query.getMinAmount() != null ? Money.toCents(query.getMinAmount()) : Long.MIN_VALUE;
+            maxCents = query.getMaxAmount() != null ? Money.toCents(query.getMaxAmount()) : Long.MAX_VALUE;
+
+            if (query.getCategories().isEmpty()) {
+                categoryIds = null;
+                categoryMask = null;
+            } else {
+                categoryMask = new boolean[CategoryDictionary.MAX_CATEGORIES + 1];
+                categoryIds = query.getCategories().stream()
+                        .mapToInt(categories::idOf)
+                        .filter(id -> id >= 0)
+                        .distinct()
+                        .toArray();
+                for (int id : categoryIds) {
+                    categoryMask[id] = true;
+                }
+            }
+            words = words(query.getText());
+            impossible = (categoryIds != null && categoryIds.length == 0) || fromDay > toDay || minCents > maxCents;
+        }
+
+        boolean hasDateRange() {
+            return fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE;
+        }
+
+        boolean hasAmountRange() {
+            return minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+        }
+    }
+}
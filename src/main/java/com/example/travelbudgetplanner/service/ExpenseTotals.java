@@ -0,0 +1,324 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running expense totals: overall, per category and per day, plus distinct days and the
+ * top category. Adding or removing one expense is O(1), and partial totals built on
+ * different threads can be merged.
+ */
+public class ExpenseTotals {
+
+    /**
+     * Most days in the dense per-day window, a few years; days further out, such as a
+     * mistyped year, are summed in a map instead of stretching the window
+     */
+    static final int MAX_DENSE_DAYS = 4 * 366;
+
+    private final CategoryDictionary categories;
+    private final long[] categoryCents = new long[CategoryDictionary.MAX_CATEGORIES + 1];
+    private final int[] categoryCounts = new int[CategoryDictionary.MAX_CATEGORIES + 1];
+    private long totalCents;
+    private int count;
+    private long undatedCents;
+    private int undatedCount;
+
+    // Per-day sums in a dense window starting at baseDay, grown on either side as needed
+    private int baseDay;
+    private long[] dayCents = new long[0];
+    private int[] dayCounts = new int[0];
+    private final Map<Integer, DaySum> outlierDays = new HashMap<>(); // Days the window cannot reach
+    private int distinctDays;
+
+    public ExpenseTotals() {
+        this(new CategoryDictionary());
+    }
+
+    /**
+     * Totals over expenses whose category ids come from the given dictionary
+     */
+    public ExpenseTotals(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    public void add(String category, long cents, int epochDay) {
+        apply(categories.intern(category), cents, epochDay, 1);
+    }
+
+    public void remove(String category, long cents, int epochDay) {
+        apply(categories.intern(category), -cents, epochDay, -1);
+    }
+
+    /**
+     * Add an expense by category id of this totals' dictionary, skipping the name lookup
+     */
+    public void addById(int categoryId, long cents, int epochDay) {
+        apply(categoryId, cents, epochDay, 1);
+    }
+
+    /**
+     * Add the sum of several expenses of one category and day at once
+     */
+    public void addById(int categoryId, long cents, int epochDay, int expenseCount) {
+        apply(categoryId, cents, epochDay, expenseCount);
+    }
+
+    /**
+     * Fold another set of totals into this one
+     */
+    public void merge(ExpenseTotals other) {
+        boolean sameIds = other.categories == categories;
+        for (int id = 0; id < other.categories.size(); id++) {
+            if (other.categoryCounts[id] == 0) {
+                continue;
+            }
+            int target = sameIds ? id : categories.intern(other.categories.nameOf(id));
+            categoryCents[target] += other.categoryCents[id];
+            categoryCounts[target] += other.categoryCounts[id];
+        }
+        totalCents += other.totalCents;
+        count += other.count;
+        undatedCents += other.undatedCents;
+        undatedCount += other.undatedCount;
+
+        other.forEachDay(this::addToDay);
+    }
+
+    public void clear() {
+        Arrays.fill(categoryCents, 0);
+        Arrays.fill(categoryCounts, 0);
+        totalCents = 0;
+        count = 0;
+        undatedCents = 0;
+        undatedCount = 0;
+        dayCents = new long[0];
+        dayCounts = new int[0];
+        outlierDays.clear();
+        distinctDays = 0;
+    }
+
+    // === QUERIES ===
+
+    public long getTotalCents() { return totalCents; }
+
+    public int getCount() { return count; }
+
+    public int getDistinctDays() { return distinctDays; }
+
+    public long getUndatedCents() { return undatedCents; }
+
+    public int getUndatedCount() { return undatedCount; }
+
+    public CategoryDictionary getCategories() { return categories; }
+
+    public long getCategoryCents(int categoryId) { return categoryCents[categoryId]; }
+
+    public int getCategoryCount(int categoryId) { return categoryCounts[categoryId]; }
+
+    public long getCategoryCents(String category) {
+        int id = categories.idOf(category);
+        return id < 0 ? 0 : categoryCents[id];
+    }
+
+    /**
+     * Category with the largest total, or null when there are no expenses
+     */
+    public String getTopCategory() {
+        int best = -1;
+        for (int id = 0; id < categories.size(); id++) {
+            if (categoryCounts[id] > 0 && (best < 0 || categoryCents[id] > categoryCents[best])) {
+                best = id;
+            }
+        }
+        return best < 0 ? null : categories.nameOf(best);
+    }
+
+    /**
+     * Sum for one day; zero outside the days seen
+     */
+    public long getDayCents(int epochDay) {
+        int offset = epochDay - baseDay;
+        if (offset >= 0 && offset < dayCents.length) {
+            return dayCents[offset];
+        }
+        DaySum sum = outlierDays.get(epochDay);
+        return sum == null ? 0 : sum.cents;
+    }
+
+    /**
+     * Number of expenses on one day
+     */
+    public int getDayCount(int epochDay) {
+        int offset = epochDay - baseDay;
+        if (offset >= 0 && offset < dayCounts.length) {
+            return dayCounts[offset];
+        }
+        DaySum sum = outlierDays.get(epochDay);
+        return sum == null ? 0 : sum.count;
+    }
+
+    /**
+     * Whether any expense falls on the given day
+     */
+    public boolean hasDay(int epochDay) {
+        return getDayCount(epochDay) > 0;
+    }
+
+    /**
+     * First day with an expense, or {@link ExpenseColumns#NO_DATE}
+     */
+    public int getFirstDay() {
+        int first = ExpenseColumns.NO_DATE;
+        for (Map.Entry<Integer, DaySum> day : outlierDays.entrySet()) {
+            if (day.getValue().count > 0 && (first == ExpenseColumns.NO_DATE || day.getKey() < first)) {
+                first = day.getKey();
+            }
+        }
+        for (int offset = 0; offset < dayCounts.length; offset++) {
+            if (dayCounts[offset] > 0) {
+                return first == ExpenseColumns.NO_DATE ? baseDay + offset : Math.min(first, baseDay + offset);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Last day with an expense, or {@link ExpenseColumns#NO_DATE}
+     */
+    public int getLastDay() {
+        int last = ExpenseColumns.NO_DATE;
+        for (Map.Entry<Integer, DaySum> day : outlierDays.entrySet()) {
+            if (day.getValue().count > 0 && (last == ExpenseColumns.NO_DATE || day.getKey() > last)) {
+                last = day.getKey();
+            }
+        }
+        for (int offset = dayCounts.length - 1; offset >= 0; offset--) {
+            if (dayCounts[offset] > 0) {
+                return Math.max(last, baseDay + offset); // NO_DATE is Integer.MIN_VALUE
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Sum and count of one day, see {@link #forEachDay}
+     */
+    @FunctionalInterface
+    public interface DayConsumer {
+        void accept(int epochDay, long cents, int count);
+    }
+
+    /**
+     * Visit every day that has expenses, in day order. Only days seen are visited, so a
+     * stray far-off date costs one call rather than a walk over every day up to it.
+     */
+    public void forEachDay(DayConsumer action) {
+        int[] outliers = outlierDays.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int next = 0;
+        for (; next < outliers.length && outliers[next] < baseDay; next++) {
+            DaySum sum = outlierDays.get(outliers[next]);
+            action.accept(outliers[next], sum.cents, sum.count);
+        }
+        for (int offset = 0; offset < dayCounts.length; offset++) {
+            if (dayCounts[offset] != 0) {
+                action.accept(baseDay + offset, dayCents[offset], dayCounts[offset]);
+            }
+        }
+        for (; next < outliers.length; next++) {
+            DaySum sum = outlierDays.get(outliers[next]);
+            action.accept(outliers[next], sum.cents, sum.count);
+        }
+    }
+
+    // === INTERNALS ===
+
+    // cents and expenseCount are negative for removals
+    private void apply(int id, long cents, int epochDay, int expenseCount) {
+        categoryCents[id] += cents;
+        categoryCounts[id] += expenseCount;
+        totalCents += cents;
+        count += expenseCount;
+
+        if (epochDay == ExpenseColumns.NO_DATE) {
+            undatedCents += cents;
+            undatedCount += expenseCount;
+            return;
+        }
+        addToDay(epochDay, cents, expenseCount);
+    }
+
+    private void addToDay(int epochDay, long cents, int expenseCount) {
+        int offset = ensureDay(epochDay);
+        int before;
+        int after;
+        if (offset >= 0) {
+            before = dayCounts[offset];
+            dayCounts[offset] += expenseCount;
+            dayCents[offset] += cents;
+            after = dayCounts[offset];
+        } else {
+            DaySum sum = outlierDays.computeIfAbsent(epochDay, day -> new DaySum());
+            before = sum.count;
+            sum.count += expenseCount;
+            sum.cents += cents;
+            after = sum.count;
+            if (after == 0) {
+                outlierDays.remove(epochDay);
+            }
+        }
+        if (before == 0 && after > 0) {
+            distinctDays++;
+        } else if (before > 0 && after == 0) {
+            distinctDays--;
+        }
+    }
+
+    /**
+     * Grow the day window to include the given day and return its offset, or -1 if the window
+     * would then span more than {@link #MAX_DENSE_DAYS}. Capacity doubles, so growth is
+     * amortized O(1).
+     */
+    private int ensureDay(int epochDay) {
+        if (dayCents.length == 0) {
+            baseDay = epochDay;
+            dayCents = new long[8];
+            dayCounts = new int[8];
+            return 0;
+        }
+
+        int offset = epochDay - baseDay;
+        if (offset >= 0 && offset < dayCents.length) {
+            return offset;
+        }
+
+        int newBase = Math.min(baseDay, epochDay);
+        long needed = (long) Math.max(baseDay + dayCents.length, epochDay + 1) - newBase;
+        if (needed > MAX_DENSE_DAYS) {
+            return -1;
+        }
+        int capacity = Math.min(Math.max((int) needed, dayCents.length * 2), MAX_DENSE_DAYS);
+        // Leave room on the side we are growing towards
+        if (epochDay < baseDay) {
+            newBase = baseDay + dayCents.length - capacity;
+        }
+
+        long[] grownCents = new long[capacity];
+        int[] grownCounts = new int[capacity];
+        System.arraycopy(dayCents, 0, grownCents, baseDay - newBase, dayCents.length);
+        System.arraycopy(dayCounts, 0, grownCounts, baseDay - newBase, dayCounts.length);
+        dayCents = grownCents;
+        dayCounts = grownCounts;
+        baseDay = newBase;
+        return epochDay - baseDay;
+    }
+
+    private static final class DaySum {
+        long cents;
+        int count;
+    }
+}
@@ -0,0 +1,757 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.HistoryAnalytics.TripTotal;
+import com.example.travelbudgetplanner.service.StorageLocks.Stamp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Trips in an embedded H2 database in the data directory: one table of trips and one of
+ * expenses, indexed by trip and position, date and category. Every change is a transaction.
+ *
+ * The current trip is the trip row in the current slot; its version and the id of the instance
+ * that last wrote it act as the stamp the FILES backend keeps in its lock file. Writes lock
+ * the row and compare the stamp, so several app instances (connected through H2's automatic
+ * mixed mode) get the same merge and conflict rules as with files.
+ *
+ * History analytics and search run as SQL over the indexed tables instead of an in-memory archive.
+ */
+public class H2TripRepository implements TripRepository {
+
+    private static final String DATABASE_NAME = "travelbudget";
+    private static final int CURRENT_SLOT = 1;
+    private static final int BATCH_SIZE = 1000;
+
+    // H2 error code for unique index violations
+    private static final int DUPLICATE_KEY = 23505;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS trip ("
+                    + " id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                    + " current_slot INT UNIQUE," // CURRENT_SLOT for the current trip, null for history
+                    + " history_key VARCHAR UNIQUE," // Destination and dates, for history trips
+                    + " destination VARCHAR,"
+                    + " start_date DATE,"
+                    + " end_date DATE,"
+                    + " budget DOUBLE PRECISION NOT NULL,"
+                    + " base_currency VARCHAR(3) NOT NULL,"
+                    + " version BIGINT NOT NULL,"
+                    + " writer BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS expense ("
+                    + " trip_id BIGINT NOT NULL REFERENCES trip(id) ON DELETE CASCADE,"
+                    + " position INT NOT NULL," // Not unique: shifted row by row on delete
+                    + " expense_date DATE,"
+                    + " amount DOUBLE PRECISION NOT NULL,"
+                    + " currency VARCHAR(3),"
+                    + " base_cents BIGINT," // Amount in the trip's base currency, for history trips
+                    + " category VARCHAR,"
+                    + " description VARCHAR)",
+            "CREATE INDEX IF NOT EXISTS expense_trip_position ON expense(trip_id, position)",
+            "CREATE INDEX IF NOT EXISTS expense_date ON expense(expense_date)",
+            "CREATE INDEX IF NOT EXISTS expense_category ON expense(category)"
+    };
+
+    private static final String TRIP_COLUMNS =
+            "id, destination, start_date, end_date, budget, base_currency, version, writer";
+    private static final String INSERT_EXPENSE = "INSERT INTO expense (trip_id, position, expense_date, amount,"
+            + " currency, base_cents, category, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Path dataDirectory;
+    private final Connection connection; // Guarded by this
+    private final long instanceId = new SecureRandom().nextLong();
+    private Stamp knownStamp = Stamp.NONE; // Last current-trip stamp seen or written
+    private long snapshotVersion = -1;
+    private long generation; // Bumped when the current trip is cleared or merged
+    private ExchangeRates exchangeRates;
+    private final MetricsRegistry metrics = MetricsRegistry.global(); // Byte counts are unknown here and stay 0
+
+    public H2TripRepository(Path dataDirectory) throws IOException {
+        this.dataDirectory = dataDirectory;
+        Files.createDirectories(dataDirectory);
+        String url = "jdbc:h2:file:" + dataDirectory.toAbsolutePath().resolve(DATABASE_NAME) + ";AUTO_SERVER=TRUE";
+        try {
+            connection = DriverManager.getConnection(url, "sa", "");
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            connection.setAutoCommit(false);
+            knownStamp = readStamp(false);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Cannot open the trip database in " + dataDirectory, e);
+        }
+    }
+
+    // === CURRENT TRIP ===
+
+    @Override
+    public synchronized boolean currentTripExists() {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT 1 FROM trip WHERE current_slot = " + CURRENT_SLOT)) {
+            try (ResultSet rows = select.executeQuery()) {
+                return rows.next();
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to check for a current trip: " + e.getMessage());
+            return false;
+        } finally {
+            rollbackQuietly();
+        }
+    }
+
+    @Override
+    public synchronized TripData loadCurrentTrip() throws IOException {
+        try (OperationTimer timer = metrics.start(TimedOperation.TRIP_LOAD)) {
+            TripData loaded = transaction(() -> {
+                Long id = currentTripId();
+                TripData tripData = id != null ? readTrip(id) : new TripData();
+                knownStamp = readStamp(false);
+                snapshotVersion = Math.max(snapshotVersion, tripData.getVersion());
+                return tripData;
+            });
+            timer.setDetail(loaded.getDestination());
+            timer.completed(0, loaded.getExpenses().size());
+            return loaded;
+        }
+    }
+
+    @Override
+    public void saveCurrentTrip(TripData tripData) throws IOException {
+        writeCurrentTrip(prepareSnapshot(tripData));
+    }
+
+    @Override
+    public synchronized PendingSnapshot prepareSnapshot(TripData tripData, Supplier<? extends TripData> copy) {
+        tripData.setVersion(tripData.getVersion() + 1);
+        return new PendingSnapshot(copy, tripData.getVersion(), generation);
+    }
+
+    /**
+     * Expenses are written as they change, so a snapshot older than the stored expenses only
+     * updates the trip header
+     *
+     * @throws TripVersionConflictException if another instance wrote the trip since this one did
+     */
+    @Override
+    public synchronized boolean writeCurrentTrip(PendingSnapshot pending) throws IOException {
+        if (pending.generation() != generation || pending.version() <= snapshotVersion) {
+            return false;
+        }
+        TripData snapshot = pending.trip();
+        try (OperationTimer timer = metrics.start(TimedOperation.TRIP_SAVE, snapshot.getDestination())) {
+            int written = transaction(() -> {
+                checkUnchanged(readStamp(true));
+                Long id = currentTripId();
+                if (id == null) {
+                    insertExpenses(insertTrip(snapshot, CURRENT_SLOT, null), 0, snapshot.getExpenses(), null);
+                } else if (snapshot.getVersion() > knownStamp.version()) {
+                    updateHeader(id, snapshot, snapshot.getVersion());
+                    try (PreparedStatement delete = connection.prepareStatement("DELETE FROM expense WHERE trip_id = ?")) {
+                        delete.setLong(1, id);
+                        delete.executeUpdate();
+                    }
+                    insertExpenses(id, 0, snapshot.getExpenses(), null);
+                } else {
+                    updateHeader(id, snapshot, knownStamp.version());
+                    return 0;
+                }
+                return snapshot.getExpenses().size();
+            });
+            timer.completed(0, written);
+        }
+        snapshotVersion = snapshot.getVersion();
+        knownStamp = new Stamp(Math.max(snapshot.getVersion(), knownStamp.version()), instanceId);
+        return true;
+    }
+
+    @Override
+    public synchronized void clearCurrentTrip() {
+        try {
+            transaction(() -> {
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM trip WHERE current_slot = " + CURRENT_SLOT)) {
+                    delete.executeUpdate();
+                }
+                return null;
+            });
+            // Other instances still showing the old trip will merge into, or be refused by, the empty one
+            generation++;
+            snapshotVersion = -1;
+            knownStamp = Stamp.NONE;
+        } catch (IOException e) {
+            System.err.println("Failed to delete the current trip: " + e.getMessage());
+        }
+    }
+
+    // === EXPENSES OF THE CURRENT TRIP ===
+
+    @Override
+    public synchronized boolean appendExpenses(TripData tripData, List<Expense> expenses) throws IOException {
+        try (OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "add")) {
+            boolean merged;
+            try {
+                merged = appendOnce(tripData, expenses);
+            } catch (IOException e) {
+                if (!(e.getCause() instanceof SQLException sql) || sql.getErrorCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                // Another instance created the current trip at the same time; merge onto its trip
+                merged = appendOnce(tripData, expenses);
+            }
+            timer.completed(0, expenses.size());
+            return merged;
+        }
+    }
+
+    private boolean appendOnce(TripData tripData, List<Expense> expenses) throws IOException {
+        // The caller's trip changes only after the commit, so a failed batch leaves it as it was
+        // without copying it first
+        TripData latest = transaction(() -> {
+            Stamp onDisk = readStamp(true);
+            Long id = currentTripId();
+            TripData base = tripData;
+            TripData changed = null;
+            if (!onDisk.equals(knownStamp)) {
+                // Add after the other instance's changes
+                changed = id != null ? readTrip(id) : new TripData();
+                changed.setVersion(Math.max(changed.getVersion(), tripData.getVersion()));
+                base = changed;
+            }
+            tripData.checkCanAdd(expenses);
+            if (id == null) {
+                id = insertTrip(base, CURRENT_SLOT, null);
+            }
+            insertExpenses(id, base.getExpenses().size(), expenses, null);
+            stamp(id, base.getVersion() + expenses.size());
+            return changed;
+        });
+        if (latest != null) {
+            tripData.replaceWith(latest);
+            generation++; // Snapshots queued from the old state are dropped
+        }
+        for (Expense expense : expenses) {
+            tripData.addExpense(expense);
+        }
+        tripData.setVersion(tripData.getVersion() + expenses.size());
+        knownStamp = new Stamp(tripData.getVersion(), instanceId);
+        return latest != null;
+    }
+
+    @Override
+    public synchronized void updateExpense(TripData tripData, int index, Expense expense) throws IOException {
+        try (OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "update")) {
+            updateStored(tripData, index, expense);
+            timer.completed(0, 1);
+        }
+    }
+
+    private void updateStored(TripData tripData, int index, Expense expense) throws IOException {
+        transaction(() -> {
+            checkUnchanged(readStamp(true));
+            long id = requireCurrentTripId();
+            try (PreparedStatement update = connection.prepareStatement("UPDATE expense SET expense_date = ?,"
+                    + " amount = ?, currency = ?, category = ?, description = ? WHERE trip_id = ? AND position = ?")) {
+                update.setObject(1, expense.getDate());
+                update.setDouble(2, expense.getAmount());
+                update.setString(3, expense.getCurrency());
+                update.setString(4, expense.getCategory());
+                update.setString(5, expense.getDescription());
+                update.setLong(6, id);
+                update.setInt(7, index);
+                update.executeUpdate();
+            }
+            stamp(id, tripData.getVersion() + 1);
+            return null;
+        });
+        tripData.getExpenses().set(index, expense);
+        tripData.setVersion(tripData.getVersion() + 1);
+        knownStamp = new Stamp(tripData.getVersion(), instanceId);
+    }
+
+    @Override
+    public synchronized void removeExpense(TripData tripData, int index) throws IOException {
+        try (OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "delete")) {
+            removeStored(tripData, index);
+            timer.completed(0, 1);
+        }
+    }
+
+    private void removeStored(TripData tripData, int index) throws IOException {
+        transaction(() -> {
+            checkUnchanged(readStamp(true));
+            long id = requireCurrentTripId();
+            try (PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM expense WHERE trip_id = ? AND position = ?");
+                 PreparedStatement shift = connection.prepareStatement(
+                         "UPDATE expense SET position = position - 1 WHERE trip_id = ? AND position > ?")) {
+                delete.setLong(1, id);
+                delete.setInt(2, index);
+                delete.executeUpdate();
+                shift.setLong(1, id);
+                shift.setInt(2, index);
+                shift.executeUpdate();
+            }
+            stamp(id, tripData.getVersion() + 1);
+            return null;
+        });
+        tripData.getExpenses().remove(index);
+        tripData.setVersion(tripData.getVersion() + 1);
+        knownStamp = new Stamp(tripData.getVersion(), instanceId);
+    }
+
+    @Override
+    public synchronized void replaceExpenses(TripData tripData, int from, int removed, List<Expense> added)
+            throws IOException {
+        Objects.checkFromIndexSize(from, removed, tripData.getExpenses().size());
+        try (OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "replace")) {
+            transaction(() -> {
+                checkUnchanged(readStamp(true));
+                long id = requireCurrentTripId();
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM expense WHERE trip_id = ? AND position >= ? AND position < ?");
+                     PreparedStatement shift = connection.prepareStatement(
+                             "UPDATE expense SET position = position + ? WHERE trip_id = ? AND position >= ?")) {
+                    delete.setLong(1, id);
+                    delete.setInt(2, from);
+                    delete.setInt(3, from + removed);
+                    delete.executeUpdate();
+                    if (added.size() != removed) {
+                        shift.setInt(1, added.size() - removed);
+                        shift.setLong(2, id);
+                        shift.setInt(3, from + removed);
+                        shift.executeUpdate();
+                    }
+                }
+                insertExpenses(id, from, added, null);
+                stamp(id, tripData.getVersion() + 1);
+                return null;
+            });
+            tripData.replaceExpenses(from, removed, added);
+            tripData.setVersion(tripData.getVersion() + 1);
+            knownStamp = new Stamp(tripData.getVersion(), instanceId);
+            timer.completed(0, removed + added.size());
+        }
+    }
+
+    // === HISTORY ===
+
+    @Override
+    public synchronized void saveTripToHistory(TripData tripData) throws IOException {
+        try (OperationTimer timer = metrics.start(TimedOperation.HISTORY_SAVE, tripData.getDestination())) {
+            insertHistoryTrip(tripData);
+            timer.completed(0, tripData.getExpenses().size());
+        }
+    }
+
+    private void insertHistoryTrip(TripData tripData) throws IOException {
+        String key = TripHistoryStore.keyOf(tripData);
+        // Analytics and search sum stored amounts, so those are kept in base currency too
+        List<Expense> baseAmounts = getExchangeRates().toBaseCurrency(tripData).getExpenses();
+        try {
+            transaction(() -> {
+                try (PreparedStatement select = connection.prepareStatement("SELECT 1 FROM trip WHERE history_key = ?")) {
+                    select.setString(1, key);
+                    try (ResultSet rows = select.executeQuery()) {
+                        if (rows.next()) {
+                            return null;
+                        }
+                    }
+                }
+                long id = insertTrip(tripData, null, key);
+                insertExpenses(id, 0, tripData.getExpenses(), baseAmounts);
+                return null;
+            });
+        } catch (IOException e) {
+            // Another instance saved the same trip first
+            if (!(e.getCause() instanceof SQLException sql) || sql.getErrorCode() != DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Trip ids are listed up front; each trip is read when the stream reaches it
+     */
+    @Override
+    public Stream<TripData> streamAllTrips() throws IOException {
+        List<Long> ids;
+        synchronized (this) {
+            ids = transaction(() -> {
+                List<Long> found = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT id FROM trip WHERE history_key IS NOT NULL ORDER BY id")) {
+                    try (ResultSet rows = select.executeQuery()) {
+                        while (rows.next()) {
+                            found.add(rows.getLong(1));
+                        }
+                    }
+                }
+                return found;
+            });
+        }
+        return ids.stream().map(id -> {
+            synchronized (this) {
+                try (OperationTimer timer = metrics.start(TimedOperation.HISTORY_LOAD)) {
+                    TripData trip = transaction(() -> readTrip(id));
+                    timer.setDetail(trip.getDestination());
+                    timer.completed(0, trip.getExpenses().size());
+                    return trip;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Aggregated in SQL, per trip and per year and category, then assembled like the FILES report
+     */
+    @Override
+    public synchronized HistoryReport analyzeHistory() throws IOException {
+        return transaction(() -> {
+            List<TripTotal> trips = new ArrayList<>();
+            long expenseCount = 0;
+            long totalCents = 0;
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT t.destination, t.start_date, t.end_date, COUNT(e.trip_id), COALESCE(SUM(e.base_cents), 0),"
+                            + " MIN(e.expense_date), MAX(e.expense_date)"
+                            + " FROM trip t LEFT JOIN expense e ON e.trip_id = t.id"
+                            + " WHERE t.history_key IS NOT NULL GROUP BY t.id ORDER BY t.id")) {
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        long cents = rows.getLong(5);
+                        LocalDate first = rows.getObject(6, LocalDate.class);
+                        LocalDate last = rows.getObject(7, LocalDate.class);
+                        int expenseSpan = first == null ? 0 : (int) ChronoUnit.DAYS.between(first, last) + 1;
+                        trips.add(new TripTotal(rows.getString(1), rows.getObject(2, LocalDate.class),
+                                rows.getObject(3, LocalDate.class), cents, expenseSpan));
+                        expenseCount += rows.getLong(4);
+                        totalCents += cents;
+                    }
+                }
+            }
+
+            Map<Integer, Map<String, Long>> yearCategoryCents = new TreeMap<>();
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT EXTRACT(YEAR FROM e.expense_date), e.category, SUM(e.base_cents)"
+                            + " FROM expense e JOIN trip t ON e.trip_id = t.id"
+                            + " WHERE t.history_key IS NOT NULL AND e.expense_date IS NOT NULL"
+                            + " GROUP BY EXTRACT(YEAR FROM e.expense_date), e.category")) {
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        yearCategoryCents.computeIfAbsent(rows.getInt(1), year -> new HashMap<>())
+                                .put(rows.getString(2), rows.getLong(3));
+                    }
+                }
+            }
+            return HistoryAnalytics.assemble(trips, yearCategoryCents, expenseCount, totalCents);
+        });
+    }
+
+    /**
+     * Dates and categories are narrowed by their indexes; amounts and words are checked per row
+     */
+    @Override
+    public synchronized List<HistoryExpense> searchHistory(ExpenseQuery query, int limit) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT t.destination, t.start_date, e.expense_date, e.base_cents,"
+                + " e.category, e.description FROM expense e JOIN trip t ON e.trip_id = t.id"
+                + " WHERE t.history_key IS NOT NULL");
+        List<Object> parameters = new ArrayList<>();
+        if (query.getFromDate() != null) {
+            sql.append(" AND e.expense_date >= ?");
+            parameters.add(query.getFromDate());
+        }
+        if (query.getToDate() != null) {
+            sql.append(" AND e.expense_date <= ?");
+            parameters.add(query.getToDate());
+        }
+        if (!query.getCategories().isEmpty()) {
+            sql.append(" AND e.category IN (").append("?, ".repeat(query.getCategories().size() - 1)).append("?)");
+            parameters.addAll(query.getCategories());
+        }
+        if (query.getMinAmount() != null) {
+            sql.append(" AND e.base_cents >= ?");
+            parameters.add(Money.toCents(query.getMinAmount()));
+        }
+        if (query.getMaxAmount() != null) {
+            sql.append(" AND e.base_cents <= ?");
+            parameters.add(Money.toCents(query.getMaxAmount()));
+        }
+        // Query words are letters and digits only, so a substring match stays within one description word
+        for (String word : ExpenseQueryIndex.words(query.getText())) {
+            sql.append(" AND LOWER(e.description) LIKE ?");
+            parameters.add("%" + word + "%");
+        }
+        sql.append(" ORDER BY t.id, e.position LIMIT ?");
+        parameters.add(limit);
+
+        return transaction(() -> {
+            List<HistoryExpense> matches = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    select.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        Expense expense = new Expense(rows.getString(5), Money.fromCents(rows.getLong(4)),
+                                rows.getObject(3, LocalDate.class));
+                        expense.setDescription(rows.getString(6));
+                        matches.add(new HistoryExpense(rows.getString(1), rows.getObject(2, LocalDate.class), expense));
+                    }
+                }
+            }
+            return matches;
+        });
+    }
+
+    // === SETTINGS ===
+
+    /**
+     * Exchange rates from the rates file in the data directory, read once
+     */
+    @Override
+    public synchronized ExchangeRates getExchangeRates() throws IOException {
+        if (exchangeRates == null) {
+            exchangeRates = ExchangeRates.forDataDirectory(dataDirectory);
+        }
+        return exchangeRates;
+    }
+
+    @Override
+    public String getDataPath() {
+        return dataDirectory.toString();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Cannot close the trip database", e);
+        }
+    }
+
+    // === INTERNALS ===
+
+    private interface SqlWork<T> {
+        T run() throws SQLException, IOException;
+    }
+
+    /**
+     * Run work in one transaction: committed if it returns, rolled back if it throws.
+     * SQL errors surface as IOExceptions, like file errors from the FILES backend.
+     */
+    private <T> T transaction(SqlWork<T> work) throws IOException {
+        try {
+            T result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            rollbackQuietly();
+            throw new IOException("Trip database error: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            rollbackQuietly();
+            throw e;
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Trip database rollback failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stamp of the current trip, or {@link Stamp#NONE} if there is none. Locking the row keeps
+     * other instances from writing the trip until this transaction ends.
+     */
+    private Stamp readStamp(boolean lock) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT version, writer FROM trip"
+                + " WHERE current_slot = " + CURRENT_SLOT + (lock ? " FOR UPDATE" : ""))) {
+            try (ResultSet rows = select.executeQuery()) {
+                return rows.next() ? new Stamp(rows.getLong(1), rows.getLong(2)) : Stamp.NONE;
+            }
+        }
+    }
+
+    /**
+     * Edits and deletes address expenses by position, which another instance's changes may
+     * have shifted, so those are refused rather than merged
+     */
+    private void checkUnchanged(Stamp onDisk) throws TripVersionConflictException {
+        if (!onDisk.equals(knownStamp)) {
+            throw new TripVersionConflictException(knownStamp.version(), onDisk.version());
+        }
+    }
+
+    /**
+     * Record that this instance wrote the current trip at the given version. The caller updates
+     * its known stamp once the transaction commits.
+     */
+    private void stamp(long tripId, long version) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE trip SET version = ?, writer = ? WHERE id = ?")) {
+            update.setLong(1, version);
+            update.setLong(2, instanceId);
+            update.setLong(3, tripId);
+            update.executeUpdate();
+        }
+    }
+
+    private Long currentTripId() throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id FROM trip WHERE current_slot = " + CURRENT_SLOT)) {
+            try (ResultSet rows = select.executeQuery()) {
+                return rows.next() ? rows.getLong(1) : null;
+            }
+        }
+    }
+
+    private long requireCurrentTripId() throws SQLException {
+        Long id = currentTripId();
+        if (id == null) {
+            throw new SQLException("No current trip is stored");
+        }
+        return id;
+    }
+
+    private TripData readTrip(long id) throws SQLException {
+        TripData tripData = new TripData();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT " + TRIP_COLUMNS + " FROM trip WHERE id = ?")) {
+            select.setLong(1, id);
+            try (ResultSet rows = select.executeQuery()) {
+                if (!rows.next()) {
+                    throw new SQLException("Trip " + id + " no longer exists");
+                }
+                tripData.setDestination(rows.getString(2));
+                tripData.setStartDate(rows.getObject(3, LocalDate.class));
+                tripData.setEndDate(rows.getObject(4, LocalDate.class));
+                tripData.setBudget(rows.getDouble(5));
+                tripData.setBaseCurrency(rows.getString(6));
+                tripData.setVersion(rows.getLong(7));
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement("SELECT expense_date, amount, currency,"
+                + " category, description FROM expense WHERE trip_id = ? ORDER BY position")) {
+            select.setLong(1, id);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    Expense expense = new Expense(rows.getString(4), rows.getDouble(2),
+                            rows.getObject(1, LocalDate.class));
+                    expense.setCurrency(rows.getString(3));
+                    expense.setDescription(rows.getString(5));
+                    tripData.addExpense(expense);
+                }
+            }
+        }
+        return tripData;
+    }
+
+    /**
+     * Insert a trip header, as the current trip or as a history trip
+     */
+    private long insertTrip(TripData tripData, Integer currentSlot, String historyKey) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO trip (current_slot, history_key,"
+                + " destination, start_date, end_date, budget, base_currency, version, writer)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            if (currentSlot != null) {
+                insert.setInt(1, currentSlot);
+            } else {
+                insert.setNull(1, Types.INTEGER);
+            }
+            insert.setString(2, historyKey);
+            insert.setString(3, tripData.getDestination());
+            insert.setObject(4, tripData.getStartDate());
+            insert.setObject(5, tripData.getEndDate());
+            insert.setDouble(6, tripData.getBudget());
+            insert.setString(7, tripData.getBaseCurrency());
+            insert.setLong(8, tripData.getVersion());
+            insert.setLong(9, instanceId);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private void updateHeader(long id, TripData tripData, long version) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE trip SET destination = ?,"
+                + " start_date = ?, end_date = ?, budget = ?, base_currency = ?, version = ?, writer = ? WHERE id = ?")) {
+            update.setString(1, tripData.getDestination());
+            update.setObject(2, tripData.getStartDate());
+            update.setObject(3, tripData.getEndDate());
+            update.setDouble(4, tripData.getBudget());
+            update.setString(5, tripData.getBaseCurrency());
+            update.setLong(6, version);
+            update.setLong(7, instanceId);
+            update.setLong(8, id);
+            update.executeUpdate();
+        }
+    }
+
+    /**
+     * Insert expenses at consecutive positions in batches
+     *
+     * @param baseAmounts the same expenses in the trip's base currency, or null to leave base amounts unset
+     */
+    private void insertExpenses(long tripId, int firstPosition, List<Expense> expenses, List<Expense> baseAmounts)
+            throws SQLException {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_EXPENSE)) {
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense expense = expenses.get(i);
+                insert.setLong(1, tripId);
+                insert.setInt(2, firstPosition + i);
+                insert.setObject(3, expense.getDate());
+                insert.setDouble(4, expense.getAmount());
+                insert.setString(5, expense.getCurrency());
+                if (baseAmounts != null) {
+                    insert.setLong(6, Money.toCents(baseAmounts.get(i).getAmount()));
+                } else {
+                    insert.setNull(6, Types.BIGINT);
+                }
+                insert.setString(7, expense.getCategory());
+                insert.setString(8, expense.getDescription());
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+}
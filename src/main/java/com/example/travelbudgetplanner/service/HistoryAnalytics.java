@@ -0,0 +1,211 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.HistoryReport.DestinationTotal;
+import com.example.travelbudgetplanner.model.HistoryReport.TripLengthBand;
+import com.example.travelbudgetplanner.model.HistoryReport.YearCategoryTotal;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cross-trip analytics over the whole history. The mapped expense archive is split into
+ * row chunks that are summed in parallel on the fork/join pool into {@link HistoryTotals}
+ * and merged; the per-trip results are then combined with each trip's destination and dates.
+ * Other backends aggregate their own way and build the same report with {@link #assemble}.
+ */
+public class HistoryAnalytics {
+
+    // Below this many rows a single thread is faster than forking
+    private static final int PARALLEL_THRESHOLD = 100_000;
+    private static final int CHUNK_SIZE = 50_000;
+
+    // Upper bounds (inclusive) of the trip length bands; the last band is open-ended
+    private static final int[] BAND_LIMITS = {3, 7, 14, 30};
+
+    private final ForkJoinPool pool;
+
+    public HistoryAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public HistoryAnalytics(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Analyze every trip archived in the given storage
+     */
+    public HistoryReport analyze(TripDataStorageService storage) throws IOException {
+        TripDataStorageService.HistorySnapshot snapshot = storage.openHistorySnapshot();
+        return analyze(snapshot.archive(), snapshot.trips());
+    }
+
+    HistoryReport analyze(MappedExpenseColumns archive, List<TripHistoryStore.IndexEntry> trips) {
+        HistoryTotals totals = computeTotals(archive, trips.size());
+        CategoryDictionary categories = archive.getCategories();
+
+        List<TripTotal> tripTotals = new ArrayList<>(trips.size());
+        for (int tripId = 0; tripId < trips.size(); tripId++) {
+            TripHistoryStore.IndexEntry trip = trips.get(tripId);
+            tripTotals.add(new TripTotal(trip.getDestination(), trip.getStartDate(), trip.getEndDate(),
+                    totals.getTripCents(tripId), totals.getTripExpenseSpan(tripId)));
+        }
+
+        Map<Integer, Map<String, Long>> yearCategoryCents = new TreeMap<>();
+        for (Map.Entry<Integer, long[]> entry : totals.getYearCategoryCents().entrySet()) {
+            long[] cents = entry.getValue();
+            Map<String, Long> year = new HashMap<>();
+            for (int id = 0; id < categories.size(); id++) {
+                year.put(categories.nameOf(id), cents[id]);
+            }
+            yearCategoryCents.put(entry.getKey(), year);
+        }
+
+        return assemble(tripTotals, yearCategoryCents, totals.getCount(), totals.getTotalCents());
+    }
+
+    /**
+     * One archived trip and what was spent on it, as input to {@link #assemble}
+     *
+     * @param expenseSpan days from the first to the last dated expense, or 0 when none is dated
+     */
+    record TripTotal(String destination, LocalDate startDate, LocalDate endDate, long cents, int expenseSpan) {}
+
+    /**
+     * Build the report from totals however they were computed, e.g. summed from the archive
+     * or aggregated by a database
+     *
+     * @param trips             every archived trip, in archive order
+     * @param yearCategoryCents year -> category (null for none) -> cents; zero totals are left out
+     */
+    static HistoryReport assemble(List<TripTotal> trips, Map<Integer, Map<String, Long>> yearCategoryCents,
+                                  long expenseCount, long totalCents) {
+        // Destinations in order of first appearance, sorted by spending below
+        Map<String, long[]> byDestination = new LinkedHashMap<>(); // trips, cents, days
+        long[][] bands = new long[BAND_LIMITS.length + 1][3]; // trips, cents, days
+        for (TripTotal trip : trips) {
+            int days = tripLength(trip);
+
+            String destination = trip.destination() == null || trip.destination().isBlank()
+                    ? "(no destination)" : trip.destination();
+            long[] destinationTotals = byDestination.computeIfAbsent(destination, d -> new long[3]);
+            destinationTotals[0]++;
+            destinationTotals[1] += trip.cents();
+            destinationTotals[2] += days;
+
+            if (days > 0) {
+                long[] band = bands[bandOf(days)];
+                band[0]++;
+                band[1] += trip.cents();
+                band[2] += days;
+            }
+        }
+
+        List<DestinationTotal> destinations = new ArrayList<>(byDestination.size());
+        for (Map.Entry<String, long[]> entry : byDestination.entrySet()) {
+            long[] values = entry.getValue();
+            destinations.add(new DestinationTotal(entry.getKey(), (int) values[0], values[1], values[2]));
+        }
+        destinations.sort(Comparator.comparingLong(DestinationTotal::cents).reversed());
+
+        List<YearCategoryTotal> yearCategoryTotals = new ArrayList<>();
+        for (Map.Entry<Integer, Map<String, Long>> entry : new TreeMap<>(yearCategoryCents).entrySet()) {
+            List<YearCategoryTotal> year = new ArrayList<>();
+            for (Map.Entry<String, Long> category : entry.getValue().entrySet()) {
+                if (category.getValue() != 0) {
+                    year.add(new YearCategoryTotal(entry.getKey(), category.getKey(), category.getValue()));
+                }
+            }
+            year.sort(Comparator.comparing(YearCategoryTotal::category, Comparator.nullsFirst(Comparator.naturalOrder())));
+            yearCategoryTotals.addAll(year);
+        }
+
+        List<TripLengthBand> tripLengthBands = new ArrayList<>(bands.length);
+        for (int band = 0; band < bands.length; band++) {
+            int minDays = band == 0 ? 1 : BAND_LIMITS[band - 1] + 1;
+            int maxDays = band < BAND_LIMITS.length ? BAND_LIMITS[band] : Integer.MAX_VALUE;
+            String label = maxDays == Integer.MAX_VALUE ? minDays + "+ days" : minDays + "-" + maxDays + " days";
+            tripLengthBands.add(new TripLengthBand(label, minDays, maxDays,
+                    (int) bands[band][0], bands[band][1], bands[band][2]));
+        }
+
+        return new HistoryReport(trips.size(), expenseCount, totalCents,
+                destinations, yearCategoryTotals, tripLengthBands);
+    }
+
+    /**
+     * Totals over all archive rows; large archives are summed in parallel chunks and merged
+     */
+    HistoryTotals computeTotals(MappedExpenseColumns archive, int tripCount) {
+        TotalsTask task = new TotalsTask(archive, tripCount, 0, archive.size());
+        return archive.size() < PARALLEL_THRESHOLD ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * Trip length from its dates when both are set, otherwise the span of its dated expenses
+     */
+    private static int tripLength(TripTotal trip) {
+        if (trip.startDate() != null && trip.endDate() != null && !trip.endDate().isBefore(trip.startDate())) {
+            return (int) ChronoUnit.DAYS.between(trip.startDate(), trip.endDate()) + 1;
+        }
+        return trip.expenseSpan();
+    }
+
+    private static int bandOf(int days) {
+        for (int band = 0; band < BAND_LIMITS.length; band++) {
+            if (days <= BAND_LIMITS[band]) {
+                return band;
+            }
+        }
+        return BAND_LIMITS.length;
+    }
+
+    /**
+     * Sums one range of archive rows, forking halves until ranges are chunk-sized
+     */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but tasks are never serialized
+    private static class TotalsTask extends RecursiveTask<HistoryTotals> {
+        private final MappedExpenseColumns archive;
+        private final int tripCount;
+        private final int from;
+        private final int to;
+
+        TotalsTask(MappedExpenseColumns archive, int tripCount, int from, int to) {
+            this.archive = archive;
+            this.tripCount = tripCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected HistoryTotals compute() {
+            if (to - from > CHUNK_SIZE && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                TotalsTask left = new TotalsTask(archive, tripCount, from, middle);
+                left.fork();
+                HistoryTotals right = new TotalsTask(archive, tripCount, middle, to).compute();
+                HistoryTotals merged = left.join();
+                merged.merge(right);
+                return merged;
+            }
+            // Absolute reads of the mapped buffers are safe from any number of threads
+            HistoryTotals totals = new HistoryTotals(tripCount, CategoryDictionary.MAX_CATEGORIES + 1);
+            for (int row = from; row < to; row++) {
+                totals.addRow(archive.tripId(row), archive.categoryId(row), archive.cents(row), archive.epochDay(row));
+            }
+            return totals;
+        }
+    }
+}
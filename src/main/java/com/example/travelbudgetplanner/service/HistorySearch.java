@@ -0,0 +1,34 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+
+/**
+ * Expense search over the whole trip history: the mapped column archive plus the
+ * descriptions, which the archive does not store, indexed together.
+ */
+public class HistorySearch {
+
+    private final MappedExpenseColumns archive;
+    private final String[] descriptions;
+    private final ExpenseQueryIndex index;
+
+    /**
+     * @param descriptions description of each archive row, in archive order
+     */
+    HistorySearch(MappedExpenseColumns archive, String[] descriptions) {
+        this.archive = archive;
+        this.descriptions = descriptions;
+        this.index = ExpenseQueryIndex.build(archive, row -> descriptions[row]);
+    }
+
+    /**
+     * Archive rows matching the query, in archive order
+     */
+    public int[] query(ExpenseQuery query) {
+        return index.query(query);
+    }
+
+    public MappedExpenseColumns getArchive() { return archive; }
+
+    public String description(int row) { return descriptions[row]; }
+}
@@ -0,0 +1,113 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.EpochDays;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable running totals over archive rows: per trip, and per calendar year and
+ * category. Each chunk of the archive fills its own instance; chunks are merged at the end.
+ */
+final class HistoryTotals {
+
+    private static final int NO_DAY_YET_FIRST = Integer.MAX_VALUE;
+    private static final int NO_DAY_YET_LAST = Integer.MIN_VALUE;
+
+    private long totalCents;
+    private long count;
+
+    // Indexed by trip id; grown as trip ids are seen
+    private long[] tripCents = new long[0];
+    private int[] tripFirstDay = new int[0];
+    private int[] tripLastDay = new int[0];
+
+    // Year -> cents by category id
+    private final Map<Integer, long[]> yearCategoryCents = new TreeMap<>();
+    private final int categorySlots;
+
+    // Rows arrive grouped by trip, so the year rarely changes between rows
+    private int cachedYear;
+    private long[] cachedYearCents;
+
+    HistoryTotals(int tripCount, int categorySlots) {
+        this.categorySlots = categorySlots;
+        ensureTrip(tripCount - 1);
+    }
+
+    void addRow(int tripId, int categoryId, long cents, int epochDay) {
+        totalCents += cents;
+        count++;
+        ensureTrip(tripId);
+        tripCents[tripId] += cents;
+        if (epochDay == MappedExpenseColumns.NO_DATE) {
+            return;
+        }
+        tripFirstDay[tripId] = Math.min(tripFirstDay[tripId], epochDay);
+        tripLastDay[tripId] = Math.max(tripLastDay[tripId], epochDay);
+
+        int year = EpochDays.yearOf(epochDay);
+        if (cachedYearCents == null || year != cachedYear) {
+            cachedYear = year;
+            cachedYearCents = yearCategoryCents.computeIfAbsent(year, y -> new long[categorySlots]);
+        }
+        cachedYearCents[categoryId] += cents;
+    }
+
+    void merge(HistoryTotals other) {
+        totalCents += other.totalCents;
+        count += other.count;
+        ensureTrip(other.tripCents.length - 1);
+        for (int trip = 0; trip < other.tripCents.length; trip++) {
+            tripCents[trip] += other.tripCents[trip];
+            tripFirstDay[trip] = Math.min(tripFirstDay[trip], other.tripFirstDay[trip]);
+            tripLastDay[trip] = Math.max(tripLastDay[trip], other.tripLastDay[trip]);
+        }
+        for (Map.Entry<Integer, long[]> entry : other.yearCategoryCents.entrySet()) {
+            long[] target = yearCategoryCents.computeIfAbsent(entry.getKey(), y -> new long[categorySlots]);
+            long[] source = entry.getValue();
+            for (int id = 0; id < source.length; id++) {
+                target[id] += source[id];
+            }
+        }
+    }
+
+    long getTotalCents() { return totalCents; }
+
+    long getCount() { return count; }
+
+    int getTripSlots() { return tripCents.length; }
+
+    long getTripCents(int tripId) {
+        return tripId < tripCents.length ? tripCents[tripId] : 0;
+    }
+
+    /**
+     * Days from a trip's first to its last dated expense, or 0 when it has none
+     */
+    int getTripExpenseSpan(int tripId) {
+        if (tripId >= tripCents.length || tripFirstDay[tripId] == NO_DAY_YET_FIRST) {
+            return 0;
+        }
+        return tripLastDay[tripId] - tripFirstDay[tripId] + 1;
+    }
+
+    /**
+     * Cents by category id for each year with dated expenses, in year order
+     */
+    Map<Integer, long[]> getYearCategoryCents() { return yearCategoryCents; }
+
+    private void ensureTrip(int tripId) {
+        if (tripId < tripCents.length) {
+            return;
+        }
+        int oldLength = tripCents.length;
+        int newLength = Math.max(tripId + 1, oldLength * 2);
+        tripCents = Arrays.copyOf(tripCents, newLength);
+        tripFirstDay = Arrays.copyOf(tripFirstDay, newLength);
+        tripLastDay = Arrays.copyOf(tripLastDay, newLength);
+        Arrays.fill(tripFirstDay, oldLength, newLength, NO_DAY_YET_FIRST);
+        Arrays.fill(tripLastDay, oldLength, newLength, NO_DAY_YET_LAST);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.EpochDays;
+import com.example.travelbudgetplanner.model.ExpenseColumnView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of the expense column archive.
+ * All aggregations loop straight over the mapped buffers and allocate only their result arrays.
+ */
+public class MappedExpenseColumns implements ExpenseColumnView {
+
+    public static final int NO_DATE = ExpenseColumnArchive.NO_DATE;
+
+    private final int rows;
+    private final IntBuffer days;
+    private final LongBuffer cents;
+    private final ByteBuffer categoryIds;
+    private final IntBuffer tripIds;
+    private final CategoryDictionary categories;
+
+    MappedExpenseColumns(Path directory, long rowCount, CategoryDictionary categories) throws IOException {
+        if (rowCount > Integer.MAX_VALUE / Long.BYTES) {
+            throw new IOException("Expense archive too large to map: " + rowCount + " rows");
+        }
+        this.rows = (int) rowCount;
+        this.categories = categories;
+        this.days = map(directory.resolve(ExpenseColumnArchive.DAY_COLUMN), (long) rows * Integer.BYTES).asIntBuffer();
+        this.cents = map(directory.resolve(ExpenseColumnArchive.CENTS_COLUMN), (long) rows * Long.BYTES).asLongBuffer();
+        this.categoryIds = map(directory.resolve(ExpenseColumnArchive.CATEGORY_COLUMN), rows);
+        this.tripIds = map(directory.resolve(ExpenseColumnArchive.TRIP_COLUMN), (long) rows * Integer.BYTES).asIntBuffer();
+    }
+
+    private static ByteBuffer map(Path file, long size) throws IOException {
+        if (size == 0) {
+            return ByteBuffer.allocate(0).order(ExpenseColumnArchive.BYTE_ORDER);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return buffer.order(ExpenseColumnArchive.BYTE_ORDER);
+        }
+    }
+
+    // === ROW ACCESS ===
+
+    public int size() { return rows; }
+
+    /**
+     * Epoch day of a row, or {@link #NO_DATE} for an undated expense
+     */
+    public int epochDay(int row) { return days.get(row); }
+
+    public long cents(int row) { return cents.get(row); }
+
+    public int categoryId(int row) { return categoryIds.get(row) & 0xFF; }
+
+    public int tripId(int row) { return tripIds.get(row); }
+
+    public CategoryDictionary getCategories() { return categories; }
+
+    // === AGGREGATIONS ===
+
+    public long totalCents() {
+        long total = 0;
+        for (int i = 0; i < rows; i++) {
+            total += cents.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Cents per category, indexed by category id
+     */
+    public long[] centsByCategory() {
+        long[] totals = new long[categories.size()];
+        for (int i = 0; i < rows; i++) {
+            totals[categoryIds.get(i) & 0xFF] += cents.get(i);
+        }
+        return totals;
+    }
+
+    /**
+     * Cents per trip, indexed by trip id
+     */
+    public long[] centsByTrip(int tripCount) {
+        long[] totals = new long[tripCount];
+        for (int i = 0; i < rows; i++) {
+            totals[tripIds.get(i)] += cents.get(i);
+        }
+        return totals;
+    }
+
+    /**
+     * Cents per day for days in [fromEpochDay, toEpochDay], indexed by day - fromEpochDay
+     */
+    public long[] centsByDay(int fromEpochDay, int toEpochDay) {
+        long[] totals = new long[toEpochDay - fromEpochDay + 1];
+        for (int i = 0; i < rows; i++) {
+            int day = days.get(i);
+            if (day != NO_DATE && day >= fromEpochDay && day <= toEpochDay) {
+                totals[day - fromEpochDay] += cents.get(i);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Cents per calendar year and category for years in [fromYear, toYear],
+     * indexed [year - fromYear][category id]
+     */
+    public long[][] centsByYearAndCategory(int fromYear, int toYear) {
+        long[][] totals = new long[toYear - fromYear + 1][categories.size()];
+        for (int i = 0; i < rows; i++) {
+            int day = days.get(i);
+            if (day == NO_DATE) {
+                continue;
+            }
+            int year = EpochDays.yearOf(day);
+            if (year >= fromYear && year <= toYear) {
+                totals[year - fromYear][categoryIds.get(i) & 0xFF] += cents.get(i);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Cents per month for months in [fromYearMonth, toYearMonth] (see {@link EpochDays#yearMonthOf}),
+     * indexed by month - fromYearMonth
+     */
+    public long[] centsByMonth(long fromYearMonth, long toYearMonth) {
+        long[] totals = new long[(int) (toYearMonth - fromYearMonth + 1)];
+        for (int i = 0; i < rows; i++) {
+            int day = days.get(i);
+            if (day == NO_DATE) {
+                continue;
+            }
+            long month = EpochDays.yearMonthOf(day);
+            if (month >= fromYearMonth && month <= toYearMonth) {
+                totals[(int) (month - fromYearMonth)] += cents.get(i);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Smallest and largest dated epoch day, or null when no row has a date
+     */
+    public int[] dayRange() {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        boolean any = false;
+        for (int i = 0; i < rows; i++) {
+            int day = days.get(i);
+            if (day != NO_DATE) {
+                any = true;
+                if (day < min) min = day;
+                if (day > max) max = day;
+            }
+        }
+        return any ? new int[] {min, max} : null;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process counters and latency histograms per {@link TimedOperation}, the same data the
+ * Flight Recorder events carry. Recording is lock-free, so it can stay on in every build.
+ *
+ * Latencies go into power-of-two buckets of microseconds, so percentiles are upper bounds
+ * within a factor of two; the maximum is exact.
+ */
+public final class MetricsRegistry {
+
+    /**
+     * System property naming a file to dump the metrics to when the app or an import exits
+     */
+    public static final String DUMP_FILE_PROPERTY = "travelbudget.metrics.file";
+
+    // Bucket 0 holds durations under 1 µs, bucket i those from 2^(i-1) up to 2^i µs
+    static final int BUCKETS = 40;
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Metrics[] metrics = new Metrics[TimedOperation.values().length];
+
+    public MetricsRegistry() {
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new Metrics();
+        }
+    }
+
+    /**
+     * The registry the storage services, reports and aggregations record into
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public OperationTimer start(TimedOperation operation) {
+        return new OperationTimer(this, operation, null);
+    }
+
+    public OperationTimer start(TimedOperation operation, String detail) {
+        return new OperationTimer(this, operation, detail);
+    }
+
+    void record(TimedOperation operation, long nanos, long bytes, int expenses, boolean failed) {
+        Metrics m = metrics[operation.ordinal()];
+        m.count.increment();
+        if (failed) {
+            m.failures.increment();
+        }
+        m.totalNanos.add(nanos);
+        m.maxNanos.accumulate(nanos);
+        m.bytes.add(bytes);
+        m.expenses.add(expenses);
+        m.histogram.incrementAndGet(bucketOf(nanos));
+    }
+
+    /**
+     * Current figures for every operation, in declaration order
+     */
+    public List<OperationStats> snapshot() {
+        List<OperationStats> stats = new ArrayList<>(metrics.length);
+        for (TimedOperation operation : TimedOperation.values()) {
+            Metrics m = metrics[operation.ordinal()];
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = m.histogram.get(i);
+            }
+            stats.add(new OperationStats(operation, m.count.sum(), m.failures.sum(), m.totalNanos.sum(),
+                    m.maxNanos.get(), m.bytes.sum(), m.expenses.sum(), buckets));
+        }
+        return stats;
+    }
+
+    /**
+     * Start counting from zero; operations in flight are recorded afterwards
+     */
+    public void reset() {
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = new Metrics();
+        }
+    }
+
+    /**
+     * Plain-text table of the snapshot, followed by the non-empty histogram buckets
+     */
+    public String format() {
+        List<OperationStats> stats = snapshot();
+        StringBuilder out = new StringBuilder();
+        out.append("# Travel Budget Planner metrics, ").append(Instant.now()).append('\n');
+        out.append(String.format(Locale.ROOT, "%-14s %8s %6s %10s %10s %10s %10s %10s %12s %10s%n",
+                "operation", "count", "failed", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "bytes", "expenses"));
+        for (OperationStats s : stats) {
+            out.append(String.format(Locale.ROOT, "%-14s %8d %6d %10.3f %10.3f %10.3f %10.3f %10.3f %12d %10d%n",
+                    s.operation().getLabel(), s.count(), s.failures(), millis(s.meanNanos()),
+                    millis(s.percentileNanos(0.50)), millis(s.percentileNanos(0.95)),
+                    millis(s.percentileNanos(0.99)), millis(s.maxNanos()), s.bytes(), s.expenses()));
+        }
+        for (OperationStats s : stats) {
+            if (s.count() == 0) {
+                continue;
+            }
+            out.append('\n').append(s.operation().getLabel()).append(" latency\n");
+            for (int i = 0; i < BUCKETS; i++) {
+                if (s.buckets()[i] > 0) {
+                    out.append(String.format(Locale.ROOT, "  < %10.3f ms %10d%n",
+                            millis(upperBoundNanos(i)), s.buckets()[i]));
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write {@link #format()} to a file, replacing it
+     */
+    public void dump(Path file) throws IOException {
+        Files.writeString(file, format(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Dump to the file named by {@link #DUMP_FILE_PROPERTY}, if set. Failures are only reported,
+     * as this runs on the way out.
+     */
+    public void dumpIfRequested() {
+        String file = System.getProperty(DUMP_FILE_PROPERTY);
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        try {
+            dump(Path.of(file));
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    // === INTERNALS ===
+
+    static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    static long upperBoundNanos(int bucket) {
+        return (1L << bucket) * 1000;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Metrics {
+        final LongAdder count = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder bytes = new LongAdder();
+        final LongAdder expenses = new LongAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * Figures for one operation since start or the last reset
+     *
+     * @param buckets counts per latency bucket, see {@link MetricsRegistry}
+     */
+    public record OperationStats(TimedOperation operation, long count, long failures, long totalNanos,
+                                 long maxNanos, long bytes, long expenses, long[] buckets) {
+
+        public long meanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, never above the maximum
+         */
+        public long percentileNanos(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundNanos(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
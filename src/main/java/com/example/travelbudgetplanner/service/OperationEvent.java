@@ -0,0 +1,64 @@
+package com.example.travelbudgetplanner.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one timed operation, with one subclass per {@link TimedOperation}.
+ * The duration is the event's own. Bytes are 0 when the operation does not touch storage or
+ * the backend cannot tell, as with H2.
+ */
+@Category("Travel Budget Planner")
+@StackTrace(false)
+abstract class OperationEvent extends Event {
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Expenses")
+    int expenses;
+
+    @Label("Detail")
+    @Description("Which report or aggregate, or the trip destination")
+    String detail;
+
+    @Label("Failed")
+    boolean failed;
+
+    @Name("travelbudget.TripSave")
+    @Label("Trip Save")
+    static final class TripSave extends OperationEvent {}
+
+    @Name("travelbudget.TripLoad")
+    @Label("Trip Load")
+    static final class TripLoad extends OperationEvent {}
+
+    @Name("travelbudget.ExpenseWrite")
+    @Label("Expense Write")
+    @Description("Expenses added, edited or deleted in the current trip without saving all of it")
+    static final class ExpenseWrite extends OperationEvent {}
+
+    @Name("travelbudget.HistorySave")
+    @Label("History Save")
+    static final class HistorySave extends OperationEvent {}
+
+    @Name("travelbudget.HistoryLoad")
+    @Label("History Load")
+    @Description("One trip read back from the history")
+    static final class HistoryLoad extends OperationEvent {}
+
+    @Name("travelbudget.Report")
+    @Label("Report")
+    static final class Report extends OperationEvent {}
+
+    @Name("travelbudget.Aggregation")
+    @Label("Aggregation")
+    @Description("Totals recomputed over a trip's expenses")
+    static final class Aggregation extends OperationEvent {}
+}
@@ -0,0 +1,65 @@
+package com.example.travelbudgetplanner.service;
+
+/**
+ * Times one operation, for use in try-with-resources:
+ * <pre>
+ * try (OperationTimer timer = MetricsRegistry.global().start(TimedOperation.TRIP_SAVE)) {
+ *     ...
+ *     timer.completed(bytes, expenses);
+ * }
+ * </pre>
+ * An operation closed without {@link #completed} is counted as failed.
+ */
+public final class OperationTimer implements AutoCloseable {
+
+    private final MetricsRegistry registry;
+    private final TimedOperation operation;
+    private final OperationEvent event;
+    private final long start;
+    private String detail;
+    private long bytes;
+    private int expenses;
+    private boolean completed;
+
+    OperationTimer(MetricsRegistry registry, TimedOperation operation, String detail) {
+        this.registry = registry;
+        this.operation = operation;
+        this.detail = detail;
+        this.event = operation.newEvent();
+        event.begin();
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Mark the operation as successful
+     *
+     * @param bytes    bytes read or written, 0 when not known
+     * @param expenses expenses the operation went through
+     */
+    public void completed(long bytes, int expenses) {
+        this.bytes = bytes;
+        this.expenses = expenses;
+        this.completed = true;
+    }
+
+    /**
+     * Replace the detail given at the start, e.g. once the trip is known
+     */
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public void close() {
+        long nanos = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = bytes;
+            event.expenses = expenses;
+            event.detail = detail;
+            event.failed = !completed;
+            event.commit();
+        }
+        registry.record(operation, nanos, bytes, expenses, !completed);
+    }
+}
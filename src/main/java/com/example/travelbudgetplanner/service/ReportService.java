@@ -0,0 +1,180 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.model.TripReport;
+import com.example.travelbudgetplanner.model.TripReport.BudgetLine;
+import com.example.travelbudgetplanner.model.TripReport.CategoryTotal;
+import com.example.travelbudgetplanner.model.TripReport.DailyTotal;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes trip reports without any UI. A report is built from {@link ExpenseTotals} in
+ * O(categories + days); the totals come either from a single pass over the trip's expenses
+ * (split across the fork/join pool for large trips) or from totals kept up to date by the caller.
+ */
+public class ReportService {
+
+    /**
+     * Categories offered in the UI; the budget comparison splits the budget evenly across them
+     */
+    public static final List<String> STANDARD_CATEGORIES =
+            List.of("Transport", "Food", "Lodging", "Activities", "Other");
+
+    // Below this many expenses a single thread is faster than forking
+    private static final int PARALLEL_THRESHOLD = 100_000;
+    private static final int CHUNK_SIZE = 50_000;
+
+    private final ForkJoinPool pool;
+
+    public ReportService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ReportService(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Build a full report for a trip in one pass over its expenses
+     */
+    public TripReport buildReport(TripData trip) {
+        return buildReport(trip, computeTotals(trip));
+    }
+
+    /**
+     * Build a full report in the trip's base currency, converting other currencies
+     */
+    public TripReport buildReport(TripData trip, ExchangeRates rates) {
+        return buildReport(trip, computeTotals(trip, rates));
+    }
+
+    /**
+     * Build a report from totals that are already known, e.g. live aggregates
+     */
+    public TripReport buildReport(TripData trip, ExpenseTotals totals) {
+        CategoryDictionary categories = totals.getCategories();
+
+        List<CategoryTotal> categoryTotals = new ArrayList<>();
+        for (int id = 0; id < categories.size(); id++) {
+            if (totals.getCategoryCount(id) > 0) {
+                long cents = totals.getCategoryCents(id);
+                double percentage = totals.getTotalCents() == 0 ? 0 : cents * 100.0 / totals.getTotalCents();
+                categoryTotals.add(new CategoryTotal(categories.nameOf(id), cents, percentage));
+            }
+        }
+
+        List<DailyTotal> dailyTotals = new ArrayList<>(totals.getDistinctDays());
+        totals.forEachDay((day, cents, count) -> {
+            if (count > 0) {
+                dailyTotals.add(new DailyTotal(LocalDate.ofEpochDay(day), cents));
+            }
+        });
+
+        long budgetCents = Money.toCents(trip.getBudget());
+        long budgetPerCategory = budgetCents / STANDARD_CATEGORIES.size();
+        List<BudgetLine> budgetLines = new ArrayList<>(STANDARD_CATEGORIES.size());
+        for (String category : STANDARD_CATEGORIES) {
+            budgetLines.add(new BudgetLine(category, budgetPerCategory, totals.getCategoryCents(category)));
+        }
+
+        return new TripReport(trip.getDestination(), budgetCents, totals.getTotalCents(), totals.getCount(),
+                totals.getDistinctDays(), totals.getTopCategory(), categoryTotals, dailyTotals, budgetLines);
+    }
+
+    /**
+     * Totals over all expenses of a trip; large trips are summed in parallel chunks and merged
+     */
+    public ExpenseTotals computeTotals(TripData trip) {
+        try (OperationTimer timer = MetricsRegistry.global().start(TimedOperation.AGGREGATION, "trip totals")) {
+            ExpenseTotals totals = sum(trip);
+            timer.completed(0, totals.getCount());
+            return totals;
+        }
+    }
+
+    /**
+     * Totals in the trip's base currency. Expenses in other currencies are summed per currency
+     * first, then converted once per currency, category and day.
+     */
+    public ExpenseTotals computeTotals(TripData trip, ExchangeRates rates) {
+        try (OperationTimer timer = MetricsRegistry.global().start(TimedOperation.AGGREGATION, "trip totals")) {
+            ColumnarTripData columnar = ColumnarTripData.of(trip);
+            ExpenseTotals totals;
+            if (columnar.columns().hasCurrencies()) {
+                totals = new ExpenseTotals(columnar.columns().getCategories());
+                CurrencyTotals.of(columnar.columns()).convertInto(rates.converterTo(trip.getBaseCurrency()), totals, null);
+            } else {
+                totals = sum(columnar);
+            }
+            timer.completed(0, columnar.columns().size());
+            return totals;
+        }
+    }
+
+    private ExpenseTotals sum(TripData trip) {
+        int size = trip.getExpenses().size();
+        TotalsTask task = new TotalsTask(trip, 0, size);
+        return size < PARALLEL_THRESHOLD ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * Sums one range of expenses, forking halves until ranges are chunk-sized
+     */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but tasks are never serialized
+    private static class TotalsTask extends RecursiveTask<ExpenseTotals> {
+        private final TripData trip;
+        private final int from;
+        private final int to;
+
+        TotalsTask(TripData trip, int from, int to) {
+            this.trip = trip;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ExpenseTotals compute() {
+            if (to - from > CHUNK_SIZE && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                TotalsTask left = new TotalsTask(trip, from, middle);
+                left.fork();
+                ExpenseTotals right = new TotalsTask(trip, middle, to).compute();
+                ExpenseTotals merged = left.join();
+                merged.merge(right);
+                return merged;
+            }
+            return sumRange();
+        }
+
+        private ExpenseTotals sumRange() {
+            if (trip instanceof ColumnarTripData columnar) {
+                // Share the trip's dictionary so partials merge by id
+                ExpenseColumns columns = columnar.columns();
+                ExpenseTotals totals = new ExpenseTotals(columns.getCategories());
+                for (int i = from; i < to; i++) {
+                    totals.addById(columns.categoryId(i), columns.cents(i), columns.epochDay(i));
+                }
+                return totals;
+            }
+
+            ExpenseTotals totals = new ExpenseTotals();
+            List<Expense> expenses = trip.getExpenses();
+            for (int i = from; i < to; i++) {
+                Expense expense = expenses.get(i);
+                int day = expense.getDate() != null ? (int) expense.getDate().toEpochDay() : ExpenseColumns.NO_DATE;
+                totals.add(expense.getCategory(), Money.toCents(expense.getAmount()), day);
+            }
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Spending by epoch day in Fenwick trees: one lane for all expenses and one per category.
+ * Adding or removing an expense and asking for the sum over any date range are O(log days);
+ * a cumulative series over k days is O(k + log days). Undated expenses are not indexed.
+ * The dense window spans at most {@link ExpenseTotals#MAX_DENSE_DAYS}; the few days beyond it,
+ * such as a mistyped year, are kept sorted per lane and folded into every sum.
+ *
+ * The same index is stored next to each trip in the history, see {@link #writeTo}.
+ */
+public class SpendingTimeIndex {
+
+    private static final int MAGIC = 0x54425449; // "TBTI"
+    private static final int FORMAT_VERSION = 2; // 2 adds outlier days
+
+    private final CategoryDictionary categories;
+
+    // All lanes cover the days baseDay .. baseDay + capacity - 1
+    private int baseDay;
+    private int capacity;
+    private Lane total;
+    private final Lane[] categoryLanes = new Lane[CategoryDictionary.MAX_CATEGORIES + 1];
+
+    public SpendingTimeIndex() {
+        this(new CategoryDictionary());
+    }
+
+    /**
+     * Index over expenses whose category ids come from the given dictionary
+     */
+    public SpendingTimeIndex(CategoryDictionary categories) {
+        this.categories = categories;
+    }
+
+    /**
+     * Index of all dated expenses of a trip
+     */
+    public static SpendingTimeIndex of(TripData trip) {
+        if (trip instanceof ColumnarTripData columnar) {
+            ExpenseColumns columns = columnar.columns();
+            SpendingTimeIndex index = new SpendingTimeIndex(columns.getCategories());
+            for (int i = 0; i < columns.size(); i++) {
+                index.addById(columns.categoryId(i), columns.cents(i), columns.epochDay(i));
+            }
+            return index;
+        }
+        SpendingTimeIndex index = new SpendingTimeIndex();
+        for (Expense expense : trip.getExpenses()) {
+            if (expense.getDate() != null) {
+                index.add(expense.getCategory(), Money.toCents(expense.getAmount()),
+                        (int) expense.getDate().toEpochDay());
+            }
+        }
+        return index;
+    }
+
+    // === UPDATES ===
+
+    public void add(String category, long cents, int epochDay) {
+        addById(categories.intern(category), cents, epochDay);
+    }
+
+    public void remove(String category, long cents, int epochDay) {
+        addById(categories.intern(category), -cents, epochDay);
+    }
+
+    /**
+     * Add cents (negative to remove) by category id of this index's dictionary
+     */
+    public void addById(int categoryId, long cents, int epochDay) {
+        if (epochDay == ExpenseColumns.NO_DATE || cents == 0) {
+            return;
+        }
+        int offset = ensureDay(epochDay);
+        if (categoryLanes[categoryId] == null) {
+            categoryLanes[categoryId] = new Lane(capacity);
+        }
+        if (offset >= 0) {
+            total.add(offset, cents);
+            categoryLanes[categoryId].add(offset, cents);
+        } else {
+            total.addOutlier(epochDay, cents);
+            categoryLanes[categoryId].addOutlier(epochDay, cents);
+        }
+    }
+
+    // === QUERIES ===
+
+    public CategoryDictionary getCategories() { return categories; }
+
+    /**
+     * Cents spent from fromDay to toDay, both inclusive
+     */
+    public long rangeCents(int fromDay, int toDay) {
+        return rangeCents(total, fromDay, toDay);
+    }
+
+    /**
+     * Cents spent in one category from fromDay to toDay, both inclusive
+     */
+    public long rangeCents(String category, int fromDay, int toDay) {
+        int id = categories.idOf(category);
+        return id < 0 ? 0 : rangeCents(categoryLanes[id], fromDay, toDay);
+    }
+
+    /**
+     * Cents spent up to and including the given day
+     */
+    public long cumulativeCents(int epochDay) {
+        return prefix(total, epochDay);
+    }
+
+    /**
+     * Running total for each day from fromDay to toDay inclusive; element 0 is fromDay
+     */
+    public long[] cumulativeSeries(int fromDay, int toDay) {
+        long[] series = new long[Math.max(0, toDay - fromDay + 1)];
+        if (series.length == 0) {
+            return series;
+        }
+        if (total != null) {
+            int from = Math.max(fromDay, baseDay);
+            int to = (int) Math.min(toDay, (long) baseDay + capacity - 1);
+            for (int day = from; day <= to; day++) {
+                series[day - fromDay] = total.values[day - baseDay];
+            }
+            for (Map.Entry<Integer, Long> day : total.outliers.subMap(fromDay, true, toDay, true).entrySet()) {
+                series[day.getKey() - fromDay] += day.getValue();
+            }
+        }
+        long running = prefix(total, fromDay - 1);
+        for (int i = 0; i < series.length; i++) {
+            running += series[i];
+            series[i] = running;
+        }
+        return series;
+    }
+
+    /**
+     * Budget left at the end of each day from fromDay to toDay inclusive
+     */
+    public long[] burnDown(long budgetCents, int fromDay, int toDay) {
+        long[] series = cumulativeSeries(fromDay, toDay);
+        for (int i = 0; i < series.length; i++) {
+            series[i] = budgetCents - series[i];
+        }
+        return series;
+    }
+
+    /**
+     * First day with any spending, or {@link ExpenseColumns#NO_DATE}
+     */
+    public int getFirstDay() {
+        if (total == null) {
+            return ExpenseColumns.NO_DATE;
+        }
+        // Outlier days never fall inside the window, so one below it comes first
+        Integer outlier = total.outliers.isEmpty() ? null : total.outliers.firstKey();
+        if (outlier != null && outlier < baseDay) {
+            return outlier;
+        }
+        for (int offset = 0; offset < capacity; offset++) {
+            if (total.values[offset] != 0) {
+                return baseDay + offset;
+            }
+        }
+        return outlier != null ? outlier : ExpenseColumns.NO_DATE;
+    }
+
+    /**
+     * Last day with any spending, or {@link ExpenseColumns#NO_DATE}
+     */
+    public int getLastDay() {
+        if (total == null) {
+            return ExpenseColumns.NO_DATE;
+        }
+        Integer outlier = total.outliers.isEmpty() ? null : total.outliers.lastKey();
+        if (outlier != null && outlier >= baseDay) {
+            return outlier;
+        }
+        for (int offset = capacity - 1; offset >= 0; offset--) {
+            if (total.values[offset] != 0) {
+                return baseDay + offset;
+            }
+        }
+        return outlier != null ? outlier : ExpenseColumns.NO_DATE;
+    }
+
+    // Days covered by the dense window, for tests
+    int denseDays() { return capacity; }
+
+    // === PERSISTENCE ===
+
+    /**
+     * Write the per-day values and outlier days of every lane; trees are rebuilt in O(days) on read
+     */
+    public void writeTo(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        out.writeInt(categories.size() - 1);
+        for (int id = 1; id < categories.size(); id++) {
+            out.writeUTF(categories.nameOf(id));
+        }
+
+        out.writeInt(baseDay);
+        out.writeInt(capacity);
+        int lanes = 0;
+        for (Lane lane : categoryLanes) {
+            lanes += lane != null ? 1 : 0;
+        }
+        out.writeInt(lanes);
+        for (int id = 0; id < categoryLanes.length; id++) {
+            Lane lane = categoryLanes[id];
+            if (lane == null) {
+                continue;
+            }
+            int nonZero = 0;
+            for (int offset = 0; offset < capacity; offset++) {
+                nonZero += lane.values[offset] != 0 ? 1 : 0;
+            }
+            out.writeByte(id);
+            out.writeInt(nonZero);
+            for (int offset = 0; offset < capacity; offset++) {
+                if (lane.values[offset] != 0) {
+                    out.writeInt(offset);
+                    out.writeLong(lane.values[offset]);
+                }
+            }
+            out.writeInt(lane.outliers.size());
+            for (Map.Entry<Integer, Long> day : lane.outliers.entrySet()) {
+                out.writeInt(day.getKey());
+                out.writeLong(day.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    public static SpendingTimeIndex readFrom(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a spending time index");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported spending time index version " + formatVersion);
+        }
+
+        CategoryDictionary categories = new CategoryDictionary();
+        int categoryCount = in.readInt();
+        for (int i = 0; i < categoryCount; i++) {
+            categories.intern(in.readUTF());
+        }
+
+        SpendingTimeIndex index = new SpendingTimeIndex(categories);
+        index.baseDay = in.readInt();
+        index.capacity = in.readInt();
+        if (index.capacity < 0 || index.capacity > ExpenseTotals.MAX_DENSE_DAYS
+                || categoryCount > CategoryDictionary.MAX_CATEGORIES) {
+            throw new IOException("Corrupt spending time index");
+        }
+        index.total = new Lane(index.capacity);
+
+        int lanes = in.readInt();
+        for (int i = 0; i < lanes; i++) {
+            int id = in.readUnsignedByte();
+            if (id > categoryCount) {
+                throw new IOException("Invalid category id " + id + " in spending time index");
+            }
+            Lane lane = new Lane(index.capacity);
+            int nonZero = in.readInt();
+            for (int j = 0; j < nonZero; j++) {
+                int offset = in.readInt();
+                if (offset < 0 || offset >= index.capacity) {
+                    throw new IOException("Day offset " + offset + " out of range in spending time index");
+                }
+                long cents = in.readLong();
+                lane.values[offset] += cents;
+                index.total.values[offset] += cents;
+            }
+            int outliers = in.readInt();
+            for (int j = 0; j < outliers; j++) {
+                int day = in.readInt();
+                if (day >= index.baseDay && day - index.baseDay < index.capacity) {
+                    throw new IOException("Outlier day " + day + " inside the window of spending time index");
+                }
+                long cents = in.readLong();
+                lane.addOutlier(day, cents);
+                index.total.addOutlier(day, cents);
+            }
+            lane.rebuild();
+            index.categoryLanes[id] = lane;
+        }
+        index.total.rebuild();
+        return index;
+    }
+
+    // === INTERNALS ===
+
+    private long rangeCents(Lane lane, int fromDay, int toDay) {
+        if (toDay < fromDay) {
+            return 0;
+        }
+        return prefix(lane, toDay) - prefix(lane, fromDay - 1);
+    }
+
+    // Sum over all days up to and including epochDay
+    private long prefix(Lane lane, int epochDay) {
+        if (lane == null) {
+            return 0;
+        }
+        long sum = lane.outlierPrefix(epochDay);
+        if (epochDay >= baseDay && capacity > 0) {
+            sum += lane.prefix(Math.min((long) epochDay - baseDay, capacity - 1));
+        }
+        return sum;
+    }
+
+    /**
+     * Grow the window of every lane to include the given day and return its offset, or -1 if
+     * the window would then span more than {@link ExpenseTotals#MAX_DENSE_DAYS}. Capacity
+     * doubles, so the O(days) rebuilds are amortized. The window only ever extends, so a day
+     * once left outside it stays an outlier.
+     */
+    private int ensureDay(int epochDay) {
+        if (total == null) {
+            baseDay = epochDay;
+            capacity = 32;
+            total = new Lane(capacity);
+            return 0;
+        }
+
+        long offset = (long) epochDay - baseDay;
+        if (offset >= 0 && offset < capacity) {
+            return (int) offset;
+        }
+
+        if (capacity == 0) {
+            // Read from an index without dated spending; keep any outliers it has
+            baseDay = epochDay;
+        }
+        int newBase = Math.min(baseDay, epochDay);
+        long needed = (long) Math.max(baseDay + capacity, epochDay + 1) - newBase;
+        if (needed > ExpenseTotals.MAX_DENSE_DAYS) {
+            return -1;
+        }
+        int newCapacity = Math.min(Math.max((int) needed, Math.max(capacity * 2, 32)),
+                ExpenseTotals.MAX_DENSE_DAYS);
+        // Leave room on the side we are growing towards
+        if (epochDay < baseDay) {
+            newBase = baseDay + capacity - newCapacity;
+        }
+
+        int shift = baseDay - newBase;
+        total = total.regrow(shift, newCapacity, newBase);
+        for (int id = 0; id < categoryLanes.length; id++) {
+            if (categoryLanes[id] != null) {
+                categoryLanes[id] = categoryLanes[id].regrow(shift, newCapacity, newBase);
+            }
+        }
+        baseDay = newBase;
+        capacity = newCapacity;
+        return epochDay - baseDay;
+    }
+
+    /**
+     * Per-day values plus their Fenwick tree (1-based), and the days outside the window
+     */
+    private static final class Lane {
+        final long[] values;
+        final long[] tree;
+        final TreeMap<Integer, Long> outliers = new TreeMap<>(); // Non-zero cents by epoch day
+
+        Lane(int capacity) {
+            this.values = new long[capacity];
+            this.tree = new long[capacity + 1];
+        }
+
+        void add(int offset, long cents) {
+            values[offset] += cents;
+            for (int i = offset + 1; i < tree.length; i += i & -i) {
+                tree[i] += cents;
+            }
+        }
+
+        void addOutlier(int epochDay, long cents) {
+            if (outliers.merge(epochDay, cents, Long::sum) == 0) {
+                outliers.remove(epochDay);
+            }
+        }
+
+        // Sum of the outlier days up to and including epochDay; there are only ever a few
+        long outlierPrefix(int epochDay) {
+            long sum = 0;
+            for (long cents : outliers.headMap(epochDay, true).values()) {
+                sum += cents;
+            }
+            return sum;
+        }
+
+        // Sum of values[0..offset]
+        long prefix(long offset) {
+            long sum = 0;
+            for (int i = (int) offset + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        // Linear-time construction from values
+        void rebuild() {
+            Arrays.fill(tree, 0);
+            for (int i = 1; i < tree.length; i++) {
+                tree[i] += values[i - 1];
+                int parent = i + (i & -i);
+                if (parent < tree.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        Lane regrow(int shift, int newCapacity, int newBase) {
+            Lane grown = new Lane(newCapacity);
+            System.arraycopy(values, 0, grown.values, shift, values.length);
+            grown.outliers.putAll(outliers);
+            // Only an index read without a window can have outliers the new one covers
+            Map<Integer, Long> covered = grown.outliers.subMap(newBase, true, newBase + newCapacity - 1, true);
+            for (Map.Entry<Integer, Long> day : covered.entrySet()) {
+                grown.values[day.getKey() - newBase] += day.getValue();
+            }
+            covered.clear();
+            grown.rebuild();
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripReport.DailyTotal;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rolls daily totals up into day, week or month buckets for charting. Each bucket keeps
+ * the range of days it covers, so drilling down is a sublist rather than a recomputation.
+ */
+public class SpendingTimeline {
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    /**
+     * One bar: the days from fromIndex (inclusive) to toIndex (exclusive) of the timeline
+     */
+    public record Bucket(String label, LocalDate start, LocalDate end, long cents, int fromIndex, int toIndex) {
+        public double amount() { return Money.fromCents(cents); }
+
+        public boolean isSingleDay() { return start.equals(end); }
+    }
+
+    public static final String NODE_BUDGET_PROPERTY = "travelbudget.chart.maxBars";
+    public static final int DEFAULT_NODE_BUDGET = 60;
+
+    private final List<DailyTotal> days;
+
+    /**
+     * @param days daily totals in date order, as in {@link com.example.travelbudgetplanner.model.TripReport}
+     */
+    public SpendingTimeline(List<DailyTotal> days) {
+        this.days = List.copyOf(days);
+    }
+
+    /**
+     * Most bars a chart should show, from the travelbudget.chart.maxBars system property
+     */
+    public static int nodeBudgetFromSystemProperty() {
+        return Math.max(1, Integer.getInteger(NODE_BUDGET_PROPERTY, DEFAULT_NODE_BUDGET));
+    }
+
+    public List<DailyTotal> getDays() { return days; }
+
+    /**
+     * Days covered by a bucket of this timeline
+     */
+    public List<DailyTotal> daysIn(Bucket bucket) {
+        return days.subList(bucket.fromIndex(), bucket.toIndex());
+    }
+
+    /**
+     * Timeline over just the days of one bucket, for drilling down
+     */
+    public SpendingTimeline drillDown(Bucket bucket) {
+        return new SpendingTimeline(daysIn(bucket));
+    }
+
+    /**
+     * Finest granularity that fits the budget; when even months do not fit, consecutive
+     * months are merged so the result never exceeds the budget
+     */
+    public List<Bucket> buckets(int nodeBudget) {
+        for (Granularity granularity : Granularity.values()) {
+            if (countBuckets(granularity) <= nodeBudget) {
+                return buckets(granularity);
+            }
+        }
+        YearMonth first = YearMonth.from(days.get(0).date());
+        YearMonth last = YearMonth.from(days.get(days.size() - 1).date());
+        long months = first.until(last, ChronoUnit.MONTHS) + 1;
+        int monthsPerBucket = (int) ((months + nodeBudget - 1) / nodeBudget);
+        return group(date -> first.until(YearMonth.from(date), ChronoUnit.MONTHS) / monthsPerBucket,
+                (start, end) -> monthsPerBucket == 1 ? YearMonth.from(start).toString()
+                        : YearMonth.from(start) + " to " + YearMonth.from(end));
+    }
+
+    public List<Bucket> buckets(Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> group(LocalDate::toEpochDay, (start, end) -> start.toString());
+            case WEEK -> group(SpendingTimeline::weekOf, (start, end) -> "Week of " + weekStart(start));
+            case MONTH -> group(date -> date.getYear() * 12L + date.getMonthValue(),
+                    (start, end) -> YearMonth.from(start).toString());
+        };
+    }
+
+    /**
+     * Granularity that {@link #buckets(int)} starts from for the given budget
+     */
+    public Granularity granularityFor(int nodeBudget) {
+        for (Granularity granularity : Granularity.values()) {
+            if (countBuckets(granularity) <= nodeBudget) {
+                return granularity;
+            }
+        }
+        return Granularity.MONTH;
+    }
+
+    // === INTERNALS ===
+
+    private interface KeyFunction {
+        long keyOf(LocalDate date);
+    }
+
+    private interface LabelFunction {
+        String labelOf(LocalDate start, LocalDate end);
+    }
+
+    private int countBuckets(Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> days.size();
+            case WEEK -> countKeys(SpendingTimeline::weekOf);
+            case MONTH -> countKeys(date -> date.getYear() * 12L + date.getMonthValue());
+        };
+    }
+
+    private int countKeys(KeyFunction key) {
+        int count = 0;
+        long previous = Long.MIN_VALUE;
+        for (DailyTotal day : days) {
+            long current = key.keyOf(day.date());
+            if (count == 0 || current != previous) {
+                count++;
+                previous = current;
+            }
+        }
+        return count;
+    }
+
+    // Days are in date order, so each bucket is one run of equal keys
+    private List<Bucket> group(KeyFunction key, LabelFunction label) {
+        List<Bucket> buckets = new ArrayList<>();
+        int from = 0;
+        while (from < days.size()) {
+            long current = key.keyOf(days.get(from).date());
+            long cents = 0;
+            int to = from;
+            while (to < days.size() && key.keyOf(days.get(to).date()) == current) {
+                cents += days.get(to).cents();
+                to++;
+            }
+            LocalDate start = days.get(from).date();
+            LocalDate end = days.get(to - 1).date();
+            buckets.add(new Bucket(label.labelOf(start, end), start, end, cents, from, to));
+            from = to;
+        }
+        return buckets;
+    }
+
+    // Monday-based week number; epoch day 0 was a Thursday
+    private static long weekOf(LocalDate date) {
+        return Math.floorDiv(date.toEpochDay() + 3, 7);
+    }
+
+    private static LocalDate weekStart(LocalDate date) {
+        return date.minusDays(date.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Implementations of {@link TripRepository}, selected with the travelbudget.storage.backend
+ * system property:
+ * <ul>
+ *   <li>FILES: trip files plus a journal, history segments and a columnar archive (the default)</li>
+ *   <li>H2: an embedded H2 database with indexed trip and expense tables</li>
+ * </ul>
+ */
+public enum StorageBackend {
+    FILES,
+    H2;
+
+    private static final String BACKEND_PROPERTY = "travelbudget.storage.backend";
+    private static final String DATA_DIRECTORY = "TravelBudgetData";
+
+    /**
+     * Backend from the travelbudget.storage.backend system property (default FILES)
+     */
+    public static StorageBackend fromSystemProperty() {
+        String value = System.getProperty(BACKEND_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return FILES;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown storage backend '" + value + "', using FILES");
+            return FILES;
+        }
+    }
+
+    /**
+     * Default data directory, in the user's home directory
+     */
+    public static Path defaultDataDirectory() {
+        return Paths.get(System.getProperty("user.home"), DATA_DIRECTORY);
+    }
+
+    /**
+     * Open the store in the default data directory; file-based trips use travelbudget.storage.format
+     */
+    public TripRepository open() throws IOException {
+        return open(defaultDataDirectory(), StorageFormat.fromSystemProperty());
+    }
+
+    /**
+     * Open the store in a data directory. The format applies to FILES only.
+     */
+    public TripRepository open(Path dataDirectory, StorageFormat format) throws IOException {
+        return switch (this) {
+            case FILES -> new TripDataStorageService(dataDirectory, format);
+            case H2 -> new H2TripRepository(dataDirectory);
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * On-disk encodings for trip files. Readers detect the encoding from the first bytes,
+ * so files written in either format can always be loaded.
+ */
+public enum StorageFormat {
+    JSON,
+    BINARY;
+
+    private static final String FORMAT_PROPERTY = "travelbudget.storage.format";
+
+    /**
+     * Format for new files, from the travelbudget.storage.format system property (default JSON)
+     */
+    public static StorageFormat fromSystemProperty() {
+        String value = System.getProperty(FORMAT_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return JSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown storage format '" + value + "', using JSON");
+            return JSON;
+        }
+    }
+
+    /**
+     * Sniff the format of a stream that supports mark/reset, leaving it at its start
+     */
+    static StorageFormat detect(InputStream in) throws IOException {
+        in.mark(TripBinaryCodec.MAGIC.length);
+        byte[] head = in.readNBytes(TripBinaryCodec.MAGIC.length);
+        in.reset();
+        return TripBinaryCodec.hasMagic(head) ? BINARY : JSON;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks shared by every app instance using the same data directory. Each lock is an
+ * exclusive {@link FileLock} on a small file in the locks directory, paired with an
+ * in-process lock because file locks are held per process, not per thread. The in-process
+ * part is shared by all StorageLocks of the JVM, so two services on one directory also
+ * exclude each other.
+ *
+ * Trips are spread over a fixed set of stripes by their history key, so instances working
+ * on different trips rarely wait for each other. A lock file can also hold a stamp, e.g.
+ * the version of the data it guards, read and written while the lock is held.
+ */
+class StorageLocks {
+
+    private static final String STRIPE_PREFIX = "trip-";
+    private static final String LOCK_SUFFIX = ".lock";
+    static final int DEFAULT_STRIPES = 16;
+
+    // Lock file path -> lock, for the whole JVM
+    private static final Map<Path, LockFile> FILES = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final int stripes;
+
+    StorageLocks(Path directory, int stripes) throws IOException {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory.toRealPath();
+        this.stripes = stripes;
+    }
+
+    /**
+     * Lock the stripe of one trip, identified by its history key
+     */
+    Held lockTrip(String tripKey) throws IOException {
+        return lock(STRIPE_PREFIX + Math.floorMod(tripKey.hashCode(), stripes));
+    }
+
+    /**
+     * Lock a named resource, e.g. a file every instance appends to
+     */
+    Held lock(String name) throws IOException {
+        LockFile file = FILES.computeIfAbsent(directory.resolve(name + LOCK_SUFFIX), LockFile::new);
+        file.threads.lock();
+        try {
+            // Reentrant in this thread; the process already holds the file lock
+            if (file.threads.getHoldCount() == 1) {
+                file.fileLock = file.channel().lock();
+            }
+            return new Held(file);
+        } catch (IOException | RuntimeException e) {
+            file.threads.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Who last wrote the data guarded by a lock: a version and the writing instance's id
+     */
+    record Stamp(long version, long writer) {
+        static final Stamp NONE = new Stamp(0, 0);
+    }
+
+    /**
+     * A held lock; close to release it
+     */
+    final class Held implements AutoCloseable {
+        private final LockFile file;
+        private boolean released;
+
+        private Held(LockFile file) {
+            this.file = file;
+        }
+
+        /**
+         * The stamp in the lock file, or {@link Stamp#NONE} if none was written yet
+         */
+        Stamp readStamp() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+            FileChannel channel = file.channel();
+            int read;
+            do {
+                read = channel.read(buffer, buffer.position());
+            } while (read > 0 && buffer.hasRemaining());
+            if (buffer.hasRemaining()) {
+                return Stamp.NONE;
+            }
+            buffer.flip();
+            return new Stamp(buffer.getLong(), buffer.getLong());
+        }
+
+        /**
+         * Replace the stamp. Not forced to disk: after a crash the stamp may lag, which only
+         * makes the next write look like a conflict.
+         */
+        void writeStamp(Stamp stamp) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+            buffer.putLong(stamp.version()).putLong(stamp.writer()).flip();
+            FileChannel channel = file.channel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                if (file.threads.getHoldCount() == 1 && file.fileLock != null) {
+                    file.fileLock.release();
+                    file.fileLock = null;
+                }
+            } finally {
+                file.threads.unlock();
+            }
+        }
+    }
+
+    /**
+     * One lock file, kept open for the life of the JVM
+     */
+    private static final class LockFile {
+        final ReentrantLock threads = new ReentrantLock();
+        final Path path;
+        FileChannel channel; // Guarded by threads
+        FileLock fileLock;
+
+        LockFile(Path path) {
+            this.path = path;
+        }
+
+        FileChannel channel() throws IOException {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+    }
+}
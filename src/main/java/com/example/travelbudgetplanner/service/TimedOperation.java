@@ -0,0 +1,30 @@
+package com.example.travelbudgetplanner.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Operations measured by the {@link MetricsRegistry} and recorded as Flight Recorder events
+ */
+public enum TimedOperation {
+    TRIP_SAVE("Trip save", OperationEvent.TripSave::new),
+    TRIP_LOAD("Trip load", OperationEvent.TripLoad::new),
+    EXPENSE_WRITE("Expense write", OperationEvent.ExpenseWrite::new),
+    HISTORY_SAVE("History save", OperationEvent.HistorySave::new),
+    HISTORY_LOAD("History load", OperationEvent.HistoryLoad::new),
+    REPORT("Report", OperationEvent.Report::new),
+    AGGREGATION("Aggregation", OperationEvent.Aggregation::new);
+
+    private final String label;
+    private final Supplier<OperationEvent> events;
+
+    TimedOperation(String label, Supplier<OperationEvent> events) {
+        this.label = label;
+        this.events = events;
+    }
+
+    public String getLabel() { return label; }
+
+    OperationEvent newEvent() {
+        return events.get();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads a JSON array of trips (the legacy trips.json layout) one trip at a time
+ * from the Jackson token stream, so memory use does not grow with the file.
+ */
+class TripArrayReader implements Closeable {
+
+    private final Path file;
+    private final JsonParser parser;
+    private final ObjectReader tripReader;
+    private int recordIndex;
+    private boolean finished;
+
+    TripArrayReader(Path file, ObjectMapper objectMapper) throws IOException {
+        this.file = file;
+        this.parser = objectMapper.createParser(file.toFile());
+        this.tripReader = objectMapper.readerFor(TripData.class);
+
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of trips in " + file);
+            }
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next trip, or null once the array is exhausted
+     */
+    TripData next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) {
+                finished = true;
+                return null;
+            }
+            TripData trip = tripReader.readValue(parser);
+            recordIndex++;
+            return trip;
+        } catch (IOException e) {
+            finished = true;
+            throw new TripRecordParseException(file, recordIndex, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import com.example.travelbudgetplanner.model.Money;
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a trip.
+ *
+ * Layout: magic, format version, trip header, category and currency dictionaries, then one
+ * record per expense. Dates are epoch days (expense dates delta-coded against the previous one),
+ * amounts are cents, categories and currencies are dictionary codes, and all integers are varints.
+ * Version 1 files, written before currencies, are still read.
+ */
+final class TripBinaryCodec {
+
+    static final byte[] MAGIC = {'T', 'B', 'P', 'B'};
+    private static final int FORMAT_VERSION = 2;
+    private static final int FORMAT_VERSION_WITHOUT_CURRENCIES = 1;
+
+    // Per-expense presence flags
+    private static final int HAS_DATE = 1;
+    private static final int HAS_DESCRIPTION = 2;
+    private static final int HAS_CURRENCY = 4;
+
+    private TripBinaryCodec() {}
+
+    static boolean hasMagic(byte[] head) {
+        if (head.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void write(TripData trip, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.write(MAGIC);
+        writeVarLong(out, FORMAT_VERSION);
+
+        writeVarLong(out, trip.getVersion());
+        writeNullableString(out, trip.getDestination());
+        writeNullableDate(out, trip.getStartDate());
+        writeNullableDate(out, trip.getEndDate());
+        writeSignedVarLong(out, Money.toCents(trip.getBudget()));
+        writeNullableString(out, trip.getBaseCurrency());
+
+        // Columnar trips are encoded straight from their arrays
+        if (trip instanceof ColumnarTripData columnar) {
+            writeExpenses(out, columnar.columns());
+            out.flush();
+            return;
+        }
+
+        // Dictionaries in first-use order; code 0 means "no category" or "base currency"
+        List<Expense> expenses = trip.getExpenses();
+        Map<String, Integer> categoryCodes = new HashMap<>();
+        Map<String, Integer> currencyCodes = new HashMap<>();
+        List<String> categories = new ArrayList<>();
+        List<String> currencies = new ArrayList<>();
+        for (Expense expense : expenses) {
+            assignCode(expense.getCategory(), categoryCodes, categories);
+            assignCode(expense.getCurrency(), currencyCodes, currencies);
+        }
+        writeDictionary(out, categories);
+        writeDictionary(out, currencies);
+
+        writeVarLong(out, expenses.size());
+        long previousDay = 0;
+        for (Expense expense : expenses) {
+            long day = expense.getDate() != null ? expense.getDate().toEpochDay() : ExpenseColumns.NO_DATE;
+            previousDay = writeExpense(out, codeOf(expense.getCategory(), categoryCodes),
+                    codeOf(expense.getCurrency(), currencyCodes), Money.toCents(expense.getAmount()), day,
+                    expense.getDescription(), previousDay);
+        }
+        out.flush();
+    }
+
+    private static void assignCode(String name, Map<String, Integer> codes, List<String> dictionary) {
+        if (name != null && !codes.containsKey(name)) {
+            codes.put(name, dictionary.size() + 1);
+            dictionary.add(name);
+        }
+    }
+
+    private static int codeOf(String name, Map<String, Integer> codes) {
+        return name == null ? 0 : codes.get(name);
+    }
+
+    private static void writeDictionary(DataOutputStream out, List<String> names) throws IOException {
+        writeVarLong(out, names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    /**
+     * Expenses from columns: the column dictionaries are written as is, so ids are the codes
+     */
+    private static void writeExpenses(DataOutputStream out, ExpenseColumns columns) throws IOException {
+        List<String> categories = columns.getCategories().names();
+        writeDictionary(out, categories.subList(1, categories.size()));
+        List<String> currencies = columns.getCurrencies().names();
+        writeDictionary(out, currencies.subList(1, currencies.size()));
+
+        writeVarLong(out, columns.size());
+        long previousDay = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            previousDay = writeExpense(out, columns.categoryId(i), columns.currencyId(i), columns.cents(i),
+                    columns.epochDay(i), columns.description(i), previousDay);
+        }
+    }
+
+    /**
+     * Write one expense record; returns the day to delta-code the next date against
+     */
+    private static long writeExpense(DataOutputStream out, int categoryCode, int currencyCode, long cents,
+                                     long epochDay, String description, long previousDay) throws IOException {
+        boolean hasDate = epochDay != ExpenseColumns.NO_DATE;
+        out.writeByte((hasDate ? HAS_DATE : 0) | (description != null ? HAS_DESCRIPTION : 0)
+                | (currencyCode != 0 ? HAS_CURRENCY : 0));
+        writeVarLong(out, categoryCode);
+        if (currencyCode != 0) {
+            writeVarLong(out, currencyCode);
+        }
+        writeSignedVarLong(out, cents);
+        if (hasDate) {
+            writeSignedVarLong(out, epochDay - previousDay);
+            previousDay = epochDay;
+        }
+        if (description != null) {
+            out.writeUTF(description);
+        }
+        return previousDay;
+    }
+
+    /**
+     * Decode a trip. Expenses go straight into columns, without creating Expense objects.
+     */
+    static TripData read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        byte[] head = in.readNBytes(MAGIC.length);
+        if (!hasMagic(head)) {
+            throw new IOException("Not a binary trip file");
+        }
+        long formatVersion = readVarLong(in);
+        if (formatVersion != FORMAT_VERSION && formatVersion != FORMAT_VERSION_WITHOUT_CURRENCIES) {
+            throw new IOException("Unsupported binary trip format version " + formatVersion);
+        }
+
+        long version = readVarLong(in);
+        String destination = readNullableString(in);
+        LocalDate startDate = readNullableDate(in);
+        LocalDate endDate = readNullableDate(in);
+        double budget = Money.fromCents(readSignedVarLong(in));
+        boolean withCurrencies = formatVersion >= FORMAT_VERSION;
+        String baseCurrency = withCurrencies ? readNullableString(in) : TripData.DEFAULT_CURRENCY;
+
+        // Codes map 1:1 onto the new trip's dictionary ids
+        CategoryDictionary categories = readDictionary(in);
+        CategoryDictionary currencies = withCurrencies ? readDictionary(in) : new CategoryDictionary();
+        int dictionarySize = categories.size() - 1;
+
+        int count = (int) readVarLong(in);
+        ExpenseColumns columns = new ExpenseColumns(categories, currencies, count);
+        long previousDay = 0;
+        for (int i = 0; i < count; i++) {
+            int flags = in.readUnsignedByte();
+            int code = (int) readVarLong(in);
+            if (code < 0 || code > dictionarySize) {
+                throw new IOException("Invalid category code " + code + " in expense #" + i);
+            }
+            int currencyCode = 0;
+            if ((flags & HAS_CURRENCY) != 0) {
+                currencyCode = (int) readVarLong(in);
+                if (currencyCode < 1 || currencyCode >= currencies.size()) {
+                    throw new IOException("Invalid currency code " + currencyCode + " in expense #" + i);
+                }
+            }
+            long cents = readSignedVarLong(in);
+            int day = ExpenseColumns.NO_DATE;
+            if ((flags & HAS_DATE) != 0) {
+                previousDay += readSignedVarLong(in);
+                day = (int) previousDay;
+            }
+            String description = (flags & HAS_DESCRIPTION) != 0 ? in.readUTF() : null;
+            columns.add(day, cents, code, currencyCode, description);
+        }
+
+        ColumnarTripData trip = new ColumnarTripData(columns, destination, startDate, endDate, budget);
+        trip.setBaseCurrency(baseCurrency);
+        trip.setVersion(version);
+        return trip;
+    }
+
+    private static CategoryDictionary readDictionary(DataInputStream in) throws IOException {
+        int size = (int) readVarLong(in);
+        if (size < 0 || size > CategoryDictionary.MAX_CATEGORIES) {
+            throw new IOException("Invalid dictionary size " + size);
+        }
+        CategoryDictionary dictionary = new CategoryDictionary();
+        for (int i = 1; i <= size; i++) {
+            dictionary.intern(in.readUTF());
+        }
+        return dictionary;
+    }
+
+    // === PRIMITIVE ENCODING ===
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            writeSignedVarLong(out, date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readNullableDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(readSignedVarLong(in)) : null;
+    }
+
+    private static void writeSignedVarLong(DataOutputStream out, long value) throws IOException {
+        // Zig-zag so small negative deltas stay small
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedVarLong(DataInputStream in) throws IOException {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated binary trip file");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint in binary trip file");
+    }
+}
@@ -2,39 +2,122 @@
 
 package com.example.travelbudgetplanner.service;
 
+import com.example.travelbudgetplanner.model.CategoryDictionary;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.Money;
 import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.ExpenseJournal.JournalRecord;
+import com.example.travelbudgetplanner.service.ExpenseJournal.Operation;
+import com.example.travelbudgetplanner.service.StorageLocks.Stamp;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Service class to handle saving and loading trip data to/from local storage
+ * Service class to handle saving and loading trip data to/from local storage.
+ *
+ * Several app instances may use the same data directory. Writes to the current trip take a
+ * file lock whose file also holds a stamp of the last write (version and instance). A write
+ * that finds another instance's stamp was based on a stale trip: added expenses are merged
+ * onto the trip on disk, while edits, deletes and full saves are rejected with a
+ * {@link TripVersionConflictException}. History writes lock only the trip's stripe.
+ *
+ * This is the FILES {@link StorageBackend}; trip files are JSON or binary per {@link StorageFormat}.
  */
-public class TripDataStorageService {
+public class TripDataStorageService implements TripRepository {
 
-    private static final String DATA_DIRECTORY = "TravelBudgetData";
     private static final String TRIPS_FILE = "trips.json";
-    private static final String CURRENT_TRIP_FILE = "current_trip.json";
+    private static final String CURRENT_TRIP_FILE = "current_trip.json"; // Name kept; content may be binary
+    private static final String CURRENT_TRIP_JOURNAL = "current_trip.journal";
+    private static final String COMPACTING_JOURNAL = "current_trip.journal.compacting";
+    private static final String HISTORY_DIRECTORY = "history";
+    private static final String ARCHIVE_DIRECTORY = "expense_archive";
+    private static final String LOCK_DIRECTORY = "locks";
+    private static final String CURRENT_TRIP_LOCK = "current-trip";
+    private static final String ARCHIVE_LOCK = "expense-archive";
+    private static final String MIGRATION_LOCK = "legacy-migration";
+
+    // Journal records after which the snapshot is rewritten in the background
+    private static final int COMPACTION_THRESHOLD = 1000;
 
     private final ObjectMapper objectMapper;
+    private final TripFileCodec tripCodec;
     private final String dataPath;
+    private final ExpenseJournal journal;
+    private final ExecutorService compactionExecutor;
+    private final StorageLocks locks;
+    private final long instanceId = new SecureRandom().nextLong();
+    private Stamp knownStamp; // Last current-trip stamp seen or written; guarded by the current-trip lock
+    private final Object snapshotLock = new Object();
+    private long snapshotVersion = -1;
+    private long generation; // Bumped when the current trip is cleared
+    private boolean compacting;
+    private TripHistoryStore historyStore;
+    private volatile ExpenseColumnArchive expenseArchive; // Replaced under the archive lock
+    private HistorySearch historySearch; // Dropped whenever a trip is archived
+    private ExchangeRates exchangeRates;
+    private final MetricsRegistry metrics = MetricsRegistry.global();
 
     public TripDataStorageService() {
+        this(StorageFormat.fromSystemProperty());
+    }
+
+    /**
+     * @param storageFormat format for newly written trip files; existing files are read in either format
+     */
+    public TripDataStorageService(StorageFormat storageFormat) {
+        // Create data directory in user's home directory
+        this(StorageBackend.defaultDataDirectory(), storageFormat);
+    }
+
+    /**
+     * Storage rooted at an explicit directory, e.g. a scratch directory for benchmarks
+     */
+    public TripDataStorageService(Path dataDirectory, StorageFormat storageFormat) {
         // Initialize JSON mapper with Java 8 time support
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.tripCodec = new TripFileCodec(objectMapper, storageFormat);
 
-        // Create data directory in user's home directory
-        String userHome = System.getProperty("user.home");
-        this.dataPath = Paths.get(userHome, DATA_DIRECTORY).toString();
+        this.dataPath = dataDirectory.toString();
         createDataDirectory();
+
+        this.journal = new ExpenseJournal(Paths.get(dataPath, CURRENT_TRIP_JOURNAL), objectMapper);
+        this.compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "trip-journal-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            this.locks = new StorageLocks(Paths.get(dataPath, LOCK_DIRECTORY), StorageLocks.DEFAULT_STRIPES);
+            try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK)) {
+                knownStamp = lock.readStamp();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open storage locks in " + dataPath, e);
+        }
     }
 
     /**
@@ -48,82 +131,539 @@ public class TripDataStorageService {
     }
 
     /**
-     * Save current trip data
+     * Save current trip data as a full snapshot and discard the journal it supersedes
      */
+    @Override
     public void saveCurrentTrip(TripData tripData) throws IOException {
-        File file = new File(dataPath, CURRENT_TRIP_FILE);
-        objectMapper.writeValue(file, tripData);
+        writeCurrentTrip(prepareSnapshot(tripData));
+    }
+
+    @Override
+    public PendingSnapshot prepareSnapshot(TripData tripData, Supplier<? extends TripData> copy) {
+        tripData.setVersion(tripData.getVersion() + 1);
+        return new PendingSnapshot(copy, tripData.getVersion(), currentGeneration());
     }
 
     /**
-     * Load current trip data
+     * Write a prepared snapshot and drop the journal records it covers
      */
+    @Override
+    public boolean writeCurrentTrip(PendingSnapshot pending) throws IOException {
+        TripData snapshot = pending.trip(); // Copied before taking the lock
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK)) {
+            if (!writeSnapshot(snapshot, pending.generation(), lock)) {
+                return false;
+            }
+            journal.resetIfCovered(snapshot.getVersion());
+            return true;
+        }
+    }
+
+    /**
+     * Load current trip data: the last snapshot with the journal replayed on top
+     */
+    @Override
     public TripData loadCurrentTrip() throws IOException {
-        File file = new File(dataPath, CURRENT_TRIP_FILE);
-        if (!file.exists()) {
-            return new TripData(); // Return empty trip data if file doesn't exist
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK);
+             OperationTimer timer = metrics.start(TimedOperation.TRIP_LOAD)) {
+            TripData tripData = readCurrentTrip();
+            timer.setDetail(tripData.getDestination());
+            timer.completed(sizeOf(CURRENT_TRIP_FILE) + sizeOf(COMPACTING_JOURNAL) + sizeOf(CURRENT_TRIP_JOURNAL),
+                    tripData.getExpenses().size());
+            journal.close(); // Another instance may have replaced the journal file since it was opened
+
+            synchronized (snapshotLock) {
+                snapshotVersion = Math.max(snapshotVersion, tripData.getVersion());
+            }
+            knownStamp = lock.readStamp();
+            if (knownStamp.version() < tripData.getVersion()) {
+                // The stamp is not forced to disk and can lag after a crash
+                stamp(lock, tripData.getVersion());
+            }
+            return tripData;
         }
-        return objectMapper.readValue(file, TripData.class);
+    }
+
+    private TripData readCurrentTrip() throws IOException {
+        Path file = Paths.get(dataPath, CURRENT_TRIP_FILE);
+        TripData tripData = Files.exists(file) ? tripCodec.read(file) : new TripData();
+
+        // A compaction interrupted before its snapshot landed leaves its journal behind
+        ExpenseJournal.replay(Paths.get(dataPath, COMPACTING_JOURNAL), tripData, objectMapper);
+        ExpenseJournal.replay(Paths.get(dataPath, CURRENT_TRIP_JOURNAL), tripData, objectMapper);
+        return tripData;
     }
 
     /**
-     * Save a trip to the trips history
+     * Add several expenses to the trip and record them in the journal with a single write
+     *
+     * @return true if the trip was first brought up to date with changes another instance
+     *         saved, so the caller should redisplay it
      */
+    @Override
+    public boolean appendExpenses(TripData tripData, List<Expense> expenses) throws IOException {
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK);
+             OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "add")) {
+            boolean merged = mergeIfChanged(tripData, lock);
+            tripData.checkCanAdd(expenses);
+
+            // The trip changes only once the records are in the journal
+            int first = tripData.getExpenses().size();
+            long version = tripData.getVersion();
+            List<JournalRecord> records = new ArrayList<>(expenses.size());
+            for (int i = 0; i < expenses.size(); i++) {
+                records.add(new JournalRecord(Operation.ADD, version + i + 1, first + i, expenses.get(i)));
+            }
+            long bytes = journal.appendAll(records);
+            for (Expense expense : expenses) {
+                tripData.addExpense(expense);
+            }
+            tripData.setVersion(version + expenses.size());
+            stamp(lock, tripData.getVersion());
+            compactIfNeeded(tripData);
+            timer.completed(bytes, expenses.size());
+            return merged;
+        }
+    }
+
+    /**
+     * Replace the expense at the given position once it is recorded in the journal
+     *
+     * @throws TripVersionConflictException if another instance changed the trip since it was loaded
+     */
+    @Override
+    public void updateExpense(TripData tripData, int index, Expense expense) throws IOException {
+        Objects.checkIndex(index, tripData.getExpenses().size());
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK);
+             OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "update")) {
+            checkUnchanged(lock);
+            long version = tripData.getVersion() + 1;
+            long bytes = journal.append(new JournalRecord(Operation.UPDATE, version, index, expense));
+            tripData.getExpenses().set(index, expense);
+            tripData.setVersion(version);
+            stamp(lock, version);
+            compactIfNeeded(tripData);
+            timer.completed(bytes, 1);
+        }
+    }
+
+    /**
+     * Remove the expense at the given position once it is recorded in the journal
+     *
+     * @throws TripVersionConflictException if another instance changed the trip since it was loaded
+     */
+    @Override
+    public void removeExpense(TripData tripData, int index) throws IOException {
+        Objects.checkIndex(index, tripData.getExpenses().size());
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK);
+             OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "delete")) {
+            checkUnchanged(lock);
+            long version = tripData.getVersion() + 1;
+            long bytes = journal.append(new JournalRecord(Operation.DELETE, version, index, null));
+            tripData.getExpenses().remove(index);
+            tripData.setVersion(version);
+            stamp(lock, version);
+            compactIfNeeded(tripData);
+            timer.completed(bytes, 1);
+        }
+    }
+
+    /**
+     * Replace a range of expenses and record it in the journal as a single record, so replay
+     * applies all of it or, after a torn write, none of it
+     *
+     * @throws TripVersionConflictException if another instance changed the trip since it was loaded
+     */
+    @Override
+    public void replaceExpenses(TripData tripData, int from, int removed, List<Expense> added) throws IOException {
+        Objects.checkFromIndexSize(from, removed, tripData.getExpenses().size());
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK);
+             OperationTimer timer = metrics.start(TimedOperation.EXPENSE_WRITE, "replace")) {
+            checkUnchanged(lock);
+            long version = tripData.getVersion() + 1;
+            long bytes = journal.append(JournalRecord.replace(version, from, removed, added));
+            tripData.replaceExpenses(from, removed, added);
+            tripData.setVersion(version);
+            stamp(lock, version);
+            compactIfNeeded(tripData);
+            timer.completed(bytes, removed + added.size());
+        }
+    }
+
+    /**
+     * Edits and deletes address expenses by position, which another instance's changes may
+     * have shifted, so those are refused rather than merged
+     */
+    private void checkUnchanged(StorageLocks.Held lock) throws IOException {
+        Stamp onDisk = lock.readStamp();
+        if (!onDisk.equals(knownStamp)) {
+            throw new TripVersionConflictException(knownStamp.version(), onDisk.version());
+        }
+    }
+
+    /**
+     * If another instance wrote the trip since this one last did, make the caller's trip the
+     * trip on disk so that new expenses are added after the other instance's changes. The merged
+     * state is written as a fresh snapshot, and snapshots queued from the old state are dropped.
+     */
+    private boolean mergeIfChanged(TripData tripData, StorageLocks.Held lock) throws IOException {
+        if (lock.readStamp().equals(knownStamp)) {
+            return false;
+        }
+        journal.close();
+        TripData latest = readCurrentTrip();
+        // Keep this instance's versions increasing, for the write-behind and the snapshot check
+        latest.setVersion(Math.max(latest.getVersion(), tripData.getVersion()));
+        synchronized (snapshotLock) {
+            generation++;
+            tripCodec.write(latest, Paths.get(dataPath, CURRENT_TRIP_FILE));
+            snapshotVersion = latest.getVersion();
+        }
+        journal.reset();
+        Files.deleteIfExists(Paths.get(dataPath, COMPACTING_JOURNAL));
+
+        tripData.replaceWith(latest);
+        stamp(lock, latest.getVersion());
+        return true;
+    }
+
+    /**
+     * Record in the lock file that this instance wrote the trip at the given version
+     */
+    private void stamp(StorageLocks.Held lock, long version) throws IOException {
+        Stamp stamp = new Stamp(version, instanceId);
+        lock.writeStamp(stamp);
+        knownStamp = stamp;
+    }
+
+    /**
+     * Once the journal grows past the threshold, fold it into a new snapshot on the
+     * compaction thread. New records go to a fresh journal in the meantime.
+     */
+    private void compactIfNeeded(TripData tripData) throws IOException {
+        if (journal.getRecordCount() < COMPACTION_THRESHOLD) {
+            return;
+        }
+        synchronized (snapshotLock) {
+            if (compacting) {
+                return;
+            }
+            compacting = true;
+        }
+
+        TripData snapshot = tripData.copy();
+        long snapshotGeneration = currentGeneration();
+        Path compactingJournal = Paths.get(dataPath, COMPACTING_JOURNAL);
+        journal.rotateTo(compactingJournal);
+
+        compactionExecutor.execute(() -> {
+            try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK)) {
+                writeSnapshot(snapshot, snapshotGeneration, lock);
+                Files.deleteIfExists(compactingJournal);
+            } catch (IOException e) {
+                // The rotated journal stays on disk and is replayed on the next load
+                System.err.println("Journal compaction failed: " + e.getMessage());
+            } finally {
+                synchronized (snapshotLock) {
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Write a snapshot through a temp file so readers never see a half-written trip.
+     * Snapshots older than the one already on disk, or taken before the trip was cleared or
+     * merged, are skipped. Must hold the current-trip lock.
+     *
+     * @throws TripVersionConflictException if another instance wrote the trip since this one did
+     */
+    private boolean writeSnapshot(TripData snapshot, long expectedGeneration, StorageLocks.Held lock)
+            throws IOException {
+        synchronized (snapshotLock) {
+            if (expectedGeneration != generation || snapshot.getVersion() <= snapshotVersion) {
+                return false;
+            }
+            checkUnchanged(lock);
+            Path file = Paths.get(dataPath, CURRENT_TRIP_FILE);
+            try (OperationTimer timer = metrics.start(TimedOperation.TRIP_SAVE, snapshot.getDestination())) {
+                tripCodec.write(snapshot, file);
+                timer.completed(Files.size(file), snapshot.getExpenses().size());
+            }
+            snapshotVersion = snapshot.getVersion();
+            stamp(lock, Math.max(snapshot.getVersion(), knownStamp.version()));
+            return true;
+        }
+    }
+
+    /**
+     * Save a trip to the trips history, unless a trip with the same destination and dates exists.
+     * Only saves of trips on the same lock stripe wait for each other, in any instance.
+     */
+    @Override
+    @SuppressWarnings("try") // The held lock only scopes the critical section
     public void saveTripToHistory(TripData tripData) throws IOException {
-        List<TripData> trips = loadAllTrips();
+        try (OperationTimer timer = metrics.start(TimedOperation.HISTORY_SAVE, tripData.getDestination())) {
+            TripHistoryStore store = historyStore();
+            // History analytics sum amounts straight from the archive, so those are in base currency
+            TripData baseAmounts = getExchangeRates().toBaseCurrency(tripData);
+            long written;
+            try (StorageLocks.Held stripe = locks.lockTrip(TripHistoryStore.keyOf(tripData))) {
+                written = store.add(tripData, baseAmounts);
+            }
+            if (written >= 0) {
+                expenseArchive(TripHistoryStore.keyOf(tripData), baseAmounts);
+                synchronized (this) {
+                    historySearch = null;
+                }
+            }
+            timer.completed(Math.max(written, 0), tripData.getExpenses().size());
+        }
+    }
 
-        // Check if trip already exists (by destination and dates)
-        boolean exists = trips.stream().anyMatch(t ->
-                t.getDestination().equals(tripData.getDestination()) &&
-                        t.getStartDate().equals(tripData.getStartDate()) &&
-                        t.getEndDate().equals(tripData.getEndDate())
-        );
+    /**
+     * Summed in parallel over the columnar archive by {@link HistoryAnalytics}
+     */
+    @Override
+    public HistoryReport analyzeHistory() throws IOException {
+        return new HistoryAnalytics().analyze(this);
+    }
 
-        if (!exists) {
-            trips.add(tripData);
-            saveAllTrips(trips);
+    /**
+     * Answered from the in-memory {@link HistorySearch} index over the archive
+     */
+    @Override
+    public List<HistoryExpense> searchHistory(ExpenseQuery query, int limit) throws IOException {
+        HistorySearch search;
+        List<TripHistoryStore.IndexEntry> trips;
+        synchronized (this) {
+            search = openHistorySearch();
+            trips = historyStore().entries();
         }
+        MappedExpenseColumns archive = search.getArchive();
+        CategoryDictionary categories = archive.getCategories();
+        int[] rows = search.query(query);
+        List<HistoryExpense> matches = new ArrayList<>(Math.min(rows.length, limit));
+        for (int i = 0; i < rows.length && matches.size() < limit; i++) {
+            int row = rows[i];
+            int epochDay = archive.epochDay(row);
+            Expense expense = new Expense(categories.nameOf(archive.categoryId(row)),
+                    Money.fromCents(archive.cents(row)),
+                    epochDay == MappedExpenseColumns.NO_DATE ? null : LocalDate.ofEpochDay(epochDay));
+            expense.setDescription(search.description(row));
+            TripHistoryStore.IndexEntry trip = trips.get(archive.tripId(row));
+            matches.add(new HistoryExpense(trip.getDestination(), trip.getStartDate(), expense));
+        }
+        return matches;
+    }
+
+    /**
+     * Map the columnar archive of all expenses in the trip history, for whole-history analytics
+     */
+    public MappedExpenseColumns openExpenseArchive() throws IOException {
+        return expenseArchive(null, null).map();
+    }
+
+    /**
+     * Archived trips in archive order, as of the archive mapped by the same call. Trip ids
+     * in the archive index into the returned list.
+     */
+    synchronized HistorySnapshot openHistorySnapshot() throws IOException {
+        return new HistorySnapshot(openExpenseArchive(), historyStore().entries());
     }
 
     /**
-     * Load all saved trips
+     * The mapped expense archive together with the trips its rows belong to
+     */
+    record HistorySnapshot(MappedExpenseColumns archive, List<TripHistoryStore.IndexEntry> trips) {}
+
+    /**
+     * Search index over every archived expense. Built on first use by streaming the trips once
+     * for their descriptions, then reused until another trip is archived.
      */
-    public List<TripData> loadAllTrips() throws IOException {
-        File file = new File(dataPath, TRIPS_FILE);
-        if (!file.exists()) {
-            return new ArrayList<>();
+    public synchronized HistorySearch openHistorySearch() throws IOException {
+        ExpenseColumnArchive current = expenseArchive(null, null);
+        // Also rebuilt when another instance archived trips
+        if (historySearch == null || historySearch.getArchive().size() != current.getRowCount()) {
+            MappedExpenseColumns archive = current.map();
+            String[] descriptions = new String[archive.size()];
+            int row = 0;
+            try (Stream<TripData> trips = streamAllTrips()) {
+                for (TripData trip : (Iterable<TripData>) trips::iterator) {
+                    for (Expense expense : trip.getExpenses()) {
+                        if (row == descriptions.length) {
+                            break;
+                        }
+                        descriptions[row++] = expense.getDescription();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            historySearch = new HistorySearch(archive, descriptions);
         }
+        return historySearch;
+    }
 
-        try {
-            return objectMapper.readValue(file,
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, TripData.class));
-        } catch (IOException e) {
-            // If file is corrupted, return empty list
-            return new ArrayList<>();
+    /**
+     * Open the columnar expense archive and append every trip in the history index that it is
+     * missing: trips archived before it existed, or by another instance that has not appended
+     * them yet. Appends take the archive lock, so they are serialized across instances.
+     *
+     * @param key         key of a trip just added to the history, or null
+     * @param baseAmounts that trip in its base currency, appended without reading it back
+     */
+    @SuppressWarnings("try") // The held lock only scopes the critical section
+    private ExpenseColumnArchive expenseArchive(String key, TripData baseAmounts) throws IOException {
+        // Fetched before taking the archive lock, which is never held while waiting for this service
+        TripHistoryStore store = historyStore();
+        ExchangeRates rates = getExchangeRates();
+        try (StorageLocks.Held lock = locks.lock(ARCHIVE_LOCK)) {
+            store.refresh();
+            ExpenseColumnArchive archive = expenseArchive;
+            if (archive != null && archive.getTripCount() >= store.size()) {
+                return archive;
+            }
+            // Re-read from disk: other instances may have appended since it was opened
+            archive = new ExpenseColumnArchive(Paths.get(dataPath, ARCHIVE_DIRECTORY));
+            List<TripHistoryStore.IndexEntry> entries = store.entries();
+            for (int i = archive.getTripCount(); i < entries.size(); i++) {
+                TripHistoryStore.IndexEntry entry = entries.get(i);
+                if (baseAmounts != null && key.equals(TripHistoryStore.keyOf(entry.getDestination(),
+                        entry.getStartDate(), entry.getEndDate()))) {
+                    archive.append(baseAmounts);
+                } else {
+                    archive.append(rates.toBaseCurrency(store.read(store.segmentOf(entry))));
+                }
+            }
+            expenseArchive = archive;
+            return archive;
         }
     }
 
     /**
-     * Save all trips
+     * Exchange rates from the rates file in the data directory, read once; no rates without the file.
+     * Trips are converted with these rates when they are saved to history.
      */
-    private void saveAllTrips(List<TripData> trips) throws IOException {
-        File file = new File(dataPath, TRIPS_FILE);
-        objectMapper.writeValue(file, trips);
+    @Override
+    public synchronized ExchangeRates getExchangeRates() throws IOException {
+        if (exchangeRates == null) {
+            exchangeRates = ExchangeRates.forDataDirectory(Paths.get(dataPath));
+        }
+        return exchangeRates;
+    }
+
+    /**
+     * Stream saved trips in archive order, parsing one trip at a time.
+     * A record that cannot be parsed surfaces as an {@link UncheckedIOException}
+     * wrapping a {@link TripRecordParseException} that names the file and record.
+     */
+    @Override
+    public Stream<TripData> streamAllTrips() throws IOException {
+        TripHistoryStore store = historyStore();
+        return StreamSupport.stream(new TripSegmentSpliterator(store, store.segments()), false);
+    }
+
+    /**
+     * Spending time index of each saved trip, in the same order as {@link #streamAllTrips()}.
+     * Indexes are read from the sidecar files next to each trip, without parsing the trips.
+     */
+    public Stream<SpendingTimeIndex> streamHistoryTimeIndexes() throws IOException {
+        TripHistoryStore store = historyStore();
+        ExchangeRates rates = getExchangeRates();
+        return store.segments().stream().map(segment -> {
+            try {
+                return store.readTimeIndex(segment, rates);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Open the history store on first use, importing a legacy trips.json once
+     */
+    @SuppressWarnings("try") // The held lock only scopes the critical section
+    private synchronized TripHistoryStore historyStore() throws IOException {
+        if (historyStore == null) {
+            TripHistoryStore store = new TripHistoryStore(Paths.get(dataPath, HISTORY_DIRECTORY),
+                    objectMapper, tripCodec, locks);
+            try (StorageLocks.Held lock = locks.lock(MIGRATION_LOCK)) {
+                migrateLegacyHistory(store);
+            }
+            historyStore = store;
+        } else {
+            historyStore.refresh(); // Pick up trips other instances archived
+        }
+        return historyStore;
+    }
+
+    private void migrateLegacyHistory(TripHistoryStore store) throws IOException {
+        // Checked under the migration lock: another instance may have just imported it
+        File legacyFile = new File(dataPath, TRIPS_FILE);
+        if (!legacyFile.exists()) {
+            return;
+        }
+
+        // Stream the legacy array so even a huge file is imported in constant memory
+        try (TripArrayReader reader = new TripArrayReader(legacyFile.toPath(), objectMapper)) {
+            TripData trip;
+            while ((trip = reader.next()) != null) {
+                store.add(trip, getExchangeRates().toBaseCurrency(trip));
+            }
+        } catch (IOException e) {
+            // Trips before the broken record are imported; the file stays in place for inspection
+            System.err.println("Stopped importing " + TRIPS_FILE + ": " + e.getMessage());
+            return;
+        }
+
+        // Keep the original file around, but never import it twice
+        Files.move(legacyFile.toPath(), Paths.get(dataPath, TRIPS_FILE + ".migrated"),
+                StandardCopyOption.REPLACE_EXISTING);
     }
 
     /**
      * Delete current trip data
      */
+    @Override
     public void clearCurrentTrip() {
-        File file = new File(dataPath, CURRENT_TRIP_FILE);
-        if (file.exists()) {
-            file.delete();
+        try (StorageLocks.Held lock = locks.lock(CURRENT_TRIP_LOCK)) {
+            // Bump the generation first so a running compaction cannot bring the trip back
+            synchronized (snapshotLock) {
+                generation++;
+                snapshotVersion = -1;
+                File file = new File(dataPath, CURRENT_TRIP_FILE);
+                if (file.exists()) {
+                    file.delete();
+                }
+            }
+            journal.reset();
+            Files.deleteIfExists(Paths.get(dataPath, COMPACTING_JOURNAL));
+            // Other instances still showing the old trip will merge into, or be refused by, the empty one
+            stamp(lock, knownStamp.version() + 1);
+        } catch (IOException e) {
+            System.err.println("Failed to delete trip journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Size of a file in the data directory, 0 if it does not exist
+     */
+    private long sizeOf(String name) throws IOException {
+        Path file = Paths.get(dataPath, name);
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    private long currentGeneration() {
+        synchronized (snapshotLock) {
+            return generation;
         }
     }
 
     /**
      * Get the data directory path
      */
+    @Override
     public String getDataPath() {
         return dataPath;
     }
@@ -131,8 +671,9 @@ public class TripDataStorageService {
     /**
      * Check if current trip data exists
      */
+    @Override
     public boolean currentTripExists() {
         File file = new File(dataPath, CURRENT_TRIP_FILE);
-        return file.exists();
+        return file.exists() || journal.exists();
     }
 }
\ No newline at end of file
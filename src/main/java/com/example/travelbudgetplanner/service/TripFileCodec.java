@@ -0,0 +1,58 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads and writes whole-trip files. Writes use the configured format;
+ * reads detect JSON or binary from the file header.
+ */
+class TripFileCodec {
+
+    private final ObjectMapper objectMapper;
+    private final StorageFormat format;
+
+    TripFileCodec(ObjectMapper objectMapper, StorageFormat format) {
+        this.objectMapper = objectMapper;
+        this.format = format;
+    }
+
+    StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * File extension for new history segments in the configured format
+     */
+    String fileExtension() {
+        return format == StorageFormat.BINARY ? ".trip" : ".json";
+    }
+
+    void write(TripData trip, OutputStream out) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            TripBinaryCodec.write(trip, out);
+        } else {
+            objectMapper.writeValue(out, trip);
+        }
+    }
+
+    void write(TripData trip, Path file) throws IOException {
+        AtomicFiles.write(file, out -> write(trip, out));
+    }
+
+    TripData read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            if (StorageFormat.detect(in) == StorageFormat.BINARY) {
+                return TripBinaryCodec.read(in);
+            }
+            return objectMapper.readValue(in, TripData.class);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trip history kept as one segment file per trip plus an append-only index
+ * keyed by destination and dates. Archiving a trip never rewrites other trips.
+ *
+ * Several app instances may share the directory. Segment names are claimed by creating the
+ * file, so writing segments needs no lock; only appending an index line takes the shared
+ * index lock. Entries added by other instances are picked up by {@link #refresh()}.
+ */
+class TripHistoryStore {
+
+    private static final String INDEX_FILE = "index.log";
+    private static final String SEGMENT_PREFIX = "trip-";
+    private static final String TIME_INDEX_SUFFIX = ".tidx";
+    private static final String INDEX_LOCK = "history-index";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final TripFileCodec codec;
+    private final StorageLocks locks;
+
+    // Trip key -> index entry, in archive order
+    private final Map<String, IndexEntry> index = new LinkedHashMap<>();
+    private long indexOffset; // Bytes of the index file read so far
+    private int nextSegment = 1;
+
+    TripHistoryStore(Path directory, ObjectMapper objectMapper, TripFileCodec codec, StorageLocks locks)
+            throws IOException {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.codec = codec;
+        this.locks = locks;
+        Files.createDirectories(directory);
+        refresh();
+    }
+
+    /**
+     * Key identifying a trip in the history: destination plus start and end date
+     */
+    static String keyOf(String destination, LocalDate startDate, LocalDate endDate) {
+        return destination + '\u001F' + startDate + '\u001F' + endDate;
+    }
+
+    static String keyOf(TripData tripData) {
+        return keyOf(tripData.getDestination(), tripData.getStartDate(), tripData.getEndDate());
+    }
+
+    synchronized boolean contains(TripData tripData) {
+        return index.containsKey(keyOf(tripData));
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Store a trip in its own segment unless a trip with the same key exists.
+     * The segment is written before its index entry, so a crash can only leave an orphan segment.
+     * Callers hold the trip's lock stripe, so the same trip is not written twice at once; the
+     * key is checked again under the index lock all the same.
+     *
+     * @param baseAmounts the same trip with every amount in its base currency, for the time index
+     * @return bytes written for the trip and its time index, or -1 if the trip was already there
+     */
+    @SuppressWarnings("try") // The held lock only scopes the critical section
+    long add(TripData tripData, TripData baseAmounts) throws IOException {
+        String key = keyOf(tripData);
+        refresh();
+        if (contains(tripData)) {
+            return -1;
+        }
+
+        // Segments are written without holding the index, so other trips archive in parallel
+        Path segment = claimSegment();
+        try {
+            codec.write(tripData, segment);
+            writeTimeIndex(segment, SpendingTimeIndex.of(baseAmounts));
+        } catch (IOException e) {
+            Files.deleteIfExists(segment);
+            throw e;
+        }
+
+        IndexEntry entry = new IndexEntry(segment.getFileName().toString(), tripData.getDestination(),
+                tripData.getStartDate(), tripData.getEndDate());
+        try (StorageLocks.Held lock = locks.lock(INDEX_LOCK)) {
+            synchronized (this) {
+                refresh();
+                if (index.containsKey(key)) {
+                    // Archived by another instance in the meantime
+                    Files.deleteIfExists(timeIndexPath(segment));
+                    Files.deleteIfExists(segment);
+                    return -1;
+                }
+                appendIndexEntry(entry);
+                refresh(); // Reads back our own line, and keeps the offset at the end of the file
+            }
+        }
+        return Files.size(segment) + Files.size(timeIndexPath(segment));
+    }
+
+    /**
+     * Segment files in archive order
+     */
+    synchronized List<Path> segments() {
+        List<Path> segments = new ArrayList<>(index.size());
+        for (IndexEntry entry : index.values()) {
+            segments.add(directory.resolve(entry.getSegment()));
+        }
+        return segments;
+    }
+
+    /**
+     * Destination and dates of each trip in archive order, without reading any segment
+     */
+    synchronized List<IndexEntry> entries() {
+        return new ArrayList<>(index.values());
+    }
+
+    Path segmentOf(IndexEntry entry) {
+        return directory.resolve(entry.getSegment());
+    }
+
+    TripData read(Path segment) throws IOException {
+        try (OperationTimer timer = MetricsRegistry.global().start(TimedOperation.HISTORY_LOAD)) {
+            TripData trip = codec.read(segment);
+            timer.setDetail(trip.getDestination());
+            timer.completed(Files.size(segment), trip.getExpenses().size());
+            return trip;
+        }
+    }
+
+    /**
+     * Time index stored next to a segment. Segments archived before sidecars existed, or
+     * whose sidecar was lost, get one built from the trip and saved for next time.
+     */
+    SpendingTimeIndex readTimeIndex(Path segment, ExchangeRates rates) throws IOException {
+        Path sidecar = timeIndexPath(segment);
+        if (Files.exists(sidecar)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(sidecar))) {
+                return SpendingTimeIndex.readFrom(in);
+            } catch (IOException e) {
+                System.err.println("Rebuilding unreadable time index " + sidecar + ": " + e.getMessage());
+            }
+        }
+        SpendingTimeIndex timeIndex = SpendingTimeIndex.of(rates.toBaseCurrency(read(segment)));
+        writeTimeIndex(segment, timeIndex);
+        return timeIndex;
+    }
+
+    private static Path timeIndexPath(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + TIME_INDEX_SUFFIX);
+    }
+
+    private static void writeTimeIndex(Path segment, SpendingTimeIndex timeIndex) throws IOException {
+        AtomicFiles.write(timeIndexPath(segment), timeIndex::writeTo);
+    }
+
+    /**
+     * Claim a free segment name by creating the file; another instance may claim names too
+     */
+    private Path claimSegment() throws IOException {
+        while (true) {
+            String name;
+            synchronized (this) {
+                name = String.format("%s%06d%s", SEGMENT_PREFIX, nextSegment++, codec.fileExtension());
+            }
+            try {
+                return Files.createFile(directory.resolve(name));
+            } catch (FileAlreadyExistsException e) {
+                // Taken; try the next number
+            }
+        }
+    }
+
+    /**
+     * Append one line under the index lock. The file is opened for each entry so the line
+     * lands after lines other instances appended since.
+     */
+    private void appendIndexEntry(IndexEntry entry) throws IOException {
+        try (Writer writer = AppendOnlyFiles.openForAppend(directory.resolve(INDEX_FILE))) {
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Read index lines appended since the last call, by this or another instance. A line still
+     * being written (no newline yet) is left for the next call.
+     */
+    synchronized void refresh() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        long size = Files.exists(indexFile) ? Files.size(indexFile) : 0;
+        if (size <= indexOffset) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size - indexOffset));
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            int read;
+            do {
+                read = channel.read(buffer, indexOffset + buffer.position());
+            } while (read > 0 && buffer.hasRemaining());
+        }
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+
+        int lineStart = 0;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+            lineStart = lineEnd + 1;
+            if (line.isBlank()) {
+                continue;
+            }
+            IndexEntry entry;
+            try {
+                entry = objectMapper.readValue(line, IndexEntry.class);
+            } catch (IOException e) {
+                // Only a torn final line is expected; anything else is real corruption
+                if (lineStart >= end) {
+                    break;
+                }
+                throw new IOException("Corrupt history index entry in " + indexFile, e);
+            }
+            index.putIfAbsent(keyOf(entry.getDestination(), entry.getStartDate(), entry.getEndDate()), entry);
+        }
+        indexOffset += end;
+        nextSegment = Math.max(nextSegment, index.size() + 1);
+    }
+
+    /**
+     * One line of the history index
+     */
+    public static class IndexEntry {
+        private String segment;
+        private String destination;
+        private LocalDate startDate;
+        private LocalDate endDate;
+
+        // Default constructor
+        public IndexEntry() {}
+
+        public IndexEntry(String segment, String destination, LocalDate startDate, LocalDate endDate) {
+            this.segment = segment;
+            this.destination = destination;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        public String getSegment() { return segment; }
+        public void setSegment(String segment) { this.segment = segment; }
+
+        public String getDestination() { return destination; }
+        public void setDestination(String destination) { this.destination = destination; }
+
+        public LocalDate getStartDate() { return startDate; }
+        public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+        public LocalDate getEndDate() { return endDate; }
+        public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The trip store opened and the current trip read at startup, on a background thread while
+ * the window is being built
+ *
+ * @param trip       the current trip in columns, or null when there is none
+ * @param ratesError why the exchange rates could not be read, or null
+ * @param tripError  why the current trip could not be read, or null
+ */
+public record TripPreload(TripRepository storage, ExchangeRates exchangeRates, ColumnarTripData trip,
+                          IOException ratesError, IOException tripError) {
+
+    /**
+     * Start reading; completes exceptionally only when the store itself cannot be opened
+     */
+    public static CompletableFuture<TripPreload> start(StorageBackend backend) {
+        CompletableFuture<TripPreload> result = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                result.complete(load(backend));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "trip-preload");
+        loader.setDaemon(true);
+        loader.start();
+        return result;
+    }
+
+    private static TripPreload load(StorageBackend backend) throws IOException {
+        TripRepository storage = backend.open();
+
+        ExchangeRates rates = ExchangeRates.none();
+        IOException ratesError = null;
+        try {
+            rates = storage.getExchangeRates();
+        } catch (IOException e) {
+            ratesError = e;
+        }
+
+        // Converted to columns here too, so the FX thread only has to show it
+        ColumnarTripData trip = null;
+        IOException tripError = null;
+        try {
+            if (storage.currentTripExists()) {
+                trip = ColumnarTripData.of(storage.loadCurrentTrip());
+            }
+        } catch (IOException e) {
+            tripError = e;
+        }
+        return new TripPreload(storage, rates, trip, ratesError, tripError);
+    }
+}
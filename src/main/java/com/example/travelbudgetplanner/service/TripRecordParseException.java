@@ -0,0 +1,32 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Thrown when a single trip record in a history file cannot be parsed
+ */
+public class TripRecordParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path source; // Path is not serializable
+    private final int recordIndex;
+
+    public TripRecordParseException(Path source, int recordIndex, Throwable cause) {
+        super(String.format("Failed to parse trip record #%d in %s: %s",
+                recordIndex, source, cause.getMessage()), cause);
+        this.source = source;
+        this.recordIndex = recordIndex;
+    }
+
+    /**
+     * File the broken record was read from
+     */
+    public Path getSource() { return source; }
+
+    /**
+     * Zero-based position of the broken record within its file
+     */
+    public int getRecordIndex() { return recordIndex; }
+}
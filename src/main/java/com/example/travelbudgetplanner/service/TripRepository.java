@@ -0,0 +1,173 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.ExpenseQuery;
+import com.example.travelbudgetplanner.model.HistoryReport;
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Where trips are kept: the trip being planned, its expenses, and the history of saved trips.
+ * {@link StorageBackend} picks the implementation from configuration.
+ *
+ * Several app instances may share one store. An expense addition that finds the current trip
+ * changed by another instance is merged onto it; edits, deletes and full saves are refused with
+ * a {@link TripVersionConflictException}.
+ */
+public interface TripRepository extends AutoCloseable {
+
+    // === CURRENT TRIP ===
+
+    boolean currentTripExists();
+
+    TripData loadCurrentTrip() throws IOException;
+
+    /**
+     * Save the whole trip, header and expenses
+     */
+    void saveCurrentTrip(TripData tripData) throws IOException;
+
+    /**
+     * Bump the trip version and copy the trip, so the copy can be written from another thread
+     */
+    default PendingSnapshot prepareSnapshot(TripData tripData) {
+        TripData copy = tripData.copy();
+        return prepareSnapshot(tripData, () -> copy);
+    }
+
+    /**
+     * Bump the trip version; the copy to write is taken later from the supplier, on the writing
+     * thread. The supplier must give the trip as it is now, e.g. from an immutable state.
+     */
+    PendingSnapshot prepareSnapshot(TripData tripData, Supplier<? extends TripData> copy);
+
+    /**
+     * Write a prepared copy, unless a newer one was written or the trip was cleared since
+     *
+     * @return false if the copy was skipped for one of those reasons
+     */
+    boolean writeCurrentTrip(PendingSnapshot pending) throws IOException;
+
+    void clearCurrentTrip();
+
+    /**
+     * A trip to write at the given version, with the number of clears before it was prepared
+     */
+    record PendingSnapshot(Supplier<? extends TripData> copy, long version, long generation) {
+
+        /**
+         * Take the copy, at the prepared version; called by the writing thread for each attempt
+         */
+        public TripData trip() {
+            TripData trip = copy.get();
+            trip.setVersion(version);
+            return trip;
+        }
+    }
+
+    // === EXPENSES OF THE CURRENT TRIP ===
+
+    /**
+     * Add an expense to the trip and store it
+     *
+     * @return true if the trip was first brought up to date with changes another instance
+     *         saved, so the caller should redisplay it
+     */
+    default boolean appendExpense(TripData tripData, Expense expense) throws IOException {
+        return appendExpenses(tripData, List.of(expense));
+    }
+
+    /**
+     * Add several expenses to the trip and store them together
+     *
+     * @return true if the trip was first brought up to date with changes another instance
+     *         saved, so the caller should redisplay it
+     */
+    boolean appendExpenses(TripData tripData, List<Expense> expenses) throws IOException;
+
+    /**
+     * Replace the expense at the given position
+     *
+     * @throws TripVersionConflictException if another instance changed the trip since it was loaded
+     */
+    void updateExpense(TripData tripData, int index, Expense expense) throws IOException;
+
+    /**
+     * Remove the expense at the given position
+     *
+     * @throws TripVersionConflictException if another instance changed the trip since it was loaded
+     */
+    void removeExpense(TripData tripData, int index) throws IOException;
+
+    /**
+     * Replace removed expenses from the given position on with others, stored as one change,
+     * e.g. to undo or redo an edit
+     *
+     * @throws TripVersionConflictException if another instance changed the trip since it was loaded
+     */
+    void replaceExpenses(TripData tripData, int from, int removed, List<Expense> added) throws IOException;
+
+    // === HISTORY ===
+
+    /**
+     * Save a trip to the history, unless a trip with the same destination and dates exists
+     */
+    void saveTripToHistory(TripData tripData) throws IOException;
+
+    /**
+     * Saved trips in the order they were saved, read one at a time. A trip that cannot be read
+     * surfaces as an {@link UncheckedIOException}.
+     */
+    Stream<TripData> streamAllTrips() throws IOException;
+
+    /**
+     * Load all saved trips. Prefer {@link #streamAllTrips()} for large histories.
+     */
+    default List<TripData> loadAllTrips() throws IOException {
+        try (Stream<TripData> trips = streamAllTrips()) {
+            return trips.collect(Collectors.toCollection(ArrayList::new));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Spending per destination, per year and category, and by trip length, over the whole
+     * history, with amounts in each trip's base currency
+     */
+    HistoryReport analyzeHistory() throws IOException;
+
+    /**
+     * Saved expenses matching the query, at most limit of them, in the order they were saved.
+     * Amounts are in the base currency of their trip.
+     */
+    List<HistoryExpense> searchHistory(ExpenseQuery query, int limit) throws IOException;
+
+    /**
+     * An expense from the history with the trip it belongs to
+     */
+    record HistoryExpense(String destination, LocalDate tripStart, Expense expense) {}
+
+    // === SETTINGS ===
+
+    /**
+     * Exchange rates from the data directory; trips are converted with them when saved to history
+     */
+    ExchangeRates getExchangeRates() throws IOException;
+
+    /**
+     * Directory holding the store and its settings files
+     */
+    String getDataPath();
+
+    @Override
+    default void close() throws IOException {}
+}
@@ -0,0 +1,72 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.TripData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over history segments that parses one trip per step.
+ * Splits by segment range, so parallel streams read different files concurrently.
+ */
+class TripSegmentSpliterator implements Spliterator<TripData> {
+
+    private final TripHistoryStore store;
+    private final List<Path> segments;
+    private int position;
+    private final int end;
+
+    TripSegmentSpliterator(TripHistoryStore store, List<Path> segments) {
+        this(store, segments, 0, segments.size());
+    }
+
+    private TripSegmentSpliterator(TripHistoryStore store, List<Path> segments, int position, int end) {
+        this.store = store;
+        this.segments = segments;
+        this.position = position;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super TripData> action) {
+        if (position >= end) {
+            return false;
+        }
+        Path segment = segments.get(position++);
+        TripData trip;
+        try {
+            trip = store.read(segment);
+        } catch (IOException e) {
+            // A segment holds exactly one trip, so the record index within it is always 0
+            throw new UncheckedIOException(new TripRecordParseException(segment, 0, e));
+        }
+        action.accept(trip);
+        return true;
+    }
+
+    @Override
+    public Spliterator<TripData> trySplit() {
+        int remaining = end - position;
+        if (remaining < 2) {
+            return null;
+        }
+        int middle = position + remaining / 2;
+        Spliterator<TripData> prefix = new TripSegmentSpliterator(store, segments, position, middle);
+        position = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.travelbudgetplanner.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the current trip on disk was changed by another app instance since this one
+ * last read or wrote it, and the change cannot be merged. Reload the trip and retry.
+ */
+public class TripVersionConflictException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    public TripVersionConflictException(long expectedVersion, long actualVersion) {
+        super(String.format("The current trip was changed by another instance of the app "
+                + "(version %d on disk, %d expected).", actualVersion, expectedVersion));
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    /**
+     * Version this instance last read or wrote
+     */
+    public long getExpectedVersion() { return expectedVersion; }
+
+    /**
+     * Version found on disk
+     */
+    public long getActualVersion() { return actualVersion; }
+}
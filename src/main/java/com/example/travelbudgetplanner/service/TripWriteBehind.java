@@ -0,0 +1,187 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.TripRepository.PendingSnapshot;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind persistence for the current trip. Callers mark the trip dirty; bursts of
+ * edits are coalesced into one snapshot written on a background thread, so the UI thread
+ * never waits for the disk.
+ */
+public class TripWriteBehind implements AutoCloseable {
+
+    private static final long DEFAULT_COALESCE_MILLIS = 300;
+
+    private final TripRepository storageService;
+    private final long coalesceMillis;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    private PendingSnapshot pending;
+    private ScheduledFuture<?> scheduledWrite;
+    private volatile long lastPersistedVersion = -1;
+
+    private volatile LongConsumer onPersisted = version -> {};
+    private volatile Consumer<IOException> onError = e -> {};
+
+    public TripWriteBehind(TripRepository storageService) {
+        this(storageService, DEFAULT_COALESCE_MILLIS);
+    }
+
+    public TripWriteBehind(TripRepository storageService, long coalesceMillis) {
+        this.storageService = storageService;
+        this.coalesceMillis = coalesceMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trip-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue the trip for saving. Must be called on the thread that edits the trip;
+     * only the latest state within the coalescing window is written.
+     */
+    public void markDirty(TripData tripData) {
+        queue(storageService.prepareSnapshot(tripData));
+    }
+
+    /**
+     * Queue the trip for saving without copying it on the calling thread: the copy to write is
+     * taken from the supplier on the writer thread, and only for the snapshot that gets written
+     */
+    public void markDirty(TripData tripData, Supplier<? extends TripData> snapshot) {
+        queue(storageService.prepareSnapshot(tripData, snapshot));
+    }
+
+    private void queue(PendingSnapshot snapshot) {
+        synchronized (lock) {
+            pending = snapshot;
+            if (scheduledWrite == null) {
+                scheduledWrite = executor.schedule(this::writePending, coalesceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Write any queued snapshot now and wait for it, e.g. before the application exits
+     *
+     * @throws IOException if that write fails, including a retry of a failed background write
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            if (scheduledWrite != null) {
+                scheduledWrite.cancel(false);
+                scheduledWrite = null;
+            }
+        }
+        try {
+            // Runs after any write already in progress on the single writer thread
+            executor.submit(() -> {
+                write();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing trip data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to flush trip data", e.getCause());
+        }
+    }
+
+    /**
+     * Whether a queued snapshot has not reached the disk yet
+     */
+    public boolean hasPendingWrite() {
+        synchronized (lock) {
+            return pending != null;
+        }
+    }
+
+    /**
+     * Version of the last snapshot that reached the disk, or -1 if none yet
+     */
+    public long getLastPersistedVersion() {
+        return lastPersistedVersion;
+    }
+
+    /**
+     * Called on the writer thread after each snapshot that reached the disk, with its version
+     */
+    public void setOnPersisted(LongConsumer onPersisted) {
+        this.onPersisted = onPersisted;
+    }
+
+    /**
+     * Called on the writer thread when a background write fails
+     */
+    public void setOnError(Consumer<IOException> onError) {
+        this.onError = onError;
+    }
+
+    // Scheduled writes have no caller to throw to
+    private void writePending() {
+        try {
+            write();
+        } catch (IOException e) {
+            onError.accept(e);
+        }
+    }
+
+    private void write() throws IOException {
+        PendingSnapshot snapshot;
+        synchronized (lock) {
+            snapshot = pending;
+            pending = null;
+            scheduledWrite = null;
+        }
+        if (snapshot == null) {
+            return;
+        }
+
+        boolean written;
+        try {
+            written = storageService.writeCurrentTrip(snapshot);
+        } catch (TripVersionConflictException e) {
+            throw e; // Another instance's changes won; writing this snapshot again would fail again
+        } catch (IOException e) {
+            // Put the snapshot back unless a newer one was queued meanwhile, so flush retries it
+            synchronized (lock) {
+                if (pending == null) {
+                    pending = snapshot;
+                }
+            }
+            throw e;
+        }
+        if (written) {
+            // A snapshot skipped as stale or cleared was not saved at its version
+            lastPersistedVersion = snapshot.version();
+            onPersisted.accept(lastPersistedVersion);
+        }
+    }
+
+    /**
+     * Flush queued writes and stop the writer thread
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.travelbudgetplanner.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ExpenseVector checked against a plain list under the same edits
+ */
+class ExpenseVectorTest {
+
+    private static final String[] CATEGORIES = {"Food", "Hotel", "Transport", "Activities", "Other"};
+    private static final String[] CURRENCIES = {null, "EUR", "USD", "JPY"};
+
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final ExpenseColumns columns = new ExpenseColumns();
+    private final List<String> expected = new ArrayList<>();
+    private ExpenseVector vector = ExpenseVector.of(columns);
+
+    @Test
+    void emptyVector() {
+        assertEquals(0, vector.size());
+        assertTrue(vector.diff(ExpenseVector.of(columns)).isEmpty());
+        assertEquals(0, vector.toColumns().size());
+    }
+
+    @Test
+    void ofCopiesColumnsAcrossSeveralLevels() {
+        for (int i = 0; i < 5000; i++) {
+            Expense expense = randomExpense();
+            columns.add(expense);
+            expected.add(describe(expense));
+        }
+        assertContents(ExpenseVector.of(columns));
+    }
+
+    @Test
+    void insertRemoveAndAppendMatchList() {
+        append(3000);
+        assertContents(vector);
+        for (int step = 0; step < 3000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4) {
+                insert(random.nextInt(expected.size() + 1));
+            } else if (op < 8 && !expected.isEmpty()) {
+                remove(random.nextInt(expected.size()));
+            } else {
+                append(1 + random.nextInt(100));
+            }
+            if (step % 500 == 0) {
+                assertContents(vector);
+            }
+        }
+        assertContents(vector);
+        assertContents(ExpenseVector.of(vector.toColumns()));
+    }
+
+    @Test
+    void editsLeaveOlderVersionsIntact() {
+        append(2500);
+        ExpenseVector before = vector;
+        List<String> beforeRows = new ArrayList<>(expected);
+
+        insert(0);
+        remove(1200);
+        append(70);
+        insert(expected.size());
+
+        assertEquals(beforeRows, rows(before));
+        assertContents(vector);
+    }
+
+    @Test
+    void diffBringsColumnsFromOneVersionToAnother() {
+        append(2200);
+        List<ExpenseVector> versions = new ArrayList<>();
+        versions.add(vector);
+        for (int step = 0; step < 40; step++) {
+            switch (random.nextInt(3)) {
+                case 0 -> insert(random.nextInt(expected.size() + 1));
+                case 1 -> remove(random.nextInt(expected.size()));
+                default -> append(1 + random.nextInt(150));
+            }
+            versions.add(vector);
+        }
+
+        for (int i = 0; i < 60; i++) {
+            ExpenseVector from = versions.get(random.nextInt(versions.size()));
+            ExpenseVector to = versions.get(random.nextInt(versions.size()));
+            ExpenseVector.Change change = from.diff(to);
+            assertEquals(to.size(), from.size() - change.removed() + change.added());
+
+            // As restoring an undo step does: replace only the rows that differ
+            ExpenseColumns target = from.toColumns();
+            target.replace(change.from(), change.removed(), to, change.from(), change.added());
+            assertEquals(rows(to), rows(ExpenseVector.of(target)));
+        }
+    }
+
+    @Test
+    void diffOfSameVersionIsEmpty() {
+        append(300);
+        assertTrue(vector.diff(vector).isEmpty());
+        ExpenseVector.Change change = vector.diff(vector.remove(299));
+        assertEquals(299, change.from());
+        assertEquals(1, change.removed());
+        assertEquals(0, change.added());
+    }
+
+    @Test
+    void expensesMaterializesRange() {
+        append(200);
+        List<Expense> range = vector.expenses(50, 100);
+        assertEquals(100, range.size());
+        for (int i = 0; i < range.size(); i++) {
+            assertEquals(expected.get(50 + i), describe(range.get(i)));
+        }
+    }
+
+    @Test
+    void rejectsColumnsWithOtherDictionaries() {
+        append(10);
+        ExpenseColumns other = new ExpenseColumns();
+        other.add(randomExpense());
+        assertThrows(IllegalArgumentException.class, () -> vector.insert(other, 0));
+        assertSame(columns.getCategories(), vector.getCategories());
+    }
+
+    // === HELPERS ===
+
+    private void append(int count) {
+        int first = columns.size();
+        for (int i = 0; i < count; i++) {
+            Expense expense = randomExpense();
+            columns.add(expense);
+            expected.add(describe(expense));
+        }
+        vector = vector.appendAll(columns, first);
+    }
+
+    private void insert(int index) {
+        Expense expense = randomExpense();
+        columns.insert(index, expense);
+        expected.add(index, describe(expense));
+        vector = vector.insert(columns, index);
+    }
+
+    private void remove(int index) {
+        columns.remove(index);
+        expected.remove(index);
+        vector = vector.remove(index);
+    }
+
+    private void assertContents(ExpenseVector actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, rows(actual));
+    }
+
+    private static List<String> rows(ExpenseVector vector) {
+        List<String> rows = new ArrayList<>(vector.size());
+        for (Expense expense : vector.expenses(0, vector.size())) {
+            rows.add(describe(expense));
+        }
+        return rows;
+    }
+
+    private Expense randomExpense() {
+        LocalDate date = random.nextInt(20) == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(random.nextInt(60));
+        Expense expense = new Expense(CATEGORIES[random.nextInt(CATEGORIES.length)],
+                random.nextInt(1, 100_000) / 100.0, date);
+        expense.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+        if (random.nextBoolean()) {
+            expense.setDescription("Row " + random.nextInt(1000));
+        }
+        return expense;
+    }
+
+    private static String describe(Expense expense) {
+        return expense.getCategory() + "|" + expense.getAmount() + "|" + expense.getDate() + "|"
+                + expense.getDescription() + "|" + expense.getCurrency();
+    }
+}
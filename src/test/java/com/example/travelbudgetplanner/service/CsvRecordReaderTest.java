@@ -0,0 +1,71 @@
+package com.example.travelbudgetplanner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void plainFields() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("1", "2", "3")), read("a,b,c\n1,2,3\n", ','));
+    }
+
+    @Test
+    void quotedFieldsWithDelimitersQuotesAndLineBreaks() throws IOException {
+        String csv = "\"Cafe, Lisbon\",\"He said \"\"hi\"\"\",\"two\nlines\"\n";
+        assertEquals(List.of(List.of("Cafe, Lisbon", "He said \"hi\"", "two\nlines")), read(csv, ','));
+    }
+
+    @Test
+    void emptyFieldsAreKept() throws IOException {
+        assertEquals(List.of(List.of("", "x", "", "")), read(",x,,\n", ','));
+        assertEquals(List.of(List.of("", "")), read("\"\",\n", ','));
+    }
+
+    @Test
+    void crlfAndMissingFinalNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), read("a,b\r\nc,d", ','));
+    }
+
+    @Test
+    void blankLinesAreSkippedAndLineNumbersTracked() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a\n\n\"b\nc\"\n\nd\n"), ',');
+        assertEquals(List.of("a"), reader.next());
+        assertEquals(1, reader.getLineNumber());
+        assertEquals(List.of("b\nc"), reader.next());
+        assertEquals(3, reader.getLineNumber());
+        assertEquals(List.of("d"), reader.next());
+        assertEquals(6, reader.getLineNumber());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void otherDelimiter() throws IOException {
+        assertEquals(List.of(List.of("1,50", "EUR")), read("1,50;EUR\n", ';'));
+        assertEquals(List.of(List.of("a b", "c")), read("a b\tc\n", '\t'));
+    }
+
+    @Test
+    void recordsLongerThanTheBuffer() throws IOException {
+        String longField = "x".repeat(200_000);
+        assertEquals(List.of(List.of(longField, "end")), read("\"" + longField + "\",end\n", ','));
+    }
+
+    private static List<List<String>> read(String csv, char delimiter) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvRecordReader reader = new CsvRecordReader(new StringReader(csv), delimiter)) {
+            List<String> record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.service.ExpenseImporter.ImportResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseImporterTest {
+
+    @Test
+    void parseAmountFormats() {
+        assertEquals(1234.56, ExpenseImporter.parseAmount("1,234.56", false));
+        assertEquals(1234.56, ExpenseImporter.parseAmount("1.234,56", true));
+        assertEquals(12.5, ExpenseImporter.parseAmount("$12.50", false));
+        assertEquals(12.5, ExpenseImporter.parseAmount("12,50 €", true));
+        assertEquals(-3.0, ExpenseImporter.parseAmount("-3", false));
+        assertEquals(-3.0, ExpenseImporter.parseAmount("3-", false));
+        assertEquals(-42.1, ExpenseImporter.parseAmount("(42.10)", false));
+        assertEquals(-7.0, ExpenseImporter.parseAmount("−7", false));
+    }
+
+    @Test
+    void parseAmountRejectsNonNumbers() {
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImporter.parseAmount("", false));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImporter.parseAmount("n/a", false));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImporter.parseAmount("1.2.3", false));
+    }
+
+    @Test
+    void importsRowsAndCountsSkippedAndFailed() throws IOException {
+        CsvImportConfig config = new CsvImportConfig();
+        config.setCurrencyColumn("Currency");
+        String csv = """
+                Date,Amount,Description,Currency
+                2024-05-01,12.50,"Lunch, harbour",eur
+                2024-05-02,-5,Refund,EUR
+                2024-05-03,abc,Broken,EUR
+                2024-05-04,30,Taxi,
+                2024-05-05,8,Museum,euros
+                """;
+        List<Expense> imported = new ArrayList<>();
+        ImportResult result = new ExpenseImporter(config, new CategoryRules())
+                .importCsv(new StringReader(csv), imported::addAll, new ExpenseImporter.Listener() {});
+
+        assertEquals(5, result.rowsRead());
+        assertEquals(2, result.imported());
+        assertEquals(1, result.skipped());
+        assertEquals(2, result.failed());
+        assertTrue(result.errors().get(0).contains("abc"), result.errors().toString());
+        assertTrue(result.errors().get(1).contains("euros"), result.errors().toString());
+
+        Expense lunch = imported.get(0);
+        assertEquals(12.5, lunch.getAmount());
+        assertEquals(LocalDate.of(2024, 5, 1), lunch.getDate());
+        assertEquals("Lunch, harbour", lunch.getDescription());
+        assertEquals("EUR", lunch.getCurrency());
+        assertEquals("Other", lunch.getCategory());
+        assertNull(imported.get(1).getCurrency());
+    }
+
+    @Test
+    void negativeExpensesAndSmallBatches() throws IOException {
+        CsvImportConfig config = new CsvImportConfig();
+        config.setExpensesNegative(true);
+        StringBuilder csv = new StringBuilder("Date,Amount,Description\n");
+        for (int i = 0; i < 25; i++) {
+            csv.append("2024-06-01,-").append(i + 1).append(",Row ").append(i).append('\n');
+        }
+        List<Integer> batchSizes = new ArrayList<>();
+        ImportResult result = new ExpenseImporter(config, new CategoryRules(), 10)
+                .importCsv(new StringReader(csv.toString()), batch -> batchSizes.add(batch.size()),
+                        new ExpenseImporter.Listener() {});
+
+        assertEquals(25, result.imported());
+        assertEquals(List.of(10, 10, 5), batchSizes);
+    }
+
+    @Test
+    void currencyCodeShape() {
+        assertTrue(ExchangeRates.isCurrencyCode("EUR"));
+        assertFalse(ExchangeRates.isCurrencyCode("eur"));
+        assertFalse(ExchangeRates.isCurrencyCode("EURO"));
+        assertFalse(ExchangeRates.isCurrencyCode("E1R"));
+        assertFalse(ExchangeRates.isCurrencyCode(null));
+    }
+}
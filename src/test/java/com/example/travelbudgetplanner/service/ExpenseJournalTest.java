@@ -0,0 +1,161 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.TripData;
+import com.example.travelbudgetplanner.service.ExpenseJournal.JournalRecord;
+import com.example.travelbudgetplanner.service.ExpenseJournal.Operation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpenseJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaySkipsTornLastLine() throws IOException {
+        Path file = dir.resolve("trip.journal");
+        ExpenseJournal journal = new ExpenseJournal(file, objectMapper);
+        journal.appendAll(List.of(add(1, 0, "Food"), add(2, 1, "Hotel")));
+        journal.close();
+        Files.writeString(file, "{\"operation\":\"ADD\",\"vers", StandardOpenOption.APPEND);
+
+        TripData trip = new TripData();
+        assertEquals(2, ExpenseJournal.replay(file, trip, objectMapper));
+        assertEquals(List.of("Food", "Hotel"), categories(trip));
+        assertEquals(2, trip.getVersion());
+    }
+
+    @Test
+    void corruptLineBeforeTheEndFailsReplay() throws IOException {
+        Path file = dir.resolve("trip.journal");
+        Files.writeString(file, "not json\n" + objectMapper.writeValueAsString(add(1, 0, "Food")) + "\n");
+
+        assertThrows(IOException.class, () -> ExpenseJournal.replay(file, new TripData(), objectMapper));
+    }
+
+    @Test
+    void appendAfterTornLineCutsItOff() throws IOException {
+        Path file = dir.resolve("trip.journal");
+        ExpenseJournal journal = new ExpenseJournal(file, objectMapper);
+        journal.append(add(1, 0, "Food"));
+        journal.close();
+        Files.writeString(file, "{\"operation\":\"AD", StandardOpenOption.APPEND);
+
+        journal = new ExpenseJournal(file, objectMapper);
+        journal.append(add(2, 1, "Hotel"));
+        journal.close();
+
+        assertFalse(Files.readString(file).contains("\"AD\""));
+        TripData trip = new TripData();
+        assertEquals(2, ExpenseJournal.replay(file, trip, objectMapper));
+        assertEquals(List.of("Food", "Hotel"), categories(trip));
+    }
+
+    @Test
+    void replaySkipsRecordsInTheSnapshot() throws IOException {
+        Path file = dir.resolve("trip.journal");
+        ExpenseJournal journal = new ExpenseJournal(file, objectMapper);
+        journal.appendAll(List.of(add(1, 0, "Food"), add(2, 1, "Hotel"), add(3, 2, "Transport")));
+        journal.close();
+
+        TripData trip = new TripData();
+        trip.addExpense(expense("Food"));
+        trip.addExpense(expense("Hotel"));
+        trip.setVersion(2);
+        assertEquals(1, ExpenseJournal.replay(file, trip, objectMapper));
+        assertEquals(List.of("Food", "Hotel", "Transport"), categories(trip));
+    }
+
+    @Test
+    void rotatingAgainKeepsRecordsOfFailedCompaction() throws IOException {
+        Path file = dir.resolve("trip.journal");
+        Path compacting = dir.resolve("trip.journal.compacting");
+        ExpenseJournal journal = new ExpenseJournal(file, objectMapper);
+        journal.append(add(1, 0, "Food"));
+        journal.rotateTo(compacting);
+        // The compaction that should have folded record 1 into a snapshot never finished
+        journal.append(add(2, 1, "Hotel"));
+        journal.rotateTo(compacting);
+        journal.append(add(3, 2, "Transport"));
+        journal.close();
+
+        TripData trip = new TripData();
+        ExpenseJournal.replay(compacting, trip, objectMapper);
+        ExpenseJournal.replay(file, trip, objectMapper);
+        assertEquals(List.of("Food", "Hotel", "Transport"), categories(trip));
+        assertEquals(3, trip.getVersion());
+    }
+
+    @Test
+    void replaceReplaysAsOneRecord() throws IOException {
+        TripDataStorageService storage = new TripDataStorageService(dir, StorageFormat.JSON);
+        ColumnarTripData trip = new ColumnarTripData();
+        storage.saveCurrentTrip(trip);
+        storage.appendExpenses(trip, List.of(expense("A"), expense("B"), expense("C"), expense("D")));
+        storage.replaceExpenses(trip, 1, 2, List.of(expense("X")));
+        storage.close();
+
+        TripData loaded = new TripDataStorageService(dir, StorageFormat.JSON).loadCurrentTrip();
+        assertEquals(List.of("A", "X", "D"), categories(loaded));
+        assertEquals(trip.getVersion(), loaded.getVersion());
+    }
+
+    @Test
+    void tornReplaceIsNotHalfApplied() throws IOException {
+        Path file = dir.resolve("trip.journal");
+        ExpenseJournal journal = new ExpenseJournal(file, objectMapper);
+        journal.appendAll(List.of(add(1, 0, "A"), add(2, 1, "B"), add(3, 2, "C")));
+        journal.close();
+        String replace = objectMapper.writeValueAsString(
+                JournalRecord.replace(4, 0, 2, List.of(expense("X"), expense("Y"), expense("Z"))));
+        Files.writeString(file, replace.substring(0, replace.length() / 2), StandardOpenOption.APPEND);
+
+        TripData trip = new TripData();
+        ExpenseJournal.replay(file, trip, objectMapper);
+        assertEquals(List.of("A", "B", "C"), categories(trip));
+    }
+
+    @Test
+    void otherOperationsLeaveReplaceFieldsOut() throws IOException {
+        String line = objectMapper.writeValueAsString(add(1, 0, "Food"));
+        assertFalse(line.contains("removed"), line);
+        assertFalse(line.contains("expenses"), line);
+    }
+
+    private static JournalRecord add(long version, int index, String category) {
+        return new JournalRecord(Operation.ADD, version, index, expense(category));
+    }
+
+    private static Expense expense(String category) {
+        return new Expense(category, 10, LocalDate.of(2024, 3, 1));
+    }
+
+    private static List<String> categories(TripData trip) {
+        List<String> categories = new ArrayList<>();
+        for (Expense expense : trip.getExpenses()) {
+            categories.add(expense.getCategory());
+        }
+        return categories;
+    }
+}
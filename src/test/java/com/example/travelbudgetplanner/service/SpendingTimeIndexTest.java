@@ -0,0 +1,106 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.ExpenseColumns;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpendingTimeIndexTest {
+
+    private static final int TRIP_DAY = day(2024, 6, 1);
+    private static final int MISTYPED_DAY = day(1, 1, 1);
+
+    @Test
+    void sumsOverDateRanges() {
+        SpendingTimeIndex index = new SpendingTimeIndex();
+        index.add("Food", 1000, TRIP_DAY);
+        index.add("Food", 250, TRIP_DAY + 2);
+        index.add("Hotel", 8000, TRIP_DAY + 1);
+
+        assertEquals(9250, index.rangeCents(TRIP_DAY, TRIP_DAY + 2));
+        assertEquals(8250, index.rangeCents(TRIP_DAY + 1, TRIP_DAY + 5));
+        assertEquals(1250, index.rangeCents("Food", TRIP_DAY - 10, TRIP_DAY + 10));
+        assertEquals(0, index.rangeCents("Taxi", TRIP_DAY, TRIP_DAY + 2));
+        assertArrayEquals(new long[] {0, 1000, 9000, 9250}, index.cumulativeSeries(TRIP_DAY - 1, TRIP_DAY + 2));
+    }
+
+    @Test
+    void removingAnExpenseTakesItOutOfTheSums() {
+        SpendingTimeIndex index = new SpendingTimeIndex();
+        index.add("Food", 1000, TRIP_DAY);
+        index.add("Food", 500, TRIP_DAY + 40);
+        index.remove("Food", 1000, TRIP_DAY);
+
+        assertEquals(500, index.cumulativeCents(TRIP_DAY + 100));
+        assertEquals(TRIP_DAY + 40, index.getFirstDay());
+    }
+
+    @Test
+    void outlierDateDoesNotStretchTheWindow() {
+        SpendingTimeIndex index = new SpendingTimeIndex();
+        index.add("Food", 1000, TRIP_DAY);
+        index.add("Hotel", 8000, TRIP_DAY + 1);
+        index.add("Food", 300, MISTYPED_DAY);
+        index.add("Taxi", 700, day(9999, 12, 31));
+
+        assertTrue(index.denseDays() <= ExpenseTotals.MAX_DENSE_DAYS);
+        assertEquals(MISTYPED_DAY, index.getFirstDay());
+        assertEquals(day(9999, 12, 31), index.getLastDay());
+        assertEquals(300, index.cumulativeCents(TRIP_DAY - 1));
+        assertEquals(9300, index.cumulativeCents(TRIP_DAY + 1));
+        assertEquals(10000, index.rangeCents(MISTYPED_DAY, day(9999, 12, 31)));
+        assertEquals(1300, index.rangeCents("Food", MISTYPED_DAY, TRIP_DAY));
+        assertEquals(700, index.rangeCents("Taxi", TRIP_DAY + 2, Integer.MAX_VALUE));
+        assertArrayEquals(new long[] {0, 300, 300}, index.cumulativeSeries(MISTYPED_DAY - 1, MISTYPED_DAY + 1));
+
+        index.remove("Food", 300, MISTYPED_DAY);
+        assertEquals(TRIP_DAY, index.getFirstDay());
+        assertEquals(0, index.cumulativeCents(TRIP_DAY - 1));
+    }
+
+    @Test
+    void outlierDatesSurviveARoundTrip() throws IOException {
+        SpendingTimeIndex index = new SpendingTimeIndex();
+        index.add("Food", 1000, TRIP_DAY);
+        index.add("Hotel", 8000, TRIP_DAY + 3);
+        index.add("Food", 300, MISTYPED_DAY);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        SpendingTimeIndex read = SpendingTimeIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(MISTYPED_DAY, read.getFirstDay());
+        assertEquals(TRIP_DAY + 3, read.getLastDay());
+        assertEquals(9300, read.rangeCents(MISTYPED_DAY, TRIP_DAY + 3));
+        assertEquals(1300, read.rangeCents("Food", MISTYPED_DAY, TRIP_DAY));
+        assertEquals(8000, read.rangeCents("Hotel", TRIP_DAY, TRIP_DAY + 3));
+        assertTrue(read.denseDays() <= ExpenseTotals.MAX_DENSE_DAYS);
+    }
+
+    @Test
+    void emptyIndexHasNoDays() throws IOException {
+        SpendingTimeIndex index = new SpendingTimeIndex();
+        assertEquals(ExpenseColumns.NO_DATE, index.getFirstDay());
+        assertEquals(0, index.rangeCents(MISTYPED_DAY, TRIP_DAY));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        SpendingTimeIndex read = SpendingTimeIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        read.add("Food", 300, MISTYPED_DAY);
+        read.add("Food", 1000, TRIP_DAY);
+
+        assertEquals(1300, read.rangeCents(MISTYPED_DAY, TRIP_DAY));
+        assertEquals(MISTYPED_DAY, read.getFirstDay());
+    }
+
+    private static int day(int year, int month, int dayOfMonth) {
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.travelbudgetplanner.service;
+
+import com.example.travelbudgetplanner.model.ColumnarTripData;
+import com.example.travelbudgetplanner.model.Expense;
+import com.example.travelbudgetplanner.model.TripData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripCodecTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void binaryRoundTrip() throws IOException {
+        TripData trip = sampleTrip();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TripBinaryCodec.write(trip, out);
+        byte[] bytes = out.toByteArray();
+
+        assertTrue(TripBinaryCodec.hasMagic(bytes));
+        assertSameTrip(trip, TripBinaryCodec.read(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void binaryRoundTripOfEmptyTrip() throws IOException {
+        TripData trip = new ColumnarTripData();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TripBinaryCodec.write(trip, out);
+
+        assertSameTrip(trip, TripBinaryCodec.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void jsonFileRoundTrip() throws IOException {
+        fileRoundTrip(StorageFormat.JSON);
+    }
+
+    @Test
+    void binaryFileRoundTrip() throws IOException {
+        fileRoundTrip(StorageFormat.BINARY);
+    }
+
+    private void fileRoundTrip(StorageFormat format) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        TripFileCodec codec = new TripFileCodec(objectMapper, format);
+        TripData trip = sampleTrip();
+        Path file = dir.resolve("trip" + codec.fileExtension());
+        codec.write(trip, file);
+
+        assertSameTrip(trip, codec.read(file));
+    }
+
+    @Test
+    void readDetectsFormatOfExistingFile() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        TripData trip = sampleTrip();
+        Path file = dir.resolve("trip");
+        new TripFileCodec(objectMapper, StorageFormat.BINARY).write(trip, file);
+
+        assertSameTrip(trip, new TripFileCodec(objectMapper, StorageFormat.JSON).read(file));
+    }
+
+    private static TripData sampleTrip() {
+        ColumnarTripData trip = new ColumnarTripData("Lisbon", LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 9), 1500.5);
+        trip.setBaseCurrency("EUR");
+        trip.setVersion(42);
+        trip.addExpense(new Expense("Food", 12.34, LocalDate.of(2024, 5, 1)));
+        Expense hotel = new Expense("Hotel", 480, LocalDate.of(2024, 5, 2));
+        hotel.setDescription("Three nights, \"sea view\"");
+        hotel.setCurrency("USD");
+        trip.addExpense(hotel);
+        trip.addExpense(new Expense("Other", 0.01, null));
+        Expense refund = new Expense(null, 5, LocalDate.of(2024, 4, 30));
+        refund.setCurrency("EUR");
+        trip.addExpense(refund);
+        return trip;
+    }
+
+    private static void assertSameTrip(TripData expected, TripData actual) {
+        assertEquals(expected.getDestination(), actual.getDestination());
+        assertEquals(expected.getStartDate(), actual.getStartDate());
+        assertEquals(expected.getEndDate(), actual.getEndDate());
+        assertEquals(expected.getBudget(), actual.getBudget());
+        assertEquals(expected.getBaseCurrency(), actual.getBaseCurrency());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(describe(expected.getExpenses()), describe(actual.getExpenses()));
+    }
+
+    private static List<String> describe(List<Expense> expenses) {
+        return expenses.stream()
+                .map(e -> e.getCategory() + "|" + e.getAmount() + "|" + e.getDate() + "|" + e.getDescription()
+                        + "|" + e.getCurrency())
+                .toList();
+    }
+}